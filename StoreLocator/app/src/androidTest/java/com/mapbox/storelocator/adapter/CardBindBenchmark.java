@@ -0,0 +1,184 @@
+package com.mapbox.storelocator.adapter;
+
+import android.app.Activity;
+import android.app.Instrumentation;
+import android.content.Context;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.Log;
+import android.view.Choreographer;
+import android.view.ContextThemeWrapper;
+import android.view.FrameMetrics;
+import android.view.Window;
+
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.InstrumentationRegistry;
+import androidx.test.rule.ActivityTestRule;
+import androidx.test.runner.AndroidJUnit4;
+
+import com.mapbox.storelocator.R;
+import com.mapbox.storelocator.activity.ThemePickerActivity;
+import com.mapbox.storelocator.model.IndividualLocation;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Flings the location cards in a RecyclerView, one scroll step per Choreographer frame, and
+ * measures the frames the window renders with FrameMetrics. The cards are flung with the card theme
+ * precomputed once, as the adapter does, and with it resolved on every bind as the adapter used to
+ * do. Both results are logged under the "CardBindBenchmark" tag, and the test fails if the frames
+ * of the adapter as shipped go over the budget of a 60 Hz display.
+ */
+@RunWith(AndroidJUnit4.class)
+public class CardBindBenchmark {
+
+  private static final String TAG = "CardBindBenchmark";
+  private static final int THEME = R.style.AppTheme_Blue;
+  private static final int LOCATION_COUNT = 500;
+  private static final int SCROLL_STEPS_PER_SCREEN = 8;
+  private static final int WARMUP_FRAMES = 60;
+  private static final int MEASURED_FRAMES = 300;
+  private static final long FLING_TIMEOUT_SECONDS = 30;
+  private static final long FRAME_BUDGET_NANOS = 16666667;
+
+  @Rule
+  public ActivityTestRule<ThemePickerActivity> activityRule = new ActivityTestRule<>(ThemePickerActivity.class);
+
+  @Test
+  public void flingStaysWithinFrameBudget() throws InterruptedException {
+    assumeTrue("FrameMetrics needs Android 7.0", Build.VERSION.SDK_INT >= Build.VERSION_CODES.N);
+
+    long[] perBindTheme = fling(true);
+    long[] precomputedTheme = fling(false);
+
+    log("theme resolved per bind", perBindTheme);
+    log("theme precomputed", precomputedTheme);
+    assertTrue("No frames were rendered", precomputedTheme.length > 0);
+    long p90 = percentile(precomputedTheme, 90);
+    assertTrue(String.format(Locale.US, "p90 frame of %.1f ms is over the %.1f ms budget", p90 / 1e6,
+      FRAME_BUDGET_NANOS / 1e6), p90 <= FRAME_BUDGET_NANOS);
+  }
+
+  /**
+   * @return the total duration of each frame rendered after the warmup, in nanoseconds
+   */
+  private long[] fling(final boolean resolveThemePerBind) throws InterruptedException {
+    Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+    final Activity activity = activityRule.getActivity();
+    final List<Long> frameDurations = new ArrayList<>();
+    final Window.OnFrameMetricsAvailableListener frameMetricsListener = new Window.OnFrameMetricsAvailableListener() {
+      @Override
+      public void onFrameMetricsAvailable(Window window, FrameMetrics frameMetrics, int dropCountSinceLastInvocation) {
+        synchronized (frameDurations) {
+          frameDurations.add(frameMetrics.getMetric(FrameMetrics.TOTAL_DURATION));
+        }
+      }
+    };
+    HandlerThread metricsThread = new HandlerThread(TAG);
+    metricsThread.start();
+    final Handler metricsHandler = new Handler(metricsThread.getLooper());
+    final CountDownLatch flung = new CountDownLatch(1);
+
+    instrumentation.runOnMainSync(new Runnable() {
+      @Override
+      public void run() {
+        Context context = new ContextThemeWrapper(activity, THEME);
+        final RecyclerView recyclerView = new RecyclerView(context);
+        recyclerView.setLayoutManager(new LinearLayoutManager(context, LinearLayoutManager.HORIZONTAL, false));
+        recyclerView.setAdapter(createAdapter(context, resolveThemePerBind));
+        activity.setContentView(recyclerView);
+
+        final int scrollStep = activity.getResources().getDisplayMetrics().widthPixels / SCROLL_STEPS_PER_SCREEN;
+        Choreographer.getInstance().postFrameCallback(new Choreographer.FrameCallback() {
+          private int frame;
+
+          @Override
+          public void doFrame(long frameTimeNanos) {
+            if (frame == WARMUP_FRAMES) {
+              activity.getWindow().addOnFrameMetricsAvailableListener(frameMetricsListener, metricsHandler);
+            } else if (frame == WARMUP_FRAMES + MEASURED_FRAMES) {
+              flung.countDown();
+              return;
+            }
+            recyclerView.scrollBy(scrollStep, 0);
+            frame++;
+            Choreographer.getInstance().postFrameCallback(this);
+          }
+        });
+      }
+    });
+
+    assertTrue("The fling didn't finish", flung.await(FLING_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    instrumentation.waitForIdleSync();
+    instrumentation.runOnMainSync(new Runnable() {
+      @Override
+      public void run() {
+        activity.getWindow().removeOnFrameMetricsAvailableListener(frameMetricsListener);
+      }
+    });
+    metricsThread.quitSafely();
+
+    synchronized (frameDurations) {
+      long[] durations = new long[frameDurations.size()];
+      for (int x = 0; x < durations.length; x++) {
+        durations[x] = frameDurations.get(x);
+      }
+      return durations;
+    }
+  }
+
+  private static LocationRecyclerViewAdapter createAdapter(final Context context, boolean resolveThemePerBind) {
+    List<IndividualLocation> locations = new ArrayList<>(LOCATION_COUNT);
+    for (int x = 0; x < LOCATION_COUNT; x++) {
+      IndividualLocation location = new IndividualLocation("store-" + x, "Location " + x,
+        x + " Broadway, New York, NY", "9am - 9pm", "(212) 555-0100", 40.7, -74.0);
+      location.setDistanceInMeters(x % 10 * 1609.344);
+      locations.add(location);
+    }
+    LocationRecyclerViewAdapter.ClickListener clickListener = new LocationRecyclerViewAdapter.ClickListener() {
+      @Override
+      public void onItemClick(int position) {
+      }
+    };
+    if (!resolveThemePerBind) {
+      return new LocationRecyclerViewAdapter(locations, context, clickListener, THEME);
+    }
+    return new LocationRecyclerViewAdapter(locations, context, clickListener, THEME) {
+      @Override
+      public void onBindViewHolder(ViewHolder card, int position) {
+        CardTheme.forTheme(context.getResources(), THEME).applyTo(card);
+        super.onBindViewHolder(card, position);
+      }
+    };
+  }
+
+  private static long percentile(long[] frameDurations, int percent) {
+    long[] sorted = Arrays.copyOf(frameDurations, frameDurations.length);
+    Arrays.sort(sorted);
+    return sorted[Math.min(sorted.length - 1, sorted.length * percent / 100)];
+  }
+
+  private static void log(String label, long[] frameDurations) {
+    if (frameDurations.length == 0) {
+      Log.i(TAG, label + ": no frames rendered");
+      return;
+    }
+    Log.i(TAG, String.format(Locale.US, "%s: median %.1f ms, p90 %.1f ms, p99 %.1f ms over %d frames", label,
+      percentile(frameDurations, 50) / 1e6, percentile(frameDurations, 90) / 1e6,
+      percentile(frameDurations, 99) / 1e6, frameDurations.length));
+  }
+}
@@ -0,0 +1,124 @@
+package com.mapbox.storelocator.repository;
+
+import androidx.test.InstrumentationRegistry;
+import androidx.test.runner.AndroidJUnit4;
+
+import com.mapbox.storelocator.sync.CatalogDelta;
+import com.mapbox.storelocator.sync.StoreRecord;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Runs the repository against a SQLite database kept in memory
+ */
+@RunWith(AndroidJUnit4.class)
+public class SqliteStoreRepositoryTest {
+
+  private SqliteStoreRepository repository;
+
+  @Before
+  public void setUp() throws IOException {
+    repository = new SqliteStoreRepository(InstrumentationRegistry.getTargetContext(), null);
+    repository.apply(new CatalogDelta("v1", true, Arrays.asList(
+      new StoreRecord("downtown", "Downtown", "1 Broadway", "6am - 5pm", null, 40.7, -74.0),
+      new StoreRecord("midtown", "Midtown", "5th Ave", null, "(555) 555-1234", 40.75, -73.98),
+      new StoreRecord("uptown", "Uptown", null, null, "(555) 555-4355", 40.8, -73.95)),
+      Collections.<String>emptyList()));
+  }
+
+  @After
+  public void tearDown() {
+    repository.close();
+  }
+
+  @Test
+  public void apply_keepsPositionsOfUpdatedStoresAndAddsNewStoresLast() throws IOException {
+    repository.apply(new CatalogDelta("v2", false, Arrays.asList(
+      new StoreRecord("harbor", "Harbor", null, null, null, 40.6, -74.05),
+      new StoreRecord("downtown", "Downtown Flagship", "1 Broadway", "24/7", null, 40.7, -74.0)),
+      Collections.singletonList("midtown")));
+
+    assertEquals("v2", repository.getVersion());
+    assertEquals(3, repository.count());
+    assertEquals(Arrays.asList("downtown", "uptown", "harbor"), ids(repository.readAll()));
+    assertEquals("Downtown Flagship", repository.get("downtown").getName());
+    assertNull(repository.get("midtown"));
+  }
+
+  @Test
+  public void apply_replacesEveryStoreWithAFullDelta() throws IOException {
+    repository.apply(new CatalogDelta("v2", true, Collections.singletonList(
+      new StoreRecord("harbor", "Harbor", null, null, null, 40.6, -74.05)), Collections.<String>emptyList()));
+
+    assertEquals(Collections.singletonList("harbor"), ids(repository.readAll()));
+  }
+
+  @Test
+  public void readLocationsAndText_streamStoresInCatalogOrder() throws IOException {
+    final List<String> locations = new ArrayList<>();
+    repository.readLocations(new StoreRepository.LocationListener() {
+      @Override
+      public void onLocation(String id, double latitude, double longitude) {
+        locations.add(id + " " + latitude + "," + longitude);
+      }
+    });
+    final List<String> texts = new ArrayList<>();
+    repository.readText(new StoreRepository.TextListener() {
+      @Override
+      public void onText(String id, String name, String description, String hours, String phone) {
+        texts.add(id + " " + name + " " + description + " " + hours + " " + phone);
+      }
+    });
+
+    assertEquals(Arrays.asList("downtown 40.7,-74.0", "midtown 40.75,-73.98", "uptown 40.8,-73.95"), locations);
+    assertEquals(Arrays.asList("downtown Downtown 1 Broadway 6am - 5pm null",
+      "midtown Midtown 5th Ave null (555) 555-1234", "uptown Uptown null null (555) 555-4355"), texts);
+  }
+
+  @Test
+  public void withinBounds_findsOnlyTheStoresInsideTheBox() throws IOException {
+    assertEquals(Arrays.asList("downtown", "midtown"),
+      sorted(ids(repository.withinBounds(40.65, -74.05, 40.76, -73.97, 0))));
+    assertEquals(1, repository.withinBounds(40.65, -74.05, 40.76, -73.97, 1).size());
+    assertEquals(Collections.<String>emptyList(), ids(repository.withinBounds(41, -75, 41.5, -74.5, 0)));
+  }
+
+  @Test
+  public void nearest_findsTheNearestStoresFirst() throws IOException {
+    assertEquals(Arrays.asList("uptown", "midtown"), ids(repository.nearest(40.79, -73.95, 2)));
+  }
+
+  @Test
+  public void withinBounds_movesUpdatedStores() throws IOException {
+    repository.apply(new CatalogDelta("v2", false, Collections.singletonList(
+      new StoreRecord("uptown", "Uptown", null, null, null, 40.6, -74.05)), Collections.<String>emptyList()));
+
+    assertEquals(Arrays.asList("downtown", "uptown"),
+      sorted(ids(repository.withinBounds(40.55, -74.1, 40.72, -73.99, 0))));
+  }
+
+  private static List<String> sorted(List<String> ids) {
+    Collections.sort(ids);
+    return ids;
+  }
+
+  private static List<String> ids(List<StoreRecord> records) {
+    List<String> ids = new ArrayList<>(records.size());
+    for (StoreRecord record : records) {
+      ids.add(record.getId());
+    }
+    return ids;
+  }
+}
@@ -2,29 +2,33 @@ package com.mapbox.storelocator.activity;
 
 import android.content.Context;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.graphics.Color;
 import android.graphics.PointF;
 import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
 import android.os.Bundle;
+import android.os.Handler;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.util.Log;
+import android.view.View;
 import android.view.Window;
 import android.view.WindowManager;
+import android.widget.CheckBox;
+import android.widget.CompoundButton;
+import android.widget.EditText;
 import android.widget.ImageView;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
-import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.ViewModel;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.LinearSnapHelper;
 import androidx.recyclerview.widget.RecyclerView;
 import androidx.recyclerview.widget.SnapHelper;
 
-import com.mapbox.api.directions.v5.DirectionsCriteria;
-import com.mapbox.api.directions.v5.MapboxDirections;
-import com.mapbox.api.directions.v5.models.DirectionsResponse;
-import com.mapbox.api.directions.v5.models.DirectionsRoute;
 import com.mapbox.geojson.Feature;
 import com.mapbox.geojson.FeatureCollection;
 import com.mapbox.geojson.LineString;
@@ -39,35 +43,58 @@ import com.mapbox.mapboxsdk.maps.MapboxMap;
 import com.mapbox.mapboxsdk.maps.OnMapReadyCallback;
 import com.mapbox.mapboxsdk.maps.Style;
 import com.mapbox.mapboxsdk.plugins.building.BuildingPlugin;
+import com.mapbox.mapboxsdk.style.layers.CircleLayer;
 import com.mapbox.mapboxsdk.style.layers.LineLayer;
 import com.mapbox.mapboxsdk.style.layers.SymbolLayer;
 import com.mapbox.mapboxsdk.style.sources.GeoJsonSource;
 import com.mapbox.storelocator.R;
 import com.mapbox.storelocator.adapter.LocationRecyclerViewAdapter;
-import com.mapbox.storelocator.model.IndividualLocation;
+import com.mapbox.storelocator.cluster.StoreClusterer;
+import com.mapbox.storelocator.distance.NearestLocations;
+import com.mapbox.storelocator.hours.OpeningHours;
+import com.mapbox.storelocator.hours.OpeningHoursIndex;
+import com.mapbox.storelocator.index.IntArray;
+import com.mapbox.storelocator.model.StoreCatalog;
+import com.mapbox.storelocator.model.StoreRegistry;
+import com.mapbox.storelocator.model.StoreSelection;
+import com.mapbox.storelocator.repository.SqliteStoreRepository;
+import com.mapbox.storelocator.repository.StoreRepository;
+import com.mapbox.storelocator.route.RouteGeometry;
+import com.mapbox.storelocator.search.StoreSearchIndex;
+import com.mapbox.storelocator.sync.CatalogSynchronizer;
+import com.mapbox.storelocator.sync.HttpCatalogSyncTransport;
 import com.mapbox.storelocator.util.LinearLayoutManagerWithSmoothScroller;
-import com.mapbox.turf.TurfConstants;
-import com.mapbox.turf.TurfConversion;
+import com.mapbox.storelocator.util.MarkerIconCache;
 
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.text.DecimalFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Calendar;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
-import retrofit2.Call;
-import retrofit2.Callback;
-import retrofit2.Response;
+import okhttp3.OkHttpClient;
 
-import static com.mapbox.core.constants.Constants.PRECISION_6;
-import static com.mapbox.mapboxsdk.style.expressions.Expression.eq;
 import static com.mapbox.mapboxsdk.style.expressions.Expression.get;
-import static com.mapbox.mapboxsdk.style.expressions.Expression.literal;
+import static com.mapbox.mapboxsdk.style.expressions.Expression.has;
+import static com.mapbox.mapboxsdk.style.expressions.Expression.not;
+import static com.mapbox.mapboxsdk.style.expressions.Expression.toString;
+import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.circleColor;
+import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.circleRadius;
 import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.iconAllowOverlap;
 import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.iconIgnorePlacement;
 import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.iconImage;
 import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.lineColor;
 import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.lineWidth;
+import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.textAllowOverlap;
+import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.textColor;
+import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.textField;
+import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.textIgnorePlacement;
+import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.textSize;
+import static com.mapbox.storelocator.util.StringConstants.PROPERTY_STORE_ID;
 import static com.mapbox.storelocator.util.StringConstants.SELECTED_THEME;
 
 /**
@@ -86,18 +113,59 @@ public class MapActivity extends AppCompatActivity implements
   private static final int CAMERA_MOVEMENT_SPEED_IN_MILSECS = 1200;
   private static final float NAVIGATION_LINE_WIDTH = 9;
   private static final float BUILDING_EXTRUSION_OPACITY = .8f;
-  private static final String PROPERTY_SELECTED = "selected";
   private static final String BUILDING_EXTRUSION_COLOR = "#c4dbed";
-  private DirectionsRoute currentRoute;
-  private FeatureCollection featureCollection;
+  private static final String PROPERTY_POINT_COUNT = "point_count";
+  private static final String PROPERTY_CLUSTER_ID = "cluster_id";
+  private static final int CLUSTERING_MIN_STORE_COUNT = 200;
+  private static final float CLUSTER_CIRCLE_RADIUS = 18;
+  private static final float CLUSTER_COUNT_TEXT_SIZE = 12;
+  private static final double VIEWPORT_MARGIN_FRACTION = .5;
+  private static final long VIEWPORT_REFRESH_DEBOUNCE_MILLIS = 150;
+  private static final int CARD_PAGE_PRELOAD_DISTANCE = 5;
+  private static final int CARD_LOAD_DISTANCE = 10;
+  private static final int SEARCH_RESULT_LIMIT = 50;
+  private static final String TAG = "MapActivity";
   private MapboxMap mapboxMap;
   private MapView mapView;
   private RecyclerView locationsRecyclerView;
-  private ArrayList<IndividualLocation> listOfIndividualLocations;
+  private StoreCatalog storeCatalog;
   private CustomThemeManager customThemeManager;
   private LocationRecyclerViewAdapter styleRvAdapter;
+  private StoreRegistry storeRegistry;
+  private StoreClusterer storeClusterer;
+  private StoreSelection storeSelection;
+  private boolean clusterStores;
+  private int loadedViewportZoom = -1;
+  private LatLngBounds loadedViewportBounds;
+  private int viewportGeneration;
+  private final Handler mainHandler = new Handler();
+  private final Runnable refreshStoreSourceRunnable = new Runnable() {
+    @Override
+    public void run() {
+      refreshStoreSource();
+    }
+  };
+  private NearestLocations nearestLocations;
+  private boolean cardOrderRefreshPending;
+  private boolean cardLoadPending;
+  private final Runnable refreshCardOrderRunnable = new Runnable() {
+    @Override
+    public void run() {
+      cardOrderRefreshPending = false;
+      refreshCardOrder();
+    }
+  };
+  private MapViewModel mapViewModel;
+  private StoreSearchIndex storeSearchIndex;
+  private final ExecutorService searchExecutor = Executors.newSingleThreadExecutor();
+  private volatile String searchQuery = "";
+  private int[] searchResults;
+  private OpeningHoursIndex openingHoursIndex;
+  private boolean showOnlyOpenStores;
+  private BitSet storeFilter;
+  private StoreClusterer.SubsetCounts storeFilterClusterCounts;
+  private int[] drawnRouteLevelOfDetail;
   private int chosenTheme;
-  private String TAG = "MapActivity";
 
   @Override
   protected void onCreate(Bundle savedInstanceState) {
@@ -114,20 +182,65 @@ public class MapActivity extends AppCompatActivity implements
     // Inflate the layout with the the MapView. Always inflate this after the Mapbox access token is configured.
     setContentView(R.layout.activity_map);
 
-    // Create a GeoJSON feature collection from the GeoJSON file in the assets folder.
-    try {
-      getFeatureCollectionFromJson();
-    } catch (Exception exception) {
-      Log.e("MapActivity", "onCreate: " + exception);
-      Toast.makeText(this, R.string.failure_to_load_file, Toast.LENGTH_LONG).show();
-    }
+    // The catalog, distances and route are kept in a view model, so that a recreated activity, e.g.
+    // after a rotation, shows them again without loading or requesting anything
+    mapViewModel = new ViewModelProvider(this, new ViewModelProvider.Factory() {
+      @NonNull
+      @Override
+      @SuppressWarnings("unchecked")
+      public <T extends ViewModel> T create(@NonNull Class<T> modelClass) {
+        // The synced catalog is kept in a SQLite repository, up to date with the sync endpoint when
+        // one is configured
+        StoreRepository storeRepository = SqliteStoreRepository.getInstance(MapActivity.this);
+        String catalogSyncUrl = getString(R.string.catalog_sync_url);
+        CatalogSynchronizer catalogSynchronizer = catalogSyncUrl.isEmpty() ? null : new CatalogSynchronizer(
+          new HttpCatalogSyncTransport(new OkHttpClient(), catalogSyncUrl), storeRepository);
+        return (T) new MapViewModel(getAssets(), storeRepository, catalogSynchronizer,
+          getString(R.string.access_token), new File(getCacheDir(), "routes"),
+          Point.fromLngLat(MOCK_DEVICE_LOCATION_LAT_LNG.getLongitude(), MOCK_DEVICE_LOCATION_LAT_LNG.getLatitude()));
+      }
+    }).get(MapViewModel.class);
 
-    // Initialize a list of IndividualLocation objects for future use with recyclerview
-    listOfIndividualLocations = new ArrayList<>();
+    // Search the stores as the query is typed
+    EditText searchEditText = findViewById(R.id.map_search_edit_text);
+    searchEditText.addTextChangedListener(new TextWatcher() {
+      @Override
+      public void beforeTextChanged(CharSequence text, int start, int count, int after) {
+      }
+
+      @Override
+      public void onTextChanged(CharSequence text, int start, int before, int count) {
+      }
+
+      @Override
+      public void afterTextChanged(Editable text) {
+        searchStores(text.toString());
+      }
+    });
+
+    // Limit the cards and the map to the stores that are open now
+    CheckBox openNowCheckBox = findViewById(R.id.map_open_now_check_box);
+    openNowCheckBox.setOnCheckedChangeListener(new CompoundButton.OnCheckedChangeListener() {
+      @Override
+      public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
+        showOnlyOpenStores = isChecked;
+        refreshStoreFilter();
+      }
+    });
 
     // Initialize the theme that was selected in the previous activity. The blue theme is set as the backup default.
     chosenTheme = getIntent().getIntExtra(SELECTED_THEME, R.style.AppTheme_Blue);
 
+    // Initialize the custom class that handles marker icon creation and map styling based on the selected theme,
+    // and start decoding the theme's icons while the map loads
+    customThemeManager = new CustomThemeManager(chosenTheme, MapActivity.this);
+    customThemeManager.loadIcons(new Runnable() {
+      @Override
+      public void run() {
+        addThemeIconsToStyle();
+      }
+    });
+
     // Set up the Mapbox map
     mapView = findViewById(R.id.mapView);
     mapView.onCreate(savedInstanceState);
@@ -135,9 +248,6 @@ public class MapActivity extends AppCompatActivity implements
       @Override
       public void onMapReady(final MapboxMap mapboxMap) {
 
-        // Initialize the custom class that handles marker icon creation and map styling based on the selected theme
-        customThemeManager = new CustomThemeManager(chosenTheme, MapActivity.this);
-
         mapboxMap.setStyle(new Style.Builder().fromUrl(customThemeManager.getMapStyle()), new Style.OnStyleLoaded() {
           @Override
           public void onStyleLoaded(@NonNull Style style) {
@@ -161,73 +271,296 @@ public class MapActivity extends AppCompatActivity implements
             // Set up the LineLayer which will show the navigation route line to a particular store location
             initNavigationPolylineLineLayer();
 
-            // Create a list of features from the feature collection
-            List<Feature> featureList = featureCollection.features();
+            // Add the theme's icons, unless they are still being decoded
+            addThemeIconsToStyle();
 
-            // Retrieve and update the source designated for showing the store location icons
-            GeoJsonSource source = mapboxMap.getStyle().getSourceAs("store-location-source-id");
-            if (source != null) {
-              source.setGeoJson(FeatureCollection.fromFeatures(featureList));
-            }
+            onCatalogAndStyleReady();
+          }
+
+        });
+
+      }
+    });
+
+    // Show whatever the view model has loaded so far, and the rest as it loads
+    mapViewModel.setListener(new MapViewModel.Listener() {
+      @Override
+      public void onCatalogLoaded() {
+        storeCatalog = mapViewModel.getStoreCatalog();
+        storeRegistry = storeCatalog.getStoreRegistry();
+        storeClusterer = storeCatalog.getStoreClusterer();
+        storeSelection = mapViewModel.getStoreSelection();
+        onCatalogAndStyleReady();
+      }
 
-            if (featureList != null) {
+      @Override
+      public void onCatalogUpdated() {
+        storeCatalog = mapViewModel.getStoreCatalog();
+        storeRegistry = storeCatalog.getStoreRegistry();
+        storeClusterer = storeCatalog.getStoreClusterer();
+        storeSelection = mapViewModel.getStoreSelection();
+        openingHoursIndex = mapViewModel.getOpeningHoursIndex();
+        storeSearchIndex = mapViewModel.getStoreSearchIndex();
+        if (styleRvAdapter == null) {
+          // The cards and the map show the updated catalog once they're set up
+          return;
+        }
+        nearestLocations = mapViewModel.getNearestLocations();
+        clusterStores = storeCatalog.size() >= CLUSTERING_MIN_STORE_COUNT;
+
+        // Search results may be feature indices of the catalog replaced, so the query is searched again
+        searchResults = null;
+        refreshStoreFilter();
+        searchStores(searchQuery);
+
+        // The selected store may have moved, or been removed and deselected
+        refreshSelectedStoreSource();
+      }
 
-              for (int x = 0; x < featureList.size(); x++) {
+      @Override
+      public void onCatalogLoadFailed(Exception exception) {
+        Log.e(TAG, "onCatalogLoadFailed: " + exception);
+        Toast.makeText(MapActivity.this, R.string.failure_to_load_file, Toast.LENGTH_LONG).show();
+      }
+
+      @Override
+      public void onOpeningHoursIndexBuilt() {
+        openingHoursIndex = mapViewModel.getOpeningHoursIndex();
+        refreshStoreFilter();
+      }
+
+      @Override
+      public void onSearchIndexBuilt() {
+        storeSearchIndex = mapViewModel.getStoreSearchIndex();
+        searchStores(searchQuery);
+      }
+
+      @Override
+      public void onDistancesChanged() {
+        // The cards are refreshed once per frame, and only those whose position or distance changed
+        // are rebound
+        if (styleRvAdapter != null) {
+          scheduleCardOrderRefresh();
+        }
+      }
 
-                Feature singleLocation = featureList.get(x);
+      @Override
+      public void onDistancesFailed(Throwable throwable) {
+        Log.e(TAG, "fetchDistancesToLocations: " + throwable);
+        Toast.makeText(MapActivity.this, R.string.failure_to_retrieve, Toast.LENGTH_LONG).show();
+      }
+
+      @Override
+      public void onRouteChanged() {
+        drawnRouteLevelOfDetail = null;
+        drawNavigationRouteLevelOfDetail();
+      }
+
+      @Override
+      public void onRouteFailed(Throwable throwable) {
+        Log.e(TAG, "getInformationFromDirectionsApi: " + throwable);
+        // The route wasn't cached, so it can't be shown without an internet connection
+        if (deviceHasInternetConnection()) {
+          Toast.makeText(MapActivity.this, R.string.failure_to_retrieve, Toast.LENGTH_LONG).show();
+        } else {
+          Toast.makeText(MapActivity.this, R.string.no_internet_message, Toast.LENGTH_LONG).show();
+        }
+      }
+    });
+  }
+
+  /**
+   * Shows the locations once both the map style and the catalog of locations have loaded, whichever
+   * finishes last
+   */
+  private void onCatalogAndStyleReady() {
+    if (mapboxMap == null || storeCatalog == null) {
+      return;
+    }
 
-                // Get the single location's String properties to place in its map marker
-                String singleLocationName = singleLocation.getStringProperty("name");
-                String singleLocationHours = singleLocation.getStringProperty("hours");
-                String singleLocationDescription = singleLocation.getStringProperty("description");
-                String singleLocationPhoneNum = singleLocation.getStringProperty("phone");
+    // Show clusters of nearby locations instead of thousands of overlapping icons
+    clusterStores = storeCatalog.size() >= CLUSTERING_MIN_STORE_COUNT;
 
+    // Only hand the locations around the visible part of the map to the store location source, and
+    // update them once the camera has settled
+    refreshStoreSource();
+    mapboxMap.addOnCameraMoveStartedListener(new MapboxMap.OnCameraMoveStartedListener() {
+      @Override
+      public void onCameraMoveStarted(int reason) {
+        mainHandler.removeCallbacks(refreshStoreSourceRunnable);
+      }
+    });
+    mapboxMap.addOnCameraIdleListener(new MapboxMap.OnCameraIdleListener() {
+      @Override
+      public void onCameraIdle() {
+        mainHandler.removeCallbacks(refreshStoreSourceRunnable);
+        mainHandler.postDelayed(refreshStoreSourceRunnable, VIEWPORT_REFRESH_DEBOUNCE_MILLIS);
+        drawNavigationRouteLevelOfDetail();
+      }
+    });
 
-                // Add a boolean property to use for adjusting the icon of the selected store location
-                singleLocation.addBooleanProperty(PROPERTY_SELECTED, false);
+    // Add the fake device location marker to the map. In a real use case scenario,
+    // the Maps SDK's LocationComponent can be used to easily display and customize
+    // the device location's puck
+    addMockDeviceLocationMarkerToMap();
 
-                // Get the single location's LatLng coordinates
-                Point singleLocationPosition = (Point) singleLocation.geometry();
+    setUpRecyclerViewOfLocationCards(chosenTheme);
 
-                // Create a new LatLng object with the Position object created above
-                LatLng singleLocationLatLng = new LatLng(singleLocationPosition.latitude(),
-                  singleLocationPosition.longitude());
+    // Show the results of any query typed, or filter checked, while the locations were loading
+    searchStores(searchQuery);
+    refreshStoreFilter();
 
-                // Add the location to the Arraylist of locations for later use in the recyclerview
-                listOfIndividualLocations.add(new IndividualLocation(
-                  singleLocationName,
-                  singleLocationDescription,
-                  singleLocationHours,
-                  singleLocationPhoneNum,
-                  singleLocationLatLng
-                ));
+    // Show the store selected, and the route to it, before the activity was recreated
+    refreshSelectedStoreSource();
+    drawNavigationRouteLevelOfDetail();
 
-                // Call getInformationFromDirectionsApi() to eventually display the location's
-                // distance from mocked device location
-                getInformationFromDirectionsApi(singleLocationPosition, false, x);
-              }
-              // Add the fake device location marker to the map. In a real use case scenario,
-              // the Maps SDK's LocationComponent can be used to easily display and customize
-              // the device location's puck
-              addMockDeviceLocationMarkerToMap();
+    mapboxMap.addOnMapClickListener(this);
 
-              setUpRecyclerViewOfLocationCards(chosenTheme);
+    Toast.makeText(this, "Click on a card", Toast.LENGTH_SHORT).show();
 
-              mapboxMap.addOnMapClickListener(MapActivity.this);
+    // Show 3d buildings if the blue theme is being used
+    if (customThemeManager.getNavigationLineColor() == R.color.navigationRouteLine_blue) {
+      showBuildingExtrusions();
+    }
+  }
 
-              Toast.makeText(MapActivity.this, "Click on a card", Toast.LENGTH_SHORT).show();
+  /**
+   * Updates the store location source with the locations, or the clusters of locations, inside
+   * the visible region plus a margin. Nothing is updated while the visible region stays within
+   * the previously loaded region at the same zoom level.
+   * <p>
+   * Clusters come from the clusterer in memory. Once the clusters have split up, or when there are
+   * too few locations to cluster, the locations come from the catalog's spatial index, which is
+   * queried on a background thread since a synced catalog's index is the store repository's.
+   */
+  private void refreshStoreSource() {
+    final GeoJsonSource source = mapboxMap.getStyle().getSourceAs("store-location-source-id");
+    if (source == null) {
+      return;
+    }
+    final int zoom = (int) Math.floor(mapboxMap.getCameraPosition().zoom);
+    LatLngBounds visibleBounds = mapboxMap.getProjection().getVisibleRegion().latLngBounds;
+    if (zoom == loadedViewportZoom && loadedViewportBounds != null
+      && loadedViewportBounds.contains(visibleBounds)) {
+      return;
+    }
 
-              // Show 3d buildings if the blue theme is being used
-              if (customThemeManager.getNavigationLineColor() == R.color.navigationRouteLine_blue) {
-                showBuildingExtrusions();
-              }
+    // Load a margin around the visible region so that small pans don't need a refresh
+    double latitudeMargin = visibleBounds.getLatitudeSpan() * VIEWPORT_MARGIN_FRACTION;
+    double longitudeMargin = visibleBounds.getLongitudeSpan() * VIEWPORT_MARGIN_FRACTION;
+    final double south = Math.max(-90, visibleBounds.getLatSouth() - latitudeMargin);
+    final double west = Math.max(-180, visibleBounds.getLonWest() - longitudeMargin);
+    final double north = Math.min(90, visibleBounds.getLatNorth() + latitudeMargin);
+    final double east = Math.min(180, visibleBounds.getLonEast() + longitudeMargin);
+    final LatLngBounds viewportBounds = LatLngBounds.from(north, east, south, west);
+
+    // A query still running for an earlier viewport is ignored once it finishes
+    final int generation = ++viewportGeneration;
+    if (!clusterStores || zoom > StoreClusterer.DEFAULT_MAX_ZOOM) {
+      mapViewModel.queryStoresWithinBounds(south, west, north, east, new MapViewModel.StoresCallback() {
+        @Override
+        public void onStores(int[] featureIndices) {
+          if (generation != viewportGeneration) {
+            return;
+          }
+          List<Feature> features = new ArrayList<>(featureIndices.length);
+          IntArray shownStores = new IntArray(featureIndices.length);
+          for (int featureIndex : featureIndices) {
+            if (isShown(featureIndex)) {
+              features.add(storeFeature(featureIndex));
+              shownStores.add(featureIndex);
             }
           }
+          showStoreFeatures(source, features, shownStores, zoom, viewportBounds);
+        }
 
-        });
+        @Override
+        public void onStoresFailed(IOException exception) {
+          Log.e(TAG, "refreshStoreSource: " + exception);
+        }
+      });
+      return;
+    }
 
+    // Features are only created for the stores and clusters in the region, however many stores
+    // the catalog holds
+    List<Feature> features = new ArrayList<>();
+    IntArray shownStores = new IntArray();
+    if (storeFilter != null && storeFilterClusterCounts == null) {
+      storeFilterClusterCounts = storeClusterer.countSubset(storeFilter);
+    }
+    for (int item : storeClusterer.items(zoom, south, west, north, east)) {
+      if (storeClusterer.isStore(item)) {
+        if (isShown(storeClusterer.storeIndex(item))) {
+          features.add(storeFeature(storeClusterer.storeIndex(item)));
+          shownStores.add(storeClusterer.storeIndex(item));
+        }
+        continue;
       }
-    });
+      // Under "Open now", or once stores have been removed, clusters only count the stores shown,
+      // and a single store shown is shown on its own
+      int count = storeFilter == null ? storeClusterer.count(item) : storeFilterClusterCounts.count(item);
+      if (count == 1 && storeFilter != null) {
+        features.add(storeFeature(storeFilterClusterCounts.anyStore(item)));
+        shownStores.add(storeFilterClusterCounts.anyStore(item));
+      } else if (count > 0) {
+        Feature cluster = Feature.fromGeometry(Point.fromLngLat(storeClusterer.longitude(item),
+          storeClusterer.latitude(item)));
+        cluster.addNumberProperty(PROPERTY_POINT_COUNT, count);
+        cluster.addNumberProperty(PROPERTY_CLUSTER_ID, item);
+        features.add(cluster);
+      }
+    }
+    showStoreFeatures(source, features, shownStores, zoom, viewportBounds);
+  }
+
+  private void showStoreFeatures(GeoJsonSource source, List<Feature> features, IntArray shownStores, int zoom,
+                                 LatLngBounds viewportBounds) {
+    source.setGeoJson(FeatureCollection.fromFeatures(features));
+
+    // Travel distances are requested for the stores shown on the map as well as for the cards
+    mapViewModel.fetchDistances(shownStores.toArray());
+
+    loadedViewportZoom = zoom;
+    loadedViewportBounds = viewportBounds;
+  }
+
+  /**
+   * Creates a location's map feature, tagged with its store id so that a tapped map icon can be
+   * resolved back to the location without searching
+   */
+  private Feature storeFeature(int featureIndex) {
+    Feature feature = Feature.fromGeometry(Point.fromLngLat(storeCatalog.longitude(featureIndex),
+      storeCatalog.latitude(featureIndex)));
+    feature.addStringProperty(PROPERTY_STORE_ID, storeRegistry.idAt(featureIndex));
+    return feature;
+  }
+
+  /**
+   * Works out which stores are shown: those open now if only those should be shown, and otherwise
+   * every store not removed by a sync. Then refreshes the cards and the map. The opening hours were
+   * compiled when the locations loaded, so this is a bit test per distinct opening hours rather than
+   * parsing the hours of every store. Removed stores are never open.
+   */
+  private void refreshStoreFilter() {
+    if (storeCatalog == null) {
+      // The filter is worked out once the catalog has loaded
+      return;
+    }
+    storeFilter = showOnlyOpenStores && openingHoursIndex != null
+      ? openingHoursIndex.openAt(OpeningHours.minuteOfWeek(Calendar.getInstance())) : storeCatalog.liveStores();
+    storeFilterClusterCounts = null;
+    if (nearestLocations == null) {
+      return;
+    }
+    nearestLocations.setFilter(storeFilter);
+    refreshCardOrder();
+    loadedViewportZoom = -1;
+    refreshStoreSource();
+  }
+
+  private boolean isShown(int featureIndex) {
+    return storeFilter == null || storeFilter.get(featureIndex);
   }
 
   private void showBuildingExtrusions() {
@@ -245,39 +578,30 @@ public class MapActivity extends AppCompatActivity implements
   }
 
   private boolean handleClickIcon(PointF screenPoint) {
-    List<Feature> features = mapboxMap.queryRenderedFeatures(screenPoint, "store-location-layer-id");
-    if (!features.isEmpty()) {
-      String name = features.get(0).getStringProperty("name");
-      List<Feature> featureList = featureCollection.features();
-      for (int i = 0; i < featureList.size(); i++) {
-
-        if (featureList.get(i).getStringProperty("name").equals(name)) {
-          Point selectedFeaturePoint = (Point) featureList.get(i).geometry();
-
-          if (featureSelectStatus(i)) {
-            setFeatureSelectState(featureList.get(i), false);
-          } else {
-            setSelected(i);
-          }
-          if (selectedFeaturePoint.latitude() != MOCK_DEVICE_LOCATION_LAT_LNG.getLatitude()) {
-            for (int x = 0; x < featureCollection.features().size(); x++) {
-
-              if (listOfIndividualLocations.get(x).getLocation().getLatitude() == selectedFeaturePoint.latitude()) {
-                // Scroll the recyclerview to the selected marker's card. It's "x-1" below because
-                // the mock device location marker is part of the marker list but doesn't have its own card
-                // in the actual recyclerview.
-                locationsRecyclerView.smoothScrollToPosition(x);
-              }
-            }
-          }
-        } else {
-          setFeatureSelectState(featureList.get(i), false);
-        }
-      }
+    List<Feature> features = mapboxMap.queryRenderedFeatures(screenPoint, "store-location-layer-id",
+      "store-cluster-layer-id");
+    if (features.isEmpty()) {
+      return false;
+    }
+    if (features.get(0).hasProperty(PROPERTY_CLUSTER_ID)) {
+      // Zoom in on the tapped cluster until it splits up
+      int cluster = features.get(0).getNumberProperty(PROPERTY_CLUSTER_ID).intValue();
+      mapboxMap.animateCamera(CameraUpdateFactory.newLatLngZoom(new LatLng(storeClusterer.latitude(cluster),
+        storeClusterer.longitude(cluster)), storeClusterer.expansionZoom(cluster)), CAMERA_MOVEMENT_SPEED_IN_MILSECS);
       return true;
-    } else {
+    }
+    int featureIndex = storeSelection.toggleStore(features.get(0).getStringProperty(PROPERTY_STORE_ID));
+    if (featureIndex == StoreRegistry.NOT_FOUND) {
       return false;
     }
+    refreshSelectedStoreSource();
+
+    // Scroll the recyclerview to the selected marker's card
+    int cardPosition = storeRegistry.cardPositionOf(featureIndex);
+    if (cardPosition != StoreRegistry.NOT_FOUND) {
+      locationsRecyclerView.smoothScrollToPosition(cardPosition);
+    }
+    return true;
   }
 
   /**
@@ -287,38 +611,20 @@ public class MapActivity extends AppCompatActivity implements
    */
   @Override
   public void onItemClick(int position) {
-    // Get the selected individual location via its card's position in the recyclerview of cards
-    IndividualLocation selectedLocation = listOfIndividualLocations.get(position);
-
-    // Evaluate each Feature's "select state" to appropriately style the location's icon
-    List<Feature> featureList = featureCollection.features();
-    Point selectedLocationPoint = (Point) featureCollection.features().get(position).geometry();
-    for (int i = 0; i < featureList.size(); i++) {
-      if (featureList.get(i).getStringProperty("name").equals(selectedLocation.getName())) {
-        if (featureSelectStatus(i)) {
-          setFeatureSelectState(featureList.get(i), false);
-        } else {
-          setSelected(i);
-        }
-      } else {
-        setFeatureSelectState(featureList.get(i), false);
-      }
+    // Update the "select state" of the tapped location and the previously selected location
+    int featureIndex = storeSelection.toggleCard(position);
+    if (featureIndex == StoreRegistry.NOT_FOUND) {
+      return;
     }
+    refreshSelectedStoreSource();
 
     // Reposition the map camera target to the selected marker
-    if (selectedLocation != null) {
-      repositionMapCamera(selectedLocationPoint);
-    }
+    Point selectedLocationPoint = Point.fromLngLat(storeCatalog.longitude(featureIndex),
+      storeCatalog.latitude(featureIndex));
+    repositionMapCamera(selectedLocationPoint);
 
-    // Check for an internet connection before making the call to Mapbox Directions API
-    if (deviceHasInternetConnection()) {
-      // Start call to the Mapbox Directions API
-      if (selectedLocation != null) {
-        getInformationFromDirectionsApi(selectedLocationPoint, true, null);
-      }
-    } else {
-      Toast.makeText(this, R.string.no_internet_message, Toast.LENGTH_LONG).show();
-    }
+    // Draw the route to the selected location, from the cache or the Mapbox Directions API
+    mapViewModel.requestRoute(selectedLocationPoint);
   }
 
   /**
@@ -327,9 +633,6 @@ public class MapActivity extends AppCompatActivity implements
   private void initStoreLocationIconSymbolLayer() {
     Style style = mapboxMap.getStyle();
     if (style != null) {
-      // Add the icon image to the map
-      style.addImage("store-location-icon-id", customThemeManager.getUnselectedMarkerIcon());
-
       // Create and add the GeoJsonSource to the map
       GeoJsonSource storeLocationGeoJsonSource = new GeoJsonSource("store-location-source-id");
       style.addSource(storeLocationGeoJsonSource);
@@ -342,10 +645,33 @@ public class MapActivity extends AppCompatActivity implements
         iconAllowOverlap(true),
         iconIgnorePlacement(true)
       );
+      storeLocationSymbolLayer.setFilter(not(has(PROPERTY_POINT_COUNT)));
       style.addLayer(storeLocationSymbolLayer);
 
+      // Create and add the layers which show clusters of locations as circles with their size
+      CircleLayer storeClusterCircleLayer = new CircleLayer("store-cluster-layer-id",
+        "store-location-source-id");
+      storeClusterCircleLayer.withProperties(
+        circleColor(customThemeManager.getNavigationLineColor()),
+        circleRadius(CLUSTER_CIRCLE_RADIUS)
+      );
+      storeClusterCircleLayer.setFilter(has(PROPERTY_POINT_COUNT));
+      style.addLayer(storeClusterCircleLayer);
+
+      SymbolLayer storeClusterCountLayer = new SymbolLayer("store-cluster-count-layer-id",
+        "store-location-source-id");
+      storeClusterCountLayer.withProperties(
+        textField(toString(get(PROPERTY_POINT_COUNT))),
+        textSize(CLUSTER_COUNT_TEXT_SIZE),
+        textColor(Color.WHITE),
+        textAllowOverlap(true),
+        textIgnorePlacement(true)
+      );
+      storeClusterCountLayer.setFilter(has(PROPERTY_POINT_COUNT));
+      style.addLayer(storeClusterCountLayer);
+
     } else {
-      Log.d("StoreFinderActivity", "initStoreLocationIconSymbolLayer: Style isn't ready yet.");
+      Log.d(TAG, "initStoreLocationIconSymbolLayer: Style isn't ready yet.");
 
       throw new IllegalStateException("Style isn't ready yet.");
     }
@@ -358,137 +684,73 @@ public class MapActivity extends AppCompatActivity implements
     Style style = mapboxMap.getStyle();
     if (style != null) {
 
-      // Add the icon image to the map
-      style.addImage("selected-store-location-icon-id", customThemeManager.getSelectedMarkerIcon());
+      // Create and add a GeoJsonSource which only ever holds the selected location, so that changing
+      // the selection doesn't require re-sending all of the locations to the map
+      GeoJsonSource selectedStoreLocationGeoJsonSource = new GeoJsonSource("selected-store-location-source-id");
+      style.addSource(selectedStoreLocationGeoJsonSource);
 
       // Create and add the store location icon SymbolLayer to the map
       SymbolLayer selectedStoreLocationSymbolLayer = new SymbolLayer("selected-store-location-layer-id",
-        "store-location-source-id");
+        "selected-store-location-source-id");
       selectedStoreLocationSymbolLayer.withProperties(
         iconImage("selected-store-location-icon-id"),
         iconAllowOverlap(true)
       );
-      selectedStoreLocationSymbolLayer.withFilter(eq((get(PROPERTY_SELECTED)), literal(true)));
       style.addLayer(selectedStoreLocationSymbolLayer);
     } else {
-      Log.d("StoreFinderActivity", "initSelectedStoreSymbolLayer: Style isn't ready yet.");
+      Log.d(TAG, "initSelectedStoreSymbolLayer: Style isn't ready yet.");
       throw new IllegalStateException("Style isn't ready yet.");
     }
   }
 
   /**
-   * Checks whether a Feature's boolean "selected" property is true or false
-   *
-   * @param index the specific Feature's index position in the FeatureCollection's list of Features.
-   * @return true if "selected" is true. False if the boolean property is false.
+   * Updates the display of the selected location on the map with a single update of its small source
    */
-  private boolean featureSelectStatus(int index) {
-    if (featureCollection == null) {
-      return false;
+  private void refreshSelectedStoreSource() {
+    GeoJsonSource source = mapboxMap.getStyle().getSourceAs("selected-store-location-source-id");
+    if (source != null && storeCatalog != null) {
+      int selectedFeatureIndex = storeSelection.getSelectedFeatureIndex();
+      if (selectedFeatureIndex == StoreRegistry.NOT_FOUND) {
+        source.setGeoJson(FeatureCollection.fromFeatures(new ArrayList<Feature>()));
+      } else {
+        source.setGeoJson(storeFeature(selectedFeatureIndex));
+      }
     }
-    return featureCollection.features().get(index).getBooleanProperty(PROPERTY_SELECTED);
   }
 
-  /**
-   * Set a feature selected state.
-   *
-   * @param index the index of selected feature
-   */
-  private void setSelected(int index) {
-    Feature feature = featureCollection.features().get(index);
-    setFeatureSelectState(feature, true);
-    refreshSource();
-  }
-
-  /**
-   * Selects the state of a feature
-   *
-   * @param feature the feature to be selected.
-   */
-  private void setFeatureSelectState(Feature feature, boolean selectedState) {
-    feature.properties().addProperty(PROPERTY_SELECTED, selectedState);
-    refreshSource();
+  private void repositionMapCamera(Point newTarget) {
+    CameraPosition newCameraPosition = new CameraPosition.Builder()
+      .target(new LatLng(newTarget.latitude(), newTarget.longitude()))
+      .build();
+    mapboxMap.animateCamera(CameraUpdateFactory.newCameraPosition(newCameraPosition), CAMERA_MOVEMENT_SPEED_IN_MILSECS);
   }
 
-
   /**
-   * Updates the display of data on the map after the FeatureCollection has been modified
+   * Adds the theme's icon images to the map once both the style and the icons have loaded. Layers
+   * which reference an icon that hasn't been added yet show it as soon as it is.
    */
-  private void refreshSource() {
-    GeoJsonSource source = mapboxMap.getStyle().getSourceAs("store-location-source-id");
-    if (source != null && featureCollection != null) {
-      source.setGeoJson(featureCollection);
+  private void addThemeIconsToStyle() {
+    Style style = mapboxMap != null ? mapboxMap.getStyle() : null;
+    if (style == null || !customThemeManager.hasIcons()) {
+      return;
     }
+    addIconImage(style, "store-location-icon-id", customThemeManager.getUnselectedMarkerIcon());
+    addIconImage(style, "selected-store-location-icon-id", customThemeManager.getSelectedMarkerIcon());
+    addIconImage(style, "mock-device-location-icon-id", customThemeManager.getMockLocationIcon());
   }
 
-  private void getInformationFromDirectionsApi(Point destinationPoint,
-                                               final boolean fromMarkerClick, @Nullable final Integer listIndex) {
-    // Set up origin and destination coordinates for the call to the Mapbox Directions API
-    Point mockCurrentLocation = Point.fromLngLat(MOCK_DEVICE_LOCATION_LAT_LNG.getLongitude(),
-      MOCK_DEVICE_LOCATION_LAT_LNG.getLatitude());
-
-    Point destinationMarker = Point.fromLngLat(destinationPoint.longitude(), destinationPoint.latitude());
-
-    // Initialize the directionsApiClient object for eventually drawing a navigation route on the map
-    MapboxDirections directionsApiClient = MapboxDirections.builder()
-      .origin(mockCurrentLocation)
-      .destination(destinationMarker)
-      .overview(DirectionsCriteria.OVERVIEW_FULL)
-      .profile(DirectionsCriteria.PROFILE_DRIVING)
-      .accessToken(getString(R.string.access_token))
-      .build();
-
-    directionsApiClient.enqueueCall(new Callback<DirectionsResponse>() {
-      @Override
-      public void onResponse(Call<DirectionsResponse> call, Response<DirectionsResponse> response) {
-        // Check that the response isn't null and that the response has a route
-        if (response.body() == null) {
-          Log.e("MapActivity", "No routes found, make sure you set the right user and access token.");
-        } else if (response.body().routes().size() < 1) {
-          Log.e("MapActivity", "No routes found");
-        } else {
-          if (fromMarkerClick) {
-            // Retrieve and draw the navigation route on the map
-            currentRoute = response.body().routes().get(0);
-            drawNavigationPolylineRoute(currentRoute);
-          } else {
-            // Use Mapbox Turf helper method to convert meters to miles and then format the mileage number
-            DecimalFormat df = new DecimalFormat("#.#");
-            String finalConvertedFormattedDistance = String.valueOf(df.format(TurfConversion.convertLength(
-              response.body().routes().get(0).distance(), TurfConstants.UNIT_METERS,
-              TurfConstants.UNIT_MILES)));
-
-            // Set the distance for each location object in the list of locations
-            if (listIndex != null) {
-              listOfIndividualLocations.get(listIndex).setDistance(finalConvertedFormattedDistance);
-              // Refresh the displayed recyclerview when the location's distance is set
-              styleRvAdapter.notifyDataSetChanged();
-            }
-          }
-        }
-      }
-
-      @Override
-      public void onFailure(Call<DirectionsResponse> call, Throwable throwable) {
-        Toast.makeText(MapActivity.this, R.string.failure_to_retrieve, Toast.LENGTH_LONG).show();
-      }
-    });
-  }
-
-  private void repositionMapCamera(Point newTarget) {
-    CameraPosition newCameraPosition = new CameraPosition.Builder()
-      .target(new LatLng(newTarget.latitude(), newTarget.longitude()))
-      .build();
-    mapboxMap.animateCamera(CameraUpdateFactory.newCameraPosition(newCameraPosition), CAMERA_MOVEMENT_SPEED_IN_MILSECS);
+  private void addIconImage(Style style, String imageId, Bitmap icon) {
+    if (icon != null) {
+      style.addImage(imageId, icon);
+    } else {
+      Log.e(TAG, "addIconImage: couldn't decode " + imageId);
+    }
   }
 
   private void addMockDeviceLocationMarkerToMap() {
     // Add the fake user location marker to the map
     Style style = mapboxMap.getStyle();
     if (style != null) {
-      // Add the icon image to the map
-      style.addImage("mock-device-location-icon-id", customThemeManager.getMockLocationIcon());
-
       style.addSource(new GeoJsonSource("mock-device-location-source-id", Feature.fromGeometry(
         Point.fromLngLat(MOCK_DEVICE_LOCATION_LAT_LNG.getLongitude(), MOCK_DEVICE_LOCATION_LAT_LNG.getLatitude()))));
 
@@ -503,50 +765,208 @@ public class MapActivity extends AppCompatActivity implements
     }
   }
 
-  private void getFeatureCollectionFromJson() throws IOException {
-    try {
-      // Use fromJson() method to convert the GeoJSON file into a usable FeatureCollection object
-      featureCollection = FeatureCollection.fromJson(loadGeoJsonFromAsset("list_of_locations.geojson"));
+  private void setUpRecyclerViewOfLocationCards(int chosenTheme) {
+    // The locations as ranked by the view model, by their travel distance once it's known and by
+    // their estimated distance until then
+    nearestLocations = mapViewModel.getNearestLocations();
+    int[] cardOrder = nearestLocations.order();
+    storeRegistry.setCardOrder(cardOrder);
+    mapViewModel.fetchDistances(cardOrder);
+
+    // Initialize the recyclerview of location cards and a custom class for automatic card scrolling.
+    // Only the nearest page of locations is shown, more are added as the end of the list comes into view.
+    locationsRecyclerView = findViewById(R.id.map_layout_rv);
+    locationsRecyclerView.setHasFixedSize(true);
+    final LinearLayoutManager layoutManager = new LinearLayoutManagerWithSmoothScroller(this);
+    locationsRecyclerView.setLayoutManager(layoutManager);
+    styleRvAdapter = new LocationRecyclerViewAdapter(nearestLocations.locationsAt(cardOrder),
+      getApplicationContext(), this, chosenTheme);
+    styleRvAdapter.setLoadListener(new LocationRecyclerViewAdapter.LoadListener() {
+      @Override
+      public void onLocationNotLoaded(int position) {
+        loadCardsAround(position);
+      }
+    });
+    locationsRecyclerView.setAdapter(styleRvAdapter);
+    final SnapHelper snapHelper = new LinearSnapHelper();
+    snapHelper.attachToRecyclerView(locationsRecyclerView);
+    locationsRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+      @Override
+      public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+        // Prefetch routes once the cards have snapped into place, and give way while they move
+        if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+          View snappedCard = snapHelper.findSnapView(layoutManager);
+          if (snappedCard != null) {
+            prefetchRoutesAround(layoutManager.getPosition(snappedCard));
+          }
+        } else {
+          mapViewModel.getRoutePrefetcher().cancel();
+        }
+      }
+
+      @Override
+      public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+        if (searchResults == null && nearestLocations.loadMoreIfNeeded(layoutManager.findLastVisibleItemPosition(),
+          CARD_PAGE_PRELOAD_DISTANCE)) {
+          scheduleCardOrderRefresh();
+        }
+      }
+    });
+  }
+
+  /**
+   * Prefetches the routes to the card at a position and its neighbours, the card itself first
+   */
+  private void prefetchRoutesAround(int cardPosition) {
+    List<Point> destinations = new ArrayList<>(3);
+    for (int position : new int[] {cardPosition, cardPosition + 1, cardPosition - 1}) {
+      int featureIndex = storeRegistry.featureIndexAt(position);
+      if (featureIndex != StoreRegistry.NOT_FOUND) {
+        destinations.add(Point.fromLngLat(storeCatalog.longitude(featureIndex), storeCatalog.latitude(featureIndex)));
+      }
+    }
+    mapViewModel.getRoutePrefetcher().prefetch(mapViewModel.getOrigin(), destinations);
+  }
+
+  /**
+   * Loads the locations of the cards around a card bound with placeholders on a background thread,
+   * then rebinds the cards. Cards bound while a load is running are loaded after it, if they still
+   * need to be.
+   */
+  private void loadCardsAround(int cardPosition) {
+    if (cardLoadPending) {
+      return;
+    }
+    IntArray featureIndices = new IntArray(2 * CARD_LOAD_DISTANCE + 1);
+    for (int position = cardPosition - CARD_LOAD_DISTANCE; position <= cardPosition + CARD_LOAD_DISTANCE;
+         position++) {
+      int featureIndex = storeRegistry.featureIndexAt(position);
+      if (featureIndex != StoreRegistry.NOT_FOUND) {
+        featureIndices.add(featureIndex);
+      }
+    }
+    cardLoadPending = true;
+    mapViewModel.prefetchLocations(featureIndices.toArray(), new MapViewModel.LocationsCallback() {
+      @Override
+      public void onLocationsLoaded() {
+        cardLoadPending = false;
+        styleRvAdapter.notifyLocationsLoaded();
+      }
 
-    } catch (Exception exception) {
-      Log.e("MapActivity", "getFeatureCollectionFromJson: " + exception);
+      @Override
+      public void onLocationsFailed(IOException exception) {
+        // The cards keep their placeholders until they're bound again
+        cardLoadPending = false;
+        Log.e(TAG, "loadCardsAround: " + exception);
+      }
+    });
+  }
+
+  /**
+   * Refreshes the cards with the current nearest locations once per frame at most, however many
+   * distances arrive in that frame
+   */
+  private void scheduleCardOrderRefresh() {
+    if (!cardOrderRefreshPending) {
+      cardOrderRefreshPending = true;
+      mainHandler.post(refreshCardOrderRunnable);
     }
   }
 
-  private String loadGeoJsonFromAsset(String filename) {
-    try {
-      // Load the GeoJSON file from the local asset folder
-      InputStream is = getAssets().open(filename);
-      int size = is.available();
-      byte[] buffer = new byte[size];
-      is.read(buffer);
-      is.close();
-      return new String(buffer, "UTF-8");
-    } catch (Exception exception) {
-      Log.e("MapActivity", "Exception Loading GeoJSON: " + exception.toString());
-      exception.printStackTrace();
-      return null;
+  /**
+   * Shows the stores matching a query in the cards, or the nearest stores again once the query is
+   * cleared. Searches run on a background thread, and a search is skipped once a newer query has been
+   * typed.
+   */
+  private void searchStores(final String query) {
+    searchQuery = query;
+    if (storeSearchIndex == null || styleRvAdapter == null) {
+      // The query is searched once the index has been built
+      return;
+    }
+    if (query.trim().isEmpty()) {
+      if (searchResults != null) {
+        searchResults = null;
+        refreshCardOrder();
+      }
+      return;
     }
+    final StoreSearchIndex index = storeSearchIndex;
+    searchExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        if (!query.equals(searchQuery)) {
+          return;
+        }
+        final int[] results = index.search(query, MOCK_DEVICE_LOCATION_LAT_LNG.getLatitude(),
+          MOCK_DEVICE_LOCATION_LAT_LNG.getLongitude(), SEARCH_RESULT_LIMIT);
+        mainHandler.post(new Runnable() {
+          @Override
+          public void run() {
+            // Results of an index replaced by a sync are dropped, the query is searched again
+            if (query.equals(searchQuery) && index == storeSearchIndex) {
+              searchResults = results;
+              refreshCardOrder();
+            }
+          }
+        });
+      }
+    });
   }
 
-  private void setUpRecyclerViewOfLocationCards(int chosenTheme) {
-    // Initialize the recyclerview of location cards and a custom class for automatic card scrolling
-    locationsRecyclerView = findViewById(R.id.map_layout_rv);
-    locationsRecyclerView.setHasFixedSize(true);
-    locationsRecyclerView.setLayoutManager(new LinearLayoutManagerWithSmoothScroller(this));
-    styleRvAdapter = new LocationRecyclerViewAdapter(listOfIndividualLocations,
-      getApplicationContext(), this, chosenTheme);
-    locationsRecyclerView.setAdapter(styleRvAdapter);
-    SnapHelper snapHelper = new LinearSnapHelper();
-    snapHelper.attachToRecyclerView(locationsRecyclerView);
+  private void refreshCardOrder() {
+    final int[] cardOrder = searchResults != null ? shownStores(searchResults) : nearestLocations.order();
+    mapViewModel.fetchDistances(cardOrder);
+    styleRvAdapter.submitList(nearestLocations.locationsAt(cardOrder), new Runnable() {
+      @Override
+      public void run() {
+        // Card positions resolve to the new order once the cards show it
+        storeRegistry.setCardOrder(cardOrder);
+      }
+    });
   }
 
-  private void drawNavigationPolylineRoute(DirectionsRoute route) {
-    // Retrieve and update the source designated for showing the store location icons
+  /**
+   * @return the feature indices which pass the store filter, in the same order
+   */
+  private int[] shownStores(int[] featureIndices) {
+    if (storeFilter == null) {
+      return featureIndices;
+    }
+    int[] shown = new int[featureIndices.length];
+    int count = 0;
+    for (int featureIndex : featureIndices) {
+      if (storeFilter.get(featureIndex)) {
+        shown[count++] = featureIndex;
+      }
+    }
+    return Arrays.copyOf(shown, count);
+  }
+
+  /**
+   * Draws the vertices of the selected store's route that are visible at the current zoom level
+   */
+  private void drawNavigationRouteLevelOfDetail() {
+    RouteGeometry navigationRouteGeometry = mapViewModel.getNavigationRouteGeometry();
+    if (navigationRouteGeometry == null || mapboxMap == null || mapboxMap.getStyle() == null) {
+      return;
+    }
+    // Zoom levels which keep the same vertices share one array, so the route is only redrawn
+    // when its level of detail actually changes
+    int[] levelOfDetail = navigationRouteGeometry.levelOfDetail(mapboxMap.getCameraPosition().zoom);
+    if (levelOfDetail == drawnRouteLevelOfDetail) {
+      return;
+    }
+
+    // Retrieve and update the source designated for showing the navigation route
     GeoJsonSource source = mapboxMap.getStyle().getSourceAs("navigation-route-source-id");
     if (source != null) {
-      source.setGeoJson(FeatureCollection.fromFeature(Feature.fromGeometry(
-        LineString.fromPolyline(route.geometry(), PRECISION_6))));
+      List<Point> points = new ArrayList<>(levelOfDetail.length);
+      for (int index : levelOfDetail) {
+        points.add(Point.fromLngLat(navigationRouteGeometry.longitude(index), navigationRouteGeometry.latitude(index)));
+      }
+      source.setGeoJson(FeatureCollection.fromFeature(Feature.fromGeometry(LineString.fromLngLats(points))));
+      drawnRouteLevelOfDetail = levelOfDetail;
     }
   }
 
@@ -570,6 +990,11 @@ public class MapActivity extends AppCompatActivity implements
   public void onResume() {
     super.onResume();
     mapView.onResume();
+
+    // Stores may have opened or closed while the app was in the background
+    if (showOnlyOpenStores) {
+      refreshStoreFilter();
+    }
   }
 
   @Override
@@ -599,6 +1024,12 @@ public class MapActivity extends AppCompatActivity implements
   @Override
   protected void onDestroy() {
     super.onDestroy();
+    mapViewModel.setListener(null);
+    customThemeManager.release();
+    searchExecutor.shutdownNow();
+    mainHandler.removeCallbacks(refreshStoreSourceRunnable);
+    mainHandler.removeCallbacks(refreshCardOrderRunnable);
+    viewportGeneration++;
     mapView.onDestroy();
   }
 
@@ -624,6 +1055,8 @@ public class MapActivity extends AppCompatActivity implements
     private Bitmap unselectedMarkerIcon;
     private Bitmap selectedMarkerIcon;
     private Bitmap mockLocationIcon;
+    private int[] iconDrawableIds;
+    private boolean released;
     private int navigationLineColor;
     private String mapStyle;
 
@@ -638,41 +1071,65 @@ public class MapActivity extends AppCompatActivity implements
         case R.style.AppTheme_Blue:
           mapStyle = getString(R.string.blue_map_style);
           navigationLineColor = getResources().getColor(R.color.navigationRouteLine_blue);
-          unselectedMarkerIcon = BitmapFactory.decodeResource(context.getResources(), R.drawable.blue_unselected_ice_cream);
-          selectedMarkerIcon = BitmapFactory.decodeResource(context.getResources(), R.drawable.blue_selected_ice_cream);
-          mockLocationIcon = BitmapFactory.decodeResource(context.getResources(), R.drawable.blue_user_location);
+          iconDrawableIds = new int[] {R.drawable.blue_unselected_ice_cream, R.drawable.blue_selected_ice_cream,
+            R.drawable.blue_user_location};
           break;
         case R.style.AppTheme_Purple:
           mapStyle = getString(R.string.purple_map_style);
           navigationLineColor = getResources().getColor(R.color.navigationRouteLine_purple);
-          unselectedMarkerIcon = BitmapFactory.decodeResource(context.getResources(), R.drawable.purple_unselected_burger);
-          selectedMarkerIcon = BitmapFactory.decodeResource(context.getResources(), R.drawable.purple_selected_burger);
-          mockLocationIcon = BitmapFactory.decodeResource(context.getResources(), R.drawable.purple_user_location);
+          iconDrawableIds = new int[] {R.drawable.purple_unselected_burger, R.drawable.purple_selected_burger,
+            R.drawable.purple_user_location};
           break;
         case R.style.AppTheme_Green:
           mapStyle = getString(R.string.terminal_map_style);
           navigationLineColor = getResources().getColor(R.color.navigationRouteLine_green);
-          unselectedMarkerIcon = BitmapFactory.decodeResource(context.getResources(), R.drawable.green_unselected_money);
-          selectedMarkerIcon = BitmapFactory.decodeResource(context.getResources(), R.drawable.green_selected_money);
-          mockLocationIcon = BitmapFactory.decodeResource(context.getResources(), R.drawable.green_user_location);
+          iconDrawableIds = new int[] {R.drawable.green_unselected_money, R.drawable.green_selected_money,
+            R.drawable.green_user_location};
           break;
         case R.style.AppTheme_Neutral:
           mapStyle = Style.MAPBOX_STREETS;
           navigationLineColor = getResources().getColor(R.color.navigationRouteLine_neutral);
-          unselectedMarkerIcon = BitmapFactory.decodeResource(context.getResources(), R.drawable.white_unselected_house);
-          selectedMarkerIcon = BitmapFactory.decodeResource(context.getResources(), R.drawable.gray_selected_house);
-          mockLocationIcon = BitmapFactory.decodeResource(context.getResources(), R.drawable.neutral_orange_user_location);
+          iconDrawableIds = new int[] {R.drawable.white_unselected_house, R.drawable.gray_selected_house,
+            R.drawable.neutral_orange_user_location};
           break;
         case R.style.AppTheme_Gray:
           mapStyle = Style.LIGHT;
           navigationLineColor = getResources().getColor(R.color.navigationRouteLine_gray);
-          unselectedMarkerIcon = BitmapFactory.decodeResource(context.getResources(), R.drawable.white_unselected_bike);
-          selectedMarkerIcon = BitmapFactory.decodeResource(context.getResources(), R.drawable.gray_selected_bike);
-          mockLocationIcon = BitmapFactory.decodeResource(context.getResources(), R.drawable.gray_user_location);
+          iconDrawableIds = new int[] {R.drawable.white_unselected_bike, R.drawable.gray_selected_bike,
+            R.drawable.gray_user_location};
           break;
       }
     }
 
+    /**
+     * Gets the theme's icons from the process-wide icon cache, decoding them in the background if
+     * they aren't cached yet. The listener runs on the main thread, unless {@link #release()} has
+     * been called in the meantime.
+     */
+    void loadIcons(final Runnable onIconsLoaded) {
+      MarkerIconCache.getInstance().load(context.getResources(), selectedTheme, iconDrawableIds,
+        new MarkerIconCache.Callback() {
+          @Override
+          public void onIconsLoaded(Bitmap[] bitmaps) {
+            if (released) {
+              return;
+            }
+            unselectedMarkerIcon = bitmaps[0];
+            selectedMarkerIcon = bitmaps[1];
+            mockLocationIcon = bitmaps[2];
+            onIconsLoaded.run();
+          }
+        });
+    }
+
+    boolean hasIcons() {
+      return unselectedMarkerIcon != null || selectedMarkerIcon != null || mockLocationIcon != null;
+    }
+
+    void release() {
+      released = true;
+    }
+
     public Bitmap getUnselectedMarkerIcon() {
       return unselectedMarkerIcon;
     }
@@ -0,0 +1,481 @@
+package com.mapbox.storelocator.activity;
+
+import android.content.res.AssetManager;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.lifecycle.ViewModel;
+
+import com.mapbox.api.directions.v5.DirectionsCriteria;
+import com.mapbox.geojson.Point;
+import com.mapbox.storelocator.catalog.StoreCatalogLoader;
+import com.mapbox.storelocator.distance.BatchedDistanceProvider;
+import com.mapbox.storelocator.distance.CachingDistanceMatrixTransport;
+import com.mapbox.storelocator.distance.MapboxMatrixTransport;
+import com.mapbox.storelocator.distance.NearestLocations;
+import com.mapbox.storelocator.hours.OpeningHoursIndex;
+import com.mapbox.storelocator.index.SpatialIndex;
+import com.mapbox.storelocator.model.IndividualLocation;
+import com.mapbox.storelocator.model.StoreCatalog;
+import com.mapbox.storelocator.model.StoreRegistry;
+import com.mapbox.storelocator.model.StoreSelection;
+import com.mapbox.storelocator.repository.RepositoryCatalogUpdate;
+import com.mapbox.storelocator.repository.StoreRepository;
+import com.mapbox.storelocator.route.CachingRouteProvider;
+import com.mapbox.storelocator.route.DiskDistanceStore;
+import com.mapbox.storelocator.route.DiskRouteStore;
+import com.mapbox.storelocator.route.MapboxDirectionsRouteProvider;
+import com.mapbox.storelocator.route.PolylineDecoder;
+import com.mapbox.storelocator.route.RouteCache;
+import com.mapbox.storelocator.route.RouteGeometry;
+import com.mapbox.storelocator.route.RoutePrefetcher;
+import com.mapbox.storelocator.route.RouteProvider;
+import com.mapbox.storelocator.route.RouteRequestScheduler;
+import com.mapbox.storelocator.search.StoreSearchIndex;
+import com.mapbox.storelocator.sync.CatalogSynchronizer;
+import com.mapbox.storelocator.util.BackgroundExecutor;
+import com.mapbox.storelocator.util.MainThreadExecutor;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Everything the map activity loads or requests, kept across configuration changes such as a
+ * rotation. A recreated activity rebinds the map and the cards to the loaded catalog, the fetched
+ * distances and the selected store's route, without loading or requesting any of them again.
+ * <p>
+ * Results are delivered to the listener of the current activity on the main thread. Results which
+ * arrive while no activity is attached are kept and picked up by the next one, failures are only
+ * reported to an attached activity.
+ */
+public class MapViewModel extends ViewModel implements StoreCatalogLoader.Callback {
+
+  private static final int CARD_PAGE_SIZE = 20;
+
+  private final Point origin;
+  private final StoreCatalogLoader storeCatalogLoader;
+  private final RouteCache routeCache;
+  private final RouteRequestScheduler routeScheduler;
+  private final RoutePrefetcher routePrefetcher;
+  private final BatchedDistanceProvider distanceProvider;
+
+  // Reads and writes the route cache for both the routes and the distances
+  private final BackgroundExecutor cacheExecutor = new BackgroundExecutor();
+  private final ExecutorService routeGeometryExecutor = Executors.newSingleThreadExecutor();
+  // Runs the queries of the map and the cards, which block on the store repository once it has been synced
+  private final BackgroundExecutor repositoryExecutor = new BackgroundExecutor();
+  private final Handler mainHandler = new Handler(Looper.getMainLooper());
+  private final BitSet distancesRequested = new BitSet();
+  private Listener listener;
+  private StoreCatalog storeCatalog;
+  private StoreSelection storeSelection;
+  private NearestLocations nearestLocations;
+  private OpeningHoursIndex openingHoursIndex;
+  private StoreSearchIndex storeSearchIndex;
+  private RouteGeometry navigationRouteGeometry;
+  private boolean distanceFailureReported;
+  // Incremented when the catalog is read again and feature indices don't carry over
+  private int catalogGeneration;
+
+  /**
+   * @param origin        the device location that distances and routes are measured from
+   * @param routeCacheDir directory for caching routes and distances across launches
+   */
+  MapViewModel(AssetManager assetManager, StoreRepository storeRepository,
+               CatalogSynchronizer catalogSynchronizer, String accessToken, File routeCacheDir, Point origin) {
+    this.origin = origin;
+
+    // Cache routes and distances in memory and on disk, so that repeat requests are answered
+    // instantly and without a connection
+    routeCache = new RouteCache(new DiskRouteStore(routeCacheDir), new DiskDistanceStore(routeCacheDir));
+    RouteProvider routeProvider = new CachingRouteProvider(new MapboxDirectionsRouteProvider(
+      accessToken, DirectionsCriteria.PROFILE_DRIVING), routeCache,
+      DirectionsCriteria.PROFILE_DRIVING, cacheExecutor, new MainThreadExecutor());
+
+    // Only the route to the latest tapped card is drawn, requests for earlier taps are cancelled
+    routeScheduler = new RouteRequestScheduler(routeProvider, DirectionsCriteria.PROFILE_DRIVING);
+
+    // Routes to the cards around the one scrolled to are fetched ahead of a tap. A tap on a card
+    // whose route is still being prefetched joins that request.
+    routePrefetcher = new RoutePrefetcher(routeScheduler, routeCache, DirectionsCriteria.PROFILE_DRIVING);
+
+    // Distances cached by an earlier launch are reused, only the rest are requested
+    distanceProvider = new BatchedDistanceProvider(new CachingDistanceMatrixTransport(
+      new MapboxMatrixTransport(accessToken, DirectionsCriteria.PROFILE_DRIVING),
+      routeCache, DirectionsCriteria.PROFILE_DRIVING, cacheExecutor, new MainThreadExecutor()));
+
+    // Load the locations, build the spatial index and rank the nearest locations on a background
+    // thread, so that the map can start loading its style at the same time
+    storeCatalogLoader = new StoreCatalogLoader(assetManager, storeRepository, catalogSynchronizer, origin,
+      CARD_PAGE_SIZE);
+    storeCatalogLoader.load(this);
+  }
+
+  public interface Listener {
+    void onCatalogLoaded();
+
+    void onCatalogLoadFailed(Exception exception);
+
+    void onOpeningHoursIndexBuilt();
+
+    void onSearchIndexBuilt();
+
+    /**
+     * Called once a sync has changed the catalog, its indexes and the ranking of the locations
+     */
+    void onCatalogUpdated();
+
+    /**
+     * Called once per batch of travel distances, after the locations have been re-ranked
+     */
+    void onDistancesChanged();
+
+    /**
+     * Called for the first batch of travel distances which failed, and not for later failures
+     */
+    void onDistancesFailed(Throwable throwable);
+
+    void onRouteChanged();
+
+    void onRouteFailed(Throwable throwable);
+  }
+
+  public interface StoresCallback {
+    /**
+     * @param featureIndices the stores found, in no particular order
+     */
+    void onStores(int[] featureIndices);
+
+    void onStoresFailed(IOException exception);
+  }
+
+  public interface LocationsCallback {
+    void onLocationsLoaded();
+
+    void onLocationsFailed(IOException exception);
+  }
+
+  /**
+   * Attaches the listener of the current activity, and tells it right away about everything that
+   * has already loaded.
+   *
+   * @param listener the listener, or null to detach the activity when it's destroyed
+   */
+  void setListener(Listener listener) {
+    this.listener = listener;
+    if (listener == null) {
+      return;
+    }
+    if (storeCatalog != null) {
+      listener.onCatalogLoaded();
+    }
+    if (openingHoursIndex != null) {
+      listener.onOpeningHoursIndexBuilt();
+    }
+    if (storeSearchIndex != null) {
+      listener.onSearchIndexBuilt();
+    }
+    if (navigationRouteGeometry != null) {
+      listener.onRouteChanged();
+    }
+  }
+
+  @Override
+  public void onCatalogLoaded(StoreCatalog storeCatalog, NearestLocations nearestLocations, int[] nearestStores) {
+    this.storeCatalog = storeCatalog;
+    storeSelection = new StoreSelection(storeCatalog.getStoreRegistry());
+
+    // The locations are ranked by their estimated straight-line distance, so that the cards show a
+    // distance right away and even without an internet connection. Travel distances replace the
+    // estimates as they arrive.
+    this.nearestLocations = nearestLocations;
+
+    // Request the travel distances of the first page of cards, more are requested as other
+    // locations are shown
+    fetchDistances(nearestStores);
+
+    if (listener != null) {
+      listener.onCatalogLoaded();
+    }
+  }
+
+  @Override
+  public void onCatalogUpdated(RepositoryCatalogUpdate update, NearestLocations nearestLocations) {
+    StoreCatalog updatedCatalog = update.getStoreCatalog();
+    BitSet changedStores = update.getChangedStores();
+    StoreRegistry updatedRegistry = updatedCatalog.getStoreRegistry();
+    int selectedFeatureIndex = storeSelection.getSelectedFeatureIndex();
+    if (changedStores == null) {
+      // Cards resolve to no store until they show the reloaded catalog
+      catalogGeneration++;
+      distancesRequested.clear();
+      updatedRegistry.setCardOrder(new int[0]);
+      selectedFeatureIndex = StoreRegistry.NOT_FOUND;
+    } else {
+      updatedRegistry.setCardOrder(storeCatalog.getStoreRegistry());
+
+      // The unchanged stores keep their locations and so their travel distances, which rank them
+      // again. The changed stores are requested again once they're shown.
+      distancesRequested.andNot(changedStores);
+      for (int featureIndex = distancesRequested.nextSetBit(0); featureIndex >= 0;
+           featureIndex = distancesRequested.nextSetBit(featureIndex + 1)) {
+        nearestLocations.onDistanceChanged(featureIndex);
+      }
+      if (selectedFeatureIndex != StoreRegistry.NOT_FOUND && updatedCatalog.isRemoved(selectedFeatureIndex)) {
+        selectedFeatureIndex = StoreRegistry.NOT_FOUND;
+      }
+    }
+    nearestLocations.setFilter(updatedCatalog.liveStores());
+
+    storeCatalog = updatedCatalog;
+    storeSelection = new StoreSelection(updatedRegistry, selectedFeatureIndex);
+    this.nearestLocations = nearestLocations;
+    openingHoursIndex = update.getOpeningHoursIndex();
+    storeSearchIndex = update.getStoreSearchIndex();
+    if (listener != null) {
+      listener.onCatalogUpdated();
+    }
+  }
+
+  @Override
+  public void onCatalogLoadFailed(Exception exception) {
+    if (listener != null) {
+      listener.onCatalogLoadFailed(exception);
+    }
+  }
+
+  @Override
+  public void onOpeningHoursIndexBuilt(OpeningHoursIndex openingHoursIndex) {
+    this.openingHoursIndex = openingHoursIndex;
+    if (listener != null) {
+      listener.onOpeningHoursIndexBuilt();
+    }
+  }
+
+  @Override
+  public void onSearchIndexBuilt(StoreSearchIndex storeSearchIndex) {
+    this.storeSearchIndex = storeSearchIndex;
+    if (listener != null) {
+      listener.onSearchIndexBuilt();
+    }
+  }
+
+  /**
+   * Requests the travel distances of locations shown in the cards or on the map, in batches rather
+   * than with a separate Directions API call for each location. The distance of each location is
+   * only requested once, the locations never shown keep their estimated distance.
+   *
+   * @param featureIndices the locations to request, most important first
+   */
+  void fetchDistances(int[] featureIndices) {
+    final int[] fetchOrder = new int[featureIndices.length];
+    int count = 0;
+    for (int featureIndex : featureIndices) {
+      if (!distancesRequested.get(featureIndex)) {
+        distancesRequested.set(featureIndex);
+        fetchOrder[count++] = featureIndex;
+      }
+    }
+    if (count == 0) {
+      return;
+    }
+    final int fetchCount = count;
+    final int generation = catalogGeneration;
+    final List<IndividualLocation> locations = storeCatalog.getLocations();
+    List<IndividualLocation> requestedLocations = new AbstractList<IndividualLocation>() {
+      @Override
+      public IndividualLocation get(int index) {
+        return locations.get(fetchOrder[index]);
+      }
+
+      @Override
+      public int size() {
+        return fetchCount;
+      }
+    };
+
+    distanceProvider.fetchDistances(origin, requestedLocations, new BatchedDistanceProvider.Listener() {
+      @Override
+      public void onBatchComplete(int fromIndex, int toIndex) {
+        if (generation != catalogGeneration) {
+          return;
+        }
+        // Re-rank the locations of this batch by their travel distance, whether or not an activity
+        // is attached to show them
+        for (int x = fromIndex; x < toIndex; x++) {
+          nearestLocations.onDistanceChanged(fetchOrder[x]);
+        }
+        if (listener != null) {
+          listener.onDistancesChanged();
+        }
+      }
+
+      @Override
+      public void onBatchFailed(int fromIndex, int toIndex, Throwable throwable) {
+        // Without a connection every batch fails, so only the first failure is reported
+        if (listener != null && !distanceFailureReported) {
+          distanceFailureReported = true;
+          listener.onDistancesFailed(throwable);
+        }
+      }
+    });
+  }
+
+  /**
+   * Finds the stores inside a box with the catalog's spatial index on a background thread, since the
+   * index of a synced catalog queries the store repository. The callback runs on the main thread.
+   */
+  void queryStoresWithinBounds(final double south, final double west, final double north, final double east,
+                               final StoresCallback callback) {
+    final SpatialIndex spatialIndex = storeCatalog.getSpatialIndex();
+    repositoryExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          final int[] featureIndices = spatialIndex.withinBounds(south, west, north, east);
+          mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+              callback.onStores(featureIndices);
+            }
+          });
+        } catch (final IOException exception) {
+          mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+              callback.onStoresFailed(exception);
+            }
+          });
+        }
+      }
+    });
+  }
+
+  /**
+   * Reads the details of the locations about to be shown in the cards on a background thread, since
+   * a synced catalog reads them from the store repository. The callback runs on the main thread.
+   */
+  void prefetchLocations(final int[] featureIndices, final LocationsCallback callback) {
+    final StoreCatalog catalog = storeCatalog;
+    repositoryExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          catalog.prefetchLocations(featureIndices);
+          mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+              callback.onLocationsLoaded();
+            }
+          });
+        } catch (final IOException exception) {
+          mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+              callback.onLocationsFailed(exception);
+            }
+          });
+        }
+      }
+    });
+  }
+
+  /**
+   * Requests the route to a store, from the cache or the Mapbox Directions API, replacing the route
+   * requested before
+   */
+  void requestRoute(Point destination) {
+    routeScheduler.getLatestRoute(origin, destination, new RouteProvider.Callback() {
+      @Override
+      public void onRoute(String geometry, double distanceInMeters) {
+        buildNavigationRouteGeometry(geometry);
+      }
+
+      @Override
+      public void onFailure(Throwable throwable) {
+        if (listener != null) {
+          listener.onRouteFailed(throwable);
+        }
+      }
+    });
+  }
+
+  /**
+   * Decodes the route and builds its levels of detail on a background thread
+   */
+  private void buildNavigationRouteGeometry(final String geometry) {
+    routeGeometryExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        final RouteGeometry routeGeometry = RouteGeometry.fromPolyline(geometry, PolylineDecoder.PRECISION_6);
+        mainHandler.post(new Runnable() {
+          @Override
+          public void run() {
+            if (routeGeometryExecutor.isShutdown()) {
+              return;
+            }
+            navigationRouteGeometry = routeGeometry;
+            if (listener != null) {
+              listener.onRouteChanged();
+            }
+          }
+        });
+      }
+    });
+  }
+
+  /**
+   * Drops everything once the activity is finished for good, rather than recreated
+   */
+  @Override
+  protected void onCleared() {
+    listener = null;
+    storeCatalogLoader.release();
+    routeScheduler.cancelLatestRoute();
+    routePrefetcher.cancel();
+    distanceProvider.cancel();
+    cacheExecutor.shutdown();
+    routeGeometryExecutor.shutdownNow();
+    repositoryExecutor.shutdown();
+  }
+
+  Point getOrigin() {
+    return origin;
+  }
+
+  StoreCatalog getStoreCatalog() {
+    return storeCatalog;
+  }
+
+  StoreSelection getStoreSelection() {
+    return storeSelection;
+  }
+
+  NearestLocations getNearestLocations() {
+    return nearestLocations;
+  }
+
+  OpeningHoursIndex getOpeningHoursIndex() {
+    return openingHoursIndex;
+  }
+
+  StoreSearchIndex getStoreSearchIndex() {
+    return storeSearchIndex;
+  }
+
+  RoutePrefetcher getRoutePrefetcher() {
+    return routePrefetcher;
+  }
+
+  /**
+   * @return the route to the selected store, or null if none has been loaded yet
+   */
+  RouteGeometry getNavigationRouteGeometry() {
+    return navigationRouteGeometry;
+  }
+}
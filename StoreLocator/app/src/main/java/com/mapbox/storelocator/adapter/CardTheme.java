@@ -0,0 +1,164 @@
+package com.mapbox.storelocator.adapter;
+
+import android.content.res.Resources;
+import android.graphics.drawable.Drawable;
+
+import androidx.core.content.res.ResourcesCompat;
+
+import com.mapbox.storelocator.R;
+
+/**
+ * Immutable set of drawables, colors and alphas which style the location cards of a theme. It is
+ * resolved once per adapter, rather than on every bind.
+ */
+final class CardTheme {
+
+  private final Resources resources;
+  private final Drawable.ConstantState emojiForCircle;
+  private final Drawable.ConstantState backgroundCircle;
+  private final int emojiPaddingLeft;
+  private final int upperCardSectionColor;
+  private final int locationNameColor;
+  private final int locationAddressColor;
+  private final int locationHoursColor;
+  private final int locationHoursHeaderColor;
+  private final int locationPhoneNumColor;
+  private final int locationPhoneHeaderColor;
+  private final int locationDistanceNumColor;
+  private final int milesAbbreviationColor;
+  private final float addressAlpha;
+  private final float hoursHeaderAlpha;
+  private final float hoursNumAlpha;
+  private final float phoneHeaderAlpha;
+  private final float phoneNumAlpha;
+  private final float milesAbbreviationAlpha;
+
+  private CardTheme(Resources resources, int emojiForCircleId, int backgroundCircleId, int emojiPaddingLeft,
+                    int[] colorIds, float[] alphas) {
+    this.resources = resources;
+    this.emojiForCircle = constantStateOf(resources, emojiForCircleId);
+    this.backgroundCircle = constantStateOf(resources, backgroundCircleId);
+    this.emojiPaddingLeft = emojiPaddingLeft;
+    this.upperCardSectionColor = colorOf(resources, colorIds[0]);
+    this.locationNameColor = colorOf(resources, colorIds[1]);
+    this.locationAddressColor = colorOf(resources, colorIds[2]);
+    this.locationHoursColor = colorOf(resources, colorIds[3]);
+    this.locationHoursHeaderColor = colorOf(resources, colorIds[4]);
+    this.locationPhoneNumColor = colorOf(resources, colorIds[5]);
+    this.locationPhoneHeaderColor = colorOf(resources, colorIds[6]);
+    this.locationDistanceNumColor = colorOf(resources, colorIds[7]);
+    this.milesAbbreviationColor = colorOf(resources, colorIds[8]);
+    this.addressAlpha = alphas[0];
+    this.hoursHeaderAlpha = alphas[1];
+    this.hoursNumAlpha = alphas[2];
+    this.phoneHeaderAlpha = alphas[3];
+    this.phoneNumAlpha = alphas[4];
+    this.milesAbbreviationAlpha = alphas[5];
+  }
+
+  /**
+   * Resolves the card style of one of the app's themes
+   *
+   * @param selectedTheme the theme's style resource, e.g. {@code R.style.AppTheme_Blue}
+   */
+  static CardTheme forTheme(Resources resources, int selectedTheme) {
+    switch (selectedTheme) {
+      case R.style.AppTheme_Blue:
+        return new CardTheme(resources, R.drawable.ice_cream_icon, R.drawable.blue_circle, 0,
+          colors(R.color.colorPrimary_blue, R.color.white, R.color.white, R.color.cardHourAndPhoneTextColor_blue,
+            R.color.cardHourAndPhoneHeaderTextColor_blue, R.color.cardHourAndPhoneTextColor_blue,
+            R.color.cardHourAndPhoneHeaderTextColor_blue, R.color.white, R.color.white),
+          alphas(.41f, .48f, 100f, .48f,
+            100f,
+            .41f));
+      case R.style.AppTheme_Purple:
+        return new CardTheme(resources, R.drawable.cheese_burger_icon, R.drawable.purple_circle, 0,
+          colors(R.color.colorPrimaryDark_purple, R.color.white, R.color.white, R.color.cardHourAndPhoneTextColor_purple,
+            R.color.cardHourAndPhoneTextColor_purple, R.color.cardHourAndPhoneTextColor_purple,
+            R.color.cardHourAndPhoneTextColor_purple, R.color.white, R.color.white),
+          alphas(.41f, .36f, .94f, .36f,
+            .94f,
+            .41f));
+      case R.style.AppTheme_Green:
+        return new CardTheme(resources, R.drawable.money_bag_icon, R.drawable.green_circle, 8,
+          colors(R.color.colorPrimaryDark_green, R.color.white, R.color.white, R.color.cardHourAndPhoneTextColor_green,
+            R.color.black, R.color.cardHourAndPhoneTextColor_green,
+            R.color.black, R.color.white, R.color.white),
+          alphas(100f, .48f, 100f, .48f,
+            100f,
+            100f));
+      case R.style.AppTheme_Neutral:
+        return new CardTheme(resources, R.drawable.house_icon, R.drawable.white_circle, 0,
+          colors(R.color.colorPrimaryDark_neutral, R.color.black, R.color.black, R.color.black,
+            R.color.black, R.color.black,
+            R.color.black, R.color.black, R.color.black),
+          alphas(.37f, .37f, 100f, .37f,
+            100f,
+            .37f));
+      case R.style.AppTheme_Gray:
+        return new CardTheme(resources, R.drawable.bicycle_icon, R.drawable.gray_circle, 0,
+          colors(R.color.colorPrimaryDark_gray, R.color.white, R.color.white, R.color.cardHourAndPhoneTextColor_gray,
+            R.color.cardHourAndPhoneTextColor_gray, R.color.cardHourAndPhoneTextColor_gray,
+            R.color.cardHourAndPhoneTextColor_gray, R.color.white, R.color.white),
+          alphas(.41f, .48f, 100f, .41f,
+            100f,
+            .41f));
+      default:
+        return new CardTheme(resources, 0, 0, 0, new int[9], alphas(1f, 1f, 1f, 1f, 1f, 1f));
+    }
+  }
+
+  /**
+   * Styles a newly created card. Each card gets its own drawable instances, created from the
+   * shared constant state.
+   */
+  void applyTo(LocationRecyclerViewAdapter.ViewHolder card) {
+    if (emojiPaddingLeft != 0) {
+      card.emojiImageView.setPadding(emojiPaddingLeft, 0, 0, 0);
+    }
+    card.emojiImageView.setImageDrawable(emojiForCircle != null ? emojiForCircle.newDrawable(resources) : null);
+    card.constraintUpperColorSection.setBackgroundColor(upperCardSectionColor);
+    card.backgroundCircleImageView.setImageDrawable(
+      backgroundCircle != null ? backgroundCircle.newDrawable(resources) : null);
+    card.nameTextView.setTextColor(locationNameColor);
+    card.phoneNumTextView.setTextColor(locationPhoneNumColor);
+    card.hoursTextView.setTextColor(locationHoursColor);
+    card.hoursHeaderTextView.setTextColor(locationHoursHeaderColor);
+    card.distanceNumberTextView.setTextColor(locationDistanceNumColor);
+    card.milesAbbreviationTextView.setTextColor(milesAbbreviationColor);
+    card.addressTextView.setTextColor(locationAddressColor);
+    card.phoneHeaderTextView.setTextColor(locationPhoneHeaderColor);
+
+    card.addressTextView.setAlpha(addressAlpha);
+    card.hoursHeaderTextView.setAlpha(hoursHeaderAlpha);
+    card.hoursTextView.setAlpha(hoursNumAlpha);
+    card.phoneHeaderTextView.setAlpha(phoneHeaderAlpha);
+    card.phoneNumTextView.setAlpha(phoneNumAlpha);
+    card.milesAbbreviationTextView.setAlpha(milesAbbreviationAlpha);
+  }
+
+  private static int[] colors(int colorForUpperCard, int colorForName, int colorForAddress,
+                              int colorForHours, int colorForHoursHeader, int colorForPhoneNum,
+                              int colorForPhoneHeader, int colorForDistanceNum, int colorForMilesAbbreviation) {
+    return new int[] {colorForUpperCard, colorForName, colorForAddress, colorForHours, colorForHoursHeader,
+      colorForPhoneNum, colorForPhoneHeader, colorForDistanceNum, colorForMilesAbbreviation};
+  }
+
+  private static float[] alphas(float addressAlpha, float hoursHeaderAlpha, float hoursNumAlpha,
+                                float phoneHeaderAlpha, float phoneNumAlpha, float milesAbbreviationAlpha) {
+    return new float[] {addressAlpha, hoursHeaderAlpha, hoursNumAlpha, phoneHeaderAlpha, phoneNumAlpha,
+      milesAbbreviationAlpha};
+  }
+
+  private static Drawable.ConstantState constantStateOf(Resources resources, int drawableId) {
+    if (drawableId == 0) {
+      return null;
+    }
+    Drawable drawable = ResourcesCompat.getDrawable(resources, drawableId, null);
+    return drawable != null ? drawable.getConstantState() : null;
+  }
+
+  private static int colorOf(Resources resources, int colorId) {
+    return colorId == 0 ? 0 : ResourcesCompat.getColor(resources, colorId, null);
+  }
+}
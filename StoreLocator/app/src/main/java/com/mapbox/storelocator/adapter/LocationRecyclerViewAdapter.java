@@ -1,7 +1,8 @@
 package com.mapbox.storelocator.adapter;
 
 import android.content.Context;
-import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -10,164 +11,225 @@ import android.widget.TextView;
 
 import androidx.cardview.widget.CardView;
 import androidx.constraintlayout.widget.ConstraintLayout;
-import androidx.core.content.res.ResourcesCompat;
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.mapbox.storelocator.R;
+import com.mapbox.storelocator.distance.DistanceFormatter;
 import com.mapbox.storelocator.model.IndividualLocation;
 
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
 /**
- * RecyclerView adapter to display a list of location cards on top of the map
+ * RecyclerView adapter to display a list of location cards on top of the map.
+ * <p>
+ * Cards have stable ids derived from their store ids. A new list of locations is diffed against
+ * the current one off the main thread, and distance updates only rebind the distance of the cards
+ * whose distance actually changed.
+ * <p>
+ * A card whose location isn't loaded yet is bound with placeholders, and the {@link LoadListener}
+ * is told so that the location can be loaded off the main thread.
  */
 public class LocationRecyclerViewAdapter extends
   RecyclerView.Adapter<LocationRecyclerViewAdapter.ViewHolder> {
 
+  /**
+   * Payload of a change which only affects a card's distance
+   */
+  static final Object PAYLOAD_DISTANCE = new Object();
+
+  /**
+   * Payload of a change to a card's details, once they've been loaded
+   */
+  static final Object PAYLOAD_DETAILS = new Object();
+
+  private static final Executor DIFF_EXECUTOR = Executors.newSingleThreadExecutor();
+
   private List<IndividualLocation> listOfLocations;
-  private Context context;
-  private int selectedTheme;
+  private double[] displayedDistances;
+  private final DistanceFormatter distanceFormatter = new DistanceFormatter();
+  private final Map<String, Long> stableIds = new HashMap<>();
+  private final Handler mainHandler = new Handler(Looper.getMainLooper());
+  private int submitGeneration;
+  private final CardTheme cardTheme;
   private static ClickListener clickListener;
-  private Drawable emojiForCircle = null;
-  private Drawable backgroundCircle = null;
-  private int upperCardSectionColor = 0;
-
-  private int locationNameColor = 0;
-  private int locationAddressColor = 0;
-  private int locationPhoneNumColor = 0;
-  private int locationPhoneHeaderColor = 0;
-  private int locationHoursColor = 0;
-  private int locationHoursHeaderColor = 0;
-  private int locationDistanceNumColor = 0;
-  private int milesAbbreviationColor = 0;
+  private LoadListener loadListener;
 
   public LocationRecyclerViewAdapter(List<IndividualLocation> styles,
                                      Context context, ClickListener cardClickListener, int selectedTheme) {
-    this.context = context;
     this.listOfLocations = styles;
-    this.selectedTheme = selectedTheme;
+    this.displayedDistances = new double[styles.size()];
+    Arrays.fill(displayedDistances, Double.NaN);
+    this.cardTheme = CardTheme.forTheme(context.getResources(), selectedTheme);
     this.clickListener = cardClickListener;
+    setHasStableIds(true);
+  }
+
+  /**
+   * Replaces the list of locations. The difference to the current list is calculated on a
+   * background thread and dispatched as fine-grained changes, so that unchanged cards keep their
+   * views and RecyclerView can animate the rest. Cards whose only change is their distance are
+   * rebound with {@link #PAYLOAD_DISTANCE}.
+   *
+   * @param commitCallback optional callback, run on the main thread once the new list is shown
+   */
+  public void submitList(final List<IndividualLocation> newLocations, final Runnable commitCallback) {
+    final int generation = ++submitGeneration;
+    final List<IndividualLocation> oldLocations = listOfLocations;
+
+    // The distances are only read and written on the main thread, where binding and distance updates
+    // happen, so the diff works on copies taken here
+    final double[] oldDistances = displayedDistances.clone();
+    final double[] newDistances = new double[newLocations.size()];
+    for (int x = 0; x < newDistances.length; x++) {
+      newDistances[x] = newLocations.get(x).getDistanceInMeters();
+    }
+    DIFF_EXECUTOR.execute(new Runnable() {
+      @Override
+      public void run() {
+        final String[] oldIds = idsOf(oldLocations);
+        final String[] newIds = idsOf(newLocations);
+        final DiffUtil.DiffResult result = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+          @Override
+          public int getOldListSize() {
+            return oldIds.length;
+          }
+
+          @Override
+          public int getNewListSize() {
+            return newIds.length;
+          }
+
+          @Override
+          public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return oldIds[oldItemPosition].equals(newIds[newItemPosition]);
+          }
+
+          @Override
+          public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            // A store's other details never change, only its distance
+            return Double.compare(oldDistances[oldItemPosition], newDistances[newItemPosition]) == 0;
+          }
+
+          @Override
+          public Object getChangePayload(int oldItemPosition, int newItemPosition) {
+            return PAYLOAD_DISTANCE;
+          }
+        });
+
+        mainHandler.post(new Runnable() {
+          @Override
+          public void run() {
+            // Drop the result if a newer list has been submitted in the meantime
+            if (generation != submitGeneration) {
+              return;
+            }
+            listOfLocations = newLocations;
+            displayedDistances = newDistances;
+            result.dispatchUpdatesTo(LocationRecyclerViewAdapter.this);
+            if (commitCallback != null) {
+              commitCallback.run();
+            }
+          }
+        });
+      }
+    });
+  }
+
+  @Override
+  public long getItemId(int position) {
+    String storeId = listOfLocations.get(position).getId();
+    Long stableId = stableIds.get(storeId);
+    if (stableId == null) {
+      stableId = (long) stableIds.size();
+      stableIds.put(storeId, stableId);
+    }
+    return stableId;
+  }
+
+  private static String[] idsOf(List<IndividualLocation> locations) {
+    String[] ids = new String[locations.size()];
+    for (int x = 0; x < ids.length; x++) {
+      ids[x] = locations.get(x).getId();
+    }
+    return ids;
   }
 
   @Override
   public ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
     int singleRvCardToUse = R.layout.single_location_map_view_rv_card;
     View itemView = LayoutInflater.from(parent.getContext()).inflate(singleRvCardToUse, parent, false);
-    return new ViewHolder(itemView);
+    ViewHolder card = new ViewHolder(itemView);
+
+    // The theme is the same for every card, so style each card once when it's created
+    cardTheme.applyTo(card);
+    return card;
   }
 
   public interface ClickListener {
     void onItemClick(int position);
   }
 
+  public interface LoadListener {
+    /**
+     * Called when a card is bound with placeholders because its location isn't loaded. Call
+     * {@link #notifyLocationsLoaded()} once it is.
+     */
+    void onLocationNotLoaded(int position);
+  }
+
+  public void setLoadListener(LoadListener loadListener) {
+    this.loadListener = loadListener;
+  }
+
+  /**
+   * Rebinds the details of the cards, e.g. once the locations shown with placeholders have loaded
+   */
+  public void notifyLocationsLoaded() {
+    notifyItemRangeChanged(0, getItemCount(), PAYLOAD_DETAILS);
+  }
+
   @Override
   public int getItemCount() {
     return listOfLocations.size();
   }
 
+  @Override
+  public void onBindViewHolder(@NonNull ViewHolder card, int position, @NonNull List<Object> payloads) {
+    if (payloads.isEmpty() || payloads.contains(PAYLOAD_DETAILS)) {
+      onBindViewHolder(card, position);
+      return;
+    }
+    // Only the distance has changed, so leave the rest of the card as it is
+    double distance = listOfLocations.get(position).getDistanceInMeters();
+    displayedDistances[position] = distance;
+    card.distanceNumberTextView.setText(distanceFormatter.formatMiles(distance));
+  }
+
   @Override
   public void onBindViewHolder(ViewHolder card, int position) {
 
     IndividualLocation locationCard = listOfLocations.get(position);
+    displayedDistances[position] = locationCard.getDistanceInMeters();
 
     card.nameTextView.setText(locationCard.getName());
     card.addressTextView.setText(locationCard.getAddress());
     card.phoneNumTextView.setText(locationCard.getPhoneNum());
     card.hoursTextView.setText(locationCard.getHours());
-    card.distanceNumberTextView.setText(locationCard.getDistance());
-
-    switch (selectedTheme) {
-      case R.style.AppTheme_Blue:
-        emojiForCircle = ResourcesCompat.getDrawable(context.getResources(), R.drawable.ice_cream_icon, null);
-        backgroundCircle = ResourcesCompat.getDrawable(context.getResources(), R.drawable.blue_circle, null);
-        setColors(R.color.colorPrimary_blue, R.color.white, R.color.white, R.color.cardHourAndPhoneTextColor_blue,
-          R.color.cardHourAndPhoneHeaderTextColor_blue, R.color.cardHourAndPhoneTextColor_blue,
-          R.color.cardHourAndPhoneHeaderTextColor_blue, R.color.white, R.color.white);
-        setAlphas(card, .41f, .48f, 100f, .48f,
-          100f,
-          .41f);
-        break;
-      case R.style.AppTheme_Purple:
-        emojiForCircle = ResourcesCompat.getDrawable(context.getResources(), R.drawable.cheese_burger_icon, null);
-        backgroundCircle = ResourcesCompat.getDrawable(context.getResources(), R.drawable.purple_circle, null);
-        setColors(R.color.colorPrimaryDark_purple, R.color.white, R.color.white, R.color.cardHourAndPhoneTextColor_purple,
-          R.color.cardHourAndPhoneTextColor_purple, R.color.cardHourAndPhoneTextColor_purple,
-          R.color.cardHourAndPhoneTextColor_purple, R.color.white, R.color.white);
-        setAlphas(card, .41f, .36f, .94f, .36f,
-          .94f,
-          .41f);
-        break;
-      case R.style.AppTheme_Green:
-        emojiForCircle = ResourcesCompat.getDrawable(context.getResources(), R.drawable.money_bag_icon, null);
-        card.emojiImageView.setPadding(8, 0, 0, 0);
-        backgroundCircle = ResourcesCompat.getDrawable(context.getResources(), R.drawable.green_circle, null);
-        setColors(R.color.colorPrimaryDark_green, R.color.white, R.color.white, R.color.cardHourAndPhoneTextColor_green,
-          R.color.black, R.color.cardHourAndPhoneTextColor_green,
-          R.color.black, R.color.white, R.color.white);
-        setAlphas(card, 100f, .48f, 100f, .48f,
-          100f,
-          100f);
-        break;
-      case R.style.AppTheme_Neutral:
-        emojiForCircle = ResourcesCompat.getDrawable(context.getResources(), R.drawable.house_icon, null);
-        backgroundCircle = ResourcesCompat.getDrawable(context.getResources(), R.drawable.white_circle, null);
-        setColors(R.color.colorPrimaryDark_neutral, R.color.black, R.color.black, R.color.black,
-          R.color.black, R.color.black,
-          R.color.black, R.color.black, R.color.black);
-        setAlphas(card, .37f, .37f, 100f, .37f,
-          100f,
-          .37f);
-        break;
-      case R.style.AppTheme_Gray:
-        emojiForCircle = ResourcesCompat.getDrawable(context.getResources(), R.drawable.bicycle_icon, null);
-        backgroundCircle = ResourcesCompat.getDrawable(context.getResources(), R.drawable.gray_circle, null);
-        setColors(R.color.colorPrimaryDark_gray, R.color.white, R.color.white, R.color.cardHourAndPhoneTextColor_gray,
-          R.color.cardHourAndPhoneTextColor_gray, R.color.cardHourAndPhoneTextColor_gray,
-          R.color.cardHourAndPhoneTextColor_gray, R.color.white, R.color.white);
-        setAlphas(card, .41f, .48f, 100f, .41f,
-          100f,
-          .41f);
-        break;
-    }
-
-    card.emojiImageView.setImageDrawable(emojiForCircle);
-    card.constraintUpperColorSection.setBackgroundColor(upperCardSectionColor);
-    card.backgroundCircleImageView.setImageDrawable(backgroundCircle);
-    card.nameTextView.setTextColor(locationNameColor);
-    card.phoneNumTextView.setTextColor(locationPhoneNumColor);
-    card.hoursTextView.setTextColor(locationHoursColor);
-    card.hoursHeaderTextView.setTextColor(locationHoursHeaderColor);
-    card.distanceNumberTextView.setTextColor(locationDistanceNumColor);
-    card.milesAbbreviationTextView.setTextColor(milesAbbreviationColor);
-    card.addressTextView.setTextColor(locationAddressColor);
-    card.phoneHeaderTextView.setTextColor(locationPhoneHeaderColor);
-  }
+    card.distanceNumberTextView.setText(distanceFormatter.formatMiles(locationCard.getDistanceInMeters()));
 
-  private void setColors(int colorForUpperCard, int colorForName, int colorForAddress,
-                         int colorForHours, int colorForHoursHeader, int colorForPhoneNum,
-                         int colorForPhoneHeader, int colorForDistanceNum, int colorForMilesAbbreviation) {
-    upperCardSectionColor = ResourcesCompat.getColor(context.getResources(), colorForUpperCard, null);
-    locationNameColor = ResourcesCompat.getColor(context.getResources(), colorForName, null);
-    locationAddressColor = ResourcesCompat.getColor(context.getResources(), colorForAddress, null);
-    locationHoursColor = ResourcesCompat.getColor(context.getResources(), colorForHours, null);
-    locationHoursHeaderColor = ResourcesCompat.getColor(context.getResources(), colorForHoursHeader, null);
-    locationPhoneNumColor = ResourcesCompat.getColor(context.getResources(), colorForPhoneNum, null);
-    locationPhoneHeaderColor = ResourcesCompat.getColor(context.getResources(), colorForPhoneHeader, null);
-    locationDistanceNumColor = ResourcesCompat.getColor(context.getResources(), colorForDistanceNum, null);
-    milesAbbreviationColor = ResourcesCompat.getColor(context.getResources(), colorForMilesAbbreviation, null);
-  }
-
-  private void setAlphas(ViewHolder card, float addressAlpha, float hoursHeaderAlpha, float hoursNumAlpha,
-                         float phoneHeaderAlpha, float phoneNumAlpha, float milesAbbreviationAlpha) {
-    card.addressTextView.setAlpha(addressAlpha);
-    card.hoursHeaderTextView.setAlpha(hoursHeaderAlpha);
-    card.hoursTextView.setAlpha(hoursNumAlpha);
-    card.phoneHeaderTextView.setAlpha(phoneHeaderAlpha);
-    card.phoneNumTextView.setAlpha(phoneNumAlpha);
-    card.milesAbbreviationTextView.setAlpha(milesAbbreviationAlpha);
+    // Details are never read from storage here, on the main thread
+    if (!locationCard.isLoaded() && loadListener != null) {
+      loadListener.onLocationNotLoaded(position);
+    }
   }
 
-
   static class ViewHolder extends RecyclerView.ViewHolder implements View.OnClickListener {
     TextView nameTextView;
     TextView addressTextView;
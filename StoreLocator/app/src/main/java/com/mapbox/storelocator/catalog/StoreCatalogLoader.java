@@ -0,0 +1,255 @@
+package com.mapbox.storelocator.catalog;
+
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.mapbox.geojson.Point;
+import com.mapbox.storelocator.distance.NearestLocations;
+import com.mapbox.storelocator.hours.OpeningHoursIndex;
+import com.mapbox.storelocator.model.StoreCatalog;
+import com.mapbox.storelocator.repository.RepositoryCatalogUpdate;
+import com.mapbox.storelocator.repository.RepositoryIndexes;
+import com.mapbox.storelocator.repository.StoreRepository;
+import com.mapbox.storelocator.search.StoreSearchIndex;
+import com.mapbox.storelocator.sync.CatalogDelta;
+import com.mapbox.storelocator.sync.CatalogSynchronizer;
+
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Loads the catalog of store locations from the app's assets and builds everything derived from it
+ * on a background thread, including the ranking of the locations nearest the device, then delivers
+ * the result on the main thread. The opening hours and search indexes are built and delivered
+ * afterwards, so that they don't hold up showing the locations.
+ * <p>
+ * Once the store repository has been synced, the catalog is loaded from the repository instead of
+ * the assets. Syncing runs last, and the catalog is then updated with only the stores which changed
+ * and delivered again, so that the changes show without loading the catalog again.
+ */
+public class StoreCatalogLoader {
+
+  private static final String BINARY_CATALOG_ASSET = "list_of_locations.bin";
+  private static final String GEOJSON_CATALOG_ASSET = "list_of_locations.geojson";
+
+  private final AssetManager assetManager;
+  private final StoreRepository storeRepository;
+  private final CatalogSynchronizer catalogSynchronizer;
+  private final Point origin;
+  private final int cardPageSize;
+  private final ExecutorService executor = Executors.newSingleThreadExecutor();
+  private final Handler mainHandler = new Handler(Looper.getMainLooper());
+  private volatile Callback callback;
+
+  /**
+   * @param storeRepository     local copy of the catalog, used once it has been synced
+   * @param catalogSynchronizer updates the store repository after loading, or null to not sync
+   * @param origin              the device location that the locations are ranked by distance from
+   * @param cardPageSize        number of nearest locations ranked at first
+   */
+  public StoreCatalogLoader(AssetManager assetManager, StoreRepository storeRepository,
+                            CatalogSynchronizer catalogSynchronizer, Point origin, int cardPageSize) {
+    this.assetManager = assetManager;
+    this.storeRepository = storeRepository;
+    this.catalogSynchronizer = catalogSynchronizer;
+    this.origin = origin;
+    this.cardPageSize = cardPageSize;
+  }
+
+  public interface Callback {
+    /**
+     * @param nearestLocations the locations ranked by their estimated distance from the origin
+     * @param nearestStores    the feature indices of the page of locations nearest the origin,
+     *                         nearest first
+     */
+    void onCatalogLoaded(StoreCatalog storeCatalog, NearestLocations nearestLocations, int[] nearestStores);
+
+    void onCatalogLoadFailed(Exception exception);
+
+    void onOpeningHoursIndexBuilt(OpeningHoursIndex openingHoursIndex);
+
+    void onSearchIndexBuilt(StoreSearchIndex storeSearchIndex);
+
+    /**
+     * Called once a sync has changed the catalog, with the catalog and its indexes brought up to date
+     *
+     * @param nearestLocations the locations of the updated catalog ranked by their estimated distance
+     *                         from the origin
+     */
+    void onCatalogUpdated(RepositoryCatalogUpdate update, NearestLocations nearestLocations);
+  }
+
+  /**
+   * Starts loading the catalog. The callback is invoked on the main thread, unless
+   * {@link #release()} has been called in the meantime.
+   */
+  public void load(Callback callback) {
+    this.callback = callback;
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          // Once synced, the catalog is read from the repository
+          boolean synced = storeRepository.getVersion() != null;
+          final StoreCatalog storeCatalog = synced ? StoreCatalogReader.readRepository(storeRepository)
+            : loadAssetCatalog();
+
+          // Ranking every location takes O(n log n), and the nearest page of locations is queried
+          // from the store repository once synced, so both are done here rather than on the main thread
+          final NearestLocations nearestLocations = new NearestLocations(storeCatalog, origin.latitude(),
+            origin.longitude(), cardPageSize);
+          final int[] nearestStores = storeCatalog.getSpatialIndex().nearest(origin.latitude(),
+            origin.longitude(), cardPageSize);
+
+          // The first cards show their details as soon as they're bound
+          storeCatalog.prefetchLocations(nearestLocations.order());
+          mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+              Callback currentCallback = StoreCatalogLoader.this.callback;
+              if (currentCallback != null) {
+                currentCallback.onCatalogLoaded(storeCatalog, nearestLocations, nearestStores);
+              }
+            }
+          });
+
+          OpeningHoursIndex openingHoursIndex;
+          StoreSearchIndex storeSearchIndex;
+          if (synced) {
+            // Both indexes are built from a single pass over the repository's rows
+            RepositoryIndexes indexes = RepositoryIndexes.build(storeRepository, storeCatalog);
+            openingHoursIndex = indexes.getOpeningHoursIndex();
+            storeSearchIndex = indexes.getStoreSearchIndex();
+          } else {
+            openingHoursIndex = OpeningHoursIndex.build(storeCatalog);
+            storeSearchIndex = StoreSearchIndex.build(storeCatalog);
+          }
+          deliverOpeningHoursIndex(openingHoursIndex);
+          deliverSearchIndex(storeSearchIndex);
+
+          syncCatalog(synced, storeCatalog, openingHoursIndex, storeSearchIndex);
+        } catch (final Exception exception) {
+          mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+              Callback currentCallback = StoreCatalogLoader.this.callback;
+              if (currentCallback != null) {
+                currentCallback.onCatalogLoadFailed(exception);
+              }
+            }
+          });
+        }
+      }
+    });
+  }
+
+  private void deliverOpeningHoursIndex(final OpeningHoursIndex openingHoursIndex) {
+    mainHandler.post(new Runnable() {
+      @Override
+      public void run() {
+        Callback currentCallback = StoreCatalogLoader.this.callback;
+        if (currentCallback != null) {
+          currentCallback.onOpeningHoursIndexBuilt(openingHoursIndex);
+        }
+      }
+    });
+  }
+
+  private void deliverSearchIndex(final StoreSearchIndex storeSearchIndex) {
+    mainHandler.post(new Runnable() {
+      @Override
+      public void run() {
+        Callback currentCallback = StoreCatalogLoader.this.callback;
+        if (currentCallback != null) {
+          currentCallback.onSearchIndexBuilt(storeSearchIndex);
+        }
+      }
+    });
+  }
+
+  /**
+   * Drops the callback and stops the background thread, e.g. when the activity is destroyed
+   */
+  public void release() {
+    callback = null;
+    executor.shutdownNow();
+  }
+
+  /**
+   * Applies the changes made to the remote catalog since the last sync to the store repository, then
+   * to the catalog and its indexes
+   */
+  private void syncCatalog(boolean synced, StoreCatalog storeCatalog, OpeningHoursIndex openingHoursIndex,
+                           StoreSearchIndex storeSearchIndex) {
+    if (catalogSynchronizer == null) {
+      return;
+    }
+    CatalogDelta delta;
+    try {
+      delta = catalogSynchronizer.sync();
+    } catch (IOException exception) {
+      // The stored catalog stays as it was, and the next load tries again
+      Log.e("StoreCatalogLoader", "syncCatalog: " + exception);
+      return;
+    }
+    if (delta == null) {
+      return;
+    }
+    Log.d("StoreCatalogLoader", "syncCatalog: " + delta.getUpserts().size() + " stores updated, "
+      + delta.getDeletedIds().size() + " deleted");
+
+    // Only the stores of a partial delta are indexed again. A full delta replaces every store, as
+    // does the first sync of a catalog loaded from the assets, so the catalog is read again.
+    final RepositoryCatalogUpdate update;
+    final NearestLocations nearestLocations;
+    try {
+      update = synced && !delta.isFull()
+        ? RepositoryCatalogUpdate.apply(storeRepository, storeCatalog, openingHoursIndex, storeSearchIndex, delta)
+        : RepositoryCatalogUpdate.reload(storeRepository);
+      nearestLocations = new NearestLocations(update.getStoreCatalog(), origin.latitude(), origin.longitude(),
+        cardPageSize);
+      update.getStoreCatalog().prefetchLocations(nearestLocations.order());
+    } catch (IOException exception) {
+      // The catalog shown stays as it was, and the next load reads the synced catalog
+      Log.e("StoreCatalogLoader", "syncCatalog: " + exception);
+      return;
+    }
+    mainHandler.post(new Runnable() {
+      @Override
+      public void run() {
+        Callback currentCallback = StoreCatalogLoader.this.callback;
+        if (currentCallback != null) {
+          currentCallback.onCatalogUpdated(update, nearestLocations);
+        }
+      }
+    });
+  }
+
+  /**
+   * Memory-maps the binary catalog which is compiled from the GeoJSON file at build time, or if it's
+   * missing, streams the locations from the GeoJSON file in the assets folder instead
+   */
+  StoreCatalog loadAssetCatalog() throws IOException {
+    AssetFileDescriptor assetFileDescriptor;
+    try {
+      assetFileDescriptor = assetManager.openFd(BINARY_CATALOG_ASSET);
+    } catch (FileNotFoundException exception) {
+      return StoreCatalogReader.readGeoJson(assetManager.open(GEOJSON_CATALOG_ASSET));
+    }
+    FileInputStream inputStream = assetFileDescriptor.createInputStream();
+    try {
+      return StoreCatalogReader.readBinary(inputStream.getChannel().map(FileChannel.MapMode.READ_ONLY,
+        assetFileDescriptor.getStartOffset(), assetFileDescriptor.getLength()));
+    } finally {
+      // The mapping stays valid after the file is closed
+      inputStream.close();
+    }
+  }
+}
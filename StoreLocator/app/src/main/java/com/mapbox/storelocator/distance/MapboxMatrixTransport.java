@@ -0,0 +1,89 @@
+package com.mapbox.storelocator.distance;
+
+import androidx.annotation.Nullable;
+
+import com.mapbox.api.directions.v5.DirectionsCriteria;
+import com.mapbox.api.matrix.v1.MapboxMatrix;
+import com.mapbox.api.matrix.v1.models.MatrixResponse;
+import com.mapbox.geojson.Point;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import retrofit2.Call;
+import retrofit2.Response;
+
+/**
+ * {@link DistanceMatrixTransport} backed by the Mapbox Matrix API
+ */
+public class MapboxMatrixTransport implements DistanceMatrixTransport {
+
+  /**
+   * The Matrix API accepts up to 25 coordinates per request, one of which is the origin.
+   */
+  public static final int MAX_DESTINATIONS_PER_REQUEST = BatchedDistanceProvider.DEFAULT_BATCH_SIZE;
+
+  private final String accessToken;
+  private final String profile;
+  private final String baseUrl;
+
+  public MapboxMatrixTransport(String accessToken, String profile) {
+    this(accessToken, profile, null);
+  }
+
+  /**
+   * @param baseUrl optional base url of the Matrix API, used to point the transport at a local server
+   */
+  public MapboxMatrixTransport(String accessToken, String profile, @Nullable String baseUrl) {
+    this.accessToken = accessToken;
+    this.profile = profile;
+    this.baseUrl = baseUrl;
+  }
+
+  @Override
+  public void fetchDistances(Point origin, List<Point> destinations, final Callback callback) {
+    final int destinationCount = destinations.size();
+    List<Point> coordinates = new ArrayList<>(destinationCount + 1);
+    coordinates.add(origin);
+    coordinates.addAll(destinations);
+
+    Integer[] destinationIndices = new Integer[destinationCount];
+    for (int x = 0; x < destinationCount; x++) {
+      destinationIndices[x] = x + 1;
+    }
+
+    MapboxMatrix.Builder builder = MapboxMatrix.builder()
+      .accessToken(accessToken)
+      .profile(profile)
+      .coordinates(coordinates)
+      .sources(0)
+      .destinations(destinationIndices)
+      .addAnnotations(DirectionsCriteria.ANNOTATION_DISTANCE);
+    if (baseUrl != null) {
+      builder.baseUrl(baseUrl);
+    }
+
+    builder.build().enqueueCall(new retrofit2.Callback<MatrixResponse>() {
+      @Override
+      public void onResponse(Call<MatrixResponse> call, Response<MatrixResponse> response) {
+        MatrixResponse body = response.body();
+        if (body == null || body.distances() == null || body.distances().isEmpty()) {
+          callback.onFailure(new IllegalStateException("No distances found, response code " + response.code()));
+          return;
+        }
+        Double[] row = body.distances().get(0);
+        double[] distancesInMeters = new double[destinationCount];
+        for (int x = 0; x < destinationCount; x++) {
+          Double distance = x < row.length ? row[x] : null;
+          distancesInMeters[x] = distance != null ? distance : Double.NaN;
+        }
+        callback.onDistances(distancesInMeters);
+      }
+
+      @Override
+      public void onFailure(Call<MatrixResponse> call, Throwable throwable) {
+        callback.onFailure(throwable);
+      }
+    });
+  }
+}
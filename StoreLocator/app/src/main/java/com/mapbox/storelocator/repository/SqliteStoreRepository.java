@@ -0,0 +1,255 @@
+package com.mapbox.storelocator.repository;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import com.mapbox.storelocator.geo.Geohash;
+import com.mapbox.storelocator.sync.CatalogDelta;
+import com.mapbox.storelocator.sync.StoreRecord;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link StoreRepository} kept in a SQLite database. Each store is a row with the geohash of its
+ * coordinates under an index, so that box queries only scan the rows in the few geohash cells
+ * covering the box. Deltas only write the rows they change.
+ * <p>
+ * There is one repository per process, so that recreating the map activity reuses the open database.
+ */
+public class SqliteStoreRepository extends SQLiteOpenHelper implements StoreRepository {
+
+  private static final String DATABASE_NAME = "stores.db";
+  private static final int DATABASE_VERSION = 3;
+  private static final String TABLE_STORES = "stores";
+  private static final String TABLE_METADATA = "metadata";
+  private static final String METADATA_VERSION = "version";
+  private static final String[] STORE_COLUMNS =
+    {"id", "name", "description", "hours", "phone", "latitude", "longitude"};
+
+  // Cells of about 5 by 5 meters, so that rows outside a queried box are rarely scanned
+  private static final int GEOHASH_PRECISION = 9;
+
+  // The number of geohash ranges scanned for a box query
+  private static final int MAX_COVER_CELLS = 16;
+
+  private static SqliteStoreRepository instance;
+
+  /**
+   * Opens a repository of its own rather than the shared one, e.g. in tests.
+   *
+   * @param databaseName the database file, or null for a database kept in memory
+   */
+  public SqliteStoreRepository(Context context, String databaseName) {
+    super(context, databaseName, null, DATABASE_VERSION);
+  }
+
+  public static synchronized SqliteStoreRepository getInstance(Context context) {
+    if (instance == null) {
+      instance = new SqliteStoreRepository(context.getApplicationContext(), DATABASE_NAME);
+    }
+    return instance;
+  }
+
+  @Override
+  public void onCreate(SQLiteDatabase database) {
+    database.execSQL("CREATE TABLE " + TABLE_STORES + " (id TEXT PRIMARY KEY, position INTEGER NOT NULL, "
+      + "name TEXT, description TEXT, hours TEXT, phone TEXT, latitude REAL NOT NULL, longitude REAL NOT NULL, "
+      + "geohash TEXT NOT NULL)");
+    database.execSQL("CREATE INDEX stores_position ON " + TABLE_STORES + " (position)");
+    database.execSQL("CREATE INDEX stores_geohash ON " + TABLE_STORES + " (geohash)");
+    database.execSQL("CREATE TABLE " + TABLE_METADATA + " (key TEXT PRIMARY KEY, value TEXT)");
+  }
+
+  /**
+   * The database only holds a copy of the remote catalog, so older schemas are dropped and the next
+   * sync downloads the whole catalog again
+   */
+  @Override
+  public void onUpgrade(SQLiteDatabase database, int oldVersion, int newVersion) {
+    database.execSQL("DROP TABLE IF EXISTS " + TABLE_STORES);
+    database.execSQL("DROP TABLE IF EXISTS " + TABLE_METADATA);
+    onCreate(database);
+  }
+
+  @Override
+  public String getVersion() throws IOException {
+    try {
+      Cursor cursor = getReadableDatabase().query(TABLE_METADATA, new String[] {"value"}, "key = ?",
+        new String[] {METADATA_VERSION}, null, null, null);
+      try {
+        return cursor.moveToFirst() ? cursor.getString(0) : null;
+      } finally {
+        cursor.close();
+      }
+    } catch (SQLiteException exception) {
+      throw new IOException("Couldn't read the store database version.", exception);
+    }
+  }
+
+  @Override
+  public List<StoreRecord> readAll() throws IOException {
+    return queryStores(null, null, "position", null);
+  }
+
+  /**
+   * Applies the delta in a single transaction. Updated stores keep their position and added stores
+   * get the positions after the last store.
+   */
+  @Override
+  public void apply(CatalogDelta delta) throws IOException {
+    SQLiteDatabase database;
+    try {
+      database = getWritableDatabase();
+    } catch (SQLiteException exception) {
+      throw new IOException("Couldn't open the store database.", exception);
+    }
+    database.beginTransaction();
+    try {
+      if (delta.isFull()) {
+        database.delete(TABLE_STORES, null, null);
+      }
+      for (String id : delta.getDeletedIds()) {
+        database.delete(TABLE_STORES, "id = ?", new String[] {id});
+      }
+
+      long nextPosition = DatabaseUtils.longForQuery(database,
+        "SELECT IFNULL(MAX(position) + 1, 0) FROM " + TABLE_STORES, null);
+      for (StoreRecord record : delta.getUpserts()) {
+        ContentValues values = new ContentValues();
+        values.put("name", record.getName());
+        values.put("description", record.getDescription());
+        values.put("hours", record.getHours());
+        values.put("phone", record.getPhone());
+        values.put("latitude", record.getLatitude());
+        values.put("longitude", record.getLongitude());
+        values.put("geohash", Geohash.encode(record.getLatitude(), record.getLongitude(), GEOHASH_PRECISION));
+        if (database.update(TABLE_STORES, values, "id = ?", new String[] {record.getId()}) == 0) {
+          values.put("id", record.getId());
+          values.put("position", nextPosition++);
+          database.insert(TABLE_STORES, null, values);
+        }
+      }
+
+      ContentValues version = new ContentValues();
+      version.put("key", METADATA_VERSION);
+      version.put("value", delta.getVersion());
+      database.insertWithOnConflict(TABLE_METADATA, null, version, SQLiteDatabase.CONFLICT_REPLACE);
+      database.setTransactionSuccessful();
+    } catch (SQLiteException exception) {
+      throw new IOException("Couldn't apply catalog version " + delta.getVersion() + ".", exception);
+    } finally {
+      database.endTransaction();
+    }
+  }
+
+  @Override
+  public int count() throws IOException {
+    try {
+      return (int) DatabaseUtils.queryNumEntries(getReadableDatabase(), TABLE_STORES);
+    } catch (SQLiteException exception) {
+      throw new IOException("Couldn't count the stores.", exception);
+    }
+  }
+
+  @Override
+  public StoreRecord get(String id) throws IOException {
+    List<StoreRecord> records = queryStores("id = ?", new String[] {id}, null, null);
+    return records.isEmpty() ? null : records.get(0);
+  }
+
+  @Override
+  public void readLocations(LocationListener listener) throws IOException {
+    try {
+      Cursor cursor = getReadableDatabase().query(TABLE_STORES, new String[] {"id", "latitude", "longitude"},
+        null, null, null, null, "position");
+      try {
+        while (cursor.moveToNext()) {
+          listener.onLocation(cursor.getString(0), cursor.getDouble(1), cursor.getDouble(2));
+        }
+      } finally {
+        cursor.close();
+      }
+    } catch (SQLiteException exception) {
+      throw new IOException("Couldn't read the store locations.", exception);
+    }
+  }
+
+  @Override
+  public void readText(TextListener listener) throws IOException {
+    try {
+      Cursor cursor = getReadableDatabase().query(TABLE_STORES,
+        new String[] {"id", "name", "description", "hours", "phone"}, null, null, null, null, "position");
+      try {
+        while (cursor.moveToNext()) {
+          listener.onText(cursor.getString(0), cursor.getString(1), cursor.getString(2), cursor.getString(3),
+            cursor.getString(4));
+        }
+      } finally {
+        cursor.close();
+      }
+    } catch (SQLiteException exception) {
+      throw new IOException("Couldn't read the store text.", exception);
+    }
+  }
+
+  /**
+   * Scans the geohash ranges of the cells covering the box, then drops the rows outside the box
+   */
+  @Override
+  public List<StoreRecord> withinBounds(double south, double west, double north, double east, int limit)
+    throws IOException {
+    List<String[]> ranges = Geohash.coverRanges(south, west, north, east, MAX_COVER_CELLS);
+    if (ranges.isEmpty()) {
+      return new ArrayList<>();
+    }
+    StringBuilder selection = new StringBuilder("(");
+    List<String> selectionArgs = new ArrayList<>(ranges.size() * 2 + 4);
+    for (int x = 0; x < ranges.size(); x++) {
+      if (x > 0) {
+        selection.append(" OR ");
+      }
+      selection.append("geohash >= ? AND geohash < ?");
+      selectionArgs.add(ranges.get(x)[0]);
+      selectionArgs.add(ranges.get(x)[1]);
+    }
+    selection.append(") AND latitude BETWEEN ? AND ? AND longitude BETWEEN ? AND ?");
+    selectionArgs.add(String.valueOf(south));
+    selectionArgs.add(String.valueOf(north));
+    selectionArgs.add(String.valueOf(west));
+    selectionArgs.add(String.valueOf(east));
+    return queryStores(selection.toString(), selectionArgs.toArray(new String[selectionArgs.size()]), null,
+      limit > 0 ? String.valueOf(limit) : null);
+  }
+
+  @Override
+  public List<StoreRecord> nearest(double latitude, double longitude, int count) throws IOException {
+    return NearestStoreSearch.nearest(this, latitude, longitude, count);
+  }
+
+  private List<StoreRecord> queryStores(String selection, String[] selectionArgs, String orderBy, String limit)
+    throws IOException {
+    try {
+      Cursor cursor = getReadableDatabase().query(TABLE_STORES, STORE_COLUMNS, selection, selectionArgs,
+        null, null, orderBy, limit);
+      try {
+        List<StoreRecord> records = new ArrayList<>(cursor.getCount());
+        while (cursor.moveToNext()) {
+          records.add(new StoreRecord(cursor.getString(0), cursor.getString(1), cursor.getString(2),
+            cursor.getString(3), cursor.getString(4), cursor.getDouble(5), cursor.getDouble(6)));
+        }
+        return records;
+      } finally {
+        cursor.close();
+      }
+    } catch (SQLiteException exception) {
+      throw new IOException("Couldn't query the stores.", exception);
+    }
+  }
+}
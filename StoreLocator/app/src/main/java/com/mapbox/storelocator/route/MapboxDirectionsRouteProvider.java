@@ -0,0 +1,82 @@
+package com.mapbox.storelocator.route;
+
+import androidx.annotation.Nullable;
+
+import com.mapbox.api.directions.v5.DirectionsCriteria;
+import com.mapbox.api.directions.v5.MapboxDirections;
+import com.mapbox.api.directions.v5.models.DirectionsResponse;
+import com.mapbox.api.directions.v5.models.DirectionsRoute;
+import com.mapbox.geojson.Point;
+
+import retrofit2.Call;
+import retrofit2.Response;
+
+/**
+ * {@link RouteProvider} backed by the Mapbox Directions API
+ */
+public class MapboxDirectionsRouteProvider implements RouteProvider {
+
+  private final String accessToken;
+  private final String profile;
+  private final String baseUrl;
+
+  public MapboxDirectionsRouteProvider(String accessToken, String profile) {
+    this(accessToken, profile, null);
+  }
+
+  /**
+   * @param baseUrl optional base url of the Directions API, used to point the provider at a local server
+   */
+  public MapboxDirectionsRouteProvider(String accessToken, String profile, @Nullable String baseUrl) {
+    this.accessToken = accessToken;
+    this.profile = profile;
+    this.baseUrl = baseUrl;
+  }
+
+  @Override
+  public Request getRoute(Point origin, Point destination, final Callback callback) {
+    MapboxDirections.Builder builder = MapboxDirections.builder()
+      .origin(origin)
+      .destination(destination)
+      .overview(DirectionsCriteria.OVERVIEW_FULL)
+      .profile(profile)
+      .accessToken(accessToken);
+    if (baseUrl != null) {
+      builder.baseUrl(baseUrl);
+    }
+    final MapboxDirections directionsApiClient = builder.build();
+
+    directionsApiClient.enqueueCall(new retrofit2.Callback<DirectionsResponse>() {
+      @Override
+      public void onResponse(Call<DirectionsResponse> call, Response<DirectionsResponse> response) {
+        if (call.isCanceled()) {
+          return;
+        }
+        // Check that the response isn't null and that the response has a route
+        if (response.body() == null) {
+          callback.onFailure(new IllegalStateException(
+            "No routes found, make sure you set the right user and access token."));
+        } else if (response.body().routes().size() < 1) {
+          callback.onFailure(new IllegalStateException("No routes found"));
+        } else {
+          DirectionsRoute route = response.body().routes().get(0);
+          callback.onRoute(route.geometry(), route.distance() != null ? route.distance() : Double.NaN);
+        }
+      }
+
+      @Override
+      public void onFailure(Call<DirectionsResponse> call, Throwable throwable) {
+        // Cancelled calls fail with an IOException, which nobody is waiting for
+        if (!call.isCanceled()) {
+          callback.onFailure(throwable);
+        }
+      }
+    });
+    return new Request() {
+      @Override
+      public void cancel() {
+        directionsApiClient.cancelCall();
+      }
+    };
+  }
+}
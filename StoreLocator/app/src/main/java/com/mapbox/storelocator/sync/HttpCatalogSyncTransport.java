@@ -0,0 +1,44 @@
+package com.mapbox.storelocator.sync;
+
+import java.io.IOException;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * {@link CatalogSyncTransport} which requests the catalog changes from an HTTP endpoint. The version
+ * of the local catalog is sent as an {@code If-None-Match} header. The endpoint answers 304 Not
+ * Modified when there are no changes, or a delta as read by {@link CatalogDeltaReader} with the new
+ * version as its ETag.
+ */
+public class HttpCatalogSyncTransport implements CatalogSyncTransport {
+
+  private final OkHttpClient client;
+  private final String url;
+
+  public HttpCatalogSyncTransport(OkHttpClient client, String url) {
+    this.client = client;
+    this.url = url;
+  }
+
+  @Override
+  public CatalogDelta fetchChanges(String version) throws IOException {
+    Request.Builder request = new Request.Builder().url(url);
+    if (version != null) {
+      request.header("If-None-Match", version);
+    }
+    Response response = client.newCall(request.build()).execute();
+    try {
+      if (response.code() == 304) {
+        return null;
+      }
+      if (!response.isSuccessful() || response.body() == null) {
+        throw new IOException("Catalog sync failed with HTTP " + response.code());
+      }
+      return CatalogDeltaReader.read(response.body().byteStream(), response.header("ETag"));
+    } finally {
+      response.close();
+    }
+  }
+}
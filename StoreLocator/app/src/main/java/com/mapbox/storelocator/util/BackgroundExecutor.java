@@ -0,0 +1,31 @@
+package com.mapbox.storelocator.util;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs tasks one at a time on a background thread until it's shut down. Tasks handed over after
+ * that, e.g. by a network response which was already on its way, are dropped instead of rejected.
+ */
+public class BackgroundExecutor implements Executor {
+
+  private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+  @Override
+  public void execute(Runnable runnable) {
+    try {
+      executor.execute(runnable);
+    } catch (RejectedExecutionException exception) {
+      // Shut down, nobody is waiting for the result anymore
+    }
+  }
+
+  /**
+   * Finishes the tasks already handed over, e.g. cache writes, and stops the thread afterwards
+   */
+  public void shutdown() {
+    executor.shutdown();
+  }
+}
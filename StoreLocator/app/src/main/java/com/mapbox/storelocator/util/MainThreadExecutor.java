@@ -0,0 +1,19 @@
+package com.mapbox.storelocator.util;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Runs tasks on the main thread, for delivering the results of background work to the UI
+ */
+public class MainThreadExecutor implements Executor {
+
+  private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+  @Override
+  public void execute(Runnable runnable) {
+    mainHandler.post(runnable);
+  }
+}
@@ -0,0 +1,138 @@
+package com.mapbox.storelocator.util;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.DisplayMetrics;
+import android.util.LruCache;
+import android.util.TypedValue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Process-wide cache of the theme marker icons, so that recreating the map activity, e.g. after a
+ * rotation, or switching back to a theme doesn't decode the icons again.
+ * <p>
+ * Icons are decoded on a background thread, straight to the screen's density, and evicted least
+ * recently used first once they take up more than a fraction of the heap.
+ */
+public final class MarkerIconCache {
+
+  /**
+   * Share of the maximum heap the cached icons may take up
+   */
+  private static final int HEAP_FRACTION = 32;
+
+  private static MarkerIconCache instance;
+
+  private final LruCache<String, Bitmap> icons;
+  private final ExecutorService executor = Executors.newSingleThreadExecutor();
+  private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+  private MarkerIconCache(int maxSizeInKilobytes) {
+    icons = new LruCache<String, Bitmap>(maxSizeInKilobytes) {
+      @Override
+      protected int sizeOf(String key, Bitmap bitmap) {
+        return Math.max(1, bitmap.getRowBytes() * bitmap.getHeight() / 1024);
+      }
+    };
+  }
+
+  public static synchronized MarkerIconCache getInstance() {
+    if (instance == null) {
+      instance = new MarkerIconCache((int) (Runtime.getRuntime().maxMemory() / 1024 / HEAP_FRACTION));
+    }
+    return instance;
+  }
+
+  public interface Callback {
+    /**
+     * @param bitmaps the icons, in the order their drawables were requested in, or null for an icon
+     *                which couldn't be decoded
+     */
+    void onIconsLoaded(Bitmap[] bitmaps);
+  }
+
+  /**
+   * Gets a theme's icons. When all of them are cached the callback is invoked right away, otherwise
+   * the missing ones are decoded on a background thread and the callback is invoked on the main
+   * thread.
+   *
+   * @param theme       style resource of the theme the icons belong to
+   * @param drawableIds drawable resources of the icons
+   */
+  public void load(final Resources resources, final int theme, final int[] drawableIds, final Callback callback) {
+    final Bitmap[] bitmaps = new Bitmap[drawableIds.length];
+    boolean complete = true;
+    for (int x = 0; x < drawableIds.length; x++) {
+      bitmaps[x] = icons.get(key(theme, drawableIds[x]));
+      complete &= bitmaps[x] != null;
+    }
+    if (complete) {
+      callback.onIconsLoaded(bitmaps);
+      return;
+    }
+
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        for (int x = 0; x < drawableIds.length; x++) {
+          if (bitmaps[x] == null) {
+            bitmaps[x] = decode(resources, drawableIds[x]);
+            if (bitmaps[x] != null) {
+              icons.put(key(theme, drawableIds[x]), bitmaps[x]);
+            }
+          }
+        }
+        mainHandler.post(new Runnable() {
+          @Override
+          public void run() {
+            callback.onIconsLoaded(bitmaps);
+          }
+        });
+      }
+    });
+  }
+
+  private static String key(int theme, int drawableId) {
+    return theme + ":" + drawableId;
+  }
+
+  /**
+   * Decodes a drawable at the screen's density. Drawables from a bucket of at least twice the
+   * screen's density are subsampled while decoding, instead of being decoded at full size and
+   * scaled down afterwards.
+   */
+  private static Bitmap decode(Resources resources, int drawableId) {
+    TypedValue value = new TypedValue();
+    InputStream inputStream = resources.openRawResource(drawableId, value);
+    try {
+      BitmapFactory.Options options = new BitmapFactory.Options();
+      int targetDensity = resources.getDisplayMetrics().densityDpi;
+      if (value.density == TypedValue.DENSITY_NONE) {
+        options.inScaled = false;
+      } else {
+        int density = value.density == TypedValue.DENSITY_DEFAULT ? DisplayMetrics.DENSITY_DEFAULT : value.density;
+        int sampleSize = 1;
+        while (density / (sampleSize * 2) >= targetDensity) {
+          sampleSize *= 2;
+        }
+        options.inSampleSize = sampleSize;
+        options.inDensity = density / sampleSize;
+        options.inTargetDensity = targetDensity;
+      }
+      return BitmapFactory.decodeResourceStream(resources, value, inputStream, null, options);
+    } finally {
+      try {
+        inputStream.close();
+      } catch (IOException ignored) {
+        // Nothing left to read
+      }
+    }
+  }
+}
@@ -6,5 +6,6 @@ package com.mapbox.storelocator.util;
 public class StringConstants {
 
   public static final String SELECTED_THEME = "SELECTED THEME";
+  public static final String PROPERTY_STORE_ID = "store_id";
 
 }
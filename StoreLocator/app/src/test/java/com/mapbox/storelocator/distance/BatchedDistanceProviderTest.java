@@ -0,0 +1,156 @@
+package com.mapbox.storelocator.distance;
+
+import com.mapbox.api.directions.v5.DirectionsCriteria;
+import com.mapbox.geojson.Point;
+import com.mapbox.storelocator.model.IndividualLocation;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BatchedDistanceProviderTest {
+
+  private static final Point ORIGIN = Point.fromLngLat(-74.006735, 40.713469);
+
+  @Test
+  public void fetchDistances_splitsLocationsIntoBatches() {
+    FakeTransport transport = new FakeTransport();
+    List<IndividualLocation> locations = createLocations(10);
+    RecordingListener listener = new RecordingListener();
+
+    new BatchedDistanceProvider(transport, 4, 2).fetchDistances(ORIGIN, locations, listener);
+
+    // Only two batches may be in flight at once
+    assertEquals(2, transport.pendingCallbacks.size());
+    assertEquals(4, transport.requestedDestinationCounts.get(0).intValue());
+
+    transport.completeNext(1609.344);
+    transport.completeNext(1609.344);
+    transport.completeNext(1609.344);
+
+    assertEquals(3, transport.requestedDestinationCounts.size());
+    assertEquals(2, transport.requestedDestinationCounts.get(2).intValue());
+    assertEquals(2, listener.completedBatchSizes.get(2).intValue());
+    assertEquals(1609.344, locations.get(0).getDistanceInMeters(), 0);
+    assertEquals(1609.344, locations.get(9).getDistanceInMeters(), 0);
+  }
+
+  @Test
+  public void fetchDistances_failedBatchLeavesDistancesUnset() {
+    FakeTransport transport = new FakeTransport();
+    List<IndividualLocation> locations = createLocations(3);
+    RecordingListener listener = new RecordingListener();
+
+    new BatchedDistanceProvider(transport, 2, 1).fetchDistances(ORIGIN, locations, listener);
+    transport.pendingCallbacks.remove(0).onFailure(new RuntimeException("offline"));
+
+    assertEquals(1, listener.failedBatches);
+    assertTrue(Double.isNaN(locations.get(0).getDistanceInMeters()));
+    // The queue keeps draining after a failure
+    assertEquals(1, transport.pendingCallbacks.size());
+  }
+
+  @Test
+  public void cancel_dropsQueuedAndInFlightBatches() {
+    FakeTransport transport = new FakeTransport();
+    List<IndividualLocation> locations = createLocations(10);
+    RecordingListener listener = new RecordingListener();
+    BatchedDistanceProvider provider = new BatchedDistanceProvider(transport, 4, 2);
+
+    provider.fetchDistances(ORIGIN, locations, listener);
+    provider.cancel();
+    transport.completeNext(1609.344);
+    transport.pendingCallbacks.remove(0).onFailure(new RuntimeException("offline"));
+
+    // The third batch is never requested, and the two in flight are ignored
+    assertEquals(2, transport.requestedDestinationCounts.size());
+    assertTrue(listener.completedBatchSizes.isEmpty());
+    assertEquals(0, listener.failedBatches);
+    assertTrue(Double.isNaN(locations.get(0).getDistanceInMeters()));
+  }
+
+  @Test
+  public void matrixTransport_fillsDistancesFromLocalServer() throws Exception {
+    MockWebServer server = new MockWebServer();
+    server.enqueue(new MockResponse().setBody("{\"code\":\"Ok\",\"distances\":[[3218.688,null]],"
+      + "\"sources\":[{\"name\":\"\",\"location\":[-74.006735,40.713469]}],"
+      + "\"destinations\":[{\"name\":\"\",\"location\":[-73.9,40.7]},{\"name\":\"\",\"location\":[-73.8,40.6]}]}"));
+    server.start();
+    try {
+      DistanceMatrixTransport transport = new MapboxMatrixTransport("pk.test",
+        DirectionsCriteria.PROFILE_DRIVING, server.url("/").toString());
+      List<IndividualLocation> locations = createLocations(2);
+      final CountDownLatch latch = new CountDownLatch(1);
+
+      new BatchedDistanceProvider(transport).fetchDistances(ORIGIN, locations, new RecordingListener() {
+        @Override
+        public void onBatchComplete(int fromIndex, int toIndex) {
+          latch.countDown();
+        }
+      });
+
+      assertTrue(latch.await(5, TimeUnit.SECONDS));
+      assertEquals(3218.688, locations.get(0).getDistanceInMeters(), 0);
+      assertTrue(Double.isNaN(locations.get(1).getDistanceInMeters()));
+
+      RecordedRequest request = server.takeRequest();
+      assertTrue(request.getPath().startsWith("/directions-matrix/v1/mapbox/driving/"));
+      assertEquals(1, server.getRequestCount());
+    } finally {
+      server.shutdown();
+    }
+  }
+
+  private static List<IndividualLocation> createLocations(int count) {
+    List<IndividualLocation> locations = new ArrayList<>();
+    for (int x = 0; x < count; x++) {
+      locations.add(new IndividualLocation("store-" + x, "Location " + x, "description", "9am - 5pm",
+        "(555) 555-5555", 40.7 + x * 0.001, -73.9));
+    }
+    return locations;
+  }
+
+  private static class FakeTransport implements DistanceMatrixTransport {
+    final List<Integer> requestedDestinationCounts = new ArrayList<>();
+    final List<Callback> pendingCallbacks = new ArrayList<>();
+    private int completedRequests;
+
+    @Override
+    public void fetchDistances(Point origin, List<Point> destinations, Callback callback) {
+      requestedDestinationCounts.add(destinations.size());
+      pendingCallbacks.add(callback);
+    }
+
+    void completeNext(double distanceInMeters) {
+      double[] distances = new double[requestedDestinationCounts.get(completedRequests++)];
+      Arrays.fill(distances, distanceInMeters);
+      pendingCallbacks.remove(0).onDistances(distances);
+    }
+  }
+
+  private static class RecordingListener implements BatchedDistanceProvider.Listener {
+    final List<Integer> completedBatchSizes = new ArrayList<>();
+    int failedBatches;
+
+    @Override
+    public void onBatchComplete(int fromIndex, int toIndex) {
+      completedBatchSizes.add(toIndex - fromIndex);
+    }
+
+    @Override
+    public void onBatchFailed(int fromIndex, int toIndex, Throwable throwable) {
+      failedBatches++;
+    }
+  }
+}
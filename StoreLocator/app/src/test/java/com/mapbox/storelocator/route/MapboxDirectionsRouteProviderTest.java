@@ -0,0 +1,108 @@
+package com.mapbox.storelocator.route;
+
+import com.mapbox.api.directions.v5.DirectionsCriteria;
+import com.mapbox.geojson.Point;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MapboxDirectionsRouteProviderTest {
+
+  private static final Point ORIGIN = Point.fromLngLat(-74.006735, 40.713469);
+  private static final Point DOWNTOWN = Point.fromLngLat(-73.991, 40.711);
+  private static final Point UPTOWN = Point.fromLngLat(-73.952, 40.781);
+
+  private MockWebServer server;
+  private RouteRequestScheduler scheduler;
+
+  @Before
+  public void setUp() throws Exception {
+    server = new MockWebServer();
+    server.setDispatcher(new Dispatcher() {
+      @Override
+      public MockResponse dispatch(RecordedRequest request) {
+        // The route downtown is slow, so that later requests overtake it
+        boolean downtown = request.getPath().contains("-73.991");
+        MockResponse response = new MockResponse().setBody(directionsResponse(downtown ? "downtown" : "uptown"));
+        return downtown ? response.setHeadersDelay(1, TimeUnit.SECONDS) : response;
+      }
+    });
+    server.start();
+    scheduler = new RouteRequestScheduler(new MapboxDirectionsRouteProvider("pk.test",
+      DirectionsCriteria.PROFILE_DRIVING, server.url("/").toString()), DirectionsCriteria.PROFILE_DRIVING);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    server.shutdown();
+  }
+
+  @Test
+  public void getLatestRoute_onlyDeliversLatestSelection() throws Exception {
+    RecordingCallback downtown = new RecordingCallback();
+    RecordingCallback uptown = new RecordingCallback();
+
+    scheduler.getLatestRoute(ORIGIN, DOWNTOWN, downtown);
+    scheduler.getLatestRoute(ORIGIN, UPTOWN, uptown);
+
+    assertTrue(uptown.latch.await(5, TimeUnit.SECONDS));
+    assertEquals("uptown", uptown.routes.get(0));
+
+    // Give the cancelled downtown response time to arrive if it hadn't been cancelled
+    assertTrue(!downtown.latch.await(1500, TimeUnit.MILLISECONDS));
+    assertTrue(downtown.routes.isEmpty());
+    assertEquals(0, downtown.failureCount);
+  }
+
+  @Test
+  public void getRoute_sendsIdenticalConcurrentRequestsOnce() throws Exception {
+    RecordingCallback first = new RecordingCallback();
+    RecordingCallback second = new RecordingCallback();
+
+    scheduler.getRoute(ORIGIN, UPTOWN, first);
+    scheduler.getRoute(ORIGIN, UPTOWN, second);
+
+    assertTrue(first.latch.await(5, TimeUnit.SECONDS));
+    assertTrue(second.latch.await(5, TimeUnit.SECONDS));
+    assertEquals(1, server.getRequestCount());
+    assertTrue(server.takeRequest().getPath().startsWith("/directions/v5/mapbox/driving/"));
+  }
+
+  private static String directionsResponse(String geometry) {
+    return "{\"code\":\"Ok\",\"routes\":[{\"geometry\":\"" + geometry + "\",\"distance\":1234.5,"
+      + "\"duration\":300.0,\"weight\":300.0,\"weight_name\":\"routability\",\"legs\":[]}],\"waypoints\":[],"
+      + "\"uuid\":\"test\"}";
+  }
+
+  private static class RecordingCallback implements RouteProvider.Callback {
+    final List<String> routes = new CopyOnWriteArrayList<>();
+    final CountDownLatch latch = new CountDownLatch(1);
+    volatile int failureCount;
+
+    @Override
+    public void onRoute(String geometry, double distanceInMeters) {
+      routes.add(geometry);
+      latch.countDown();
+    }
+
+    @Override
+    public void onFailure(Throwable throwable) {
+      failureCount++;
+      latch.countDown();
+    }
+  }
+}
@@ -0,0 +1,98 @@
+package com.mapbox.storelocator.sync;
+
+import com.mapbox.storelocator.repository.SqliteStoreRepository;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Syncs the app's SQLite store repository, kept in memory, with a local server
+ */
+@RunWith(RobolectricTestRunner.class)
+public class HttpCatalogSyncTransportTest {
+
+  private static final String FULL_CATALOG = "{\"full\": true, \"type\": \"FeatureCollection\", \"features\": ["
+    + feature("downtown", "Downtown") + ", " + feature("uptown", "Uptown") + "]}";
+  private static final String DELTA = "{\"deleted\": [\"downtown\"], \"type\": \"FeatureCollection\", \"features\": ["
+    + feature("uptown", "Uptown Deli") + ", " + feature("brooklyn", "Brooklyn") + "]}";
+
+  private MockWebServer server;
+  private SqliteStoreRepository database;
+  private CatalogSynchronizer synchronizer;
+
+  @Before
+  public void setUp() throws Exception {
+    server = new MockWebServer();
+    server.start();
+    database = new SqliteStoreRepository(RuntimeEnvironment.application, null);
+    synchronizer = new CatalogSynchronizer(new HttpCatalogSyncTransport(new OkHttpClient(),
+      server.url("/catalog").toString()), database);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    database.close();
+    server.shutdown();
+  }
+
+  @Test
+  public void sync_appliesDeltasSinceStoredEtag() throws Exception {
+    server.enqueue(new MockResponse().setHeader("ETag", "\"v1\"").setBody(FULL_CATALOG));
+    server.enqueue(new MockResponse().setHeader("ETag", "\"v2\"").setBody(DELTA));
+    server.enqueue(new MockResponse().setResponseCode(304));
+
+    assertEquals("\"v1\"", synchronizer.sync().getVersion());
+    assertEquals("\"v2\"", synchronizer.sync().getVersion());
+    assertNull(synchronizer.sync());
+
+    RecordedRequest first = server.takeRequest();
+    assertEquals("/catalog", first.getPath());
+    assertNull(first.getHeader("If-None-Match"));
+    assertEquals("\"v1\"", server.takeRequest().getHeader("If-None-Match"));
+    assertEquals("\"v2\"", server.takeRequest().getHeader("If-None-Match"));
+
+    assertEquals("\"v2\"", database.getVersion());
+    assertEquals(Arrays.asList("Uptown Deli", "Brooklyn"), names(database.readAll()));
+  }
+
+  @Test(expected = IOException.class)
+  public void sync_serverError_keepsStoredCatalog() throws Exception {
+    server.enqueue(new MockResponse().setResponseCode(500));
+
+    try {
+      synchronizer.sync();
+    } finally {
+      assertNull(database.getVersion());
+    }
+  }
+
+  private static String feature(String id, String name) {
+    return "{\"type\": \"Feature\", \"id\": \"" + id + "\", \"properties\": {\"name\": \"" + name + "\"},"
+      + " \"geometry\": {\"type\": \"Point\", \"coordinates\": [-74.0, 40.7]}}";
+  }
+
+  private static List<String> names(List<StoreRecord> records) {
+    List<String> names = new ArrayList<>();
+    for (StoreRecord record : records) {
+      names.add(record.getName());
+    }
+    return names;
+  }
+}
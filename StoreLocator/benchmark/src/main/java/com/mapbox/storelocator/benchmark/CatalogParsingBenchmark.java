@@ -0,0 +1,92 @@
+package com.mapbox.storelocator.benchmark;
+
+import com.mapbox.storelocator.catalog.BinaryCatalog;
+import com.mapbox.storelocator.catalog.BinaryCatalogWriter;
+import com.mapbox.storelocator.catalog.StoreCatalogReader;
+import com.mapbox.storelocator.index.KdTreeIndex;
+import com.mapbox.storelocator.model.StoreCatalog;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turning the store catalog into the in-memory structures the map and the cards are built from,
+ * from either of the catalog formats the app can ship.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class CatalogParsingBenchmark {
+
+  @Param({"10", "1000", "100000", "1000000"})
+  public int storeCount;
+
+  private SyntheticCatalog catalog;
+  private byte[] geoJson;
+  private ByteBuffer binaryCatalog;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    catalog = new SyntheticCatalog(storeCount);
+    geoJson = catalog.toGeoJson();
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    BinaryCatalogWriter.write(new ByteArrayInputStream(geoJson), outputStream);
+    binaryCatalog = ByteBuffer.wrap(outputStream.toByteArray());
+  }
+
+  /**
+   * Streams the GeoJSON catalog into locations, as the catalog loader does when no binary catalog
+   * is bundled. Includes building the spatial index, clusters and distance estimator.
+   */
+  @Benchmark
+  public StoreCatalog readGeoJsonCatalog() throws IOException {
+    return StoreCatalogReader.readGeoJson(new ByteArrayInputStream(geoJson));
+  }
+
+  /**
+   * Reads the memory-mapped binary catalog, as the catalog loader does by default.
+   */
+  @Benchmark
+  public StoreCatalog readBinaryCatalog() {
+    return StoreCatalogReader.readBinary(binaryCatalog.duplicate());
+  }
+
+  /**
+   * Reads only the coordinate columns of the binary catalog.
+   */
+  @Benchmark
+  public double[] readBinaryCoordinates() {
+    BinaryCatalog binary = BinaryCatalog.wrap(binaryCatalog.duplicate());
+    double[] latitudes = new double[binary.size()];
+    double[] longitudes = new double[binary.size()];
+    binary.readCoordinates(latitudes, longitudes);
+    return latitudes;
+  }
+
+  /**
+   * Builds the spatial index over the catalog's coordinates.
+   */
+  @Benchmark
+  public KdTreeIndex buildSpatialIndex() {
+    return KdTreeIndex.build(catalog.latitudes, catalog.longitudes);
+  }
+}
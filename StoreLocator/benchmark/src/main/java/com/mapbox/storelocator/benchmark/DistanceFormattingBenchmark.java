@@ -0,0 +1,70 @@
+package com.mapbox.storelocator.benchmark;
+
+import com.mapbox.storelocator.distance.DistanceFormatter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.text.DecimalFormat;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Formatting the distance of every store for its card. Creating a {@link DecimalFormat} for each
+ * distance is how the cards used to be filled in, and is kept as a baseline.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DistanceFormattingBenchmark {
+
+  @Param({"10", "1000", "100000", "1000000"})
+  public int storeCount;
+
+  private double[] distancesInMeters;
+  private DistanceFormatter distanceFormatter;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    Random random = new Random(11);
+    distancesInMeters = new double[storeCount];
+    for (int x = 0; x < storeCount; x++) {
+      distancesInMeters[x] = random.nextDouble() * 50000;
+    }
+    distanceFormatter = new DistanceFormatter();
+  }
+
+  /**
+   * Baseline: a new formatter per distance.
+   */
+  @Benchmark
+  public void formatWithNewDecimalFormat(Blackhole blackhole) {
+    for (double distanceInMeters : distancesInMeters) {
+      blackhole.consume(new DecimalFormat("#.#").format(distanceInMeters / DistanceFormatter.METERS_PER_MILE));
+    }
+  }
+
+  /**
+   * One formatter reused for every distance, as the card adapter does.
+   */
+  @Benchmark
+  public void formatWithDistanceFormatter(Blackhole blackhole) {
+    for (double distanceInMeters : distancesInMeters) {
+      blackhole.consume(distanceFormatter.formatMiles(distanceInMeters));
+    }
+  }
+}
@@ -0,0 +1,80 @@
+package com.mapbox.storelocator.benchmark;
+
+import com.mapbox.storelocator.distance.DistanceEstimator;
+import com.mapbox.storelocator.distance.TopKSelector;
+import com.mapbox.storelocator.index.KdTreeIndex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ranking the stores around the device for the first page of cards.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class NearestStoresBenchmark {
+
+  private static final int PAGE_SIZE = 20;
+  private static final double DEVICE_LATITUDE = 40.7589;
+  private static final double DEVICE_LONGITUDE = -73.9851;
+
+  @Param({"10", "1000", "100000", "1000000"})
+  public int storeCount;
+
+  private DistanceEstimator distanceEstimator;
+  private KdTreeIndex spatialIndex;
+  private double[] estimatedDistances;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    SyntheticCatalog catalog = new SyntheticCatalog(storeCount);
+    distanceEstimator = new DistanceEstimator(catalog.latitudes, catalog.longitudes);
+    spatialIndex = KdTreeIndex.build(catalog.latitudes, catalog.longitudes);
+    estimatedDistances = new double[storeCount];
+    distanceEstimator.greatCircleMeters(DEVICE_LATITUDE, DEVICE_LONGITUDE, estimatedDistances);
+  }
+
+  @Benchmark
+  public double[] estimateGreatCircleDistances() {
+    distanceEstimator.greatCircleMeters(DEVICE_LATITUDE, DEVICE_LONGITUDE, estimatedDistances);
+    return estimatedDistances;
+  }
+
+  @Benchmark
+  public double[] estimateEquirectangularDistances() {
+    distanceEstimator.equirectangularMeters(DEVICE_LATITUDE, DEVICE_LONGITUDE, estimatedDistances);
+    return estimatedDistances;
+  }
+
+  /**
+   * Selects the first page of cards from distances that are already known.
+   */
+  @Benchmark
+  public int[] selectFirstPage() {
+    return new TopKSelector(estimatedDistances, PAGE_SIZE).sorted();
+  }
+
+  /**
+   * Finds the first page of cards through the spatial index.
+   */
+  @Benchmark
+  public int[] nearestFromSpatialIndex() {
+    return spatialIndex.nearest(DEVICE_LATITUDE, DEVICE_LONGITUDE, PAGE_SIZE);
+  }
+}
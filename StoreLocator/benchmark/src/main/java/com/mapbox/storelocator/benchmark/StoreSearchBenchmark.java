@@ -0,0 +1,75 @@
+package com.mapbox.storelocator.benchmark;
+
+import com.mapbox.storelocator.model.IndividualLocation;
+import com.mapbox.storelocator.model.StoreCatalog;
+import com.mapbox.storelocator.model.StoreRegistry;
+import com.mapbox.storelocator.search.StoreSearchIndex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Searching the stores as a query is typed: a short prefix that matches many stores, a complete
+ * word, and a misspelled word followed by a prefix.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class StoreSearchBenchmark {
+
+  private static final int RESULT_LIMIT = 50;
+  private static final double DEVICE_LATITUDE = 40.7589;
+  private static final double DEVICE_LONGITUDE = -73.9851;
+  private static final String[] NAMES = {"Pizza", "Coffee", "Bakery", "Deli", "Market", "Burger", "Creamery",
+    "Bagels"};
+  private static final String[] STREETS = {"Broadway", "Houston St", "Canal St", "Bleecker St", "Atlantic Ave",
+    "Bedford Ave"};
+
+  @Param({"1000", "100000", "1000000"})
+  public int storeCount;
+
+  @Param({"b", "broadway", "broadwy piz"})
+  public String query;
+
+  private StoreSearchIndex searchIndex;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    SyntheticCatalog catalog = new SyntheticCatalog(storeCount);
+    Random random = new Random(7);
+    StoreRegistry storeRegistry = new StoreRegistry();
+    List<IndividualLocation> locations = new ArrayList<>(storeCount);
+    for (int x = 0; x < storeCount; x++) {
+      locations.add(new IndividualLocation(storeRegistry.add(null),
+        NAMES[random.nextInt(NAMES.length)] + " " + Integer.toString(x, 36),
+        random.nextInt(1000) + " " + STREETS[random.nextInt(STREETS.length)] + ", New York", "6am - 5pm",
+        "(212) " + (100 + random.nextInt(900)) + "-" + (1000 + random.nextInt(9000)),
+        catalog.latitudes[x], catalog.longitudes[x]));
+    }
+    searchIndex = StoreSearchIndex.build(new StoreCatalog(locations, storeRegistry, catalog.latitudes,
+      catalog.longitudes));
+  }
+
+  @Benchmark
+  public int[] search() {
+    return searchIndex.search(query, DEVICE_LATITUDE, DEVICE_LONGITUDE, RESULT_LIMIT);
+  }
+}
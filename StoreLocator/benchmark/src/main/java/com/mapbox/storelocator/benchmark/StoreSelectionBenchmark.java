@@ -0,0 +1,112 @@
+package com.mapbox.storelocator.benchmark;
+
+import com.mapbox.storelocator.model.StoreRegistry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finding the card of a tapped store icon, and the store of a tapped card. The linear name match
+ * is how the map used to find the selected store, and is kept as a baseline for the registry.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class StoreSelectionBenchmark {
+
+  private static final int QUERY_COUNT = 1024;
+
+  @Param({"10", "1000", "100000", "1000000"})
+  public int storeCount;
+
+  private List<String> names;
+  private StoreRegistry storeRegistry;
+  private String[] queriedNames;
+  private String[] queriedIds;
+  private int[] queriedCardPositions;
+  private int query;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    SyntheticCatalog catalog = new SyntheticCatalog(storeCount);
+    names = new ArrayList<>(storeCount);
+    storeRegistry = new StoreRegistry();
+    for (int x = 0; x < storeCount; x++) {
+      names.add(catalog.names[x]);
+      storeRegistry.add(null);
+    }
+
+    // Show the cards in reverse catalog order, so that card positions differ from feature indices
+    int[] cardOrder = new int[storeCount];
+    for (int x = 0; x < storeCount; x++) {
+      cardOrder[x] = storeCount - 1 - x;
+    }
+    storeRegistry.setCardOrder(cardOrder);
+
+    // Tap on uniformly random stores. Copies of the names make equals() compare characters, as it
+    // does for the values read back from a map feature.
+    Random random = new Random(7);
+    queriedNames = new String[QUERY_COUNT];
+    queriedIds = new String[QUERY_COUNT];
+    queriedCardPositions = new int[QUERY_COUNT];
+    for (int x = 0; x < QUERY_COUNT; x++) {
+      int featureIndex = random.nextInt(storeCount);
+      queriedNames[x] = new String(catalog.names[featureIndex]);
+      queriedIds[x] = new String(storeRegistry.idAt(featureIndex));
+      queriedCardPositions[x] = random.nextInt(storeCount);
+    }
+  }
+
+  /**
+   * Baseline: compares the tapped icon's name against every store name.
+   */
+  @Benchmark
+  public int selectIconByNameMatch() {
+    String selectedName = queriedNames[nextQuery()];
+    for (int x = 0; x < names.size(); x++) {
+      if (names.get(x).equals(selectedName)) {
+        return x;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Finds the card of the tapped icon through the store registry.
+   */
+  @Benchmark
+  public int selectIconByRegistry() {
+    return storeRegistry.cardPositionOf(storeRegistry.featureIndexOf(queriedIds[nextQuery()]));
+  }
+
+  /**
+   * Finds the store of the tapped card through the store registry.
+   */
+  @Benchmark
+  public int selectCardByRegistry() {
+    return storeRegistry.featureIndexAt(queriedCardPositions[nextQuery()]);
+  }
+
+  private int nextQuery() {
+    query = (query + 1) & (QUERY_COUNT - 1);
+    return query;
+  }
+}
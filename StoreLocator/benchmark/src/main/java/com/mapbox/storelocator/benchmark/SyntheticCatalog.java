@@ -0,0 +1,61 @@
+package com.mapbox.storelocator.benchmark;
+
+import java.nio.charset.Charset;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Deterministic store catalogs of any size, shaped like the catalog shipped in the app's assets.
+ * Stores are spread over a box around New York City, so that the density grows with the size of
+ * the catalog as it would for a real chain.
+ */
+final class SyntheticCatalog {
+
+  static final double SOUTH = 40.5;
+  static final double WEST = -74.3;
+  static final double NORTH = 41.0;
+  static final double EAST = -73.7;
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final long SEED = 42;
+
+  final double[] latitudes;
+  final double[] longitudes;
+  final String[] names;
+
+  SyntheticCatalog(int storeCount) {
+    Random random = new Random(SEED);
+    latitudes = new double[storeCount];
+    longitudes = new double[storeCount];
+    names = new String[storeCount];
+    for (int x = 0; x < storeCount; x++) {
+      latitudes[x] = SOUTH + random.nextDouble() * (NORTH - SOUTH);
+      longitudes[x] = WEST + random.nextDouble() * (EAST - WEST);
+      names[x] = "Location " + (x + 1);
+    }
+  }
+
+  int size() {
+    return latitudes.length;
+  }
+
+  /**
+   * @return the catalog as UTF-8 encoded GeoJSON, in the layout of the app's asset
+   */
+  byte[] toGeoJson() {
+    StringBuilder builder = new StringBuilder(160 * size() + 64);
+    builder.append("{\"type\":\"FeatureCollection\",\"features\":[");
+    for (int x = 0; x < size(); x++) {
+      if (x > 0) {
+        builder.append(',');
+      }
+      builder.append("{\"type\":\"Feature\",\"properties\":{\"name\":\"").append(names[x])
+        .append("\",\"hours\":\"6am - 5pm\",\"phone\":\"(555) 555-").append(String.format(Locale.US, "%04d", x % 10000))
+        .append("\",\"description\":\"").append(names[x]).append(" description\"},")
+        .append("\"geometry\":{\"type\":\"Point\",\"coordinates\":[")
+        .append(longitudes[x]).append(',').append(latitudes[x]).append("]}}");
+    }
+    builder.append("]}");
+    return builder.toString().getBytes(UTF_8);
+  }
+}
@@ -0,0 +1,137 @@
+package com.mapbox.storelocator.catalog;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+
+/**
+ * Read-only view of a store catalog compiled by {@link BinaryCatalogWriter}. Nothing is parsed up
+ * front: coordinates are read straight out of the buffer and strings are only decoded when asked
+ * for, so wrapping a memory-mapped file takes the same time regardless of the catalog's size.
+ * <p>
+ * Layout, little endian:
+ * <pre>
+ * header           magic, version, store count, string count, and the offsets of the sections below
+ * latitudes        int[store count], fixed-point degrees * 1e7
+ * longitudes       int[store count], fixed-point degrees * 1e7
+ * store strings    int[store count * 5], string table index of id, name, description, hours and
+ *                  phone, or -1 when missing
+ * string offsets   int[string count + 1], start of each string in the string data
+ * string data      UTF-8 bytes of every distinct string
+ * </pre>
+ */
+public final class BinaryCatalog {
+
+  static final int MAGIC = 0x534C4331; // "SLC1"
+  static final int VERSION = 1;
+  static final int HEADER_SIZE = 32;
+  static final int FIELD_ID = 0;
+  static final int FIELD_NAME = 1;
+  static final int FIELD_DESCRIPTION = 2;
+  static final int FIELD_HOURS = 3;
+  static final int FIELD_PHONE = 4;
+  static final int FIELD_COUNT = 5;
+  static final double COORDINATE_SCALE = 1e7;
+  static final int NO_STRING = -1;
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private final ByteBuffer buffer;
+  private final int storeCount;
+  private final int stringCount;
+  private final int latitudesOffset;
+  private final int longitudesOffset;
+  private final int storeStringsOffset;
+  private final int stringOffsetsOffset;
+  private final int stringDataOffset;
+
+  private BinaryCatalog(ByteBuffer buffer) {
+    this.buffer = buffer;
+    if (buffer.getInt(0) != MAGIC) {
+      throw new IllegalArgumentException("Not a binary store catalog.");
+    }
+    int version = buffer.getInt(4);
+    if (version != VERSION) {
+      throw new IllegalArgumentException("Unsupported binary store catalog version " + version + ".");
+    }
+    storeCount = buffer.getInt(8);
+    stringCount = buffer.getInt(12);
+    latitudesOffset = buffer.getInt(16);
+    longitudesOffset = buffer.getInt(20);
+    storeStringsOffset = buffer.getInt(24);
+    stringOffsetsOffset = buffer.getInt(28);
+    stringDataOffset = stringOffsetsOffset + (stringCount + 1) * 4;
+  }
+
+  /**
+   * Wraps a buffer holding a compiled catalog, typically a memory-mapped file. The buffer's
+   * content must not change while the catalog is in use.
+   */
+  public static BinaryCatalog wrap(ByteBuffer buffer) {
+    return new BinaryCatalog(buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN));
+  }
+
+  public int size() {
+    return storeCount;
+  }
+
+  public double latitude(int index) {
+    return buffer.getInt(latitudesOffset + checkIndex(index) * 4) / COORDINATE_SCALE;
+  }
+
+  public double longitude(int index) {
+    return buffer.getInt(longitudesOffset + checkIndex(index) * 4) / COORDINATE_SCALE;
+  }
+
+  /**
+   * Copies the coordinates of every store into the given arrays, which must hold at least
+   * {@link #size()} values.
+   */
+  public void readCoordinates(double[] latitudes, double[] longitudes) {
+    for (int x = 0; x < storeCount; x++) {
+      latitudes[x] = buffer.getInt(latitudesOffset + x * 4) / COORDINATE_SCALE;
+      longitudes[x] = buffer.getInt(longitudesOffset + x * 4) / COORDINATE_SCALE;
+    }
+  }
+
+  public String id(int index) {
+    return string(index, FIELD_ID);
+  }
+
+  public String name(int index) {
+    return string(index, FIELD_NAME);
+  }
+
+  public String description(int index) {
+    return string(index, FIELD_DESCRIPTION);
+  }
+
+  public String hours(int index) {
+    return string(index, FIELD_HOURS);
+  }
+
+  public String phone(int index) {
+    return string(index, FIELD_PHONE);
+  }
+
+  private String string(int index, int field) {
+    int stringIndex = buffer.getInt(storeStringsOffset + (checkIndex(index) * FIELD_COUNT + field) * 4);
+    if (stringIndex == NO_STRING) {
+      return null;
+    }
+    int start = buffer.getInt(stringOffsetsOffset + stringIndex * 4);
+    int end = buffer.getInt(stringOffsetsOffset + (stringIndex + 1) * 4);
+    byte[] bytes = new byte[end - start];
+    ByteBuffer stringData = buffer.duplicate();
+    stringData.position(stringDataOffset + start);
+    stringData.get(bytes);
+    return new String(bytes, UTF_8);
+  }
+
+  private int checkIndex(int index) {
+    if (index < 0 || index >= storeCount) {
+      throw new IndexOutOfBoundsException("Store " + index + " of " + storeCount);
+    }
+    return index;
+  }
+}
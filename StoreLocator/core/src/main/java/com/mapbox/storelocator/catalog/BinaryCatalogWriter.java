@@ -0,0 +1,180 @@
+package com.mapbox.storelocator.catalog;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles a GeoJSON store catalog into the binary format read by {@link BinaryCatalog}. Run at
+ * build time with the GeoJSON file and the output file as arguments.
+ */
+public final class BinaryCatalogWriter {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private BinaryCatalogWriter() {
+    // Utility class
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length != 2) {
+      System.err.println("Usage: BinaryCatalogWriter <input.geojson> <output.bin>");
+      System.exit(1);
+    }
+    File output = new File(args[1]);
+    File outputDirectory = output.getAbsoluteFile().getParentFile();
+    if (!outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+      throw new IOException("Unable to create " + outputDirectory);
+    }
+    OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(output));
+    try {
+      write(new FileInputStream(args[0]), outputStream);
+    } finally {
+      outputStream.close();
+    }
+  }
+
+  /**
+   * Reads a GeoJSON catalog and writes its binary form. The input stream is closed afterwards.
+   *
+   * @return the number of stores written
+   */
+  public static int write(InputStream geoJson, OutputStream outputStream) throws IOException {
+    final Columns columns = new Columns();
+    GeoJsonStoreReader.read(geoJson, new GeoJsonStoreReader.Listener() {
+      @Override
+      public void onStore(String id, String name, String description, String hours, String phone,
+                          double latitude, double longitude) {
+        columns.add(id, name, description, hours, phone, latitude, longitude);
+      }
+    });
+    columns.writeTo(outputStream);
+    return columns.storeCount;
+  }
+
+  /**
+   * Stores collected column by column, with each distinct string kept once
+   */
+  private static final class Columns {
+    private final IntList latitudes = new IntList();
+    private final IntList longitudes = new IntList();
+    private final IntList storeStrings = new IntList();
+    private final Map<String, Integer> stringIndices = new HashMap<>();
+    private final List<byte[]> strings = new ArrayList<>();
+    private int storeCount;
+
+    void add(String id, String name, String description, String hours, String phone,
+             double latitude, double longitude) {
+      latitudes.add(toFixedPoint(latitude));
+      longitudes.add(toFixedPoint(longitude));
+      storeStrings.add(indexOf(id));
+      storeStrings.add(indexOf(name));
+      storeStrings.add(indexOf(description));
+      storeStrings.add(indexOf(hours));
+      storeStrings.add(indexOf(phone));
+      storeCount++;
+    }
+
+    void writeTo(OutputStream outputStream) throws IOException {
+      int latitudesOffset = BinaryCatalog.HEADER_SIZE;
+      int longitudesOffset = latitudesOffset + storeCount * 4;
+      int storeStringsOffset = longitudesOffset + storeCount * 4;
+      int stringOffsetsOffset = storeStringsOffset + storeCount * BinaryCatalog.FIELD_COUNT * 4;
+
+      LittleEndianOutput output = new LittleEndianOutput(outputStream);
+      output.writeInt(BinaryCatalog.MAGIC);
+      output.writeInt(BinaryCatalog.VERSION);
+      output.writeInt(storeCount);
+      output.writeInt(strings.size());
+      output.writeInt(latitudesOffset);
+      output.writeInt(longitudesOffset);
+      output.writeInt(storeStringsOffset);
+      output.writeInt(stringOffsetsOffset);
+      latitudes.writeTo(output);
+      longitudes.writeTo(output);
+      storeStrings.writeTo(output);
+
+      int stringOffset = 0;
+      for (byte[] string : strings) {
+        output.writeInt(stringOffset);
+        stringOffset += string.length;
+      }
+      output.writeInt(stringOffset);
+      for (byte[] string : strings) {
+        output.write(string);
+      }
+      output.flush();
+    }
+
+    private int indexOf(String string) {
+      if (string == null) {
+        return BinaryCatalog.NO_STRING;
+      }
+      Integer index = stringIndices.get(string);
+      if (index == null) {
+        index = strings.size();
+        stringIndices.put(string, index);
+        strings.add(string.getBytes(UTF_8));
+      }
+      return index;
+    }
+
+    private static int toFixedPoint(double degrees) {
+      return (int) Math.round(degrees * BinaryCatalog.COORDINATE_SCALE);
+    }
+  }
+
+  private static final class IntList {
+    private int[] values = new int[64];
+    private int size;
+
+    void add(int value) {
+      if (size == values.length) {
+        int[] grown = new int[size * 2];
+        System.arraycopy(values, 0, grown, 0, size);
+        values = grown;
+      }
+      values[size++] = value;
+    }
+
+    void writeTo(LittleEndianOutput output) throws IOException {
+      for (int x = 0; x < size; x++) {
+        output.writeInt(values[x]);
+      }
+    }
+  }
+
+  private static final class LittleEndianOutput {
+    private final OutputStream outputStream;
+    private final byte[] intBytes = new byte[4];
+
+    LittleEndianOutput(OutputStream outputStream) {
+      this.outputStream = outputStream;
+    }
+
+    void writeInt(int value) throws IOException {
+      intBytes[0] = (byte) value;
+      intBytes[1] = (byte) (value >>> 8);
+      intBytes[2] = (byte) (value >>> 16);
+      intBytes[3] = (byte) (value >>> 24);
+      outputStream.write(intBytes);
+    }
+
+    void write(byte[] bytes) throws IOException {
+      outputStream.write(bytes);
+    }
+
+    void flush() throws IOException {
+      outputStream.flush();
+    }
+  }
+}
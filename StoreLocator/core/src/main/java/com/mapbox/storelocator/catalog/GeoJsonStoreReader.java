@@ -0,0 +1,198 @@
+package com.mapbox.storelocator.catalog;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+
+/**
+ * Reads the stores of a GeoJSON FeatureCollection one feature at a time. Only the feature being
+ * read is held in memory, so the size of the file doesn't affect peak memory use, and every store
+ * is handed to the listener as soon as its feature has been read. Features without a Point
+ * geometry are skipped.
+ */
+public final class GeoJsonStoreReader {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final int BYTE_ORDER_MARK = '\uFEFF';
+
+  private GeoJsonStoreReader() {
+    // Utility class
+  }
+
+  public interface Listener {
+    /**
+     * Called for each store, in file order. String values may be null when missing from the file.
+     */
+    void onStore(String id, String name, String description, String hours, String phone,
+                 double latitude, double longitude);
+  }
+
+  /**
+   * Reads UTF-8 encoded GeoJSON, ignoring a leading byte order mark. The stream is closed afterwards.
+   *
+   * @return the number of stores read
+   */
+  public static int read(InputStream inputStream, Listener listener) throws IOException {
+    Reader reader = new BufferedReader(new InputStreamReader(inputStream, UTF_8));
+    try {
+      reader.mark(1);
+      if (reader.read() != BYTE_ORDER_MARK) {
+        reader.reset();
+      }
+      return read(reader, listener);
+    } finally {
+      reader.close();
+    }
+  }
+
+  /**
+   * @return the number of stores read
+   */
+  public static int read(Reader reader, Listener listener) throws IOException {
+    JsonReader jsonReader = new JsonReader(reader);
+    int storeCount = 0;
+    jsonReader.beginObject();
+    while (jsonReader.hasNext()) {
+      if (!"features".equals(jsonReader.nextName())) {
+        jsonReader.skipValue();
+        continue;
+      }
+      storeCount += readFeatures(jsonReader, listener);
+    }
+    jsonReader.endObject();
+    return storeCount;
+  }
+
+  /**
+   * Reads the array of features of a FeatureCollection, for documents which embed one
+   *
+   * @param jsonReader reader positioned at the start of the array
+   * @return the number of stores read
+   */
+  public static int readFeatures(JsonReader jsonReader, Listener listener) throws IOException {
+    int storeCount = 0;
+    jsonReader.beginArray();
+    FeatureValues feature = new FeatureValues();
+    while (jsonReader.hasNext()) {
+      feature.clear();
+      readFeature(jsonReader, feature);
+      if (feature.isPoint) {
+        listener.onStore(feature.id, feature.name, feature.description, feature.hours, feature.phone,
+          feature.latitude, feature.longitude);
+        storeCount++;
+      }
+    }
+    jsonReader.endArray();
+    return storeCount;
+  }
+
+  private static void readFeature(JsonReader jsonReader, FeatureValues feature) throws IOException {
+    jsonReader.beginObject();
+    while (jsonReader.hasNext()) {
+      String name = jsonReader.nextName();
+      if ("id".equals(name)) {
+        String id = nextStringOrNull(jsonReader);
+        if (id != null) {
+          feature.id = id;
+        }
+      } else if ("properties".equals(name) && jsonReader.peek() == JsonToken.BEGIN_OBJECT) {
+        readProperties(jsonReader, feature);
+      } else if ("geometry".equals(name) && jsonReader.peek() == JsonToken.BEGIN_OBJECT) {
+        readGeometry(jsonReader, feature);
+      } else {
+        jsonReader.skipValue();
+      }
+    }
+    jsonReader.endObject();
+  }
+
+  private static void readProperties(JsonReader jsonReader, FeatureValues feature) throws IOException {
+    jsonReader.beginObject();
+    while (jsonReader.hasNext()) {
+      String name = jsonReader.nextName();
+      if ("name".equals(name)) {
+        feature.name = nextStringOrNull(jsonReader);
+      } else if ("description".equals(name)) {
+        feature.description = nextStringOrNull(jsonReader);
+      } else if ("hours".equals(name)) {
+        feature.hours = nextStringOrNull(jsonReader);
+      } else if ("phone".equals(name)) {
+        feature.phone = nextStringOrNull(jsonReader);
+      } else if ("id".equals(name) && feature.id == null) {
+        // A top level feature id takes precedence over an id property
+        feature.id = nextStringOrNull(jsonReader);
+      } else {
+        jsonReader.skipValue();
+      }
+    }
+    jsonReader.endObject();
+  }
+
+  private static void readGeometry(JsonReader jsonReader, FeatureValues feature) throws IOException {
+    boolean isPoint = false;
+    boolean hasCoordinates = false;
+    jsonReader.beginObject();
+    while (jsonReader.hasNext()) {
+      String name = jsonReader.nextName();
+      if ("type".equals(name)) {
+        isPoint = "Point".equals(nextStringOrNull(jsonReader));
+      } else if ("coordinates".equals(name) && jsonReader.peek() == JsonToken.BEGIN_ARRAY) {
+        jsonReader.beginArray();
+        if (jsonReader.peek() == JsonToken.NUMBER) {
+          feature.longitude = jsonReader.nextDouble();
+          if (jsonReader.peek() == JsonToken.NUMBER) {
+            feature.latitude = jsonReader.nextDouble();
+            hasCoordinates = true;
+          }
+        }
+        // Skip an altitude, or the nested arrays of non-Point geometries
+        while (jsonReader.hasNext()) {
+          jsonReader.skipValue();
+        }
+        jsonReader.endArray();
+      } else {
+        jsonReader.skipValue();
+      }
+    }
+    jsonReader.endObject();
+    feature.isPoint = isPoint && hasCoordinates;
+  }
+
+  private static String nextStringOrNull(JsonReader jsonReader) throws IOException {
+    JsonToken token = jsonReader.peek();
+    if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+      return jsonReader.nextString();
+    }
+    jsonReader.skipValue();
+    return null;
+  }
+
+  /**
+   * Values of the feature currently being read, reused across features
+   */
+  private static final class FeatureValues {
+    String id;
+    String name;
+    String description;
+    String hours;
+    String phone;
+    double latitude;
+    double longitude;
+    boolean isPoint;
+
+    void clear() {
+      id = null;
+      name = null;
+      description = null;
+      hours = null;
+      phone = null;
+      isPoint = false;
+    }
+  }
+}
@@ -0,0 +1,130 @@
+package com.mapbox.storelocator.catalog;
+
+import com.mapbox.storelocator.model.BinaryCatalogLocationList;
+import com.mapbox.storelocator.model.IndividualLocation;
+import com.mapbox.storelocator.model.RepositoryLocationList;
+import com.mapbox.storelocator.model.StoreCatalog;
+import com.mapbox.storelocator.model.StoreRegistry;
+import com.mapbox.storelocator.repository.RepositorySpatialIndex;
+import com.mapbox.storelocator.repository.StoreRepository;
+import com.mapbox.storelocator.sync.StoreRecord;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Builds a {@link StoreCatalog} from either of the catalog formats, or from a synced store database
+ * or repository. Reading is synchronous, so callers on a UI thread should read on a background thread.
+ */
+public final class StoreCatalogReader {
+
+  private StoreCatalogReader() {
+    // Utility class
+  }
+
+  /**
+   * Reads a binary catalog, typically memory-mapped. Only the store ids and coordinates are read
+   * now, the rest of each location is read when its IndividualLocation is first needed.
+   */
+  public static StoreCatalog readBinary(ByteBuffer buffer) {
+    BinaryCatalog catalog = BinaryCatalog.wrap(buffer);
+    StoreRegistry storeRegistry = new StoreRegistry();
+    for (int x = 0; x < catalog.size(); x++) {
+      storeRegistry.add(catalog.id(x));
+    }
+    double[] latitudes = new double[catalog.size()];
+    double[] longitudes = new double[catalog.size()];
+    catalog.readCoordinates(latitudes, longitudes);
+    return new StoreCatalog(new BinaryCatalogLocationList(catalog, storeRegistry), storeRegistry,
+      latitudes, longitudes);
+  }
+
+  /**
+   * Streams a GeoJSON catalog. The stream is closed afterwards.
+   */
+  public static StoreCatalog readGeoJson(InputStream inputStream) throws IOException {
+    final StoreRegistry storeRegistry = new StoreRegistry();
+    final List<IndividualLocation> locations = new ArrayList<>();
+    final Coordinates coordinates = new Coordinates();
+    GeoJsonStoreReader.read(inputStream, new GeoJsonStoreReader.Listener() {
+      @Override
+      public void onStore(String id, String name, String description, String hours, String phone,
+                          double latitude, double longitude) {
+        locations.add(new IndividualLocation(storeRegistry.add(id), name, description, hours, phone,
+          latitude, longitude));
+        coordinates.add(latitude, longitude);
+      }
+    });
+    return new StoreCatalog(locations, storeRegistry, coordinates.latitudes(), coordinates.longitudes());
+  }
+
+  /**
+   * Builds a catalog from the stores kept by a {@link com.mapbox.storelocator.sync.StoreDatabase}
+   */
+  public static StoreCatalog fromRecords(List<StoreRecord> records) {
+    StoreRegistry storeRegistry = new StoreRegistry();
+    List<IndividualLocation> locations = new ArrayList<>(records.size());
+    double[] latitudes = new double[records.size()];
+    double[] longitudes = new double[records.size()];
+    for (int x = 0; x < records.size(); x++) {
+      StoreRecord record = records.get(x);
+      locations.add(new IndividualLocation(storeRegistry.add(record.getId()), record.getName(),
+        record.getDescription(), record.getHours(), record.getPhone(), record.getLatitude(), record.getLongitude()));
+      latitudes[x] = record.getLatitude();
+      longitudes[x] = record.getLongitude();
+    }
+    return new StoreCatalog(locations, storeRegistry, latitudes, longitudes);
+  }
+
+  /**
+   * Reads a catalog from a {@link StoreRepository}. Only the store ids and coordinates are read now,
+   * the rest of each location is read from the repository when its IndividualLocation is first needed.
+   * Nearest-store and viewport queries are answered by the repository's spatial index.
+   */
+  public static StoreCatalog readRepository(StoreRepository repository) throws IOException {
+    final StoreRegistry storeRegistry = new StoreRegistry();
+    final Coordinates coordinates = new Coordinates();
+    repository.readLocations(new StoreRepository.LocationListener() {
+      @Override
+      public void onLocation(String id, double latitude, double longitude) {
+        storeRegistry.add(id);
+        coordinates.add(latitude, longitude);
+      }
+    });
+    double[] latitudes = coordinates.latitudes();
+    double[] longitudes = coordinates.longitudes();
+    return new StoreCatalog(new RepositoryLocationList(repository, storeRegistry, latitudes, longitudes),
+      storeRegistry, latitudes, longitudes, new RepositorySpatialIndex(repository, storeRegistry));
+  }
+
+  /**
+   * Growable latitude and longitude columns
+   */
+  private static final class Coordinates {
+    private double[] latitudes = new double[64];
+    private double[] longitudes = new double[64];
+    private int size;
+
+    void add(double latitude, double longitude) {
+      if (size == latitudes.length) {
+        latitudes = Arrays.copyOf(latitudes, size * 2);
+        longitudes = Arrays.copyOf(longitudes, size * 2);
+      }
+      latitudes[size] = latitude;
+      longitudes[size] = longitude;
+      size++;
+    }
+
+    double[] latitudes() {
+      return Arrays.copyOf(latitudes, size);
+    }
+
+    double[] longitudes() {
+      return Arrays.copyOf(longitudes, size);
+    }
+  }
+}
@@ -0,0 +1,375 @@
+package com.mapbox.storelocator.cluster;
+
+import com.mapbox.storelocator.index.KdTreeIndex;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Hierarchical grid clustering of store locations for display on a map. For each zoom level, the
+ * clusters of the zoom level above are grouped by a grid of fixed screen size, so every cluster
+ * is exactly the union of its children one zoom level up. Above the maximum zoom every store is
+ * shown on its own.
+ * <p>
+ * Query results are item ids. An item is either a cluster or a single store; a cluster of one
+ * store is always reported as the store itself.
+ */
+public final class StoreClusterer {
+
+  public static final int DEFAULT_MIN_ZOOM = 0;
+  public static final int DEFAULT_MAX_ZOOM = 16;
+  public static final int DEFAULT_CELL_SIZE_PIXELS = 64;
+
+  private static final int TILE_SIZE_PIXELS = 256;
+  private static final int LEVEL_BITS = 5;
+  private static final int LEVEL_MASK = (1 << LEVEL_BITS) - 1;
+  private static final double MAX_LATITUDE = 85.05112878;
+  private static final int[] EMPTY = new int[0];
+
+  private final int minZoom;
+  private final Level[] levels;
+  private final int storeLevel;
+
+  private StoreClusterer(int minZoom, Level[] levels) {
+    this.minZoom = minZoom;
+    this.levels = levels;
+    this.storeLevel = levels.length - 1;
+  }
+
+  public static StoreClusterer build(double[] latitudes, double[] longitudes) {
+    return build(latitudes, longitudes, DEFAULT_MIN_ZOOM, DEFAULT_MAX_ZOOM, DEFAULT_CELL_SIZE_PIXELS);
+  }
+
+  /**
+   * Clusters the stores for every zoom level from {@code minZoom} to {@code maxZoom}.
+   *
+   * @param latitudes       latitude of each store, indexed by catalog position
+   * @param longitudes      longitude of each store, indexed by catalog position
+   * @param cellSizePixels  size of a grid cell on screen, in pixels of 256 pixel tiles
+   */
+  public static StoreClusterer build(double[] latitudes, double[] longitudes, int minZoom, int maxZoom,
+                                     int cellSizePixels) {
+    if (latitudes.length != longitudes.length) {
+      throw new IllegalArgumentException("Latitude and longitude arrays must be the same length.");
+    }
+    if (minZoom < 0 || maxZoom < minZoom || maxZoom - minZoom + 1 > LEVEL_MASK || cellSizePixels < 1) {
+      throw new IllegalArgumentException("Invalid zoom range or cell size.");
+    }
+
+    Level[] levels = new Level[maxZoom - minZoom + 2];
+    levels[levels.length - 1] = Level.ofStores(latitudes, longitudes);
+    for (int zoom = maxZoom; zoom >= minZoom; zoom--) {
+      double cellSize = cellSizePixels / (TILE_SIZE_PIXELS * Math.pow(2, zoom));
+      levels[zoom - minZoom] = Level.clusterOf(levels[zoom - minZoom + 1], cellSize);
+    }
+    return new StoreClusterer(minZoom, levels);
+  }
+
+  /**
+   * Finds the clusters and stores to show at a zoom level inside a latitude/longitude box
+   *
+   * @return item ids, in no particular order
+   */
+  public int[] items(double zoom, double south, double west, double north, double east) {
+    int levelIndex = levelIndexOf(zoom);
+    Level level = levels[levelIndex];
+    int[] positions = level.index.withinBounds(south, west, north, east);
+    int[] items = new int[positions.length];
+    for (int x = 0; x < positions.length; x++) {
+      int position = positions[x];
+      int singleStore = level.singleStores[position];
+      items[x] = singleStore >= 0 ? itemId(storeLevel, singleStore) : itemId(levelIndex, position);
+    }
+    return items;
+  }
+
+  /**
+   * @return every cluster and store to show at a zoom level
+   */
+  public int[] items(double zoom) {
+    return items(zoom, -90, -180, 90, 180);
+  }
+
+  public boolean isStore(int itemId) {
+    return levelOf(itemId) == storeLevel;
+  }
+
+  /**
+   * @return the catalog position of a store item
+   */
+  public int storeIndex(int itemId) {
+    if (!isStore(itemId)) {
+      throw new IllegalArgumentException("Item " + itemId + " is a cluster.");
+    }
+    return positionOf(itemId);
+  }
+
+  /**
+   * @return the number of stores in the item, 1 for a store
+   */
+  public int count(int itemId) {
+    return levels[levelOf(itemId)].counts[positionOf(itemId)];
+  }
+
+  public double latitude(int itemId) {
+    return levels[levelOf(itemId)].latitudes[positionOf(itemId)];
+  }
+
+  public double longitude(int itemId) {
+    return levels[levelOf(itemId)].longitudes[positionOf(itemId)];
+  }
+
+  /**
+   * @return the lowest zoom at which the item splits into more than one cluster or store
+   */
+  public int expansionZoom(int itemId) {
+    int levelIndex = levelOf(itemId);
+    int position = positionOf(itemId);
+    while (levelIndex < storeLevel) {
+      Level level = levels[levelIndex];
+      if (level.childCount(position) > 1) {
+        break;
+      }
+      position = level.children[level.childOffsets[position]];
+      levelIndex++;
+    }
+    return minZoom + Math.min(levelIndex + 1, storeLevel);
+  }
+
+  /**
+   * @return the catalog positions of every store in the item
+   */
+  public int[] stores(int itemId) {
+    int count = count(itemId);
+    if (count == 0) {
+      return EMPTY;
+    }
+    int[] stores = new int[count];
+    collectStores(levelOf(itemId), positionOf(itemId), stores, 0);
+    return stores;
+  }
+
+  /**
+   * Counts the stores of every item which belong to a subset of the catalog, e.g. the stores open
+   * now, so that clusters can be labelled with the stores actually shown.
+   *
+   * @param stores catalog positions of the stores in the subset
+   */
+  public SubsetCounts countSubset(BitSet stores) {
+    int[][] counts = new int[levels.length][];
+    int[] storeCounts = new int[levels[storeLevel].counts.length];
+    for (int store = stores.nextSetBit(0); store >= 0 && store < storeCounts.length;
+         store = stores.nextSetBit(store + 1)) {
+      storeCounts[store] = 1;
+    }
+    counts[storeLevel] = storeCounts;
+    for (int levelIndex = storeLevel - 1; levelIndex >= 0; levelIndex--) {
+      Level level = levels[levelIndex];
+      int[] childCounts = counts[levelIndex + 1];
+      int[] levelCounts = new int[level.counts.length];
+      for (int position = 0; position < levelCounts.length; position++) {
+        for (int x = level.childOffsets[position]; x < level.childOffsets[position + 1]; x++) {
+          levelCounts[position] += childCounts[level.children[x]];
+        }
+      }
+      counts[levelIndex] = levelCounts;
+    }
+    return new SubsetCounts(counts);
+  }
+
+  private int collectStores(int levelIndex, int position, int[] stores, int found) {
+    if (levelIndex == storeLevel) {
+      stores[found] = position;
+      return found + 1;
+    }
+    Level level = levels[levelIndex];
+    for (int x = level.childOffsets[position]; x < level.childOffsets[position + 1]; x++) {
+      found = collectStores(levelIndex + 1, level.children[x], stores, found);
+    }
+    return found;
+  }
+
+  private int levelIndexOf(double zoom) {
+    int levelIndex = (int) Math.floor(zoom) - minZoom;
+    return Math.max(0, Math.min(storeLevel, levelIndex));
+  }
+
+  private static int itemId(int levelIndex, int position) {
+    return (position << LEVEL_BITS) | levelIndex;
+  }
+
+  private static int levelOf(int itemId) {
+    return itemId & LEVEL_MASK;
+  }
+
+  private static int positionOf(int itemId) {
+    return itemId >>> LEVEL_BITS;
+  }
+
+  /**
+   * The clusters of one zoom level, in Web Mercator coordinates from 0 to 1
+   */
+  private static final class Level {
+    final double[] x;
+    final double[] y;
+    final double[] latitudes;
+    final double[] longitudes;
+    final int[] counts;
+    /**
+     * Catalog position of the store for clusters of a single store, otherwise -1
+     */
+    final int[] singleStores;
+    /**
+     * Positions of each cluster's children in the level above: {@code children[childOffsets[i]]}
+     * up to {@code children[childOffsets[i + 1]]}, exclusive
+     */
+    final int[] childOffsets;
+    final int[] children;
+    final KdTreeIndex index;
+
+    Level(double[] x, double[] y, int[] counts, int[] singleStores, int[] childOffsets, int[] children) {
+      this.x = x;
+      this.y = y;
+      this.counts = counts;
+      this.singleStores = singleStores;
+      this.childOffsets = childOffsets;
+      this.children = children;
+      int size = x.length;
+      this.latitudes = new double[size];
+      this.longitudes = new double[size];
+      for (int i = 0; i < size; i++) {
+        latitudes[i] = latitudeOf(y[i]);
+        longitudes[i] = longitudeOf(x[i]);
+      }
+      this.index = KdTreeIndex.build(latitudes, longitudes);
+    }
+
+    static Level ofStores(double[] latitudes, double[] longitudes) {
+      int size = latitudes.length;
+      double[] x = new double[size];
+      double[] y = new double[size];
+      int[] counts = new int[size];
+      int[] singleStores = new int[size];
+      for (int i = 0; i < size; i++) {
+        x[i] = mercatorX(longitudes[i]);
+        y[i] = mercatorY(latitudes[i]);
+        counts[i] = 1;
+        singleStores[i] = i;
+      }
+      return new Level(x, y, counts, singleStores, null, null);
+    }
+
+    /**
+     * Groups the items of a level by grid cell
+     */
+    static Level clusterOf(Level child, double cellSize) {
+      int childSize = child.x.length;
+      int[] parents = new int[childSize];
+      Map<Long, Integer> clusterOfCell = new HashMap<>();
+      for (int i = 0; i < childSize; i++) {
+        long cellX = (long) Math.floor(child.x[i] / cellSize);
+        long cellY = (long) Math.floor(child.y[i] / cellSize);
+        Long cell = (cellX << 32) | (cellY & 0xffffffffL);
+        Integer cluster = clusterOfCell.get(cell);
+        if (cluster == null) {
+          cluster = clusterOfCell.size();
+          clusterOfCell.put(cell, cluster);
+        }
+        parents[i] = cluster;
+      }
+
+      // Sum up the children's weights, then lay out the children grouped by parent
+      int size = clusterOfCell.size();
+      double[] x = new double[size];
+      double[] y = new double[size];
+      int[] counts = new int[size];
+      int[] childOffsets = new int[size + 1];
+      for (int i = 0; i < childSize; i++) {
+        int parent = parents[i];
+        int weight = child.counts[i];
+        x[parent] += child.x[i] * weight;
+        y[parent] += child.y[i] * weight;
+        counts[parent] += weight;
+        childOffsets[parent + 1]++;
+      }
+      for (int i = 0; i < size; i++) {
+        childOffsets[i + 1] += childOffsets[i];
+      }
+      int[] children = new int[childSize];
+      int[] nextChild = Arrays.copyOf(childOffsets, size);
+      for (int i = 0; i < childSize; i++) {
+        children[nextChild[parents[i]]++] = i;
+      }
+
+      int[] singleStores = new int[size];
+      for (int i = 0; i < size; i++) {
+        x[i] /= counts[i];
+        y[i] /= counts[i];
+        singleStores[i] = counts[i] == 1 ? child.singleStores[children[childOffsets[i]]] : -1;
+      }
+      return new Level(x, y, counts, singleStores, childOffsets, children);
+    }
+
+    int childCount(int position) {
+      return childOffsets[position + 1] - childOffsets[position];
+    }
+  }
+
+  /**
+   * The number of stores of a subset in every item, from {@link #countSubset(BitSet)}
+   */
+  public final class SubsetCounts {
+    private final int[][] counts;
+
+    private SubsetCounts(int[][] counts) {
+      this.counts = counts;
+    }
+
+    /**
+     * @return the number of stores of the subset in the item
+     */
+    public int count(int itemId) {
+      return counts[levelOf(itemId)][positionOf(itemId)];
+    }
+
+    /**
+     * @return the catalog position of a store of the subset in the item, or -1 if there is none
+     */
+    public int anyStore(int itemId) {
+      int levelIndex = levelOf(itemId);
+      int position = positionOf(itemId);
+      if (counts[levelIndex][position] == 0) {
+        return -1;
+      }
+      while (levelIndex < storeLevel) {
+        Level level = levels[levelIndex];
+        int x = level.childOffsets[position];
+        while (counts[levelIndex + 1][level.children[x]] == 0) {
+          x++;
+        }
+        position = level.children[x];
+        levelIndex++;
+      }
+      return position;
+    }
+  }
+
+  static double mercatorX(double longitude) {
+    return (longitude + 180) / 360;
+  }
+
+  static double mercatorY(double latitude) {
+    double sin = Math.sin(Math.toRadians(Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, latitude))));
+    return 0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI);
+  }
+
+  static double longitudeOf(double mercatorX) {
+    return mercatorX * 360 - 180;
+  }
+
+  static double latitudeOf(double mercatorY) {
+    return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2 * mercatorY))));
+  }
+}
@@ -0,0 +1,182 @@
+package com.mapbox.storelocator.distance;
+
+import com.mapbox.geojson.Point;
+import com.mapbox.storelocator.model.IndividualLocation;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Fills in the distance of every location by asking a {@link DistanceMatrixTransport} for the
+ * distances of whole batches of locations at once. Only a bounded number of batches is requested at
+ * the same time, the rest wait in a queue until a request finishes.
+ * <p>
+ * {@link #cancel()} stops every fetch in progress: queued batches are never requested, and the
+ * distances of batches already in flight are dropped when they arrive.
+ */
+public class BatchedDistanceProvider {
+
+  /**
+   * The Mapbox Matrix API accepts up to 25 coordinates per request, one of which is the origin.
+   */
+  public static final int DEFAULT_BATCH_SIZE = 24;
+  public static final int DEFAULT_MAX_REQUESTS_IN_FLIGHT = 4;
+
+  private final DistanceMatrixTransport transport;
+  private final int batchSize;
+  private final int maxRequestsInFlight;
+  private final Set<DistanceRequest> activeRequests = new HashSet<>();
+
+  public BatchedDistanceProvider(DistanceMatrixTransport transport) {
+    this(transport, DEFAULT_BATCH_SIZE, DEFAULT_MAX_REQUESTS_IN_FLIGHT);
+  }
+
+  public BatchedDistanceProvider(DistanceMatrixTransport transport, int batchSize, int maxRequestsInFlight) {
+    if (batchSize < 1 || maxRequestsInFlight < 1) {
+      throw new IllegalArgumentException("Batch size and requests in flight must be positive.");
+    }
+    this.transport = transport;
+    this.batchSize = batchSize;
+    this.maxRequestsInFlight = maxRequestsInFlight;
+  }
+
+  /**
+   * Starts retrieving the distance from the origin to each of the locations. The listener is told
+   * once per batch, after the distances of all locations in that batch have been set.
+   *
+   * @param origin    the point that all distances are measured from
+   * @param locations the locations whose distance should be set
+   * @param listener  notified as batches complete or fail
+   */
+  public void fetchDistances(Point origin, List<IndividualLocation> locations, Listener listener) {
+    DistanceRequest request = new DistanceRequest(origin, locations, listener);
+    synchronized (activeRequests) {
+      activeRequests.add(request);
+    }
+    request.start();
+  }
+
+  /**
+   * Stops every fetch started so far. The listeners aren't told about any further batch.
+   */
+  public void cancel() {
+    List<DistanceRequest> requests;
+    synchronized (activeRequests) {
+      requests = new ArrayList<>(activeRequests);
+      activeRequests.clear();
+    }
+    for (DistanceRequest request : requests) {
+      request.cancel();
+    }
+  }
+
+  public interface Listener {
+    /**
+     * @param fromIndex index of the first location in the batch, inclusive
+     * @param toIndex   index of the last location in the batch, exclusive
+     */
+    void onBatchComplete(int fromIndex, int toIndex);
+
+    void onBatchFailed(int fromIndex, int toIndex, Throwable throwable);
+  }
+
+  /**
+   * State of a single {@link #fetchDistances(Point, List, Listener)} call
+   */
+  private class DistanceRequest {
+    private final Point origin;
+    private final List<IndividualLocation> locations;
+    private final Listener listener;
+    private final ArrayDeque<Integer> pendingBatchStarts = new ArrayDeque<>();
+    private int requestsInFlight;
+    private boolean cancelled;
+
+    DistanceRequest(Point origin, List<IndividualLocation> locations, Listener listener) {
+      this.origin = origin;
+      this.locations = locations;
+      this.listener = listener;
+      for (int fromIndex = 0; fromIndex < locations.size(); fromIndex += batchSize) {
+        pendingBatchStarts.add(fromIndex);
+      }
+    }
+
+    void start() {
+      dispatchPendingBatches();
+    }
+
+    synchronized void cancel() {
+      cancelled = true;
+      pendingBatchStarts.clear();
+    }
+
+    synchronized boolean isCancelled() {
+      return cancelled;
+    }
+
+    private void dispatchPendingBatches() {
+      while (true) {
+        final int fromIndex;
+        synchronized (this) {
+          if (requestsInFlight >= maxRequestsInFlight || pendingBatchStarts.isEmpty()) {
+            return;
+          }
+          fromIndex = pendingBatchStarts.poll();
+          requestsInFlight++;
+        }
+        dispatchBatch(fromIndex, Math.min(fromIndex + batchSize, locations.size()));
+      }
+    }
+
+    private void dispatchBatch(final int fromIndex, final int toIndex) {
+      List<Point> destinations = new ArrayList<>(toIndex - fromIndex);
+      for (int x = fromIndex; x < toIndex; x++) {
+        IndividualLocation location = locations.get(x);
+        destinations.add(Point.fromLngLat(location.getLongitude(), location.getLatitude()));
+      }
+
+      transport.fetchDistances(origin, destinations, new DistanceMatrixTransport.Callback() {
+        @Override
+        public void onDistances(double[] distancesInMeters) {
+          if (isCancelled()) {
+            return;
+          }
+          for (int x = fromIndex; x < toIndex; x++) {
+            double distanceInMeters = distancesInMeters[x - fromIndex];
+            if (!Double.isNaN(distanceInMeters)) {
+              locations.get(x).setDistanceInMeters(distanceInMeters);
+            }
+          }
+          listener.onBatchComplete(fromIndex, toIndex);
+          onBatchFinished();
+        }
+
+        @Override
+        public void onFailure(Throwable throwable) {
+          if (isCancelled()) {
+            return;
+          }
+          listener.onBatchFailed(fromIndex, toIndex, throwable);
+          onBatchFinished();
+        }
+      });
+    }
+
+    private void onBatchFinished() {
+      boolean finished;
+      synchronized (this) {
+        requestsInFlight--;
+        finished = requestsInFlight == 0 && pendingBatchStarts.isEmpty();
+      }
+      if (finished) {
+        synchronized (activeRequests) {
+          activeRequests.remove(this);
+        }
+        return;
+      }
+      dispatchPendingBatches();
+    }
+  }
+}
@@ -0,0 +1,124 @@
+package com.mapbox.storelocator.distance;
+
+import com.mapbox.geojson.Point;
+import com.mapbox.storelocator.route.RouteCache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * {@link DistanceMatrixTransport} which answers from a {@link RouteCache} where it can and only
+ * requests the distances to the remaining destinations from the wrapped transport.
+ * <p>
+ * Cache reads and writes happen on the background executor, the callback is invoked on the callback
+ * executor, typically the main thread.
+ * <p>
+ * When the wrapped transport fails, the cached distances are still delivered, with
+ * {@link Double#NaN} for the destinations that weren't cached. Only a batch without any cached
+ * distance fails.
+ */
+public class CachingDistanceMatrixTransport implements DistanceMatrixTransport {
+
+  private final DistanceMatrixTransport transport;
+  private final RouteCache routeCache;
+  private final String profile;
+  private final Executor backgroundExecutor;
+  private final Executor callbackExecutor;
+
+  /**
+   * @param backgroundExecutor runs the cache reads and writes, and is shut down by its owner
+   */
+  public CachingDistanceMatrixTransport(DistanceMatrixTransport transport, RouteCache routeCache, String profile,
+                                        Executor backgroundExecutor, Executor callbackExecutor) {
+    this.transport = transport;
+    this.routeCache = routeCache;
+    this.profile = profile;
+    this.backgroundExecutor = backgroundExecutor;
+    this.callbackExecutor = callbackExecutor;
+  }
+
+  @Override
+  public void fetchDistances(final Point origin, final List<Point> destinations, final Callback callback) {
+    backgroundExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        int destinationCount = destinations.size();
+        final String originKey = RouteCache.originKey(origin.latitude(), origin.longitude(), profile);
+        final long[] destinationKeys = new long[destinationCount];
+        for (int x = 0; x < destinationCount; x++) {
+          destinationKeys[x] = RouteCache.destinationKey(destinations.get(x).latitude(),
+            destinations.get(x).longitude());
+        }
+        final double[] distancesInMeters = routeCache.getDistances(originKey, destinationKeys);
+        final List<Integer> missingPositions = new ArrayList<>();
+        List<Point> missingDestinations = new ArrayList<>();
+        for (int x = 0; x < destinationCount; x++) {
+          if (Double.isNaN(distancesInMeters[x])) {
+            missingPositions.add(x);
+            missingDestinations.add(destinations.get(x));
+          }
+        }
+
+        if (missingDestinations.isEmpty()) {
+          deliverDistances(callback, distancesInMeters);
+          return;
+        }
+
+        transport.fetchDistances(origin, missingDestinations, new Callback() {
+          @Override
+          public void onDistances(final double[] fetchedDistancesInMeters) {
+            backgroundExecutor.execute(new Runnable() {
+              @Override
+              public void run() {
+                long[] fetchedKeys = new long[fetchedDistancesInMeters.length];
+                double[] fetchedDistances = new double[fetchedDistancesInMeters.length];
+                int fetchedCount = 0;
+                for (int x = 0; x < fetchedDistancesInMeters.length; x++) {
+                  int position = missingPositions.get(x);
+                  distancesInMeters[position] = fetchedDistancesInMeters[x];
+
+                  // Unreachable destinations aren't cached so that they are retried next time
+                  if (!Double.isNaN(fetchedDistancesInMeters[x])) {
+                    fetchedKeys[fetchedCount] = destinationKeys[position];
+                    fetchedDistances[fetchedCount++] = fetchedDistancesInMeters[x];
+                  }
+                }
+                if (fetchedCount > 0) {
+                  routeCache.putDistances(originKey, Arrays.copyOf(fetchedKeys, fetchedCount),
+                    Arrays.copyOf(fetchedDistances, fetchedCount));
+                }
+                deliverDistances(callback, distancesInMeters);
+              }
+            });
+          }
+
+          @Override
+          public void onFailure(final Throwable throwable) {
+            // Offline, the cached distances are still worth showing. The rest stay unknown.
+            if (missingPositions.size() < distancesInMeters.length) {
+              deliverDistances(callback, distancesInMeters);
+              return;
+            }
+            callbackExecutor.execute(new Runnable() {
+              @Override
+              public void run() {
+                callback.onFailure(throwable);
+              }
+            });
+          }
+        });
+      }
+    });
+  }
+
+  private void deliverDistances(final Callback callback, final double[] distancesInMeters) {
+    callbackExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        callback.onDistances(distancesInMeters);
+      }
+    });
+  }
+}
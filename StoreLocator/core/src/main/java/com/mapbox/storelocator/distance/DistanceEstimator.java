@@ -0,0 +1,90 @@
+package com.mapbox.storelocator.distance;
+
+import com.mapbox.storelocator.geo.GeoMath;
+
+/**
+ * Estimates the straight-line distance from an origin to every store at once, e.g. to show
+ * distances before the travel distances have been retrieved, or without a connection.
+ * <p>
+ * The store coordinates are converted once into flat primitive arrays, so that each estimate is a
+ * simple loop of arithmetic which the JIT compiler can unroll and vectorize.
+ */
+public final class DistanceEstimator {
+
+  private final double[] latitudesInRadians;
+  private final double[] longitudesInRadians;
+  private final double[] unitX;
+  private final double[] unitY;
+  private final double[] unitZ;
+
+  /**
+   * @param latitudes  latitude of each store, indexed by catalog position
+   * @param longitudes longitude of each store, indexed by catalog position
+   */
+  public DistanceEstimator(double[] latitudes, double[] longitudes) {
+    if (latitudes.length != longitudes.length) {
+      throw new IllegalArgumentException("Latitude and longitude arrays must be the same length.");
+    }
+    int size = latitudes.length;
+    latitudesInRadians = new double[size];
+    longitudesInRadians = new double[size];
+    unitX = new double[size];
+    unitY = new double[size];
+    unitZ = new double[size];
+    for (int x = 0; x < size; x++) {
+      double latitude = Math.toRadians(latitudes[x]);
+      double longitude = Math.toRadians(longitudes[x]);
+      latitudesInRadians[x] = latitude;
+      longitudesInRadians[x] = longitude;
+      unitX[x] = Math.cos(latitude) * Math.cos(longitude);
+      unitY[x] = Math.cos(latitude) * Math.sin(longitude);
+      unitZ[x] = Math.sin(latitude);
+    }
+  }
+
+  public int size() {
+    return unitX.length;
+  }
+
+  /**
+   * Great-circle distances, as given by the haversine formula. They are computed from the chord
+   * between the stores' positions on the unit sphere, which needs a single inverse sine per store.
+   * A great-circle distance is never longer than the travel distance.
+   *
+   * @param distancesInMeters receives the distance to each store, indexed by catalog position
+   */
+  public void greatCircleMeters(double originLatitude, double originLongitude, double[] distancesInMeters) {
+    double latitude = Math.toRadians(originLatitude);
+    double longitude = Math.toRadians(originLongitude);
+    double originX = Math.cos(latitude) * Math.cos(longitude);
+    double originY = Math.cos(latitude) * Math.sin(longitude);
+    double originZ = Math.sin(latitude);
+    double diameter = 2 * GeoMath.EARTH_RADIUS_IN_METERS;
+    for (int x = 0; x < unitX.length; x++) {
+      double deltaX = unitX[x] - originX;
+      double deltaY = unitY[x] - originY;
+      double deltaZ = unitZ[x] - originZ;
+      double halfChord = 0.5 * Math.sqrt(deltaX * deltaX + deltaY * deltaY + deltaZ * deltaZ);
+      distancesInMeters[x] = diameter * Math.asin(Math.min(1, halfChord));
+    }
+  }
+
+  /**
+   * Equirectangular approximation of the great-circle distances: the coordinates are treated as
+   * planar, with longitudes scaled by the cosine of the origin's latitude. It uses no
+   * trigonometry per store and is accurate to a fraction of a percent across a metropolitan
+   * area, but it is not a lower bound of the travel distance.
+   *
+   * @param distancesInMeters receives the distance to each store, indexed by catalog position
+   */
+  public void equirectangularMeters(double originLatitude, double originLongitude, double[] distancesInMeters) {
+    double latitude = Math.toRadians(originLatitude);
+    double longitude = Math.toRadians(originLongitude);
+    double longitudeScale = Math.cos(latitude);
+    for (int x = 0; x < latitudesInRadians.length; x++) {
+      double deltaX = (longitudesInRadians[x] - longitude) * longitudeScale;
+      double deltaY = latitudesInRadians[x] - latitude;
+      distancesInMeters[x] = GeoMath.EARTH_RADIUS_IN_METERS * Math.sqrt(deltaX * deltaX + deltaY * deltaY);
+    }
+  }
+}
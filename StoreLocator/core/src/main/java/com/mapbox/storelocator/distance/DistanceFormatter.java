@@ -0,0 +1,24 @@
+package com.mapbox.storelocator.distance;
+
+import java.text.DecimalFormat;
+
+/**
+ * Formats distances for display on the location cards. Not thread-safe.
+ */
+public class DistanceFormatter {
+
+  public static final double METERS_PER_MILE = 1609.344;
+
+  private final DecimalFormat decimalFormat = new DecimalFormat("#.#");
+
+  /**
+   * @return the distance in miles with at most one decimal place, or an empty string if the
+   * distance is unknown
+   */
+  public String formatMiles(double distanceInMeters) {
+    if (Double.isNaN(distanceInMeters)) {
+      return "";
+    }
+    return decimalFormat.format(distanceInMeters / METERS_PER_MILE);
+  }
+}
@@ -0,0 +1,27 @@
+package com.mapbox.storelocator.distance;
+
+import com.mapbox.geojson.Point;
+
+import java.util.List;
+
+/**
+ * Transport which retrieves the distances from a single origin to many destinations in one request
+ */
+public interface DistanceMatrixTransport {
+
+  /**
+   * Requests the distances from the origin to each of the destinations.
+   *
+   * @param origin       the point that all distances are measured from
+   * @param destinations the points to measure the distance to
+   * @param callback     receives one distance in meters per destination, in the same order as the
+   *                     destinations. Unreachable destinations are reported as {@link Double#NaN}.
+   */
+  void fetchDistances(Point origin, List<Point> destinations, Callback callback);
+
+  interface Callback {
+    void onDistances(double[] distancesInMeters);
+
+    void onFailure(Throwable throwable);
+  }
+}
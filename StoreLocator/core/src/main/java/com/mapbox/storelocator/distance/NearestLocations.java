@@ -0,0 +1,132 @@
+package com.mapbox.storelocator.distance;
+
+import com.mapbox.storelocator.model.IndividualLocation;
+import com.mapbox.storelocator.model.StoreCatalog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * The locations nearest to an origin, shown a page at a time. Locations are ranked by their
+ * estimated straight-line distance until their travel distance is known. The travel distance is
+ * never shorter, so locations only move down the ranking as travel distances stream in.
+ * <p>
+ * The ranking can be limited to some of the locations, e.g. the ones open now, without ranking the
+ * other locations again.
+ */
+public final class NearestLocations {
+
+  private final List<IndividualLocation> locations;
+  private final double[] estimatedDistances;
+  private final double[] rankingDistances;
+  private final TopKSelector selector;
+  private final int pageSize;
+  private BitSet filter;
+  private int includedCount;
+
+  /**
+   * @param storeCatalog    the locations to rank
+   * @param originLatitude  latitude of the point all distances are measured from
+   * @param originLongitude longitude of the point all distances are measured from
+   * @param pageSize        number of locations ranked at first, and added by each further page
+   */
+  public NearestLocations(StoreCatalog storeCatalog, double originLatitude, double originLongitude, int pageSize) {
+    if (pageSize < 1) {
+      throw new IllegalArgumentException("Page size must be positive.");
+    }
+    this.locations = storeCatalog.getLocations();
+    this.estimatedDistances = new double[storeCatalog.size()];
+    storeCatalog.getDistanceEstimator().greatCircleMeters(originLatitude, originLongitude, estimatedDistances);
+    this.rankingDistances = estimatedDistances.clone();
+    this.selector = new TopKSelector(estimatedDistances, pageSize);
+    this.pageSize = pageSize;
+    this.includedCount = estimatedDistances.length;
+  }
+
+  /**
+   * @return the feature indices of the ranked locations, nearest first
+   */
+  public int[] order() {
+    int[] order = selector.sorted();
+
+    // Excluded locations rank last, and only get selected once all included ones are
+    int rankedCount = order.length;
+    while (rankedCount > 0 && selector.key(order[rankedCount - 1]) == Double.POSITIVE_INFINITY) {
+      rankedCount--;
+    }
+    return rankedCount == order.length ? order : Arrays.copyOf(order, rankedCount);
+  }
+
+  /**
+   * Limits the ranking to some locations, and goes back to ranking a single page.
+   *
+   * @param includedFeatureIndices the feature indices of the locations to rank, or null to rank all
+   *                               locations
+   */
+  public void setFilter(BitSet includedFeatureIndices) {
+    filter = includedFeatureIndices;
+    includedCount = 0;
+    for (int featureIndex = 0; featureIndex < rankingDistances.length; featureIndex++) {
+      boolean included = isIncluded(featureIndex);
+      double key = included ? rankingDistances[featureIndex] : Double.POSITIVE_INFINITY;
+      if (Double.compare(selector.key(featureIndex), key) != 0) {
+        selector.update(featureIndex, key);
+      }
+      if (included) {
+        includedCount++;
+      }
+    }
+    selector.setLimit(pageSize);
+  }
+
+  private boolean isIncluded(int featureIndex) {
+    return filter == null || filter.get(featureIndex);
+  }
+
+  /**
+   * @return the locations at the given feature indices. Locations whose travel distance isn't
+   * known yet show their estimated distance.
+   */
+  public List<IndividualLocation> locationsAt(int[] featureIndices) {
+    List<IndividualLocation> result = new ArrayList<>(featureIndices.length);
+    for (int featureIndex : featureIndices) {
+      IndividualLocation location = locations.get(featureIndex);
+      if (Double.isNaN(location.getDistanceInMeters())) {
+        location.setEstimatedDistanceInMeters(estimatedDistances[featureIndex]);
+      }
+      result.add(location);
+    }
+    return result;
+  }
+
+  /**
+   * Re-ranks a location whose travel distance has been set
+   */
+  public void onDistanceChanged(int featureIndex) {
+    IndividualLocation location = locations.get(featureIndex);
+    if (!location.isDistanceEstimated() && !Double.isNaN(location.getDistanceInMeters())) {
+      rankingDistances[featureIndex] = location.getDistanceInMeters();
+      if (isIncluded(featureIndex)) {
+        selector.update(featureIndex, location.getDistanceInMeters());
+      }
+    }
+  }
+
+  /**
+   * Ranks another page of locations once the last few ranked locations are in view.
+   *
+   * @param lastVisiblePosition position of the last visible location in the current order
+   * @param preloadDistance     how many locations before the end the next page is added
+   * @return whether the order changed
+   */
+  public boolean loadMoreIfNeeded(int lastVisiblePosition, int preloadDistance) {
+    int rankedCount = selector.limit();
+    if (rankedCount < includedCount && lastVisiblePosition >= rankedCount - preloadDistance) {
+      selector.setLimit(rankedCount + pageSize);
+      return true;
+    }
+    return false;
+  }
+}
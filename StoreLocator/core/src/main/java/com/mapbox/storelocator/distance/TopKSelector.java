@@ -0,0 +1,201 @@
+package com.mapbox.storelocator.distance;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Keeps track of the {@code k} items with the smallest keys while keys keep changing, e.g. the
+ * nearest stores while their distances stream in.
+ * <p>
+ * The selected items are held in a max-heap and the rest in a min-heap, so a key update costs
+ * O(log n) and never requires sorting all items again. Ties are broken by item index.
+ */
+public final class TopKSelector {
+
+  private final double[] keys;
+  private final IndexedHeap selected;
+  private final IndexedHeap rest;
+
+  /**
+   * @param keys  initial key of each item, indexed by item. The array is copied.
+   * @param limit number of items to select
+   */
+  public TopKSelector(double[] keys, int limit) {
+    this.keys = Arrays.copyOf(keys, keys.length);
+    this.selected = new IndexedHeap(this.keys, true);
+    this.rest = new IndexedHeap(this.keys, false);
+    for (int item = 0; item < keys.length; item++) {
+      rest.add(item);
+    }
+    setLimit(limit);
+  }
+
+  public int size() {
+    return keys.length;
+  }
+
+  /**
+   * @return the number of items selected, which is the limit unless there are fewer items
+   */
+  public int limit() {
+    return selected.size;
+  }
+
+  public double key(int item) {
+    return keys[item];
+  }
+
+  /**
+   * Changes the number of selected items, e.g. to show another page of nearest stores
+   */
+  public void setLimit(int limit) {
+    if (limit < 0) {
+      throw new IllegalArgumentException("Limit must not be negative.");
+    }
+    while (selected.size > limit) {
+      rest.add(selected.poll());
+    }
+    while (selected.size < limit && rest.size > 0) {
+      selected.add(rest.poll());
+    }
+  }
+
+  /**
+   * Changes an item's key, moving it in or out of the selection if needed
+   */
+  public void update(int item, double key) {
+    keys[item] = key;
+    if (selected.contains(item)) {
+      selected.fix(item);
+    } else {
+      rest.fix(item);
+    }
+
+    // Restore the invariant that no selected item has a larger key than an unselected one
+    while (selected.size > 0 && rest.size > 0 && compare(rest.peek(), selected.peek()) < 0) {
+      int promoted = rest.poll();
+      int demoted = selected.poll();
+      selected.add(promoted);
+      rest.add(demoted);
+    }
+  }
+
+  /**
+   * @return the selected items, smallest key first
+   */
+  public int[] sorted() {
+    Integer[] items = new Integer[selected.size];
+    for (int x = 0; x < items.length; x++) {
+      items[x] = selected.heap[x];
+    }
+    Arrays.sort(items, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer first, Integer second) {
+        return TopKSelector.this.compare(first, second);
+      }
+    });
+    int[] sorted = new int[items.length];
+    for (int x = 0; x < items.length; x++) {
+      sorted[x] = items[x];
+    }
+    return sorted;
+  }
+
+  private int compare(int first, int second) {
+    int result = Double.compare(keys[first], keys[second]);
+    return result != 0 ? result : (first < second ? -1 : (first == second ? 0 : 1));
+  }
+
+  /**
+   * Binary heap of item indices which knows the position of each item, so that an item whose key
+   * changed can be moved to its new place
+   */
+  private final class IndexedHeap {
+    final int[] heap;
+    final int[] positions;
+    final boolean largestFirst;
+    int size;
+
+    IndexedHeap(double[] keys, boolean largestFirst) {
+      this.heap = new int[keys.length];
+      this.positions = new int[keys.length];
+      Arrays.fill(positions, -1);
+      this.largestFirst = largestFirst;
+    }
+
+    boolean contains(int item) {
+      return positions[item] >= 0;
+    }
+
+    int peek() {
+      return heap[0];
+    }
+
+    void add(int item) {
+      heap[size] = item;
+      positions[item] = size;
+      siftUp(size++);
+    }
+
+    int poll() {
+      int top = heap[0];
+      size--;
+      positions[top] = -1;
+      if (size > 0) {
+        heap[0] = heap[size];
+        positions[heap[0]] = 0;
+        siftDown(0);
+      }
+      return top;
+    }
+
+    void fix(int item) {
+      int position = positions[item];
+      siftUp(position);
+      siftDown(positions[item]);
+    }
+
+    private boolean before(int first, int second) {
+      int result = compare(heap[first], heap[second]);
+      return largestFirst ? result > 0 : result < 0;
+    }
+
+    private void siftUp(int position) {
+      while (position > 0) {
+        int parent = (position - 1) >> 1;
+        if (!before(position, parent)) {
+          return;
+        }
+        swap(position, parent);
+        position = parent;
+      }
+    }
+
+    private void siftDown(int position) {
+      while (true) {
+        int first = position;
+        int left = 2 * position + 1;
+        int right = left + 1;
+        if (left < size && before(left, first)) {
+          first = left;
+        }
+        if (right < size && before(right, first)) {
+          first = right;
+        }
+        if (first == position) {
+          return;
+        }
+        swap(position, first);
+        position = first;
+      }
+    }
+
+    private void swap(int first, int second) {
+      int item = heap[first];
+      heap[first] = heap[second];
+      heap[second] = item;
+      positions[heap[first]] = first;
+      positions[heap[second]] = second;
+    }
+  }
+}
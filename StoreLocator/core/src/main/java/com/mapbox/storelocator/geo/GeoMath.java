@@ -0,0 +1,90 @@
+package com.mapbox.storelocator.geo;
+
+/**
+ * Spherical earth helpers shared by the spatial structures
+ */
+public final class GeoMath {
+
+  public static final double EARTH_RADIUS_IN_METERS = 6371008.8;
+
+  private GeoMath() {
+    // Utility class
+  }
+
+  /**
+   * Great-circle distance between two coordinates using the haversine formula.
+   */
+  public static double haversineMeters(double latitude1, double longitude1,
+                                       double latitude2, double longitude2) {
+    double deltaLatitude = Math.toRadians(latitude2 - latitude1);
+    double deltaLongitude = Math.toRadians(longitude2 - longitude1);
+    double sinLatitude = Math.sin(deltaLatitude / 2);
+    double sinLongitude = Math.sin(deltaLongitude / 2);
+    double a = sinLatitude * sinLatitude + Math.cos(Math.toRadians(latitude1))
+      * Math.cos(Math.toRadians(latitude2)) * sinLongitude * sinLongitude;
+    return 2 * EARTH_RADIUS_IN_METERS * Math.asin(Math.min(1, Math.sqrt(a)));
+  }
+
+  /**
+   * Latitude/longitude box around every point within a distance of a coordinate. Near the poles
+   * the box spans every longitude.
+   *
+   * @return the box as {south, west, north, east}
+   */
+  public static double[] boundsAround(double latitude, double longitude, double radiusInMeters) {
+    double latitudeDelta = Math.toDegrees(radiusInMeters / EARTH_RADIUS_IN_METERS);
+    double south = latitude - latitudeDelta;
+    double north = latitude + latitudeDelta;
+    double west = -180;
+    double east = 180;
+    if (south > -90 && north < 90) {
+      double longitudeDelta = Math.toDegrees(Math.asin(Math.min(1,
+        Math.sin(radiusInMeters / EARTH_RADIUS_IN_METERS) / Math.cos(Math.toRadians(latitude)))));
+      west = longitude - longitudeDelta;
+      east = longitude + longitudeDelta;
+    }
+    return new double[] {south, west, north, east};
+  }
+
+  /**
+   * Smallest great-circle distance from a coordinate to any point inside a latitude/longitude box.
+   * Used as a lower bound when pruning spatial searches.
+   */
+  public static double distanceToBoxMeters(double latitude, double longitude,
+                                           double minLatitude, double minLongitude,
+                                           double maxLatitude, double maxLongitude) {
+    if (longitude >= minLongitude && longitude <= maxLongitude) {
+      if (latitude < minLatitude) {
+        return Math.toRadians(minLatitude - latitude) * EARTH_RADIUS_IN_METERS;
+      }
+      if (latitude > maxLatitude) {
+        return Math.toRadians(latitude - maxLatitude) * EARTH_RADIUS_IN_METERS;
+      }
+      return 0;
+    }
+
+    // The closest point lies on the nearer of the two meridian edges of the box
+    double westGap = longitudeDelta(longitude, minLongitude);
+    double eastGap = longitudeDelta(maxLongitude, longitude);
+    double edgeLongitude = westGap <= eastGap ? minLongitude : maxLongitude;
+    double deltaLongitude = Math.toRadians(Math.min(westGap, eastGap));
+    if (deltaLongitude < Math.PI / 2) {
+      // Latitude of the point on the edge's great circle which is closest to the coordinate
+      double closestLatitude = Math.toDegrees(Math.atan(Math.tan(Math.toRadians(latitude))
+        / Math.cos(deltaLongitude)));
+      if (closestLatitude > minLatitude && closestLatitude < maxLatitude) {
+        return haversineMeters(latitude, longitude, closestLatitude, edgeLongitude);
+      }
+    }
+    return Math.min(haversineMeters(latitude, longitude, minLatitude, edgeLongitude),
+      haversineMeters(latitude, longitude, maxLatitude, edgeLongitude));
+  }
+
+  /**
+   * Eastward longitude span from one longitude to another, in the range [0, 360).
+   */
+  private static double longitudeDelta(double fromLongitude, double toLongitude) {
+    double delta = toLongitude - fromLongitude;
+    return delta < 0 ? delta + 360 : delta;
+  }
+}
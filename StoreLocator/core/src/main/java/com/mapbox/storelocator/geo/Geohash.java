@@ -0,0 +1,164 @@
+package com.mapbox.storelocator.geo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Geohashes: base 32 strings which interleave the bits of a coordinate's longitude and latitude, so
+ * that every geohash starting with the same prefix lies in the same cell. Stored next to each store
+ * under an ordinary index, they let a database answer box queries with a few range scans.
+ */
+public final class Geohash {
+
+  public static final int MAX_PRECISION = 12;
+  private static final String BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz";
+
+  private Geohash() {
+    // Utility class
+  }
+
+  /**
+   * @param precision number of characters, from 1 to {@link #MAX_PRECISION}
+   */
+  public static String encode(double latitude, double longitude, int precision) {
+    if (precision < 1 || precision > MAX_PRECISION) {
+      throw new IllegalArgumentException("Geohash precision must be between 1 and " + MAX_PRECISION + ".");
+    }
+    double minLatitude = -90;
+    double maxLatitude = 90;
+    double minLongitude = -180;
+    double maxLongitude = 180;
+    char[] geohash = new char[precision];
+    boolean longitudeBit = true;
+    for (int x = 0; x < precision; x++) {
+      int value = 0;
+      for (int bit = 0; bit < 5; bit++) {
+        value <<= 1;
+        if (longitudeBit) {
+          double middle = (minLongitude + maxLongitude) / 2;
+          if (longitude >= middle) {
+            value |= 1;
+            minLongitude = middle;
+          } else {
+            maxLongitude = middle;
+          }
+        } else {
+          double middle = (minLatitude + maxLatitude) / 2;
+          if (latitude >= middle) {
+            value |= 1;
+            minLatitude = middle;
+          } else {
+            maxLatitude = middle;
+          }
+        }
+        longitudeBit = !longitudeBit;
+      }
+      geohash[x] = BASE32.charAt(value);
+    }
+    return new String(geohash);
+  }
+
+  /**
+   * Smallest string greater than every geohash starting with a prefix, so that the geohashes in a
+   * cell are those in the range [prefix, upperBound(prefix)).
+   */
+  public static String upperBound(String prefix) {
+    // '{' sorts right after 'z', the largest base 32 digit
+    return prefix + '{';
+  }
+
+  /**
+   * Covers a latitude/longitude box with cells, using the smallest cells that cover it with no more
+   * than {@code maxCells} of them. Smaller cells scan fewer rows outside the box, more cells mean
+   * more range scans.
+   *
+   * @return the sorted geohash prefixes of the cells, or a single empty prefix, which matches
+   * everything, if even the largest cells would need more than {@code maxCells}
+   */
+  public static String[] cover(double south, double west, double north, double east, int maxCells) {
+    south = Math.max(-90, south);
+    north = Math.min(90, north);
+    west = Math.max(-180, west);
+    east = Math.min(180, east);
+    if (south > north || west > east) {
+      return new String[0];
+    }
+
+    for (int precision = MAX_PRECISION; precision >= 1; precision--) {
+      double cellHeight = cellHeight(precision);
+      double cellWidth = cellWidth(precision);
+      int firstRow = cellIndex(south + 90, cellHeight, 180);
+      int lastRow = cellIndex(north + 90, cellHeight, 180);
+      int firstColumn = cellIndex(west + 180, cellWidth, 360);
+      int lastColumn = cellIndex(east + 180, cellWidth, 360);
+      long cellCount = (long) (lastRow - firstRow + 1) * (lastColumn - firstColumn + 1);
+      if (cellCount > maxCells) {
+        continue;
+      }
+
+      // Encode the center of each cell
+      TreeSet<String> cells = new TreeSet<>();
+      for (int row = firstRow; row <= lastRow; row++) {
+        for (int column = firstColumn; column <= lastColumn; column++) {
+          cells.add(encode(-90 + (row + .5) * cellHeight, -180 + (column + .5) * cellWidth, precision));
+        }
+      }
+      return cells.toArray(new String[cells.size()]);
+    }
+    return new String[] {""};
+  }
+
+  /**
+   * @return the prefixes of {@link #cover} as {@code [start, end)} pairs, with neighbouring cells
+   * merged into a single range
+   */
+  public static List<String[]> coverRanges(double south, double west, double north, double east, int maxCells) {
+    List<String[]> ranges = new ArrayList<>();
+    for (String prefix : cover(south, west, north, east, maxCells)) {
+      String end = upperBound(prefix);
+      String[] last = ranges.isEmpty() ? null : ranges.get(ranges.size() - 1);
+      if (last != null && isNextCell(last[1], prefix)) {
+        last[1] = end;
+      } else {
+        ranges.add(new String[] {prefix, end});
+      }
+    }
+    return ranges;
+  }
+
+  /**
+   * Height in degrees of the cells with a number of characters
+   */
+  static double cellHeight(int precision) {
+    int latitudeBits = 5 * precision / 2;
+    return 180 / Math.pow(2, latitudeBits);
+  }
+
+  /**
+   * Width in degrees of the cells with a number of characters
+   */
+  static double cellWidth(int precision) {
+    int longitudeBits = (5 * precision + 1) / 2;
+    return 360 / Math.pow(2, longitudeBits);
+  }
+
+  private static int cellIndex(double offset, double cellSize, double span) {
+    // The north and east edges of the world belong to the last cell
+    int lastIndex = (int) Math.round(span / cellSize) - 1;
+    return Math.max(0, Math.min(lastIndex, (int) Math.floor(offset / cellSize)));
+  }
+
+  /**
+   * Whether the range ending at {@code end} is immediately followed by the cell {@code prefix}
+   */
+  private static boolean isNextCell(String end, String prefix) {
+    String previousPrefix = end.substring(0, end.length() - 1);
+    if (previousPrefix.length() != prefix.length()) {
+      return false;
+    }
+    int last = prefix.length() - 1;
+    return previousPrefix.substring(0, last).equals(prefix.substring(0, last))
+      && BASE32.indexOf(prefix.charAt(last)) == BASE32.indexOf(previousPrefix.charAt(last)) + 1;
+  }
+}
@@ -0,0 +1,206 @@
+package com.mapbox.storelocator.hours;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A store's weekly opening hours, compiled from text such as "6am - 5pm" into one bit per minute of
+ * the week, so that checking whether the store is open is a single bit test.
+ * <p>
+ * Besides a daily time range, the text may hold several rules separated by semicolons, each limited
+ * to some days and with any number of time ranges, e.g. "Mon-Fri 9am - 5pm, 6pm - 10pm; Sat 10am -
+ * 2pm; Sun closed". "24 hours" means open all day, and ranges that end after midnight run into the
+ * next day.
+ */
+public final class OpeningHours {
+
+  public static final int MINUTES_PER_DAY = 24 * 60;
+  public static final int MINUTES_PER_WEEK = 7 * MINUTES_PER_DAY;
+  private static final int WORD_COUNT = (MINUTES_PER_WEEK + 63) / 64;
+
+  /**
+   * Hours which couldn't be parsed. The store is never considered open.
+   */
+  public static final OpeningHours UNKNOWN = new OpeningHours(new long[WORD_COUNT], false);
+
+  private static final String[] DAY_NAMES = {"sun", "mon", "tue", "wed", "thu", "fri", "sat"};
+  private static final String TIME = "(\\d{1,2})(?::(\\d{2}))?\\s*(am|pm|a\\.m\\.|p\\.m\\.)?|(noon|midnight)";
+  private static final Pattern TIME_RANGE = Pattern.compile(
+    "\\s*(?:" + TIME + ")\\s*(?:-|\u2013|to)\\s*(?:" + TIME + ")\\s*");
+  private static final Pattern DAYS = Pattern.compile(
+    "\\s*([a-z]{3})[a-z]*\\.?(?:\\s*(?:-|\u2013|to)\\s*([a-z]{3})[a-z]*\\.?)?\\s*");
+
+  private final long[] minutes;
+  private final boolean known;
+
+  private OpeningHours(long[] minutes, boolean known) {
+    this.minutes = minutes;
+    this.known = known;
+  }
+
+  /**
+   * Compiles opening hours text. Text which can't be parsed, including null, gives {@link #UNKNOWN}.
+   */
+  public static OpeningHours parse(String text) {
+    if (text == null || text.trim().isEmpty()) {
+      return UNKNOWN;
+    }
+    long[] minutes = new long[WORD_COUNT];
+    for (String rule : text.toLowerCase(Locale.US).split(";")) {
+      if (!parseRule(rule.trim(), minutes)) {
+        return UNKNOWN;
+      }
+    }
+    return new OpeningHours(minutes, true);
+  }
+
+  /**
+   * Parses "[days] (closed | 24 hours | time range[, time range...])"
+   */
+  private static boolean parseRule(String rule, long[] minutes) {
+    if (rule.startsWith("daily")) {
+      rule = rule.substring("daily".length());
+    }
+    boolean[] days = new boolean[7];
+    int start = 0;
+    boolean hasDays = false;
+    Matcher daysMatcher = DAYS.matcher(rule);
+    while (daysMatcher.lookingAt() && dayIndex(daysMatcher.group(1)) >= 0) {
+      int firstDay = dayIndex(daysMatcher.group(1));
+      int lastDay = daysMatcher.group(2) != null ? dayIndex(daysMatcher.group(2)) : firstDay;
+      if (lastDay < 0) {
+        return false;
+      }
+      for (int day = firstDay; ; day = (day + 1) % 7) {
+        days[day] = true;
+        if (day == lastDay) {
+          break;
+        }
+      }
+      hasDays = true;
+      start = daysMatcher.end();
+      if (start < rule.length() && rule.charAt(start) == ',') {
+        start++;
+      }
+      daysMatcher.region(start, rule.length());
+    }
+    if (!hasDays) {
+      Arrays.fill(days, true);
+    }
+    if (start < rule.length() && rule.charAt(start) == ':') {
+      start++;
+    }
+
+    String times = rule.substring(start).trim();
+    if (times.equals("closed")) {
+      return true;
+    }
+    if (times.equals("24 hours") || times.equals("open 24 hours") || times.equals("24/7")) {
+      for (int day = 0; day < 7; day++) {
+        if (days[day]) {
+          setRange(minutes, day * MINUTES_PER_DAY, (day + 1) * MINUTES_PER_DAY);
+        }
+      }
+      return true;
+    }
+    for (String range : times.split(",|&| and ")) {
+      Matcher matcher = TIME_RANGE.matcher(range);
+      if (!matcher.matches()) {
+        return false;
+      }
+      int opens = minuteOfDay(matcher, 1);
+      int closes = minuteOfDay(matcher, 5);
+      if (opens < 0 || closes < 0) {
+        return false;
+      }
+      if (closes <= opens) {
+        // Open past midnight
+        closes += MINUTES_PER_DAY;
+      }
+      for (int day = 0; day < 7; day++) {
+        if (days[day]) {
+          setRange(minutes, day * MINUTES_PER_DAY + opens, day * MINUTES_PER_DAY + closes);
+        }
+      }
+    }
+    return true;
+  }
+
+  private static int dayIndex(String name) {
+    for (int x = 0; x < DAY_NAMES.length; x++) {
+      if (DAY_NAMES[x].equals(name)) {
+        return x;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Reads the time whose groups start at {@code group}: hour, minute, am/pm and noon/midnight
+   *
+   * @return the minute of the day, or -1 if the time isn't valid
+   */
+  private static int minuteOfDay(Matcher matcher, int group) {
+    String named = matcher.group(group + 3);
+    if (named != null) {
+      return named.equals("noon") ? 12 * 60 : 0;
+    }
+    int hour = Integer.parseInt(matcher.group(group));
+    int minute = matcher.group(group + 1) != null ? Integer.parseInt(matcher.group(group + 1)) : 0;
+    String meridiem = matcher.group(group + 2);
+    if (minute > 59) {
+      return -1;
+    }
+    if (meridiem == null) {
+      return hour <= 24 ? hour % 24 * 60 + minute : -1;
+    }
+    if (hour < 1 || hour > 12) {
+      return -1;
+    }
+    return (hour % 12 + (meridiem.startsWith("p") ? 12 : 0)) * 60 + minute;
+  }
+
+  /**
+   * Sets the bits of the minutes of the week from {@code from} inclusive to {@code to} exclusive,
+   * wrapping from Saturday night into Sunday
+   */
+  private static void setRange(long[] minutes, int from, int to) {
+    for (int minute = from; minute < to; minute++) {
+      int wrapped = minute % MINUTES_PER_WEEK;
+      minutes[wrapped >> 6] |= 1L << wrapped;
+    }
+  }
+
+  /**
+   * @return the minute of the week a time falls on, counted from midnight at the start of Sunday
+   */
+  public static int minuteOfWeek(Calendar calendar) {
+    return minuteOfWeek(calendar.get(Calendar.DAY_OF_WEEK), calendar.get(Calendar.HOUR_OF_DAY) * 60
+      + calendar.get(Calendar.MINUTE));
+  }
+
+  /**
+   * @param dayOfWeek   a day constant of {@link Calendar}, e.g. {@link Calendar#MONDAY}
+   * @param minuteOfDay minutes since midnight
+   */
+  public static int minuteOfWeek(int dayOfWeek, int minuteOfDay) {
+    return (dayOfWeek - Calendar.SUNDAY) * MINUTES_PER_DAY + minuteOfDay;
+  }
+
+  /**
+   * @return whether the hours could be parsed
+   */
+  public boolean isKnown() {
+    return known;
+  }
+
+  /**
+   * @param minuteOfWeek see {@link #minuteOfWeek(Calendar)}
+   */
+  public boolean isOpenAt(int minuteOfWeek) {
+    return (minutes[minuteOfWeek >> 6] & 1L << minuteOfWeek) != 0;
+  }
+}
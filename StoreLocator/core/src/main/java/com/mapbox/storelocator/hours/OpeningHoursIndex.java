@@ -0,0 +1,194 @@
+package com.mapbox.storelocator.hours;
+
+import com.mapbox.storelocator.index.IntArray;
+import com.mapbox.storelocator.model.IndividualLocation;
+import com.mapbox.storelocator.model.StoreCatalog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The opening hours of every store in the catalog, compiled once so that finding the stores open at
+ * a time doesn't parse any text.
+ * <p>
+ * Stores usually share a handful of distinct opening hours, so each distinct text is compiled once
+ * and knows which stores have it. A query tests one bit per distinct schedule and then sets the bits
+ * of the stores of every open schedule. The index is immutable once built and can be queried from
+ * any thread.
+ */
+public final class OpeningHoursIndex {
+
+  private final OpeningHours[] schedules;
+  private final int[][] storesBySchedule;
+  private final int[] scheduleByStore;
+
+  private OpeningHoursIndex(OpeningHours[] schedules, int[][] storesBySchedule, int[] scheduleByStore) {
+    this.schedules = schedules;
+    this.storesBySchedule = storesBySchedule;
+    this.scheduleByStore = scheduleByStore;
+  }
+
+  /**
+   * Compiles the hours of every location of the catalog. Building reads all of the locations, so it
+   * should run on a background thread.
+   */
+  public static OpeningHoursIndex build(StoreCatalog storeCatalog) {
+    List<IndividualLocation> locations = storeCatalog.getLocations();
+    Builder builder = new Builder(storeCatalog.size());
+    for (int x = 0; x < storeCatalog.size(); x++) {
+      builder.add(x, locations.get(x).getHours());
+    }
+    return builder.build();
+  }
+
+  /**
+   * @return the index once the hours of some stores have changed, e.g. by a sync. Only the changed
+   * hours are compiled, and the other stores keep theirs.
+   *
+   * @param size           the number of stores in the catalog once changed
+   * @param featureIndices the stores whose hours changed
+   * @param hours          the new hours of each of those stores, or null for a removed store, which
+   *                       is never open
+   */
+  public OpeningHoursIndex withHours(int size, int[] featureIndices, String[] hours) {
+    List<OpeningHours> changedSchedules = new ArrayList<>(Arrays.asList(schedules));
+    Map<String, Integer> scheduleIdsByText = new HashMap<>();
+    int[] changedScheduleByStore = Arrays.copyOf(scheduleByStore, size);
+    for (int x = scheduleByStore.length; x < size; x++) {
+      changedScheduleByStore[x] = scheduleIdOf(changedSchedules, scheduleIdsByText, "");
+    }
+    for (int x = 0; x < featureIndices.length; x++) {
+      String text = hours[x] != null ? hours[x].trim() : "";
+      changedScheduleByStore[featureIndices[x]] = scheduleIdOf(changedSchedules, scheduleIdsByText, text);
+    }
+
+    // Group the stores by schedule again, schedules which no store has any more stay empty
+    int[] storeCounts = new int[changedSchedules.size()];
+    for (int scheduleId : changedScheduleByStore) {
+      storeCounts[scheduleId]++;
+    }
+    int[][] changedStoresBySchedule = new int[storeCounts.length][];
+    for (int scheduleId = 0; scheduleId < storeCounts.length; scheduleId++) {
+      changedStoresBySchedule[scheduleId] = new int[storeCounts[scheduleId]];
+      storeCounts[scheduleId] = 0;
+    }
+    for (int featureIndex = 0; featureIndex < size; featureIndex++) {
+      int scheduleId = changedScheduleByStore[featureIndex];
+      changedStoresBySchedule[scheduleId][storeCounts[scheduleId]++] = featureIndex;
+    }
+    return new OpeningHoursIndex(changedSchedules.toArray(new OpeningHours[changedSchedules.size()]),
+      changedStoresBySchedule, changedScheduleByStore);
+  }
+
+  /**
+   * The hours of the existing schedules aren't kept as text, so changed hours are only shared
+   * between the stores which changed
+   */
+  private static int scheduleIdOf(List<OpeningHours> schedules, Map<String, Integer> scheduleIdsByText,
+                                  String text) {
+    Integer scheduleId = scheduleIdsByText.get(text);
+    if (scheduleId == null) {
+      scheduleId = schedules.size();
+      scheduleIdsByText.put(text, scheduleId);
+      schedules.add(OpeningHours.parse(text));
+    }
+    return scheduleId;
+  }
+
+  public int size() {
+    return scheduleByStore.length;
+  }
+
+  /**
+   * @return the number of distinct opening hours in the catalog
+   */
+  public int scheduleCount() {
+    return schedules.length;
+  }
+
+  public OpeningHours hoursOf(int featureIndex) {
+    return schedules[scheduleByStore[featureIndex]];
+  }
+
+  /**
+   * @param minuteOfWeek see {@link OpeningHours#minuteOfWeek(java.util.Calendar)}
+   * @return the feature indices of the stores open at that minute. Stores whose hours couldn't be
+   * parsed are never included.
+   */
+  public BitSet openAt(int minuteOfWeek) {
+    BitSet open = new BitSet(scheduleByStore.length);
+    for (int scheduleId = 0; scheduleId < schedules.length; scheduleId++) {
+      if (schedules[scheduleId].isOpenAt(minuteOfWeek)) {
+        for (int featureIndex : storesBySchedule[scheduleId]) {
+          open.set(featureIndex);
+        }
+      }
+    }
+    return open;
+  }
+
+  public boolean isOpenAt(int featureIndex, int minuteOfWeek) {
+    return schedules[scheduleByStore[featureIndex]].isOpenAt(minuteOfWeek);
+  }
+
+  /**
+   * Compiles opening hours as they're streamed in, e.g. from a database cursor, without holding
+   * every store's hours at once
+   */
+  public static final class Builder {
+    private final int[] scheduleByStore;
+    private final Map<String, Integer> scheduleIdsByText = new HashMap<>();
+    private final List<OpeningHours> schedules = new ArrayList<>();
+    private final List<IntArray> stores = new ArrayList<>();
+    private int nextFeatureIndex;
+
+    /**
+     * @param size the number of stores in the catalog
+     */
+    public Builder(int size) {
+      this.scheduleByStore = new int[size];
+    }
+
+    /**
+     * Adds the hours of a store. Stores must be added in catalog order, stores which are skipped
+     * have unknown hours.
+     */
+    public void add(int featureIndex, String hours) {
+      if (featureIndex < nextFeatureIndex || featureIndex >= scheduleByStore.length) {
+        throw new IllegalArgumentException("Store " + featureIndex + " is out of order.");
+      }
+      while (nextFeatureIndex < featureIndex) {
+        addSchedule(nextFeatureIndex++, "");
+      }
+      addSchedule(nextFeatureIndex++, hours != null ? hours.trim() : "");
+    }
+
+    public OpeningHoursIndex build() {
+      while (nextFeatureIndex < scheduleByStore.length) {
+        addSchedule(nextFeatureIndex++, "");
+      }
+      int[][] storesBySchedule = new int[stores.size()][];
+      for (int x = 0; x < storesBySchedule.length; x++) {
+        storesBySchedule[x] = stores.get(x).toArray();
+      }
+      return new OpeningHoursIndex(schedules.toArray(new OpeningHours[schedules.size()]), storesBySchedule,
+        scheduleByStore);
+    }
+
+    private void addSchedule(int featureIndex, String text) {
+      Integer scheduleId = scheduleIdsByText.get(text);
+      if (scheduleId == null) {
+        scheduleId = schedules.size();
+        scheduleIdsByText.put(text, scheduleId);
+        schedules.add(OpeningHours.parse(text));
+        stores.add(new IntArray());
+      }
+      scheduleByStore[featureIndex] = scheduleId;
+      stores.get(scheduleId).add(featureIndex);
+    }
+  }
+}
@@ -0,0 +1,43 @@
+package com.mapbox.storelocator.index;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of primitive ints, used to collect query results without boxing
+ */
+public final class IntArray {
+
+  private int[] values;
+  private int size;
+
+  public IntArray() {
+    this(16);
+  }
+
+  public IntArray(int initialCapacity) {
+    values = new int[Math.max(1, initialCapacity)];
+  }
+
+  public void add(int value) {
+    if (size == values.length) {
+      values = Arrays.copyOf(values, size * 2);
+    }
+    values[size++] = value;
+  }
+
+  public int get(int index) {
+    return values[index];
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public void clear() {
+    size = 0;
+  }
+
+  public int[] toArray() {
+    return Arrays.copyOf(values, size);
+  }
+}
@@ -0,0 +1,333 @@
+package com.mapbox.storelocator.index;
+
+import com.mapbox.storelocator.geo.GeoMath;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * Static two-dimensional k-d tree over store coordinates. The tree is stored implicitly in flat
+ * arrays: each range of the arrays is split around its median, alternating between latitude and
+ * longitude, until a range holds no more than {@link #NODE_SIZE} points.
+ * <p>
+ * Items are identified by their index in the coordinate arrays the tree was built from, which is
+ * the position of the store in the catalog. Queries assume the catalog does not cross the
+ * antimeridian.
+ */
+public final class KdTreeIndex implements SpatialIndex {
+
+  private static final int NODE_SIZE = 16;
+  private static final int AXIS_LATITUDE = 0;
+  private static final int AXIS_LONGITUDE = 1;
+  private static final int[] EMPTY = new int[0];
+
+  private final int[] ids;
+  private final double[] latitudes;
+  private final double[] longitudes;
+
+  private KdTreeIndex(int[] ids, double[] latitudes, double[] longitudes) {
+    this.ids = ids;
+    this.latitudes = latitudes;
+    this.longitudes = longitudes;
+  }
+
+  /**
+   * Builds the index. The arrays are copied and can be reused by the caller.
+   *
+   * @param latitudes  latitude of each store, indexed by catalog position
+   * @param longitudes longitude of each store, indexed by catalog position
+   */
+  public static KdTreeIndex build(double[] latitudes, double[] longitudes) {
+    if (latitudes.length != longitudes.length) {
+      throw new IllegalArgumentException("Latitude and longitude arrays must be the same length.");
+    }
+    int size = latitudes.length;
+    int[] ids = new int[size];
+    for (int x = 0; x < size; x++) {
+      ids[x] = x;
+    }
+    KdTreeIndex index = new KdTreeIndex(ids, Arrays.copyOf(latitudes, size), Arrays.copyOf(longitudes, size));
+    index.sort(0, size - 1, AXIS_LATITUDE);
+    return index;
+  }
+
+  public int size() {
+    return ids.length;
+  }
+
+  /**
+   * Finds the stores closest to a coordinate.
+   *
+   * @return up to {@code count} catalog positions, nearest first
+   */
+  @Override
+  public int[] nearest(double latitude, double longitude, int count) {
+    return nearest(latitude, longitude, count, Double.POSITIVE_INFINITY);
+  }
+
+  /**
+   * Finds the stores closest to a coordinate that are no further away than a maximum distance.
+   *
+   * @return up to {@code count} catalog positions, nearest first
+   */
+  public int[] nearest(double latitude, double longitude, int count, double maxDistanceInMeters) {
+    if (count <= 0 || ids.length == 0) {
+      return EMPTY;
+    }
+    int[] result = new int[Math.min(count, ids.length)];
+    int found = 0;
+
+    // Best-first search: nodes and points are visited in order of their distance lower bound
+    PriorityQueue<QueueEntry> queue = new PriorityQueue<>();
+    QueueEntry node = new QueueEntry(0, ids.length - 1, AXIS_LATITUDE, -90, -180, 90, 180, 0);
+    while (node != null) {
+      if (node.right - node.left <= NODE_SIZE) {
+        for (int x = node.left; x <= node.right; x++) {
+          queue.add(QueueEntry.point(x, GeoMath.haversineMeters(latitude, longitude, latitudes[x], longitudes[x])));
+        }
+      } else {
+        int median = (node.left + node.right) >> 1;
+        queue.add(QueueEntry.point(median,
+          GeoMath.haversineMeters(latitude, longitude, latitudes[median], longitudes[median])));
+
+        int nextAxis = 1 - node.axis;
+        QueueEntry leftNode;
+        QueueEntry rightNode;
+        if (node.axis == AXIS_LATITUDE) {
+          leftNode = new QueueEntry(node.left, median - 1, nextAxis,
+            node.minLatitude, node.minLongitude, latitudes[median], node.maxLongitude, 0);
+          rightNode = new QueueEntry(median + 1, node.right, nextAxis,
+            latitudes[median], node.minLongitude, node.maxLatitude, node.maxLongitude, 0);
+        } else {
+          leftNode = new QueueEntry(node.left, median - 1, nextAxis,
+            node.minLatitude, node.minLongitude, node.maxLatitude, longitudes[median], 0);
+          rightNode = new QueueEntry(median + 1, node.right, nextAxis,
+            node.minLatitude, longitudes[median], node.maxLatitude, node.maxLongitude, 0);
+        }
+        leftNode.distance = leftNode.distanceTo(latitude, longitude);
+        rightNode.distance = rightNode.distanceTo(latitude, longitude);
+        queue.add(leftNode);
+        queue.add(rightNode);
+      }
+
+      // Every point closer than the next node's lower bound is final
+      while (!queue.isEmpty() && queue.peek().isPoint()) {
+        QueueEntry candidate = queue.poll();
+        if (candidate.distance > maxDistanceInMeters) {
+          return Arrays.copyOf(result, found);
+        }
+        result[found++] = ids[candidate.left];
+        if (found == result.length) {
+          return result;
+        }
+      }
+      node = queue.poll();
+      if (node != null && node.distance > maxDistanceInMeters) {
+        break;
+      }
+    }
+    return Arrays.copyOf(result, found);
+  }
+
+  /**
+   * Finds every store within a distance of a coordinate, in no particular order.
+   */
+  public int[] withinRadius(double latitude, double longitude, double radiusInMeters) {
+    double[] bounds = GeoMath.boundsAround(latitude, longitude, radiusInMeters);
+    return search(bounds[0], bounds[1], bounds[2], bounds[3], latitude, longitude, radiusInMeters);
+  }
+
+  /**
+   * Finds every store inside a latitude/longitude box, in no particular order.
+   */
+  @Override
+  public int[] withinBounds(double south, double west, double north, double east) {
+    return search(south, west, north, east, 0, 0, Double.POSITIVE_INFINITY);
+  }
+
+  /**
+   * Collects the stores inside a box which are also within a radius of a coordinate.
+   */
+  private int[] search(double south, double west, double north, double east,
+                       double latitude, double longitude, double radiusInMeters) {
+    if (ids.length == 0) {
+      return EMPTY;
+    }
+    boolean checkRadius = radiusInMeters != Double.POSITIVE_INFINITY;
+    IntArray result = new IntArray();
+    int[] stack = new int[64 * 3];
+    int stackSize = 0;
+    stack[stackSize++] = 0;
+    stack[stackSize++] = ids.length - 1;
+    stack[stackSize++] = AXIS_LATITUDE;
+
+    while (stackSize > 0) {
+      int axis = stack[--stackSize];
+      int right = stack[--stackSize];
+      int left = stack[--stackSize];
+
+      if (right - left <= NODE_SIZE) {
+        for (int x = left; x <= right; x++) {
+          if (contains(x, south, west, north, east)
+            && (!checkRadius || isWithinRadius(x, latitude, longitude, radiusInMeters))) {
+            result.add(ids[x]);
+          }
+        }
+        continue;
+      }
+
+      int median = (left + right) >> 1;
+      if (contains(median, south, west, north, east)
+        && (!checkRadius || isWithinRadius(median, latitude, longitude, radiusInMeters))) {
+        result.add(ids[median]);
+      }
+      double splitValue = axis == AXIS_LATITUDE ? latitudes[median] : longitudes[median];
+      double min = axis == AXIS_LATITUDE ? south : west;
+      double max = axis == AXIS_LATITUDE ? north : east;
+
+      if (stackSize + 6 > stack.length) {
+        stack = Arrays.copyOf(stack, stack.length * 2);
+      }
+      if (min <= splitValue) {
+        stack[stackSize++] = left;
+        stack[stackSize++] = median - 1;
+        stack[stackSize++] = 1 - axis;
+      }
+      if (max >= splitValue) {
+        stack[stackSize++] = median + 1;
+        stack[stackSize++] = right;
+        stack[stackSize++] = 1 - axis;
+      }
+    }
+    return result.toArray();
+  }
+
+  private boolean contains(int position, double south, double west, double north, double east) {
+    double latitude = latitudes[position];
+    double longitude = longitudes[position];
+    return latitude >= south && latitude <= north && longitude >= west && longitude <= east;
+  }
+
+  private boolean isWithinRadius(int position, double latitude, double longitude, double radiusInMeters) {
+    return GeoMath.haversineMeters(latitude, longitude, latitudes[position], longitudes[position]) <= radiusInMeters;
+  }
+
+  private void sort(int left, int right, int axis) {
+    if (right - left <= NODE_SIZE) {
+      return;
+    }
+    int median = (left + right) >> 1;
+    select(median, left, right, axis);
+    sort(left, median - 1, 1 - axis);
+    sort(median + 1, right, 1 - axis);
+  }
+
+  /**
+   * Floyd-Rivest selection: rearranges the range so that the k-th element along the axis is in place,
+   * with smaller values to its left and larger values to its right.
+   */
+  private void select(int k, int left, int right, int axis) {
+    double[] values = axis == AXIS_LATITUDE ? latitudes : longitudes;
+    while (right > left) {
+      if (right - left > 600) {
+        int n = right - left + 1;
+        int m = k - left + 1;
+        double z = Math.log(n);
+        double s = 0.5 * Math.exp(2 * z / 3);
+        double sd = 0.5 * Math.sqrt(z * s * (n - s) / n) * (m - n / 2 < 0 ? -1 : 1);
+        int newLeft = (int) Math.max(left, Math.floor(k - m * s / n + sd));
+        int newRight = (int) Math.min(right, Math.floor(k + (n - m) * s / n + sd));
+        select(k, newLeft, newRight, axis);
+      }
+
+      double pivot = values[k];
+      int i = left;
+      int j = right;
+
+      swap(left, k);
+      if (values[right] > pivot) {
+        swap(left, right);
+      }
+      while (i < j) {
+        swap(i, j);
+        i++;
+        j--;
+        while (values[i] < pivot) {
+          i++;
+        }
+        while (values[j] > pivot) {
+          j--;
+        }
+      }
+
+      if (values[left] == pivot) {
+        swap(left, j);
+      } else {
+        j++;
+        swap(j, right);
+      }
+
+      if (j <= k) {
+        left = j + 1;
+      }
+      if (k <= j) {
+        right = j - 1;
+      }
+    }
+  }
+
+  private void swap(int i, int j) {
+    int id = ids[i];
+    ids[i] = ids[j];
+    ids[j] = id;
+    double latitude = latitudes[i];
+    latitudes[i] = latitudes[j];
+    latitudes[j] = latitude;
+    double longitude = longitudes[i];
+    longitudes[i] = longitudes[j];
+    longitudes[j] = longitude;
+  }
+
+  /**
+   * Either a subtree with its bounding box, or a single point when {@code axis} is -1
+   */
+  private static final class QueueEntry implements Comparable<QueueEntry> {
+    final int left;
+    final int right;
+    final int axis;
+    final double minLatitude;
+    final double minLongitude;
+    final double maxLatitude;
+    final double maxLongitude;
+    double distance;
+
+    QueueEntry(int left, int right, int axis, double minLatitude, double minLongitude,
+               double maxLatitude, double maxLongitude, double distance) {
+      this.left = left;
+      this.right = right;
+      this.axis = axis;
+      this.minLatitude = minLatitude;
+      this.minLongitude = minLongitude;
+      this.maxLatitude = maxLatitude;
+      this.maxLongitude = maxLongitude;
+      this.distance = distance;
+    }
+
+    static QueueEntry point(int position, double distance) {
+      return new QueueEntry(position, position, -1, 0, 0, 0, 0, distance);
+    }
+
+    boolean isPoint() {
+      return axis == -1;
+    }
+
+    double distanceTo(double latitude, double longitude) {
+      return GeoMath.distanceToBoxMeters(latitude, longitude, minLatitude, minLongitude, maxLatitude, maxLongitude);
+    }
+
+    @Override
+    public int compareTo(QueueEntry other) {
+      return Double.compare(distance, other.distance);
+    }
+  }
+}
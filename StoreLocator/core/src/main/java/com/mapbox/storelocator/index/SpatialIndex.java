@@ -0,0 +1,23 @@
+package com.mapbox.storelocator.index;
+
+import java.io.IOException;
+
+/**
+ * Nearest-store and viewport queries over the stores of a catalog, which are identified by their
+ * feature index. The index is either held in memory or answered by a database, whose queries block,
+ * so callers on a UI thread should query on a background thread.
+ */
+public interface SpatialIndex {
+
+  /**
+   * Finds the stores closest to a coordinate.
+   *
+   * @return up to {@code count} feature indices, nearest first
+   */
+  int[] nearest(double latitude, double longitude, int count) throws IOException;
+
+  /**
+   * Finds every store inside a latitude/longitude box, in no particular order.
+   */
+  int[] withinBounds(double south, double west, double north, double east) throws IOException;
+}
@@ -0,0 +1,50 @@
+package com.mapbox.storelocator.model;
+
+import com.mapbox.storelocator.catalog.BinaryCatalog;
+
+import java.util.AbstractList;
+
+/**
+ * List of locations backed by a {@link BinaryCatalog}. Each IndividualLocation is only created the
+ * first time it's requested, for example when its card is bound, and then kept so that state such
+ * as its distance is retained.
+ */
+public class BinaryCatalogLocationList extends AbstractList<IndividualLocation> {
+
+  private final BinaryCatalog catalog;
+  private final StoreRegistry storeRegistry;
+  private final IndividualLocation[] locations;
+
+  public BinaryCatalogLocationList(BinaryCatalog catalog, StoreRegistry storeRegistry) {
+    this.catalog = catalog;
+    this.storeRegistry = storeRegistry;
+    this.locations = new IndividualLocation[catalog.size()];
+  }
+
+  /**
+   * Synchronized, since the search index reads the locations on a background thread and each
+   * location must only be created once
+   */
+  @Override
+  public synchronized IndividualLocation get(int index) {
+    IndividualLocation location = locations[index];
+    if (location == null) {
+      location = new IndividualLocation(
+        storeRegistry.idAt(index),
+        catalog.name(index),
+        catalog.description(index),
+        catalog.hours(index),
+        catalog.phone(index),
+        catalog.latitude(index),
+        catalog.longitude(index)
+      );
+      locations[index] = location;
+    }
+    return location;
+  }
+
+  @Override
+  public int size() {
+    return locations.length;
+  }
+}
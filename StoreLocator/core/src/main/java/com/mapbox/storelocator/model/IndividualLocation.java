@@ -0,0 +1,98 @@
+package com.mapbox.storelocator.model;
+
+/**
+ * POJO class for an individual location
+ */
+public class IndividualLocation {
+
+  private String id;
+  private String name;
+  private String address;
+  private String hours;
+  private String phoneNum;
+  private double distanceInMeters = Double.NaN;
+  private boolean distanceEstimated;
+  private double latitude;
+  private double longitude;
+
+  public IndividualLocation(String id, String name, String address, String hours, String phoneNum,
+                            double latitude, double longitude) {
+    this.id = id;
+    this.name = name;
+    this.address = address;
+    this.hours = hours;
+    this.phoneNum = phoneNum;
+    this.latitude = latitude;
+    this.longitude = longitude;
+  }
+
+  /**
+   * @return the store's stable id, unique within the catalog
+   */
+  public String getId() {
+    return id;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  public String getAddress() {
+    return address;
+  }
+
+  public String getHours() {
+    return hours;
+  }
+
+  public String getPhoneNum() {
+    return phoneNum;
+  }
+
+  /**
+   * @return whether the name, address, hours and phone number can be read without waiting for
+   * storage. Locations which aren't loaded return placeholders until they are.
+   */
+  public boolean isLoaded() {
+    return true;
+  }
+
+  /**
+   * @return the distance from the device to the location, or NaN if it isn't known yet
+   */
+  public double getDistanceInMeters() {
+    return distanceInMeters;
+  }
+
+  /**
+   * Sets the travel distance, replacing any estimate
+   */
+  public void setDistanceInMeters(double distanceInMeters) {
+    this.distanceInMeters = distanceInMeters;
+    this.distanceEstimated = false;
+  }
+
+  /**
+   * Sets a straight-line estimate of the distance, shown until the travel distance is known
+   */
+  public void setEstimatedDistanceInMeters(double distanceInMeters) {
+    this.distanceInMeters = distanceInMeters;
+    this.distanceEstimated = true;
+  }
+
+  public boolean isDistanceEstimated() {
+    return distanceEstimated;
+  }
+
+  public double getLatitude() {
+    return latitude;
+  }
+
+  public double getLongitude() {
+    return longitude;
+  }
+}
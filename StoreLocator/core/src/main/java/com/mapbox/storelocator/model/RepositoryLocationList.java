@@ -0,0 +1,192 @@
+package com.mapbox.storelocator.model;
+
+import com.mapbox.storelocator.repository.StoreRepository;
+import com.mapbox.storelocator.sync.StoreRecord;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * List of locations backed by a {@link StoreRepository}. Only the ids and coordinates of the stores
+ * are held up front. Each IndividualLocation is created the first time it's requested and then kept,
+ * so that state such as its distance is retained, but its text is only read from the repository by
+ * {@link #prefetch(int[])}, on a background thread, before it's shown. The rows read are kept in a
+ * small LRU cache, so reading the distance of every store neither reads nor holds every row.
+ * <p>
+ * Reading a location never blocks on the repository. A location whose row hasn't been read, or has
+ * been evicted since, isn't {@link IndividualLocation#isLoaded() loaded} and shows empty text.
+ * <p>
+ * Once a sync has changed some stores, the list of the updated catalog shares the rows cached and
+ * the locations of the unchanged stores with the list it replaces, so that they keep their distance.
+ */
+public class RepositoryLocationList extends AbstractList<IndividualLocation> {
+
+  public static final int DEFAULT_MAX_CACHED_ROWS = 256;
+  private static final String PLACEHOLDER_TEXT = "";
+
+  private final StoreRepository repository;
+  private final StoreRegistry storeRegistry;
+  private final double[] latitudes;
+  private final double[] longitudes;
+  private final IndividualLocation[] locations;
+  // Shared with the lists of later versions of the catalog, and synchronized on
+  private final LinkedHashMap<Integer, StoreRecord> rows;
+  private final RepositoryLocationList previous;
+  private final BitSet changedStores;
+
+  public RepositoryLocationList(StoreRepository repository, StoreRegistry storeRegistry,
+                                double[] latitudes, double[] longitudes) {
+    this(repository, storeRegistry, latitudes, longitudes, DEFAULT_MAX_CACHED_ROWS);
+  }
+
+  public RepositoryLocationList(StoreRepository repository, StoreRegistry storeRegistry,
+                                double[] latitudes, double[] longitudes, final int maxCachedRows) {
+    this.repository = repository;
+    this.storeRegistry = storeRegistry;
+    this.latitudes = latitudes;
+    this.longitudes = longitudes;
+    this.locations = new IndividualLocation[latitudes.length];
+    this.rows = new LinkedHashMap<Integer, StoreRecord>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Integer, StoreRecord> eldest) {
+        return size() > maxCachedRows;
+      }
+    };
+    this.previous = null;
+    this.changedStores = null;
+  }
+
+  /**
+   * The list of a catalog updated by a sync, whose stores keep their feature index. The rows of the
+   * changed stores are read again, and their locations are created again in case they moved.
+   *
+   * @param changedStores the feature indices of the stores which were added, updated or removed
+   */
+  public RepositoryLocationList(RepositoryLocationList previous, StoreRegistry storeRegistry,
+                                double[] latitudes, double[] longitudes, BitSet changedStores) {
+    this.repository = previous.repository;
+    this.storeRegistry = storeRegistry;
+    this.latitudes = latitudes;
+    this.longitudes = longitudes;
+    this.locations = new IndividualLocation[latitudes.length];
+    this.rows = previous.rows;
+    this.previous = previous;
+    this.changedStores = changedStores;
+    synchronized (rows) {
+      for (int index = changedStores.nextSetBit(0); index >= 0; index = changedStores.nextSetBit(index + 1)) {
+        rows.remove(index);
+      }
+    }
+  }
+
+  /**
+   * Synchronized, since the locations are read on background threads too and each location must
+   * only be created once. The location of an unchanged store is the one of the list replaced, even if
+   * it's only created once this list is in use.
+   */
+  @Override
+  public synchronized IndividualLocation get(int index) {
+    IndividualLocation location = locations[index];
+    if (location == null) {
+      boolean unchanged = previous != null && index < previous.size() && !changedStores.get(index);
+      location = unchanged ? previous.get(index) : new RepositoryLocation(index);
+      locations[index] = location;
+    }
+    return location;
+  }
+
+  @Override
+  public int size() {
+    return locations.length;
+  }
+
+  /**
+   * Reads the rows of the locations which aren't loaded yet. The repository is queried without
+   * holding the lock of the rows, so locations can be read on the main thread in the meantime.
+   *
+   * @param indices the locations to load. No more than the rows cached stay loaded.
+   */
+  public void prefetch(int[] indices) throws IOException {
+    List<Integer> missing = new ArrayList<>(indices.length);
+    synchronized (rows) {
+      for (int index : indices) {
+        if (!rows.containsKey(index)) {
+          missing.add(index);
+        }
+      }
+    }
+    for (int index : missing) {
+      String id = storeRegistry.idAt(index);
+      StoreRecord row = repository.get(id);
+      if (row == null) {
+        // Removed by a sync the catalog hasn't been updated with yet
+        row = new StoreRecord(id, PLACEHOLDER_TEXT, PLACEHOLDER_TEXT, PLACEHOLDER_TEXT, PLACEHOLDER_TEXT,
+          latitudes[index], longitudes[index]);
+      }
+      synchronized (rows) {
+        rows.put(index, row);
+      }
+    }
+  }
+
+  private boolean isLoaded(int index) {
+    synchronized (rows) {
+      return rows.containsKey(index);
+    }
+  }
+
+  /**
+   * @return the location's row, or null if it isn't loaded
+   */
+  private StoreRecord rowAt(int index) {
+    synchronized (rows) {
+      return rows.get(index);
+    }
+  }
+
+  /**
+   * Location whose text is read from the repository's row once it has been prefetched
+   */
+  private final class RepositoryLocation extends IndividualLocation {
+    private final int index;
+
+    RepositoryLocation(int index) {
+      super(storeRegistry.idAt(index), null, null, null, null, latitudes[index], longitudes[index]);
+      this.index = index;
+    }
+
+    @Override
+    public boolean isLoaded() {
+      return RepositoryLocationList.this.isLoaded(index);
+    }
+
+    @Override
+    public String getName() {
+      StoreRecord row = rowAt(index);
+      return row != null ? row.getName() : PLACEHOLDER_TEXT;
+    }
+
+    @Override
+    public String getAddress() {
+      StoreRecord row = rowAt(index);
+      return row != null ? row.getDescription() : PLACEHOLDER_TEXT;
+    }
+
+    @Override
+    public String getHours() {
+      StoreRecord row = rowAt(index);
+      return row != null ? row.getHours() : PLACEHOLDER_TEXT;
+    }
+
+    @Override
+    public String getPhoneNum() {
+      StoreRecord row = rowAt(index);
+      return row != null ? row.getPhone() : PLACEHOLDER_TEXT;
+    }
+  }
+}
@@ -0,0 +1,144 @@
+package com.mapbox.storelocator.model;
+
+import com.mapbox.storelocator.cluster.StoreClusterer;
+import com.mapbox.storelocator.distance.DistanceEstimator;
+import com.mapbox.storelocator.index.KdTreeIndex;
+import com.mapbox.storelocator.index.SpatialIndex;
+
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Everything built from the catalog of store locations, ready to be shown on the map and in the cards.
+ * Locations are identified by their feature index, their position in the catalog.
+ */
+public class StoreCatalog {
+
+  private final List<IndividualLocation> locations;
+  private final StoreRegistry storeRegistry;
+  private final double[] latitudes;
+  private final double[] longitudes;
+  private final SpatialIndex spatialIndex;
+  private final StoreClusterer storeClusterer;
+  private final DistanceEstimator distanceEstimator;
+  private final BitSet removedStores;
+
+  /**
+   * Indexes the coordinates of the locations for nearest-location and viewport queries, clusters
+   * them for display at low zoom levels, and prepares them for estimating distances.
+   */
+  public StoreCatalog(List<IndividualLocation> locations, StoreRegistry storeRegistry,
+                      double[] latitudes, double[] longitudes) {
+    this(locations, storeRegistry, latitudes, longitudes, KdTreeIndex.build(latitudes, longitudes));
+  }
+
+  /**
+   * Uses a spatial index which already holds the locations, e.g. the one of the store repository
+   * they were read from, rather than building one.
+   */
+  public StoreCatalog(List<IndividualLocation> locations, StoreRegistry storeRegistry,
+                      double[] latitudes, double[] longitudes, SpatialIndex spatialIndex) {
+    this(locations, storeRegistry, latitudes, longitudes, spatialIndex, StoreClusterer.build(latitudes, longitudes),
+      new DistanceEstimator(latitudes, longitudes), new BitSet());
+  }
+
+  private StoreCatalog(List<IndividualLocation> locations, StoreRegistry storeRegistry, double[] latitudes,
+                       double[] longitudes, SpatialIndex spatialIndex, StoreClusterer storeClusterer,
+                       DistanceEstimator distanceEstimator, BitSet removedStores) {
+    if (locations.size() != latitudes.length || latitudes.length != longitudes.length) {
+      throw new IllegalArgumentException("Every location needs exactly one latitude and longitude.");
+    }
+    this.locations = locations;
+    this.storeRegistry = storeRegistry;
+    this.latitudes = latitudes;
+    this.longitudes = longitudes;
+    this.spatialIndex = spatialIndex;
+    this.storeClusterer = storeClusterer;
+    this.distanceEstimator = distanceEstimator;
+    this.removedStores = removedStores;
+  }
+
+  /**
+   * The catalog once stores have been added, updated or removed, e.g. by a sync. Stores keep their
+   * feature index, and removed stores keep theirs until the catalog is loaded again. The clusters
+   * and distance estimates are only built again if stores were added or moved.
+   *
+   * @param removedStores the feature indices of the stores which have been removed
+   */
+  public StoreCatalog withChanges(List<IndividualLocation> locations, StoreRegistry storeRegistry,
+                                  double[] latitudes, double[] longitudes, SpatialIndex spatialIndex,
+                                  BitSet removedStores) {
+    boolean moved = latitudes.length != this.latitudes.length;
+    for (int x = 0; x < this.latitudes.length && !moved; x++) {
+      moved = latitudes[x] != this.latitudes[x] || longitudes[x] != this.longitudes[x];
+    }
+    return new StoreCatalog(locations, storeRegistry, latitudes, longitudes, spatialIndex,
+      moved ? StoreClusterer.build(latitudes, longitudes) : storeClusterer,
+      moved ? new DistanceEstimator(latitudes, longitudes) : distanceEstimator, removedStores);
+  }
+
+  public int size() {
+    return locations.size();
+  }
+
+  public List<IndividualLocation> getLocations() {
+    return locations;
+  }
+
+  /**
+   * Reads the details of locations which aren't {@link IndividualLocation#isLoaded() loaded} yet,
+   * e.g. the cards about to be shown. This may block on storage, so it should run on a background
+   * thread.
+   */
+  public void prefetchLocations(int[] featureIndices) throws IOException {
+    if (locations instanceof RepositoryLocationList) {
+      ((RepositoryLocationList) locations).prefetch(featureIndices);
+    }
+  }
+
+  /**
+   * @return whether the store has been removed since the catalog was loaded. Removed stores are
+   * still in the clusters and the distance estimates, so they must be filtered out when shown.
+   */
+  public boolean isRemoved(int featureIndex) {
+    return removedStores.get(featureIndex);
+  }
+
+  /**
+   * @return the feature indices of the stores which haven't been removed, or null if none have been
+   */
+  public BitSet liveStores() {
+    if (removedStores.isEmpty()) {
+      return null;
+    }
+    BitSet liveStores = new BitSet(locations.size());
+    liveStores.set(0, locations.size());
+    liveStores.andNot(removedStores);
+    return liveStores;
+  }
+
+  public StoreRegistry getStoreRegistry() {
+    return storeRegistry;
+  }
+
+  public double latitude(int featureIndex) {
+    return latitudes[featureIndex];
+  }
+
+  public double longitude(int featureIndex) {
+    return longitudes[featureIndex];
+  }
+
+  public SpatialIndex getSpatialIndex() {
+    return spatialIndex;
+  }
+
+  public StoreClusterer getStoreClusterer() {
+    return storeClusterer;
+  }
+
+  public DistanceEstimator getDistanceEstimator() {
+    return distanceEstimator;
+  }
+}
@@ -0,0 +1,126 @@
+package com.mapbox.storelocator.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Constant time lookups between a store's stable id, its feature index in the catalog and the
+ * position of its card in the list of cards.
+ */
+public final class StoreRegistry {
+
+  public static final int NOT_FOUND = -1;
+  private static final String GENERATED_ID_PREFIX = "store-";
+
+  private final Map<String, Integer> featureIndexById = new HashMap<>();
+  private final List<String> ids = new ArrayList<>();
+  private int[] featureIndexByCardPosition;
+  private int[] cardPositionByFeatureIndex;
+
+  /**
+   * Registers the next store of the catalog. Stores without an id, or whose id is already taken,
+   * get an id generated from their feature index so that every store stays addressable.
+   *
+   * @param preferredId the id found in the catalog, may be null
+   * @return the unique id the store was registered with
+   */
+  public String add(String preferredId) {
+    int featureIndex = ids.size();
+    String id = preferredId;
+    if (id == null || id.isEmpty() || featureIndexById.containsKey(id)) {
+      id = GENERATED_ID_PREFIX + featureIndex;
+      while (featureIndexById.containsKey(id)) {
+        id = "_" + id;
+      }
+    }
+    featureIndexById.put(id, featureIndex);
+    ids.add(id);
+    featureIndexByCardPosition = null;
+    cardPositionByFeatureIndex = null;
+    return id;
+  }
+
+  /**
+   * @return a registry of the same stores at the same feature indices, e.g. for stores added by a
+   * sync, without the card order. The registry must not be changing while it's copied.
+   */
+  public StoreRegistry copy() {
+    StoreRegistry copy = new StoreRegistry();
+    copy.featureIndexById.putAll(featureIndexById);
+    copy.ids.addAll(ids);
+    return copy;
+  }
+
+  public int size() {
+    return ids.size();
+  }
+
+  public String idAt(int featureIndex) {
+    return ids.get(featureIndex);
+  }
+
+  /**
+   * @return the feature index of the store, or {@link #NOT_FOUND} if no store has the id
+   */
+  public int featureIndexOf(String id) {
+    if (id == null) {
+      return NOT_FOUND;
+    }
+    Integer featureIndex = featureIndexById.get(id);
+    return featureIndex != null ? featureIndex : NOT_FOUND;
+  }
+
+  /**
+   * Orders the cards. Until an order is set each store's card position equals its feature index.
+   *
+   * @param featureIndices the feature index shown at each card position. Stores which are left out
+   *                       have no card.
+   */
+  public void setCardOrder(int[] featureIndices) {
+    int[] cardPositions = new int[ids.size()];
+    for (int x = 0; x < cardPositions.length; x++) {
+      cardPositions[x] = NOT_FOUND;
+    }
+    for (int position = 0; position < featureIndices.length; position++) {
+      cardPositions[featureIndices[position]] = position;
+    }
+    featureIndexByCardPosition = featureIndices.clone();
+    cardPositionByFeatureIndex = cardPositions;
+  }
+
+  /**
+   * Orders the cards as another registry of the same stores at the same feature indices does, e.g.
+   * the registry this one was {@link #copy() copied} from
+   */
+  public void setCardOrder(StoreRegistry storeRegistry) {
+    if (storeRegistry.featureIndexByCardPosition != null) {
+      setCardOrder(storeRegistry.featureIndexByCardPosition);
+    } else {
+      featureIndexByCardPosition = null;
+      cardPositionByFeatureIndex = null;
+    }
+  }
+
+  /**
+   * @return the card position of the store, or {@link #NOT_FOUND} if the store has no card
+   */
+  public int cardPositionOf(int featureIndex) {
+    if (featureIndex < 0 || featureIndex >= ids.size()) {
+      return NOT_FOUND;
+    }
+    return cardPositionByFeatureIndex != null ? cardPositionByFeatureIndex[featureIndex] : featureIndex;
+  }
+
+  /**
+   * @return the feature index of the store shown by a card, or {@link #NOT_FOUND} for an unknown card
+   */
+  public int featureIndexAt(int cardPosition) {
+    int cardCount = featureIndexByCardPosition != null ? featureIndexByCardPosition.length : ids.size();
+    if (cardPosition < 0 || cardPosition >= cardCount) {
+      return NOT_FOUND;
+    }
+    return featureIndexByCardPosition != null ? featureIndexByCardPosition[cardPosition] : cardPosition;
+  }
+}
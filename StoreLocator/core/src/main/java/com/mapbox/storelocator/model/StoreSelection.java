@@ -0,0 +1,69 @@
+package com.mapbox.storelocator.model;
+
+/**
+ * The location selected on the map or in the cards, if any. Selecting the already selected
+ * location deselects it.
+ */
+public final class StoreSelection {
+
+  private final StoreRegistry storeRegistry;
+  private int selectedFeatureIndex = StoreRegistry.NOT_FOUND;
+
+  public StoreSelection(StoreRegistry storeRegistry) {
+    this.storeRegistry = storeRegistry;
+  }
+
+  /**
+   * Keeps a location selected, e.g. once the catalog has been updated by a sync
+   *
+   * @param selectedFeatureIndex the location's feature index, or {@link StoreRegistry#NOT_FOUND}
+   */
+  public StoreSelection(StoreRegistry storeRegistry, int selectedFeatureIndex) {
+    this.storeRegistry = storeRegistry;
+    this.selectedFeatureIndex = selectedFeatureIndex;
+  }
+
+  /**
+   * Toggles the location of a tapped map icon.
+   *
+   * @return the location's feature index, or {@link StoreRegistry#NOT_FOUND} if no store has the id
+   */
+  public int toggleStore(String storeId) {
+    return toggle(storeRegistry.featureIndexOf(storeId));
+  }
+
+  /**
+   * Toggles the location of a tapped card.
+   *
+   * @return the location's feature index, or {@link StoreRegistry#NOT_FOUND} if no card is at the position
+   */
+  public int toggleCard(int cardPosition) {
+    return toggle(storeRegistry.featureIndexAt(cardPosition));
+  }
+
+  /**
+   * @return the feature index of the selected location, or {@link StoreRegistry#NOT_FOUND}
+   */
+  public int getSelectedFeatureIndex() {
+    return selectedFeatureIndex;
+  }
+
+  /**
+   * @return the card position of the selected location, or {@link StoreRegistry#NOT_FOUND} if
+   * nothing is selected or the location has no card
+   */
+  public int getSelectedCardPosition() {
+    if (selectedFeatureIndex == StoreRegistry.NOT_FOUND) {
+      return StoreRegistry.NOT_FOUND;
+    }
+    return storeRegistry.cardPositionOf(selectedFeatureIndex);
+  }
+
+  private int toggle(int featureIndex) {
+    if (featureIndex == StoreRegistry.NOT_FOUND) {
+      return StoreRegistry.NOT_FOUND;
+    }
+    selectedFeatureIndex = selectedFeatureIndex == featureIndex ? StoreRegistry.NOT_FOUND : featureIndex;
+    return featureIndex;
+  }
+}
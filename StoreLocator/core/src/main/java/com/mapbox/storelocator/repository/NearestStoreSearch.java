@@ -0,0 +1,118 @@
+package com.mapbox.storelocator.repository;
+
+import com.mapbox.storelocator.geo.GeoMath;
+import com.mapbox.storelocator.sync.StoreRecord;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Answers nearest-store queries with the box queries of a {@link StoreRepository}: the box around a
+ * circle is queried, growing the circle until it holds enough stores. Only the stores near the
+ * coordinate are read, however many the repository holds.
+ * <p>
+ * Each box query reads a bounded number of rows. A box holding more rows than that is shrunk again,
+ * halfway between the largest circle with too few stores and the smallest box with too many rows.
+ */
+public final class NearestStoreSearch {
+
+  public static final int MIN_ROW_LIMIT = 256;
+  private static final int ROW_LIMIT_PER_STORE = 8;
+  private static final double INITIAL_RADIUS_IN_METERS = 1000;
+  private static final double MIN_RADIUS_IN_METERS = 1;
+  private static final double RADIUS_GROWTH_FACTOR = 4;
+  private static final double RADIUS_PRECISION = 1.01;
+  private static final double HALF_EARTH_CIRCUMFERENCE_IN_METERS = Math.PI * GeoMath.EARTH_RADIUS_IN_METERS;
+
+  private NearestStoreSearch() {
+    // Utility class
+  }
+
+  /**
+   * @return up to {@code count} stores, nearest first. Fewer are returned if there are fewer
+   * stores, or if so many stores are crowded around the coordinate that no box query holds enough
+   * of them within the row limit.
+   */
+  public static List<StoreRecord> nearest(StoreRepository repository, double latitude, double longitude,
+                                          int count) throws IOException {
+    if (count <= 0) {
+      return Collections.emptyList();
+    }
+    int rowLimit = Math.max(MIN_ROW_LIMIT, count * ROW_LIMIT_PER_STORE);
+
+    // The largest radius known to hold too few stores, with those stores, and the smallest radius
+    // known to hold too many rows
+    double tooFewRadius = 0;
+    List<StoreRecord> tooFewStores = Collections.emptyList();
+    double tooManyRadius = Double.POSITIVE_INFINITY;
+
+    double radiusInMeters = INITIAL_RADIUS_IN_METERS;
+    while (true) {
+      double[] bounds = GeoMath.boundsAround(latitude, longitude, radiusInMeters);
+      List<StoreRecord> candidates = repository.withinBounds(bounds[0], bounds[1], bounds[2], bounds[3],
+        rowLimit + 1);
+      List<StoreRecord> withinRadius = nearestFirst(candidates, latitude, longitude, radiusInMeters);
+
+      if (candidates.size() <= rowLimit) {
+        if (withinRadius.size() >= count || radiusInMeters >= HALF_EARTH_CIRCUMFERENCE_IN_METERS) {
+          return withinRadius.subList(0, Math.min(count, withinRadius.size()));
+        }
+        tooFewRadius = radiusInMeters;
+        tooFewStores = withinRadius;
+      } else {
+        if (radiusInMeters <= MIN_RADIUS_IN_METERS) {
+          // The stores read are all about as near as each other
+          return withinRadius.subList(0, Math.min(count, withinRadius.size()));
+        }
+        tooManyRadius = radiusInMeters;
+      }
+
+      if (tooManyRadius == Double.POSITIVE_INFINITY) {
+        radiusInMeters *= RADIUS_GROWTH_FACTOR;
+      } else if (tooFewRadius == 0) {
+        radiusInMeters = Math.max(MIN_RADIUS_IN_METERS, radiusInMeters / RADIUS_GROWTH_FACTOR);
+      } else if (tooManyRadius / tooFewRadius > RADIUS_PRECISION) {
+        radiusInMeters = Math.sqrt(tooFewRadius * tooManyRadius);
+      } else {
+        return tooFewStores;
+      }
+    }
+  }
+
+  /**
+   * @return the candidates within the radius, nearest first. The corners of the box are further
+   * away than the radius, so stores there may not be the nearest.
+   */
+  private static List<StoreRecord> nearestFirst(List<StoreRecord> candidates, double latitude,
+                                                double longitude, double radiusInMeters) {
+    final List<StoreRecord> withinRadius = new ArrayList<>();
+    final List<Double> distances = new ArrayList<>();
+    for (StoreRecord candidate : candidates) {
+      double distance = GeoMath.haversineMeters(latitude, longitude, candidate.getLatitude(),
+        candidate.getLongitude());
+      if (distance <= radiusInMeters) {
+        withinRadius.add(candidate);
+        distances.add(distance);
+      }
+    }
+
+    List<Integer> order = new ArrayList<>(withinRadius.size());
+    for (int x = 0; x < withinRadius.size(); x++) {
+      order.add(x);
+    }
+    Collections.sort(order, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer left, Integer right) {
+        return Double.compare(distances.get(left), distances.get(right));
+      }
+    });
+    List<StoreRecord> nearest = new ArrayList<>(order.size());
+    for (int index : order) {
+      nearest.add(withinRadius.get(index));
+    }
+    return nearest;
+  }
+}
@@ -0,0 +1,150 @@
+package com.mapbox.storelocator.repository;
+
+import com.mapbox.storelocator.catalog.StoreCatalogReader;
+import com.mapbox.storelocator.hours.OpeningHoursIndex;
+import com.mapbox.storelocator.model.RepositoryLocationList;
+import com.mapbox.storelocator.model.StoreCatalog;
+import com.mapbox.storelocator.model.StoreRegistry;
+import com.mapbox.storelocator.search.StoreSearchIndex;
+import com.mapbox.storelocator.sync.CatalogDelta;
+import com.mapbox.storelocator.sync.StoreRecord;
+
+import java.io.IOException;
+import java.util.BitSet;
+
+/**
+ * A catalog read from a {@link StoreRepository} and its indexes, brought up to date with a sync.
+ * <p>
+ * Only the stores of the delta are indexed again. Every store keeps its feature index, stores added
+ * get the next ones, and removed stores keep theirs but are {@link StoreCatalog#isRemoved(int)
+ * removed}, so that state held by feature index, such as travel distances, carries over. The
+ * catalog's spatial index queries the repository, which the sync has already updated.
+ */
+public final class RepositoryCatalogUpdate {
+
+  private final StoreCatalog storeCatalog;
+  private final OpeningHoursIndex openingHoursIndex;
+  private final StoreSearchIndex storeSearchIndex;
+  private final BitSet changedStores;
+
+  private RepositoryCatalogUpdate(StoreCatalog storeCatalog, OpeningHoursIndex openingHoursIndex,
+                                  StoreSearchIndex storeSearchIndex, BitSet changedStores) {
+    this.storeCatalog = storeCatalog;
+    this.openingHoursIndex = openingHoursIndex;
+    this.storeSearchIndex = storeSearchIndex;
+    this.changedStores = changedStores;
+  }
+
+  /**
+   * Applies the changes of a delta which the repository has already applied to a catalog read from
+   * it. Neither the repository nor the previous catalog and indexes are changed.
+   *
+   * @param storeCatalog the catalog read with {@link StoreCatalogReader#readRepository(StoreRepository)}
+   * @param delta        a delta which isn't {@link CatalogDelta#isFull() full}
+   */
+  public static RepositoryCatalogUpdate apply(StoreRepository repository, StoreCatalog storeCatalog,
+                                              OpeningHoursIndex openingHoursIndex,
+                                              StoreSearchIndex storeSearchIndex, CatalogDelta delta) {
+    if (delta.isFull() || !(storeCatalog.getLocations() instanceof RepositoryLocationList)) {
+      throw new IllegalArgumentException("Only changes to a catalog read from the repository can be applied.");
+    }
+    StoreRegistry storeRegistry = storeCatalog.getStoreRegistry().copy();
+    int previousSize = storeCatalog.size();
+    BitSet removedStores = new BitSet();
+    for (int featureIndex = 0; featureIndex < previousSize; featureIndex++) {
+      if (storeCatalog.isRemoved(featureIndex)) {
+        removedStores.set(featureIndex);
+      }
+    }
+
+    // Stores are deleted before stores are upserted, as in the repository
+    BitSet changedStores = new BitSet();
+    for (String id : delta.getDeletedIds()) {
+      int featureIndex = storeRegistry.featureIndexOf(id);
+      if (featureIndex != StoreRegistry.NOT_FOUND) {
+        changedStores.set(featureIndex);
+        removedStores.set(featureIndex);
+      }
+    }
+    StoreRecord[] upserts = new StoreRecord[previousSize + delta.getUpserts().size()];
+    for (StoreRecord record : delta.getUpserts()) {
+      int featureIndex = storeRegistry.featureIndexOf(record.getId());
+      if (featureIndex == StoreRegistry.NOT_FOUND) {
+        storeRegistry.add(record.getId());
+        featureIndex = storeRegistry.size() - 1;
+      }
+      changedStores.set(featureIndex);
+      removedStores.clear(featureIndex);
+      upserts[featureIndex] = record;
+    }
+
+    int size = storeRegistry.size();
+    double[] latitudes = new double[size];
+    double[] longitudes = new double[size];
+    for (int featureIndex = 0; featureIndex < previousSize; featureIndex++) {
+      latitudes[featureIndex] = storeCatalog.latitude(featureIndex);
+      longitudes[featureIndex] = storeCatalog.longitude(featureIndex);
+    }
+    int[] changedFeatureIndices = new int[changedStores.cardinality()];
+    String[] changedHours = new String[changedFeatureIndices.length];
+    int changedCount = 0;
+    for (int featureIndex = changedStores.nextSetBit(0); featureIndex >= 0;
+         featureIndex = changedStores.nextSetBit(featureIndex + 1)) {
+      StoreRecord record = upserts[featureIndex];
+      if (record != null) {
+        latitudes[featureIndex] = record.getLatitude();
+        longitudes[featureIndex] = record.getLongitude();
+      }
+      changedFeatureIndices[changedCount] = featureIndex;
+      changedHours[changedCount++] = record != null ? record.getHours() : null;
+    }
+
+    RepositoryLocationList locations = new RepositoryLocationList(
+      (RepositoryLocationList) storeCatalog.getLocations(), storeRegistry, latitudes, longitudes, changedStores);
+    StoreCatalog updatedCatalog = storeCatalog.withChanges(locations, storeRegistry, latitudes, longitudes,
+      new RepositorySpatialIndex(repository, storeRegistry), removedStores);
+
+    // Removed stores have no words and are never open
+    StoreSearchIndex.Builder search = storeSearchIndex.toBuilder(updatedCatalog, changedStores);
+    for (int featureIndex : changedFeatureIndices) {
+      StoreRecord record = upserts[featureIndex];
+      if (record != null) {
+        search.add(featureIndex, record.getName(), record.getDescription(), record.getPhone());
+      }
+    }
+    return new RepositoryCatalogUpdate(updatedCatalog,
+      openingHoursIndex.withHours(size, changedFeatureIndices, changedHours), search.build(),
+      changedStores);
+  }
+
+  /**
+   * Reads the catalog and builds its indexes again, e.g. after a full sync replaced every store.
+   * Feature indices don't carry over.
+   */
+  public static RepositoryCatalogUpdate reload(StoreRepository repository) throws IOException {
+    StoreCatalog storeCatalog = StoreCatalogReader.readRepository(repository);
+    RepositoryIndexes indexes = RepositoryIndexes.build(repository, storeCatalog);
+    return new RepositoryCatalogUpdate(storeCatalog, indexes.getOpeningHoursIndex(),
+      indexes.getStoreSearchIndex(), null);
+  }
+
+  public StoreCatalog getStoreCatalog() {
+    return storeCatalog;
+  }
+
+  public OpeningHoursIndex getOpeningHoursIndex() {
+    return openingHoursIndex;
+  }
+
+  public StoreSearchIndex getStoreSearchIndex() {
+    return storeSearchIndex;
+  }
+
+  /**
+   * @return the feature indices of the stores which were added, updated or removed, or null if the
+   * catalog was {@link #reload(StoreRepository) reloaded} and every store may have changed
+   */
+  public BitSet getChangedStores() {
+    return changedStores;
+  }
+}
@@ -0,0 +1,60 @@
+package com.mapbox.storelocator.repository;
+
+import com.mapbox.storelocator.hours.OpeningHoursIndex;
+import com.mapbox.storelocator.model.StoreCatalog;
+import com.mapbox.storelocator.model.StoreRegistry;
+import com.mapbox.storelocator.search.StoreSearchIndex;
+
+import java.io.IOException;
+
+/**
+ * The opening hours and search indexes of a catalog read from a {@link StoreRepository}, built in a
+ * single pass over the repository's stores. The stores' IndividualLocations aren't created, so
+ * building doesn't read the repository one store at a time or keep every store in memory.
+ */
+public final class RepositoryIndexes {
+
+  private final OpeningHoursIndex openingHoursIndex;
+  private final StoreSearchIndex storeSearchIndex;
+
+  private RepositoryIndexes(OpeningHoursIndex openingHoursIndex, StoreSearchIndex storeSearchIndex) {
+    this.openingHoursIndex = openingHoursIndex;
+    this.storeSearchIndex = storeSearchIndex;
+  }
+
+  /**
+   * Builds both indexes. Building reads every store, so it should run on a background thread.
+   *
+   * @param storeCatalog the catalog read from the repository, whose stores are indexed
+   */
+  public static RepositoryIndexes build(StoreRepository repository, StoreCatalog storeCatalog)
+    throws IOException {
+    final StoreRegistry storeRegistry = storeCatalog.getStoreRegistry();
+    final OpeningHoursIndex.Builder openingHours = new OpeningHoursIndex.Builder(storeCatalog.size());
+    final StoreSearchIndex.Builder search = new StoreSearchIndex.Builder(storeCatalog);
+    repository.readText(new StoreRepository.TextListener() {
+      private int lastFeatureIndex = -1;
+
+      @Override
+      public void onText(String id, String name, String description, String hours, String phone) {
+        // Stores added by a sync since the catalog was read aren't in the catalog until the next load
+        int featureIndex = storeRegistry.featureIndexOf(id);
+        if (featureIndex <= lastFeatureIndex) {
+          return;
+        }
+        lastFeatureIndex = featureIndex;
+        openingHours.add(featureIndex, hours);
+        search.add(featureIndex, name, description, phone);
+      }
+    });
+    return new RepositoryIndexes(openingHours.build(), search.build());
+  }
+
+  public OpeningHoursIndex getOpeningHoursIndex() {
+    return openingHoursIndex;
+  }
+
+  public StoreSearchIndex getStoreSearchIndex() {
+    return storeSearchIndex;
+  }
+}
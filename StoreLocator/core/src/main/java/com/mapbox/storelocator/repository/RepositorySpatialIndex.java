@@ -0,0 +1,47 @@
+package com.mapbox.storelocator.repository;
+
+import com.mapbox.storelocator.index.IntArray;
+import com.mapbox.storelocator.index.SpatialIndex;
+import com.mapbox.storelocator.model.StoreRegistry;
+import com.mapbox.storelocator.sync.StoreRecord;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * {@link SpatialIndex} answered by the spatial queries of a {@link StoreRepository}, so that a
+ * catalog read from the repository doesn't build an index of its own. The stores found are resolved
+ * to their feature indices with the catalog's registry.
+ */
+public final class RepositorySpatialIndex implements SpatialIndex {
+
+  private final StoreRepository repository;
+  private final StoreRegistry storeRegistry;
+
+  public RepositorySpatialIndex(StoreRepository repository, StoreRegistry storeRegistry) {
+    this.repository = repository;
+    this.storeRegistry = storeRegistry;
+  }
+
+  @Override
+  public int[] nearest(double latitude, double longitude, int count) throws IOException {
+    return featureIndicesOf(repository.nearest(latitude, longitude, count));
+  }
+
+  @Override
+  public int[] withinBounds(double south, double west, double north, double east) throws IOException {
+    return featureIndicesOf(repository.withinBounds(south, west, north, east, 0));
+  }
+
+  private int[] featureIndicesOf(List<StoreRecord> records) {
+    IntArray featureIndices = new IntArray(records.size());
+    for (StoreRecord record : records) {
+      // Stores added by a sync since the catalog was read aren't in the catalog yet
+      int featureIndex = storeRegistry.featureIndexOf(record.getId());
+      if (featureIndex != StoreRegistry.NOT_FOUND) {
+        featureIndices.add(featureIndex);
+      }
+    }
+    return featureIndices.toArray();
+  }
+}
@@ -0,0 +1,57 @@
+package com.mapbox.storelocator.repository;
+
+import com.mapbox.storelocator.sync.StoreDatabase;
+import com.mapbox.storelocator.sync.StoreRecord;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Persistent store database which answers lookups and spatial queries itself, so that callers only
+ * hold the stores they show in memory. Queries block, so callers on a UI thread should query on a
+ * background thread.
+ */
+public interface StoreRepository extends StoreDatabase {
+
+  int count() throws IOException;
+
+  /**
+   * @return the store with an id, or null if there is none
+   */
+  StoreRecord get(String id) throws IOException;
+
+  /**
+   * Reads the id and coordinates of every store, in the order of {@link #readAll()}, without
+   * reading the rest of the stores.
+   */
+  void readLocations(LocationListener listener) throws IOException;
+
+  /**
+   * Reads the text of every store, in the order of {@link #readAll()}, one store at a time rather
+   * than holding them all in memory.
+   */
+  void readText(TextListener listener) throws IOException;
+
+  /**
+   * Finds the stores inside a latitude/longitude box, in no particular order.
+   *
+   * @param limit the maximum number of stores to return, or 0 for no limit
+   */
+  List<StoreRecord> withinBounds(double south, double west, double north, double east, int limit)
+    throws IOException;
+
+  /**
+   * Finds the stores closest to a coordinate.
+   *
+   * @return up to {@code count} stores, nearest first
+   */
+  List<StoreRecord> nearest(double latitude, double longitude, int count) throws IOException;
+
+  interface LocationListener {
+    void onLocation(String id, double latitude, double longitude);
+  }
+
+  interface TextListener {
+    void onText(String id, String name, String description, String hours, String phone);
+  }
+}
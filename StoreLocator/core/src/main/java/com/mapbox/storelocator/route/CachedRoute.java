@@ -0,0 +1,36 @@
+package com.mapbox.storelocator.route;
+
+/**
+ * A route or distance between two coordinates, as stored in the {@link RouteCache}
+ */
+public final class CachedRoute {
+
+  private final String geometry;
+  private final double distanceInMeters;
+  private final long createdAtMillis;
+
+  public CachedRoute(String geometry, double distanceInMeters, long createdAtMillis) {
+    this.geometry = geometry;
+    this.distanceInMeters = distanceInMeters;
+    this.createdAtMillis = createdAtMillis;
+  }
+
+  /**
+   * @return the route's encoded polyline, or null if only the distance is known
+   */
+  public String getGeometry() {
+    return geometry;
+  }
+
+  public boolean hasGeometry() {
+    return geometry != null;
+  }
+
+  public double getDistanceInMeters() {
+    return distanceInMeters;
+  }
+
+  public long getCreatedAtMillis() {
+    return createdAtMillis;
+  }
+}
@@ -0,0 +1,134 @@
+package com.mapbox.storelocator.route;
+
+import com.mapbox.geojson.Point;
+
+import java.util.concurrent.Executor;
+
+/**
+ * {@link RouteProvider} which answers repeated requests for the same origin and destination from a
+ * {@link RouteCache}, and only asks the wrapped provider for routes that aren't cached.
+ * <p>
+ * Cache reads and writes happen on the background executor, the callback is invoked on the callback
+ * executor, typically the main thread.
+ */
+public class CachingRouteProvider implements RouteProvider {
+
+  private final RouteProvider routeProvider;
+  private final RouteCache routeCache;
+  private final String profile;
+  private final Executor backgroundExecutor;
+  private final Executor callbackExecutor;
+
+  /**
+   * @param profile            the routing profile of the wrapped provider, part of the cache key
+   * @param backgroundExecutor runs the cache reads and writes, and is shut down by its owner
+   */
+  public CachingRouteProvider(RouteProvider routeProvider, RouteCache routeCache, String profile,
+                              Executor backgroundExecutor, Executor callbackExecutor) {
+    this.routeProvider = routeProvider;
+    this.routeCache = routeCache;
+    this.profile = profile;
+    this.backgroundExecutor = backgroundExecutor;
+    this.callbackExecutor = callbackExecutor;
+  }
+
+  @Override
+  public Request getRoute(final Point origin, final Point destination, Callback callback) {
+    final String key = RouteCache.key(origin.latitude(), origin.longitude(),
+      destination.latitude(), destination.longitude(), profile);
+    final CachingRequest request = new CachingRequest(callback);
+    backgroundExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        if (request.isCancelled()) {
+          return;
+        }
+        CachedRoute cachedRoute = routeCache.getRoute(key);
+        if (cachedRoute != null) {
+          deliverRoute(request, cachedRoute.getGeometry(), cachedRoute.getDistanceInMeters());
+        } else {
+          request.setFetch(fetchRoute(key, origin, destination, request));
+        }
+      }
+    });
+    return request;
+  }
+
+  private Request fetchRoute(final String key, Point origin, Point destination, final CachingRequest request) {
+    return routeProvider.getRoute(origin, destination, new Callback() {
+      @Override
+      public void onRoute(final String geometry, final double distanceInMeters) {
+        backgroundExecutor.execute(new Runnable() {
+          @Override
+          public void run() {
+            routeCache.putRoute(key, geometry, distanceInMeters);
+          }
+        });
+        deliverRoute(request, geometry, distanceInMeters);
+      }
+
+      @Override
+      public void onFailure(final Throwable throwable) {
+        callbackExecutor.execute(new Runnable() {
+          @Override
+          public void run() {
+            if (!request.isCancelled()) {
+              request.callback.onFailure(throwable);
+            }
+          }
+        });
+      }
+    });
+  }
+
+  private void deliverRoute(final CachingRequest request, final String geometry, final double distanceInMeters) {
+    callbackExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        if (!request.isCancelled()) {
+          request.callback.onRoute(geometry, distanceInMeters);
+        }
+      }
+    });
+  }
+
+  /**
+   * A request which is answered from the cache, or by a fetch from the wrapped provider
+   */
+  private static final class CachingRequest implements Request {
+    final Callback callback;
+    private Request fetch;
+    private boolean cancelled;
+
+    CachingRequest(Callback callback) {
+      this.callback = callback;
+    }
+
+    synchronized boolean isCancelled() {
+      return cancelled;
+    }
+
+    void setFetch(Request fetch) {
+      boolean cancelFetch;
+      synchronized (this) {
+        this.fetch = fetch;
+        cancelFetch = cancelled;
+      }
+      if (cancelFetch) {
+        fetch.cancel();
+      }
+    }
+
+    @Override
+    public void cancel() {
+      Request currentFetch;
+      synchronized (this) {
+        cancelled = true;
+        currentFetch = fetch;
+      }
+      if (currentFetch != null) {
+        currentFetch.cancel();
+      }
+    }
+  }
+}
@@ -0,0 +1,306 @@
+package com.mapbox.storelocator.route;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * {@link RouteCache.DistanceStore} which keeps all distances from one origin in a single file, so
+ * that the distances to every store of a large catalog don't need a file each. Writes are appended
+ * to the file, which is compacted once it holds mostly overwritten distances.
+ * <p>
+ * The distances from the origin that was read or written last are kept in memory, in sorted
+ * arrays of 24 bytes per destination. Only the files of the most recently used origins are kept.
+ */
+public class DiskDistanceStore implements RouteCache.DistanceStore {
+
+  public static final int DEFAULT_MAX_ORIGINS = 4;
+
+  private static final int FORMAT_VERSION = 1;
+  private static final String FILE_SUFFIX = ".distances";
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private final File directory;
+  private final int maxOrigins;
+  private String loadedOrigin;
+  private DistanceTable loadedDistances;
+  private int loadedRecordCount;
+
+  // Whether the origin's file holds its distances, intact, so that writes can be appended to it
+  private boolean loadedFileIsAppendable;
+
+  public DiskDistanceStore(File directory) {
+    this(directory, DEFAULT_MAX_ORIGINS);
+  }
+
+  public DiskDistanceStore(File directory, int maxOrigins) {
+    this.directory = directory;
+    this.maxOrigins = maxOrigins;
+  }
+
+  @Override
+  public synchronized void read(String origin, long[] destinations, double[] distancesInMeters,
+                                long[] createdAtMillis) throws IOException {
+    load(origin).read(destinations, distancesInMeters, createdAtMillis);
+  }
+
+  @Override
+  public synchronized void write(String origin, long[] destinations, double[] distancesInMeters,
+                                 long createdAtMillis) throws IOException {
+    DistanceTable distances = load(origin);
+    for (int x = 0; x < destinations.length; x++) {
+      distances.put(destinations[x], distancesInMeters[x], createdAtMillis);
+    }
+
+    File file = fileFor(origin);
+    if (!loadedFileIsAppendable || loadedRecordCount + destinations.length > 2 * distances.size()) {
+      // Start a new file, or rewrite the file without the overwritten distances
+      boolean isNewFile = !file.exists();
+      if (!directory.isDirectory() && !directory.mkdirs()) {
+        throw new IOException("Unable to create " + directory);
+      }
+      writeFile(file, origin, distances);
+      loadedRecordCount = distances.size();
+      loadedFileIsAppendable = true;
+      if (isNewFile) {
+        trim();
+      }
+      return;
+    }
+    DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+    try {
+      for (int x = 0; x < destinations.length; x++) {
+        output.writeLong(destinations[x]);
+        output.writeDouble(distancesInMeters[x]);
+        output.writeLong(createdAtMillis);
+      }
+    } finally {
+      output.close();
+    }
+    loadedRecordCount += destinations.length;
+  }
+
+  /**
+   * @return the distances from the origin, read from its file unless they're already in memory
+   */
+  private DistanceTable load(String origin) throws IOException {
+    if (origin.equals(loadedOrigin)) {
+      return loadedDistances;
+    }
+    loadedOrigin = null;
+    loadedDistances = new DistanceTable();
+    loadedRecordCount = 0;
+    loadedFileIsAppendable = false;
+
+    File file = fileFor(origin);
+    DataInputStream input = null;
+    try {
+      input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      // Different origins can share a file name, in which case the file holds the other origin's
+      // distances and is replaced by the next write
+      if (input.readInt() == FORMAT_VERSION && origin.equals(readString(input))) {
+        // Mark the origin as recently used
+        file.setLastModified(System.currentTimeMillis());
+        while (true) {
+          long destination;
+          try {
+            destination = input.readLong();
+          } catch (EOFException endOfFile) {
+            break;
+          }
+          loadedDistances.put(destination, input.readDouble(), input.readLong());
+          loadedRecordCount++;
+        }
+        loadedFileIsAppendable = true;
+      }
+    } catch (FileNotFoundException exception) {
+      // Nothing is cached for this origin yet
+    } catch (EOFException exception) {
+      // The last write was cut short. The distances before it are still good, the file is
+      // rewritten by the next write.
+    } finally {
+      if (input != null) {
+        input.close();
+      }
+    }
+    loadedOrigin = origin;
+    return loadedDistances;
+  }
+
+  private void writeFile(File file, String origin, DistanceTable distances) throws IOException {
+    // Write to a temporary file first so that a crash never leaves a partial file behind
+    File temporaryFile = new File(directory, file.getName() + ".tmp");
+    DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)));
+    try {
+      output.writeInt(FORMAT_VERSION);
+      writeString(output, origin);
+      distances.writeTo(output);
+    } finally {
+      output.close();
+    }
+    if (!temporaryFile.renameTo(file)) {
+      file.delete();
+      if (!temporaryFile.renameTo(file)) {
+        temporaryFile.delete();
+        throw new IOException("Unable to write " + file);
+      }
+    }
+  }
+
+  /**
+   * Deletes the files of the least recently used origins
+   */
+  private void trim() {
+    File[] entries = directory.listFiles(new FilenameFilter() {
+      @Override
+      public boolean accept(File dir, String name) {
+        return name.endsWith(FILE_SUFFIX);
+      }
+    });
+    if (entries == null || entries.length <= maxOrigins) {
+      return;
+    }
+    Arrays.sort(entries, new Comparator<File>() {
+      @Override
+      public int compare(File first, File second) {
+        long firstModified = first.lastModified();
+        long secondModified = second.lastModified();
+        return firstModified < secondModified ? -1 : (firstModified == secondModified ? 0 : 1);
+      }
+    });
+    for (int x = 0; x < entries.length - maxOrigins; x++) {
+      entries[x].delete();
+    }
+  }
+
+  private File fileFor(String origin) {
+    return new File(directory, Integer.toHexString(origin.hashCode()) + FILE_SUFFIX);
+  }
+
+  private static String readString(DataInputStream input) throws IOException {
+    byte[] bytes = new byte[input.readInt()];
+    input.readFully(bytes);
+    return new String(bytes, UTF_8);
+  }
+
+  private static void writeString(DataOutputStream output, String value) throws IOException {
+    byte[] bytes = value.getBytes(UTF_8);
+    output.writeInt(bytes.length);
+    output.write(bytes);
+  }
+
+  /**
+   * Distances by destination, in arrays sorted by destination. New destinations are collected in a
+   * small sorted map first and merged into the arrays once it fills up, so that writing every
+   * distance of a catalog doesn't shift the arrays on each write.
+   */
+  private static final class DistanceTable {
+
+    private static final int MAX_PENDING = 1024;
+
+    private long[] destinations = new long[0];
+    private double[] distances = new double[0];
+    private long[] createdAtMillis = new long[0];
+
+    // Only destinations which aren't in the arrays
+    private final TreeMap<Long, PendingDistance> pending = new TreeMap<>();
+
+    int size() {
+      return destinations.length + pending.size();
+    }
+
+    /**
+     * Fills in the distance and creation time of each destination, NaN and 0 for unknown ones
+     */
+    void read(long[] destinations, double[] distancesInMeters, long[] createdAtMillis) {
+      for (int x = 0; x < destinations.length; x++) {
+        int index = Arrays.binarySearch(this.destinations, destinations[x]);
+        if (index >= 0) {
+          distancesInMeters[x] = distances[index];
+          createdAtMillis[x] = this.createdAtMillis[index];
+          continue;
+        }
+        PendingDistance distance = pending.get(destinations[x]);
+        distancesInMeters[x] = distance != null ? distance.distanceInMeters : Double.NaN;
+        createdAtMillis[x] = distance != null ? distance.createdAtMillis : 0;
+      }
+    }
+
+    void put(long destination, double distanceInMeters, long createdAtMillis) {
+      int index = Arrays.binarySearch(destinations, destination);
+      if (index >= 0) {
+        distances[index] = distanceInMeters;
+        this.createdAtMillis[index] = createdAtMillis;
+        return;
+      }
+      pending.put(destination, new PendingDistance(distanceInMeters, createdAtMillis));
+      if (pending.size() >= MAX_PENDING) {
+        mergePending();
+      }
+    }
+
+    void writeTo(DataOutputStream output) throws IOException {
+      mergePending();
+      for (int x = 0; x < destinations.length; x++) {
+        output.writeLong(destinations[x]);
+        output.writeDouble(distances[x]);
+        output.writeLong(createdAtMillis[x]);
+      }
+    }
+
+    private void mergePending() {
+      if (pending.isEmpty()) {
+        return;
+      }
+      int size = size();
+      long[] mergedDestinations = new long[size];
+      double[] mergedDistances = new double[size];
+      long[] mergedCreatedAtMillis = new long[size];
+      int existing = 0;
+      int merged = 0;
+      for (Map.Entry<Long, PendingDistance> entry : pending.entrySet()) {
+        long destination = entry.getKey();
+        while (existing < destinations.length && destinations[existing] < destination) {
+          mergedDestinations[merged] = destinations[existing];
+          mergedDistances[merged] = distances[existing];
+          mergedCreatedAtMillis[merged++] = createdAtMillis[existing++];
+        }
+        mergedDestinations[merged] = destination;
+        mergedDistances[merged] = entry.getValue().distanceInMeters;
+        mergedCreatedAtMillis[merged++] = entry.getValue().createdAtMillis;
+      }
+      while (existing < destinations.length) {
+        mergedDestinations[merged] = destinations[existing];
+        mergedDistances[merged] = distances[existing];
+        mergedCreatedAtMillis[merged++] = createdAtMillis[existing++];
+      }
+      destinations = mergedDestinations;
+      distances = mergedDistances;
+      createdAtMillis = mergedCreatedAtMillis;
+      pending.clear();
+    }
+  }
+
+  private static final class PendingDistance {
+    final double distanceInMeters;
+    final long createdAtMillis;
+
+    PendingDistance(double distanceInMeters, long createdAtMillis) {
+      this.distanceInMeters = distanceInMeters;
+      this.createdAtMillis = createdAtMillis;
+    }
+  }
+}
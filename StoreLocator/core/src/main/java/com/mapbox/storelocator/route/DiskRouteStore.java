@@ -0,0 +1,170 @@
+package com.mapbox.storelocator.route;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * {@link RouteCache.Store} which keeps one small file per route in a directory. When the directory
+ * holds more than the maximum number of entries, the least recently used files are deleted. Only
+ * the routes that were shown or prefetched end up here, distances are kept by
+ * {@link DiskDistanceStore}.
+ */
+public class DiskRouteStore implements RouteCache.Store {
+
+  public static final int DEFAULT_MAX_ENTRIES = 2000;
+
+  private static final int FORMAT_VERSION = 1;
+  private static final String FILE_SUFFIX = ".route";
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private final File directory;
+  private final int maxEntries;
+  private int entryCount = -1;
+
+  public DiskRouteStore(File directory) {
+    this(directory, DEFAULT_MAX_ENTRIES);
+  }
+
+  public DiskRouteStore(File directory, int maxEntries) {
+    this.directory = directory;
+    this.maxEntries = maxEntries;
+  }
+
+  @Override
+  public synchronized CachedRoute read(String key) throws IOException {
+    File file = fileFor(key);
+    DataInputStream input;
+    try {
+      input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+    } catch (FileNotFoundException exception) {
+      return null;
+    }
+    try {
+      // Different keys can share a file name, in which case the file holds the other key's route
+      if (input.readInt() != FORMAT_VERSION || !key.equals(readString(input))) {
+        return null;
+      }
+      long createdAtMillis = input.readLong();
+      double distanceInMeters = input.readDouble();
+      String geometry = input.readBoolean() ? readString(input) : null;
+
+      // Mark the entry as recently used
+      file.setLastModified(System.currentTimeMillis());
+      return new CachedRoute(geometry, distanceInMeters, createdAtMillis);
+    } finally {
+      input.close();
+    }
+  }
+
+  @Override
+  public synchronized void write(String key, CachedRoute route) throws IOException {
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("Unable to create " + directory);
+    }
+    File file = fileFor(key);
+    boolean isNewEntry = !file.exists();
+
+    // Write to a temporary file first so that a crash never leaves a partial entry behind
+    File temporaryFile = new File(directory, file.getName() + ".tmp");
+    DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)));
+    try {
+      output.writeInt(FORMAT_VERSION);
+      writeString(output, key);
+      output.writeLong(route.getCreatedAtMillis());
+      output.writeDouble(route.getDistanceInMeters());
+      output.writeBoolean(route.hasGeometry());
+      if (route.hasGeometry()) {
+        writeString(output, route.getGeometry());
+      }
+    } finally {
+      output.close();
+    }
+    if (!temporaryFile.renameTo(file)) {
+      file.delete();
+      if (!temporaryFile.renameTo(file)) {
+        temporaryFile.delete();
+        throw new IOException("Unable to write " + file);
+      }
+    }
+
+    if (isNewEntry) {
+      if (entryCount < 0) {
+        entryCount = listEntries().length;
+      } else {
+        entryCount++;
+      }
+      if (entryCount > maxEntries) {
+        trim();
+      }
+    }
+  }
+
+  @Override
+  public synchronized void remove(String key) throws IOException {
+    File file = fileFor(key);
+    if (file.delete() && entryCount > 0) {
+      entryCount--;
+    }
+  }
+
+  /**
+   * Deletes the least recently used entries, leaving some headroom so that the directory isn't
+   * listed again on every write
+   */
+  private void trim() {
+    File[] entries = listEntries();
+    Arrays.sort(entries, new Comparator<File>() {
+      @Override
+      public int compare(File first, File second) {
+        long firstModified = first.lastModified();
+        long secondModified = second.lastModified();
+        return firstModified < secondModified ? -1 : (firstModified == secondModified ? 0 : 1);
+      }
+    });
+    int targetCount = maxEntries - maxEntries / 10;
+    int remaining = entries.length;
+    for (int x = 0; x < entries.length && remaining > targetCount; x++) {
+      if (entries[x].delete()) {
+        remaining--;
+      }
+    }
+    entryCount = remaining;
+  }
+
+  private File[] listEntries() {
+    File[] entries = directory.listFiles(new FilenameFilter() {
+      @Override
+      public boolean accept(File dir, String name) {
+        return name.endsWith(FILE_SUFFIX);
+      }
+    });
+    return entries != null ? entries : new File[0];
+  }
+
+  private File fileFor(String key) {
+    return new File(directory, Integer.toHexString(key.hashCode()) + FILE_SUFFIX);
+  }
+
+  private static String readString(DataInputStream input) throws IOException {
+    byte[] bytes = new byte[input.readInt()];
+    input.readFully(bytes);
+    return new String(bytes, UTF_8);
+  }
+
+  private static void writeString(DataOutputStream output, String value) throws IOException {
+    byte[] bytes = value.getBytes(UTF_8);
+    output.writeInt(bytes.length);
+    output.write(bytes);
+  }
+}
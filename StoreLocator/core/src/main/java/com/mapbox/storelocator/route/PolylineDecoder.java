@@ -0,0 +1,85 @@
+package com.mapbox.storelocator.route;
+
+/**
+ * Decodes encoded polylines, as returned by the Directions API, straight into coordinate arrays
+ * without creating an object per point.
+ *
+ * @see <a href="https://developers.google.com/maps/documentation/utilities/polylinealgorithm">Encoded
+ * polyline algorithm format</a>
+ */
+public final class PolylineDecoder {
+
+  public static final int PRECISION_5 = 5;
+  public static final int PRECISION_6 = 6;
+
+  private PolylineDecoder() {
+    // Utility class
+  }
+
+  /**
+   * @return the number of points in the encoded polyline, to size the arrays passed to
+   * {@link #decode(String, int, double[], double[])}
+   */
+  public static int pointCount(String encoded) {
+    // Every encoded value ends with a character without the continuation bit, and each point is a
+    // latitude and a longitude value
+    int valueCount = 0;
+    for (int x = 0; x < encoded.length(); x++) {
+      if (encoded.charAt(x) - 63 < 0x20) {
+        valueCount++;
+      }
+    }
+    return valueCount / 2;
+  }
+
+  /**
+   * Decodes the polyline into the given arrays, which must hold at least
+   * {@link #pointCount(String)} values.
+   *
+   * @param precision number of decimal places the coordinates were encoded with, 6 for routes
+   *                  requested with polyline6 geometries
+   * @return the number of points decoded
+   * @throws IllegalArgumentException if the polyline ends in the middle of a point
+   */
+  public static int decode(String encoded, int precision, double[] latitudes, double[] longitudes) {
+    double factor = Math.pow(10, precision);
+    int length = encoded.length();
+    int index = 0;
+    int pointCount = 0;
+    long latitude = 0;
+    long longitude = 0;
+    while (index < length) {
+      // Both values must end with a character without the continuation bit, otherwise the arrays
+      // sized by pointCount() don't have room for this point
+      long result = 0;
+      int shift = 0;
+      int value;
+      do {
+        if (index >= length) {
+          throw new IllegalArgumentException("Polyline ends in the middle of a point.");
+        }
+        value = encoded.charAt(index++) - 63;
+        result |= (long) (value & 0x1f) << shift;
+        shift += 5;
+      } while (value >= 0x20);
+      latitude += (result & 1) != 0 ? ~(result >> 1) : result >> 1;
+
+      result = 0;
+      shift = 0;
+      do {
+        if (index >= length) {
+          throw new IllegalArgumentException("Polyline ends in the middle of a point.");
+        }
+        value = encoded.charAt(index++) - 63;
+        result |= (long) (value & 0x1f) << shift;
+        shift += 5;
+      } while (value >= 0x20);
+      longitude += (result & 1) != 0 ? ~(result >> 1) : result >> 1;
+
+      latitudes[pointCount] = latitude / factor;
+      longitudes[pointCount] = longitude / factor;
+      pointCount++;
+    }
+    return pointCount;
+  }
+}
@@ -0,0 +1,243 @@
+package com.mapbox.storelocator.route;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache of routes and distances. Routes are kept in a small in-memory LRU in front of a persistent
+ * {@link Store}, keyed by {@link #key(double, double, double, double, String)}. Distances, of which
+ * there is one per store, are kept in a separate {@link DistanceStore} and read and written a batch
+ * at a time, so that they never evict routes. Both expire after a fixed time to live.
+ * <p>
+ * All methods are thread-safe. The memory tier has its own lock, which is never held while the
+ * stores read or write, so the stores have to be thread-safe too. Calls other than
+ * {@link #hasRouteInMemory(String)} may hit the disk, so they should not be made on the main
+ * thread.
+ */
+public class RouteCache {
+
+  public static final long DEFAULT_TIME_TO_LIVE_MILLIS = TimeUnit.DAYS.toMillis(1);
+  public static final int DEFAULT_MEMORY_CAPACITY = 256;
+
+  /**
+   * Coordinates are rounded to four decimal places, about 11 meters, so that a device which has
+   * barely moved still hits the cache
+   */
+  private static final double COORDINATE_QUANTIZATION = 1e4;
+
+  private final Store store;
+  private final DistanceStore distanceStore;
+  private final long timeToLiveMillis;
+  private final Clock clock;
+  private final LinkedHashMap<String, CachedRoute> memory;
+
+  public RouteCache(Store store, DistanceStore distanceStore) {
+    this(store, distanceStore, DEFAULT_MEMORY_CAPACITY, DEFAULT_TIME_TO_LIVE_MILLIS);
+  }
+
+  public RouteCache(Store store, DistanceStore distanceStore, int memoryCapacity, long timeToLiveMillis) {
+    this(store, distanceStore, memoryCapacity, timeToLiveMillis, new Clock() {
+      @Override
+      public long currentTimeMillis() {
+        return System.currentTimeMillis();
+      }
+    });
+  }
+
+  RouteCache(Store store, DistanceStore distanceStore, final int memoryCapacity, long timeToLiveMillis,
+             Clock clock) {
+    this.store = store;
+    this.distanceStore = distanceStore;
+    this.timeToLiveMillis = timeToLiveMillis;
+    this.clock = clock;
+    this.memory = new LinkedHashMap<String, CachedRoute>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, CachedRoute> eldest) {
+        return size() > memoryCapacity;
+      }
+    };
+  }
+
+  /**
+   * Persistent tier of the routes, called from several threads at once
+   */
+  public interface Store {
+    CachedRoute read(String key) throws IOException;
+
+    void write(String key, CachedRoute route) throws IOException;
+
+    void remove(String key) throws IOException;
+  }
+
+  /**
+   * Persistent distances, keyed by {@link #originKey(double, double, String)} and
+   * {@link #destinationKey(double, double)}. Called from several threads at once.
+   */
+  public interface DistanceStore {
+    /**
+     * Fills in the cached distance and its creation time for each destination, {@link Double#NaN}
+     * for destinations without a cached distance
+     */
+    void read(String origin, long[] destinations, double[] distancesInMeters, long[] createdAtMillis)
+      throws IOException;
+
+    void write(String origin, long[] destinations, double[] distancesInMeters, long createdAtMillis)
+      throws IOException;
+  }
+
+  interface Clock {
+    long currentTimeMillis();
+  }
+
+  /**
+   * Builds the cache key of a route, with both coordinates quantized
+   *
+   * @param profile the routing profile, e.g. "driving"
+   */
+  public static String key(double originLatitude, double originLongitude,
+                           double destinationLatitude, double destinationLongitude, String profile) {
+    return String.format(Locale.US, "%s/%d,%d", originKey(originLatitude, originLongitude, profile),
+      quantize(destinationLatitude), quantize(destinationLongitude));
+  }
+
+  /**
+   * Builds the key that all distances from an origin share, with the coordinate quantized
+   */
+  public static String originKey(double latitude, double longitude, String profile) {
+    return String.format(Locale.US, "%s/%d,%d", profile, quantize(latitude), quantize(longitude));
+  }
+
+  /**
+   * Packs the quantized coordinate of a destination into a single number
+   */
+  public static long destinationKey(double latitude, double longitude) {
+    return quantize(latitude) << 32 | (quantize(longitude) & 0xffffffffL);
+  }
+
+  private static long quantize(double coordinate) {
+    return Math.round(coordinate * COORDINATE_QUANTIZATION);
+  }
+
+  /**
+   * @return the cached route, or null if there is none or it has expired
+   */
+  public CachedRoute get(String key) {
+    CachedRoute route;
+    synchronized (memory) {
+      route = memory.get(key);
+    }
+    if (route == null) {
+      try {
+        route = store.read(key);
+      } catch (IOException exception) {
+        // A damaged entry is treated as missing and will be replaced by the next put
+        return null;
+      }
+      if (route == null) {
+        return null;
+      }
+      if (!isExpired(route)) {
+        synchronized (memory) {
+          // A put while the store was read wins over the route read
+          if (!memory.containsKey(key)) {
+            memory.put(key, route);
+          }
+        }
+      }
+    }
+    if (isExpired(route)) {
+      synchronized (memory) {
+        memory.remove(key);
+      }
+      try {
+        store.remove(key);
+      } catch (IOException ignored) {
+        // It will be overwritten by the next put
+      }
+      return null;
+    }
+    return route;
+  }
+
+  /**
+   * @return the cached route if its geometry is known, otherwise null
+   */
+  public CachedRoute getRoute(String key) {
+    CachedRoute route = get(key);
+    return route != null && route.hasGeometry() ? route : null;
+  }
+
+  /**
+   * Checks the memory tier only, so that it's cheap enough to call on the main thread. It never
+   * waits for disk reads or writes of other threads.
+   *
+   * @return whether the route's geometry is cached in memory and hasn't expired
+   */
+  public boolean hasRouteInMemory(String key) {
+    CachedRoute route;
+    synchronized (memory) {
+      route = memory.get(key);
+    }
+    return route != null && route.hasGeometry() && !isExpired(route);
+  }
+
+  public void putRoute(String key, String geometry, double distanceInMeters) {
+    put(key, new CachedRoute(geometry, distanceInMeters, clock.currentTimeMillis()));
+  }
+
+  /**
+   * @param origin       the {@link #originKey(double, double, String)} of the distances
+   * @param destinations the {@link #destinationKey(double, double)} of each destination
+   * @return the cached distance in meters to each destination, or NaN where there is none or it
+   * has expired
+   */
+  public double[] getDistances(String origin, long[] destinations) {
+    double[] distancesInMeters = new double[destinations.length];
+    long[] createdAtMillis = new long[destinations.length];
+    try {
+      distanceStore.read(origin, destinations, distancesInMeters, createdAtMillis);
+    } catch (IOException exception) {
+      // The distances are fetched again and replace the damaged ones
+      Arrays.fill(distancesInMeters, Double.NaN);
+      return distancesInMeters;
+    }
+    long now = clock.currentTimeMillis();
+    for (int x = 0; x < destinations.length; x++) {
+      if (now - createdAtMillis[x] >= timeToLiveMillis) {
+        distancesInMeters[x] = Double.NaN;
+      }
+    }
+    return distancesInMeters;
+  }
+
+  /**
+   * @param origin       the {@link #originKey(double, double, String)} of the distances
+   * @param destinations the {@link #destinationKey(double, double)} of each destination
+   */
+  public void putDistances(String origin, long[] destinations, double[] distancesInMeters) {
+    try {
+      distanceStore.write(origin, destinations, distancesInMeters, clock.currentTimeMillis());
+    } catch (IOException ignored) {
+      // The distances are fetched again next time
+    }
+  }
+
+  private void put(String key, CachedRoute route) {
+    synchronized (memory) {
+      memory.put(key, route);
+    }
+    try {
+      store.write(key, route);
+    } catch (IOException ignored) {
+      // The route stays cached in memory for this session
+    }
+  }
+
+  private boolean isExpired(CachedRoute route) {
+    return clock.currentTimeMillis() - route.getCreatedAtMillis() >= timeToLiveMillis;
+  }
+}
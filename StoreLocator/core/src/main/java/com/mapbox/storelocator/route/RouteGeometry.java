@@ -0,0 +1,177 @@
+package com.mapbox.storelocator.route;
+
+import java.util.Arrays;
+
+/**
+ * A decoded route line with a precomputed level of detail for each zoom level, so that long routes
+ * aren't drawn with thousands of vertices that fall on the same pixel.
+ * <p>
+ * Every vertex is ranked once with the Douglas-Peucker algorithm: its rank is the largest
+ * tolerance at which the simplification still keeps it. A level of detail then keeps the vertices
+ * whose rank exceeds the size of a few pixels at that zoom level. Building takes O(n log n) on
+ * typical routes, and is meant to run off the UI thread.
+ */
+public final class RouteGeometry {
+
+  public static final int MAX_ZOOM = 22;
+  public static final double DEFAULT_TOLERANCE_PIXELS = 1;
+
+  /**
+   * Mapbox maps are rendered from 512 pixel tiles, so the world is 512 * 2^zoom pixels wide
+   */
+  private static final int TILE_SIZE_PIXELS = 512;
+
+  private final double[] latitudes;
+  private final double[] longitudes;
+  private final int[][] levels;
+
+  private RouteGeometry(double[] latitudes, double[] longitudes, int[][] levels) {
+    this.latitudes = latitudes;
+    this.longitudes = longitudes;
+    this.levels = levels;
+  }
+
+  /**
+   * Decodes an encoded polyline and builds its levels of detail.
+   *
+   * @param precision the precision the polyline was encoded with, see {@link PolylineDecoder}
+   */
+  public static RouteGeometry fromPolyline(String encoded, int precision) {
+    int pointCount = PolylineDecoder.pointCount(encoded);
+    double[] latitudes = new double[pointCount];
+    double[] longitudes = new double[pointCount];
+    pointCount = PolylineDecoder.decode(encoded, precision, latitudes, longitudes);
+    return build(Arrays.copyOf(latitudes, pointCount), Arrays.copyOf(longitudes, pointCount),
+      DEFAULT_TOLERANCE_PIXELS);
+  }
+
+  /**
+   * Builds the levels of detail of a line. The arrays are kept, not copied.
+   *
+   * @param tolerancePixels how far a simplified line may deviate from the route, in screen pixels
+   */
+  public static RouteGeometry build(double[] latitudes, double[] longitudes, double tolerancePixels) {
+    if (latitudes.length != longitudes.length) {
+      throw new IllegalArgumentException("Latitude and longitude arrays must be the same length.");
+    }
+    int size = latitudes.length;
+    double[] x = new double[size];
+    double[] y = new double[size];
+    for (int i = 0; i < size; i++) {
+      x[i] = longitudes[i] / 360 + 0.5;
+      double sinLatitude = Math.sin(Math.toRadians(latitudes[i]));
+      y[i] = 0.5 - 0.25 * Math.log((1 + sinLatitude) / (1 - sinLatitude)) / Math.PI;
+    }
+    double[] ranks = rank(x, y);
+
+    // Neighbouring zoom levels often keep the same vertices, in which case they share one array
+    int[][] levels = new int[MAX_ZOOM + 1][];
+    int[] buffer = new int[size];
+    for (int zoom = 0; zoom <= MAX_ZOOM; zoom++) {
+      double tolerance = tolerancePixels / (TILE_SIZE_PIXELS * Math.pow(2, zoom));
+      int count = 0;
+      for (int i = 0; i < size; i++) {
+        if (ranks[i] > tolerance) {
+          buffer[count++] = i;
+        }
+      }
+      int[] previous = zoom > 0 ? levels[zoom - 1] : null;
+      levels[zoom] = previous != null && previous.length == count ? previous : Arrays.copyOf(buffer, count);
+    }
+    return new RouteGeometry(latitudes, longitudes, levels);
+  }
+
+  /**
+   * Douglas-Peucker ranks in Web Mercator units, where the world is 1 wide. A vertex's rank never
+   * exceeds its parent's, so that every level of detail is a subset of the next one.
+   */
+  private static double[] rank(double[] x, double[] y) {
+    int size = x.length;
+    double[] ranks = new double[size];
+    if (size == 0) {
+      return ranks;
+    }
+    ranks[0] = Double.POSITIVE_INFINITY;
+    ranks[size - 1] = Double.POSITIVE_INFINITY;
+
+    // Explicit stack of (first, last, parent rank) segments, since long routes would overflow the call stack
+    int[] segments = new int[64];
+    double[] parentRanks = new double[32];
+    int stackSize = 0;
+    if (size > 2) {
+      segments[0] = 0;
+      segments[1] = size - 1;
+      parentRanks[0] = Double.POSITIVE_INFINITY;
+      stackSize = 1;
+    }
+    while (stackSize > 0) {
+      stackSize--;
+      int first = segments[stackSize * 2];
+      int last = segments[stackSize * 2 + 1];
+      double parentRank = parentRanks[stackSize];
+
+      int farthest = -1;
+      double maxDistance = -1;
+      for (int i = first + 1; i < last; i++) {
+        double distance = squaredSegmentDistance(x[i], y[i], x[first], y[first], x[last], y[last]);
+        if (distance > maxDistance) {
+          maxDistance = distance;
+          farthest = i;
+        }
+      }
+      double rank = Math.min(Math.sqrt(maxDistance), parentRank);
+      ranks[farthest] = rank;
+
+      if (stackSize + 2 > parentRanks.length) {
+        segments = Arrays.copyOf(segments, segments.length * 2);
+        parentRanks = Arrays.copyOf(parentRanks, parentRanks.length * 2);
+      }
+      if (farthest - first > 1) {
+        segments[stackSize * 2] = first;
+        segments[stackSize * 2 + 1] = farthest;
+        parentRanks[stackSize++] = rank;
+      }
+      if (last - farthest > 1) {
+        segments[stackSize * 2] = farthest;
+        segments[stackSize * 2 + 1] = last;
+        parentRanks[stackSize++] = rank;
+      }
+    }
+    return ranks;
+  }
+
+  private static double squaredSegmentDistance(double x, double y, double x1, double y1, double x2, double y2) {
+    double deltaX = x2 - x1;
+    double deltaY = y2 - y1;
+    double lengthSquared = deltaX * deltaX + deltaY * deltaY;
+    double t = lengthSquared == 0 ? 0 : ((x - x1) * deltaX + (y - y1) * deltaY) / lengthSquared;
+    t = Math.max(0, Math.min(1, t));
+    double projectedX = x1 + t * deltaX - x;
+    double projectedY = y1 + t * deltaY - y;
+    return projectedX * projectedX + projectedY * projectedY;
+  }
+
+  /**
+   * @return the number of vertices of the full route
+   */
+  public int size() {
+    return latitudes.length;
+  }
+
+  public double latitude(int index) {
+    return latitudes[index];
+  }
+
+  public double longitude(int index) {
+    return longitudes[index];
+  }
+
+  /**
+   * @return the indices of the vertices to draw at a zoom level, in route order. The same array is
+   * returned for zoom levels which keep the same vertices, so callers can skip redrawing the route.
+   */
+  public int[] levelOfDetail(double zoom) {
+    int level = (int) Math.max(0, Math.min(MAX_ZOOM, Math.ceil(zoom)));
+    return levels[level];
+  }
+}
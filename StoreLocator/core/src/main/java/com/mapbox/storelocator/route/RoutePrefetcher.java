@@ -0,0 +1,154 @@
+package com.mapbox.storelocator.route;
+
+import com.mapbox.geojson.Point;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fetches routes ahead of time, e.g. to the cards around the one the user scrolled to, so that the
+ * route appears without a round trip once a card is tapped. The wrapped provider is expected to
+ * cache what it fetches.
+ * <p>
+ * Prefetching runs at low priority: every call replaces the previous batch, only a few prefetches
+ * run at once, and no more than a fixed number start within each time window. Prefetches which
+ * don't fit are dropped at the next call, or started when a running prefetch finishes.
+ */
+public class RoutePrefetcher {
+
+  public static final int DEFAULT_MAX_CONCURRENT_PREFETCHES = 2;
+  public static final int DEFAULT_MAX_PREFETCHES_PER_WINDOW = 30;
+  public static final long DEFAULT_WINDOW_MILLIS = 60000;
+
+  private final RouteProvider routeProvider;
+  private final RouteCache routeCache;
+  private final String profile;
+  private final int maxConcurrentPrefetches;
+  private final int maxPrefetchesPerWindow;
+  private final long windowMillis;
+  private final RouteCache.Clock clock;
+  private final ArrayDeque<Point> pendingDestinations = new ArrayDeque<>();
+  private final ArrayDeque<Long> recentStartTimes = new ArrayDeque<>();
+  private final List<RouteProvider.Request> runningRequests = new ArrayList<>();
+  private Point origin;
+
+  /**
+   * @param routeProvider provider which caches the routes it returns in the route cache
+   * @param routeCache    checked first, so that routes cached in memory aren't prefetched again
+   * @param profile       the routing profile of the provider, part of the cache key
+   */
+  public RoutePrefetcher(RouteProvider routeProvider, RouteCache routeCache, String profile) {
+    this(routeProvider, routeCache, profile, DEFAULT_MAX_CONCURRENT_PREFETCHES, DEFAULT_MAX_PREFETCHES_PER_WINDOW,
+      DEFAULT_WINDOW_MILLIS, new RouteCache.Clock() {
+        @Override
+        public long currentTimeMillis() {
+          return System.currentTimeMillis();
+        }
+      });
+  }
+
+  RoutePrefetcher(RouteProvider routeProvider, RouteCache routeCache, String profile, int maxConcurrentPrefetches,
+                  int maxPrefetchesPerWindow, long windowMillis, RouteCache.Clock clock) {
+    if (maxConcurrentPrefetches < 1 || maxPrefetchesPerWindow < 1) {
+      throw new IllegalArgumentException("Prefetch limits must be positive.");
+    }
+    this.routeProvider = routeProvider;
+    this.routeCache = routeCache;
+    this.profile = profile;
+    this.maxConcurrentPrefetches = maxConcurrentPrefetches;
+    this.maxPrefetchesPerWindow = maxPrefetchesPerWindow;
+    this.windowMillis = windowMillis;
+    this.clock = clock;
+  }
+
+  /**
+   * Replaces the routes waiting to be prefetched. Prefetches which are already running continue.
+   *
+   * @param destinations the destinations in order of priority
+   */
+  public synchronized void prefetch(Point origin, List<Point> destinations) {
+    this.origin = origin;
+    pendingDestinations.clear();
+    for (Point destination : destinations) {
+      if (!routeCache.hasRouteInMemory(key(destination))) {
+        pendingDestinations.add(destination);
+      }
+    }
+    dispatchPendingPrefetches();
+  }
+
+  /**
+   * Drops the waiting prefetches and cancels the running ones, e.g. when the user starts scrolling
+   * again or leaves the screen
+   */
+  public synchronized void cancel() {
+    pendingDestinations.clear();
+    List<RouteProvider.Request> requests = new ArrayList<>(runningRequests);
+    runningRequests.clear();
+    for (RouteProvider.Request request : requests) {
+      request.cancel();
+    }
+  }
+
+  private void dispatchPendingPrefetches() {
+    while (runningRequests.size() < maxConcurrentPrefetches && !pendingDestinations.isEmpty()
+      && acquireRateLimitPermit()) {
+      Point destination = pendingDestinations.poll();
+      PrefetchCallback callback = new PrefetchCallback();
+      RouteProvider.Request request = routeProvider.getRoute(origin, destination, callback);
+      if (!callback.finished) {
+        callback.request = request;
+        runningRequests.add(request);
+      }
+    }
+  }
+
+  /**
+   * Sliding window rate limit on the number of prefetches started
+   */
+  private boolean acquireRateLimitPermit() {
+    long now = clock.currentTimeMillis();
+    while (!recentStartTimes.isEmpty() && recentStartTimes.peek() <= now - windowMillis) {
+      recentStartTimes.poll();
+    }
+    if (recentStartTimes.size() >= maxPrefetchesPerWindow) {
+      return false;
+    }
+    recentStartTimes.add(now);
+    return true;
+  }
+
+  private String key(Point destination) {
+    return RouteCache.key(origin.latitude(), origin.longitude(), destination.latitude(), destination.longitude(),
+      profile);
+  }
+
+  private void onPrefetchFinished(PrefetchCallback callback) {
+    synchronized (this) {
+      callback.finished = true;
+      if (callback.request != null) {
+        runningRequests.remove(callback.request);
+      }
+      dispatchPendingPrefetches();
+    }
+  }
+
+  /**
+   * Nothing to do with a prefetched route but wait for the next one, it's in the cache now
+   */
+  private final class PrefetchCallback implements RouteProvider.Callback {
+    RouteProvider.Request request;
+    boolean finished;
+
+    @Override
+    public void onRoute(String geometry, double distanceInMeters) {
+      onPrefetchFinished(this);
+    }
+
+    @Override
+    public void onFailure(Throwable throwable) {
+      onPrefetchFinished(this);
+    }
+  }
+}
@@ -0,0 +1,30 @@
+package com.mapbox.storelocator.route;
+
+import com.mapbox.geojson.Point;
+
+/**
+ * Source of driving, walking or cycling routes between two points
+ */
+public interface RouteProvider {
+
+  /**
+   * @return the request, which can be cancelled until its callback has been invoked
+   */
+  Request getRoute(Point origin, Point destination, Callback callback);
+
+  interface Callback {
+    /**
+     * @param geometry the route's polyline, encoded with a precision of six decimal places
+     */
+    void onRoute(String geometry, double distanceInMeters);
+
+    void onFailure(Throwable throwable);
+  }
+
+  interface Request {
+    /**
+     * Stops the request if it's still running. The callback isn't invoked afterwards.
+     */
+    void cancel();
+  }
+}
@@ -0,0 +1,197 @@
+package com.mapbox.storelocator.route;
+
+import com.mapbox.geojson.Point;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link RouteProvider} which shares one request between identical concurrent requests, and cancels
+ * requests that nobody waits for anymore.
+ * <p>
+ * Requests made through {@link #getLatestRoute(Point, Point, Callback)} supersede each other, e.g.
+ * when cards are tapped in quick succession: only the callback of the latest one is ever invoked.
+ * Callbacks are invoked on the thread the wrapped provider delivers on.
+ */
+public class RouteRequestScheduler implements RouteProvider {
+
+  private final RouteProvider routeProvider;
+  private final String profile;
+  private final Map<String, SharedRequest> inFlightRequests = new HashMap<>();
+  private Request latestRequest;
+
+  /**
+   * @param profile the routing profile of the wrapped provider, used to tell requests apart
+   */
+  public RouteRequestScheduler(RouteProvider routeProvider, String profile) {
+    this.routeProvider = routeProvider;
+    this.profile = profile;
+  }
+
+  @Override
+  public synchronized Request getRoute(Point origin, Point destination, Callback callback) {
+    String key = RouteCache.key(origin.latitude(), origin.longitude(),
+      destination.latitude(), destination.longitude(), profile);
+    SharedRequest sharedRequest = inFlightRequests.get(key);
+    Waiter waiter;
+    if (sharedRequest != null) {
+      waiter = sharedRequest.addWaiter(callback);
+    } else {
+      sharedRequest = new SharedRequest(key);
+      inFlightRequests.put(key, sharedRequest);
+      waiter = sharedRequest.addWaiter(callback);
+
+      // The provider may answer right away, e.g. from a cache
+      Request request = routeProvider.getRoute(origin, destination, sharedRequest);
+      sharedRequest.setRequest(request);
+    }
+    return waiter;
+  }
+
+  /**
+   * Requests a route which supersedes the previous route requested through this method. The
+   * previous callback isn't invoked anymore, and its request is cancelled unless it's shared.
+   */
+  public synchronized void getLatestRoute(Point origin, Point destination, Callback callback) {
+    // Request the new route first, so that repeating the previous request joins it instead of
+    // cancelling and restarting it
+    Request previousRequest = latestRequest;
+    latestRequest = getRoute(origin, destination, callback);
+    if (previousRequest != null) {
+      previousRequest.cancel();
+    }
+  }
+
+  /**
+   * Cancels the route last requested through {@link #getLatestRoute(Point, Point, Callback)}, if
+   * it's still running
+   */
+  public synchronized void cancelLatestRoute() {
+    if (latestRequest != null) {
+      latestRequest.cancel();
+      latestRequest = null;
+    }
+  }
+
+  synchronized int inFlightRequestCount() {
+    return inFlightRequests.size();
+  }
+
+  /**
+   * A request to the wrapped provider, and the callbacks waiting for its result
+   */
+  private final class SharedRequest implements Callback {
+    private final String key;
+    private final List<Waiter> waiters = new ArrayList<>();
+    private Request request;
+    private boolean done;
+
+    SharedRequest(String key) {
+      this.key = key;
+    }
+
+    Waiter addWaiter(Callback callback) {
+      Waiter waiter = new Waiter(this, callback);
+      waiters.add(waiter);
+      return waiter;
+    }
+
+    void setRequest(Request request) {
+      this.request = request;
+      if (waiters.isEmpty() && !done) {
+        request.cancel();
+      }
+    }
+
+    void removeWaiter(Waiter waiter) {
+      if (waiters.remove(waiter) && waiters.isEmpty() && !done) {
+        done = true;
+        inFlightRequests.remove(key);
+        if (request != null) {
+          request.cancel();
+        }
+      }
+    }
+
+    // The waiters are collected under the lock but called after releasing it, so that callbacks
+    // which take locks of their own can't deadlock with threads requesting routes. A waiter
+    // cancelled in between isn't called.
+
+    @Override
+    public void onRoute(String geometry, double distanceInMeters) {
+      List<Waiter> finishedWaiters;
+      synchronized (RouteRequestScheduler.this) {
+        finishedWaiters = finish();
+      }
+      for (Waiter waiter : finishedWaiters) {
+        if (!waiter.isCancelled()) {
+          waiter.callback.onRoute(geometry, distanceInMeters);
+        }
+      }
+    }
+
+    @Override
+    public void onFailure(Throwable throwable) {
+      List<Waiter> finishedWaiters;
+      synchronized (RouteRequestScheduler.this) {
+        finishedWaiters = finish();
+      }
+      for (Waiter waiter : finishedWaiters) {
+        if (!waiter.isCancelled()) {
+          waiter.callback.onFailure(throwable);
+        }
+      }
+    }
+
+    /**
+     * @return the waiters to notify, none if the request was cancelled
+     */
+    private List<Waiter> finish() {
+      if (done) {
+        return new ArrayList<>();
+      }
+      done = true;
+      inFlightRequests.remove(key);
+      List<Waiter> finishedWaiters = new ArrayList<>(waiters);
+      waiters.clear();
+      for (Waiter waiter : finishedWaiters) {
+        waiter.finished = true;
+      }
+      return finishedWaiters;
+    }
+  }
+
+  /**
+   * One caller's interest in a shared request
+   */
+  private final class Waiter implements Request {
+    final SharedRequest sharedRequest;
+    final Callback callback;
+    boolean finished;
+    private boolean cancelled;
+
+    Waiter(SharedRequest sharedRequest, Callback callback) {
+      this.sharedRequest = sharedRequest;
+      this.callback = callback;
+    }
+
+    boolean isCancelled() {
+      synchronized (RouteRequestScheduler.this) {
+        return cancelled;
+      }
+    }
+
+    @Override
+    public void cancel() {
+      synchronized (RouteRequestScheduler.this) {
+        cancelled = true;
+        if (!finished) {
+          finished = true;
+          sharedRequest.removeWaiter(this);
+        }
+      }
+    }
+  }
+}
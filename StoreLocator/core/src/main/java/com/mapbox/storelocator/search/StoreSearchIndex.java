@@ -0,0 +1,541 @@
+package com.mapbox.storelocator.search;
+
+import com.mapbox.storelocator.geo.GeoMath;
+import com.mapbox.storelocator.index.IntArray;
+import com.mapbox.storelocator.model.IndividualLocation;
+import com.mapbox.storelocator.model.StoreCatalog;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory full text index over the name, address and phone number of every store.
+ * <p>
+ * The words of the stores are kept in a sorted dictionary, so that all words starting with a
+ * query word are found with a binary search, and each word lists the stores it appears in. Words
+ * which are misspelled in the query are found through an index of the three-letter sequences of
+ * every dictionary word, and checked with a bounded edit distance.
+ * <p>
+ * A store matches when each query word matches one of its words, and matches are ranked by how
+ * well they match blended with how close the store is. The index is immutable once built and can be
+ * searched from any thread. Each searching thread keeps scratch arrays the size of the catalog, so
+ * that keystrokes don't allocate them again.
+ */
+public final class StoreSearchIndex {
+
+  private static final int FIELD_NAME = 0;
+  private static final int FIELD_ADDRESS = 1;
+  private static final int FIELD_PHONE = 2;
+  private static final float[] FIELD_WEIGHTS = {1f, .7f, .7f};
+
+  private static final float SCORE_EXACT = 1f;
+  private static final float SCORE_PREFIX = .8f;
+  private static final float SCORE_FUZZY = .5f;
+
+  /**
+   * Share of the ranking given to the distance of the store, the rest goes to the text match
+   */
+  private static final double DISTANCE_WEIGHT = .3;
+
+  /**
+   * Distance at which a store's closeness counts for half as much as if it were right at the origin
+   */
+  private static final double DISTANCE_SCALE_METERS = 5000;
+
+  /**
+   * Query words shorter than this only match by prefix, shorter words have too many near misses
+   */
+  private static final int MIN_FUZZY_LENGTH = 4;
+  private static final int MIN_TWO_EDITS_LENGTH = 8;
+
+  private static final int[] EMPTY = new int[0];
+
+  private final String[] words;
+  private final int[][] postings;
+  private final Map<String, int[]> wordsByTrigram;
+  private final double[] latitudes;
+  private final double[] longitudes;
+  private final ThreadLocal<SearchScratch> searchScratch = new ThreadLocal<SearchScratch>() {
+    @Override
+    protected SearchScratch initialValue() {
+      return new SearchScratch(latitudes.length, words.length);
+    }
+  };
+
+  private StoreSearchIndex(String[] words, int[][] postings, Map<String, int[]> wordsByTrigram,
+                           double[] latitudes, double[] longitudes) {
+    this.words = words;
+    this.postings = postings;
+    this.wordsByTrigram = wordsByTrigram;
+    this.latitudes = latitudes;
+    this.longitudes = longitudes;
+  }
+
+  /**
+   * Indexes every location of the catalog. Building reads all of the locations, so it should run on a
+   * background thread.
+   */
+  public static StoreSearchIndex build(StoreCatalog storeCatalog) {
+    int size = storeCatalog.size();
+    List<IndividualLocation> locations = storeCatalog.getLocations();
+    Builder builder = new Builder(storeCatalog);
+    for (int x = 0; x < size; x++) {
+      IndividualLocation location = locations.get(x);
+      builder.add(x, location.getName(), location.getAddress(), location.getPhoneNum());
+    }
+    return builder.build();
+  }
+
+  /**
+   * A posting is the store's feature index with the field the word appears in in the low two bits
+   */
+  private static void addWords(Map<String, IntArray> postingsByWord, List<String> words, int featureIndex,
+                               int field) {
+    int posting = featureIndex << 2 | field;
+    for (String word : words) {
+      IntArray wordPostings = postingsByWord.get(word);
+      if (wordPostings == null) {
+        wordPostings = new IntArray(2);
+        postingsByWord.put(word, wordPostings);
+      }
+      if (wordPostings.size() == 0 || wordPostings.get(wordPostings.size() - 1) != posting) {
+        wordPostings.add(posting);
+      }
+    }
+  }
+
+  public int size() {
+    return latitudes.length;
+  }
+
+  /**
+   * Starts the index of the catalog once some stores have changed, e.g. by a sync. The words of the
+   * other stores are kept, so only the text of the changed stores needs to be added to the builder.
+   *
+   * @param storeCatalog  the catalog once changed, for the coordinates of its stores
+   * @param changedStores the feature indices of the stores which were added, updated or removed
+   */
+  public Builder toBuilder(StoreCatalog storeCatalog, BitSet changedStores) {
+    Builder builder = new Builder(storeCatalog);
+    for (int wordId = 0; wordId < words.length; wordId++) {
+      IntArray wordPostings = new IntArray(postings[wordId].length);
+      for (int posting : postings[wordId]) {
+        if (!changedStores.get(posting >>> 2)) {
+          wordPostings.add(posting);
+        }
+      }
+      if (wordPostings.size() > 0) {
+        builder.postingsByWord.put(words[wordId], wordPostings);
+      }
+    }
+    return builder;
+  }
+
+  /**
+   * Finds the stores that best match a query, e.g. what has been typed into a search box so far.
+   * Every query word also matches the start of longer words, e.g. "main st" finds "Main Street".
+   *
+   * @param originLatitude  latitude of the point closer stores are preferred to, or NaN to rank by
+   *                        text alone
+   * @param originLongitude longitude of the point closer stores are preferred to
+   * @param limit           maximum number of results
+   * @return the feature indices of the matching stores, best match first
+   */
+  public int[] search(String query, double originLatitude, double originLongitude, int limit) {
+    List<String> queryWords = queryWords(query);
+    if (queryWords.isEmpty() || limit <= 0 || latitudes.length == 0) {
+      return EMPTY;
+    }
+
+    // Stores stay candidates only while every query word so far has matched them, so the stores
+    // matching the first word are the only ones whose scores need clearing afterwards
+    SearchScratch scratch = searchScratch.get();
+    float[] totalScores = scratch.totalScores;
+    float[] wordScores = scratch.wordScores;
+    int[] matchedWordCounts = scratch.matchedWordCounts;
+    IntArray firstMatches = null;
+    try {
+      IntArray candidates = null;
+      for (int queryWordIndex = 0; queryWordIndex < queryWords.size(); queryWordIndex++) {
+        IntArray matches = new IntArray();
+        if (firstMatches == null) {
+          firstMatches = matches;
+        }
+        scoreWord(queryWords.get(queryWordIndex), queryWordIndex, matchedWordCounts, wordScores,
+          scratch.sharedTrigrams, matches);
+        for (int x = 0; x < matches.size(); x++) {
+          int featureIndex = matches.get(x);
+          totalScores[featureIndex] += wordScores[featureIndex];
+          wordScores[featureIndex] = 0;
+          matchedWordCounts[featureIndex]++;
+        }
+        candidates = matches;
+      }
+      return rank(candidates, totalScores, queryWords.size(), originLatitude, originLongitude, limit);
+    } finally {
+      for (int x = 0; x < firstMatches.size(); x++) {
+        int featureIndex = firstMatches.get(x);
+        totalScores[featureIndex] = 0;
+        wordScores[featureIndex] = 0;
+        matchedWordCounts[featureIndex] = 0;
+      }
+    }
+  }
+
+  /**
+   * Records each candidate store's best score for one query word
+   */
+  private void scoreWord(String queryWord, int queryWordIndex, int[] matchedWordCounts, float[] wordScores,
+                         int[] sharedTrigrams, IntArray matches) {
+    // Words starting with the query word form one range of the sorted dictionary
+    int prefixStart = lowerBound(queryWord);
+    int prefixEnd = prefixStart;
+    while (prefixEnd < words.length && words[prefixEnd].startsWith(queryWord)) {
+      float score = words[prefixEnd].length() == queryWord.length() ? SCORE_EXACT : SCORE_PREFIX;
+      scorePostings(postings[prefixEnd], score, queryWordIndex, matchedWordCounts, wordScores, matches);
+      prefixEnd++;
+    }
+
+    if (queryWord.length() < MIN_FUZZY_LENGTH) {
+      return;
+    }
+    int maxEdits = queryWord.length() >= MIN_TWO_EDITS_LENGTH ? 2 : 1;
+
+    // Each edit changes at most three trigrams, so closer words share all but a few of them
+    List<String> queryTrigrams = trigrams(queryWord);
+    int minSharedTrigrams = Math.max(1, queryTrigrams.size() - 3 * maxEdits);
+    IntArray candidateWords = new IntArray();
+    for (String trigram : queryTrigrams) {
+      int[] wordIds = wordsByTrigram.get(trigram);
+      if (wordIds != null) {
+        for (int wordId : wordIds) {
+          if (sharedTrigrams[wordId]++ == 0) {
+            candidateWords.add(wordId);
+          }
+        }
+      }
+    }
+    int[] row = new int[queryWord.length() + 1];
+    int[] previousRow = new int[queryWord.length() + 1];
+    for (int x = 0; x < candidateWords.size(); x++) {
+      int wordId = candidateWords.get(x);
+      int sharedTrigramCount = sharedTrigrams[wordId];
+      sharedTrigrams[wordId] = 0;
+      if (sharedTrigramCount < minSharedTrigrams || (wordId >= prefixStart && wordId < prefixEnd)) {
+        continue;
+      }
+      int edits = prefixEditDistance(queryWord, words[wordId], maxEdits, row, previousRow);
+      if (edits <= maxEdits) {
+        scorePostings(postings[wordId], SCORE_FUZZY / edits, queryWordIndex, matchedWordCounts, wordScores,
+          matches);
+      }
+    }
+  }
+
+  private static void scorePostings(int[] wordPostings, float score, int queryWordIndex, int[] matchedWordCounts,
+                                    float[] wordScores, IntArray matches) {
+    for (int posting : wordPostings) {
+      int featureIndex = posting >>> 2;
+      if (matchedWordCounts[featureIndex] != queryWordIndex) {
+        continue;
+      }
+      float fieldScore = score * FIELD_WEIGHTS[posting & 3];
+      if (fieldScore > wordScores[featureIndex]) {
+        if (wordScores[featureIndex] == 0) {
+          matches.add(featureIndex);
+        }
+        wordScores[featureIndex] = fieldScore;
+      }
+    }
+  }
+
+  /**
+   * Keeps the best candidates in a min-heap of the limit's size, then sorts them best first
+   */
+  private int[] rank(IntArray candidates, float[] totalScores, int queryWordCount,
+                     double originLatitude, double originLongitude, int limit) {
+    boolean rankByDistance = !Double.isNaN(originLatitude) && !Double.isNaN(originLongitude);
+    int capacity = Math.min(limit, candidates.size());
+    int[] heap = new int[capacity];
+    double[] heapScores = new double[capacity];
+    int heapSize = 0;
+    for (int x = 0; x < candidates.size(); x++) {
+      int featureIndex = candidates.get(x);
+      double score = totalScores[featureIndex] / queryWordCount;
+      if (rankByDistance) {
+        double distance = GeoMath.haversineMeters(originLatitude, originLongitude,
+          latitudes[featureIndex], longitudes[featureIndex]);
+        score = (1 - DISTANCE_WEIGHT) * score + DISTANCE_WEIGHT / (1 + distance / DISTANCE_SCALE_METERS);
+      }
+      if (heapSize < capacity) {
+        heap[heapSize] = featureIndex;
+        heapScores[heapSize] = score;
+        siftUp(heap, heapScores, heapSize++);
+      } else if (isBetter(score, featureIndex, heapScores[0], heap[0])) {
+        heap[0] = featureIndex;
+        heapScores[0] = score;
+        siftDown(heap, heapScores, 0, heapSize);
+      }
+    }
+
+    // Repeatedly move the worst remaining result to the end
+    for (int end = heapSize - 1; end > 0; end--) {
+      swap(heap, heapScores, 0, end);
+      siftDown(heap, heapScores, 0, end);
+    }
+    return heap;
+  }
+
+  /**
+   * Ties are broken by feature index, so that results are stable between keystrokes
+   */
+  private static boolean isBetter(double score, int featureIndex, double otherScore, int otherFeatureIndex) {
+    return score > otherScore || (score == otherScore && featureIndex < otherFeatureIndex);
+  }
+
+  private static void siftUp(int[] heap, double[] heapScores, int position) {
+    while (position > 0) {
+      int parent = (position - 1) >> 1;
+      if (!isBetter(heapScores[parent], heap[parent], heapScores[position], heap[position])) {
+        return;
+      }
+      swap(heap, heapScores, parent, position);
+      position = parent;
+    }
+  }
+
+  private static void siftDown(int[] heap, double[] heapScores, int position, int size) {
+    while (true) {
+      int worst = position;
+      int left = 2 * position + 1;
+      int right = left + 1;
+      if (left < size && isBetter(heapScores[worst], heap[worst], heapScores[left], heap[left])) {
+        worst = left;
+      }
+      if (right < size && isBetter(heapScores[worst], heap[worst], heapScores[right], heap[right])) {
+        worst = right;
+      }
+      if (worst == position) {
+        return;
+      }
+      swap(heap, heapScores, position, worst);
+      position = worst;
+    }
+  }
+
+  private static void swap(int[] heap, double[] heapScores, int i, int j) {
+    int featureIndex = heap[i];
+    heap[i] = heap[j];
+    heap[j] = featureIndex;
+    double score = heapScores[i];
+    heapScores[i] = heapScores[j];
+    heapScores[j] = score;
+  }
+
+  private int lowerBound(String word) {
+    int low = 0;
+    int high = words.length;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (words[middle].compareTo(word) < 0) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Levenshtein distance between the query word and the closest prefix of a dictionary word, so
+   * that a misspelled word matches while it's still being typed. Gives up once the distance
+   * exceeds the maximum.
+   */
+  static int prefixEditDistance(String queryWord, String word, int maxEdits, int[] row, int[] previousRow) {
+    int length = queryWord.length();
+    for (int i = 0; i <= length; i++) {
+      previousRow[i] = i;
+    }
+    int best = length;
+    for (int j = 1; j <= word.length(); j++) {
+      row[0] = j;
+      int rowMinimum = j;
+      char wordChar = word.charAt(j - 1);
+      for (int i = 1; i <= length; i++) {
+        int substitution = previousRow[i - 1] + (queryWord.charAt(i - 1) == wordChar ? 0 : 1);
+        row[i] = Math.min(substitution, Math.min(previousRow[i], row[i - 1]) + 1);
+        rowMinimum = Math.min(rowMinimum, row[i]);
+      }
+      best = Math.min(best, row[length]);
+      if (rowMinimum > maxEdits) {
+        break;
+      }
+      int[] swap = previousRow;
+      previousRow = row;
+      row = swap;
+    }
+    return best;
+  }
+
+  /**
+   * Distinct three-letter sequences of a word, with a marker for its start so that the first
+   * letters carry weight too
+   */
+  static List<String> trigrams(String word) {
+    String padded = "$" + word;
+    List<String> trigrams = new ArrayList<>(padded.length());
+    for (int x = 0; x + 3 <= padded.length(); x++) {
+      String trigram = padded.substring(x, x + 3);
+      if (!trigrams.contains(trigram)) {
+        trigrams.add(trigram);
+      }
+    }
+    return trigrams;
+  }
+
+  /**
+   * Query words are normalized like store words. A query of only digits and punctuation is a
+   * phone number.
+   */
+  static List<String> queryWords(String query) {
+    List<String> phoneWords = phoneWords(query);
+    boolean isPhoneNumber = !phoneWords.isEmpty();
+    for (int x = 0; x < query.length() && isPhoneNumber; x++) {
+      isPhoneNumber = !Character.isLetter(query.charAt(x));
+    }
+    return isPhoneNumber ? phoneWords : tokenize(query);
+  }
+
+  /**
+   * Splits text into lower case words without accents. Apostrophes are dropped rather than splitting
+   * a word.
+   */
+  static List<String> tokenize(String text) {
+    List<String> tokens = new ArrayList<>();
+    if (text == null) {
+      return tokens;
+    }
+    String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+    StringBuilder token = new StringBuilder();
+    for (int x = 0; x < decomposed.length(); x++) {
+      char character = decomposed.charAt(x);
+      if (Character.isLetterOrDigit(character)) {
+        token.append(Character.toLowerCase(character));
+      } else if (character == '\'' || character == '\u2019'
+        || Character.getType(character) == Character.NON_SPACING_MARK) {
+        continue;
+      } else if (token.length() > 0) {
+        tokens.add(token.toString());
+        token.setLength(0);
+      }
+    }
+    if (token.length() > 0) {
+      tokens.add(token.toString());
+    }
+    return tokens;
+  }
+
+  /**
+   * A phone number is indexed as the single word of its digits, however it's formatted
+   */
+  private static List<String> phoneWords(String phone) {
+    List<String> tokens = new ArrayList<>(1);
+    if (phone == null) {
+      return tokens;
+    }
+    StringBuilder digits = new StringBuilder(phone.length());
+    for (int x = 0; x < phone.length(); x++) {
+      if (Character.isDigit(phone.charAt(x))) {
+        digits.append(phone.charAt(x));
+      }
+    }
+    if (digits.length() > 0) {
+      tokens.add(digits.toString());
+    }
+    return tokens;
+  }
+
+  /**
+   * Indexes stores as they're streamed in, e.g. from a database cursor, without holding every
+   * store's text at once
+   */
+  public static final class Builder {
+    private final Map<String, IntArray> postingsByWord = new HashMap<>();
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private int nextFeatureIndex;
+
+    /**
+     * @param storeCatalog the catalog the stores belong to, for their coordinates
+     */
+    public Builder(StoreCatalog storeCatalog) {
+      int size = storeCatalog.size();
+      latitudes = new double[size];
+      longitudes = new double[size];
+      for (int x = 0; x < size; x++) {
+        latitudes[x] = storeCatalog.latitude(x);
+        longitudes[x] = storeCatalog.longitude(x);
+      }
+    }
+
+    /**
+     * Adds the text of a store. Stores must be added in catalog order, stores which are skipped are
+     * never found. A builder from {@link StoreSearchIndex#toBuilder(StoreCatalog, BitSet)} only takes
+     * the changed stores.
+     */
+    public void add(int featureIndex, String name, String address, String phone) {
+      if (featureIndex < nextFeatureIndex || featureIndex >= latitudes.length) {
+        throw new IllegalArgumentException("Store " + featureIndex + " is out of order.");
+      }
+      addWords(postingsByWord, tokenize(name), featureIndex, FIELD_NAME);
+      addWords(postingsByWord, tokenize(address), featureIndex, FIELD_ADDRESS);
+      addWords(postingsByWord, phoneWords(phone), featureIndex, FIELD_PHONE);
+      nextFeatureIndex = featureIndex + 1;
+    }
+
+    public StoreSearchIndex build() {
+      String[] words = postingsByWord.keySet().toArray(new String[postingsByWord.size()]);
+      Arrays.sort(words);
+      int[][] postings = new int[words.length][];
+      Map<String, IntArray> wordIdsByTrigram = new HashMap<>();
+      for (int wordId = 0; wordId < words.length; wordId++) {
+        postings[wordId] = postingsByWord.get(words[wordId]).toArray();
+        for (String trigram : trigrams(words[wordId])) {
+          IntArray wordIds = wordIdsByTrigram.get(trigram);
+          if (wordIds == null) {
+            wordIds = new IntArray(4);
+            wordIdsByTrigram.put(trigram, wordIds);
+          }
+          wordIds.add(wordId);
+        }
+      }
+      Map<String, int[]> wordsByTrigram = new HashMap<>(wordIdsByTrigram.size() * 2);
+      for (Map.Entry<String, IntArray> entry : wordIdsByTrigram.entrySet()) {
+        wordsByTrigram.put(entry.getKey(), entry.getValue().toArray());
+      }
+      return new StoreSearchIndex(words, postings, wordsByTrigram, latitudes, longitudes);
+    }
+  }
+
+  /**
+   * Per-thread working arrays of a search, all zero between searches
+   */
+  private static final class SearchScratch {
+    final float[] totalScores;
+    final float[] wordScores;
+    final int[] matchedWordCounts;
+    final int[] sharedTrigrams;
+
+    SearchScratch(int storeCount, int wordCount) {
+      totalScores = new float[storeCount];
+      wordScores = new float[storeCount];
+      matchedWordCounts = new int[storeCount];
+      sharedTrigrams = new int[wordCount];
+    }
+  }
+}
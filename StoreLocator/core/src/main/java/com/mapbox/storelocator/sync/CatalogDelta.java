@@ -0,0 +1,45 @@
+package com.mapbox.storelocator.sync;
+
+import java.util.List;
+
+/**
+ * The changes that bring a stored catalog to a new version: stores that were added or updated,
+ * and ids of stores that were deleted. A full delta holds the whole catalog and replaces every
+ * stored store.
+ */
+public final class CatalogDelta {
+
+  private final String version;
+  private final boolean full;
+  private final List<StoreRecord> upserts;
+  private final List<String> deletedIds;
+
+  /**
+   * @param version the version token of the catalog once the delta is applied, e.g. an ETag
+   */
+  public CatalogDelta(String version, boolean full, List<StoreRecord> upserts, List<String> deletedIds) {
+    if (version == null) {
+      throw new IllegalArgumentException("A delta needs the version it brings the catalog to.");
+    }
+    this.version = version;
+    this.full = full;
+    this.upserts = upserts;
+    this.deletedIds = deletedIds;
+  }
+
+  public String getVersion() {
+    return version;
+  }
+
+  public boolean isFull() {
+    return full;
+  }
+
+  public List<StoreRecord> getUpserts() {
+    return upserts;
+  }
+
+  public List<String> getDeletedIds() {
+    return deletedIds;
+  }
+}
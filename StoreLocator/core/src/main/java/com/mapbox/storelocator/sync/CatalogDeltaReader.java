@@ -0,0 +1,89 @@
+package com.mapbox.storelocator.sync;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.mapbox.storelocator.catalog.GeoJsonStoreReader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a catalog delta, which is a GeoJSON FeatureCollection of the added and updated stores with
+ * extra members for the rest of the delta:
+ * <pre>
+ * {
+ *   "version": "42",
+ *   "full": false,
+ *   "deleted": ["store-7", "store-19"],
+ *   "type": "FeatureCollection",
+ *   "features": [...]
+ * }
+ * </pre>
+ * All extra members are optional. Features without an id are skipped, since no later delta could
+ * refer to them.
+ */
+public final class CatalogDeltaReader {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private CatalogDeltaReader() {
+    // Utility class
+  }
+
+  /**
+   * Reads UTF-8 encoded JSON. The stream is closed afterwards.
+   *
+   * @param version the version of the delta when known from elsewhere, such as the ETag of the
+   *                response, which takes precedence over a version member. May be null.
+   * @throws IOException if the JSON is malformed, or no version is known
+   */
+  public static CatalogDelta read(InputStream inputStream, String version) throws IOException {
+    JsonReader jsonReader = new JsonReader(new BufferedReader(new InputStreamReader(inputStream, UTF_8)));
+    try {
+      boolean full = false;
+      final List<StoreRecord> upserts = new ArrayList<>();
+      List<String> deletedIds = new ArrayList<>();
+      jsonReader.beginObject();
+      while (jsonReader.hasNext()) {
+        String name = jsonReader.nextName();
+        if ("features".equals(name)) {
+          GeoJsonStoreReader.readFeatures(jsonReader, new GeoJsonStoreReader.Listener() {
+            @Override
+            public void onStore(String id, String name, String description, String hours, String phone,
+                                double latitude, double longitude) {
+              if (id != null) {
+                upserts.add(new StoreRecord(id, name, description, hours, phone, latitude, longitude));
+              }
+            }
+          });
+        } else if ("deleted".equals(name) && jsonReader.peek() == JsonToken.BEGIN_ARRAY) {
+          jsonReader.beginArray();
+          while (jsonReader.hasNext()) {
+            deletedIds.add(jsonReader.nextString());
+          }
+          jsonReader.endArray();
+        } else if ("full".equals(name) && jsonReader.peek() == JsonToken.BOOLEAN) {
+          full = jsonReader.nextBoolean();
+        } else if ("version".equals(name) && version == null && jsonReader.peek() != JsonToken.NULL) {
+          version = jsonReader.nextString();
+        } else {
+          jsonReader.skipValue();
+        }
+      }
+      jsonReader.endObject();
+      if (version == null) {
+        throw new IOException("Catalog delta has no version.");
+      }
+      return new CatalogDelta(version, full, upserts, deletedIds);
+    } catch (IllegalStateException | NumberFormatException exception) {
+      throw new IOException("Malformed catalog delta.", exception);
+    } finally {
+      jsonReader.close();
+    }
+  }
+}
@@ -0,0 +1,17 @@
+package com.mapbox.storelocator.sync;
+
+import java.io.IOException;
+
+/**
+ * Transport which retrieves the changes to the store catalog from a remote endpoint
+ */
+public interface CatalogSyncTransport {
+
+  /**
+   * Requests the changes since a version of the catalog.
+   *
+   * @param version the version the local catalog is at, or null to request the whole catalog
+   * @return the changes, or null if the catalog hasn't changed since that version
+   */
+  CatalogDelta fetchChanges(String version) throws IOException;
+}
@@ -0,0 +1,33 @@
+package com.mapbox.storelocator.sync;
+
+import java.io.IOException;
+
+/**
+ * Brings a {@link StoreDatabase} up to date with the remote catalog. Only the changes since the
+ * stored version are transferred and written.
+ */
+public final class CatalogSynchronizer {
+
+  private final CatalogSyncTransport transport;
+  private final StoreDatabase database;
+
+  public CatalogSynchronizer(CatalogSyncTransport transport, StoreDatabase database) {
+    this.transport = transport;
+    this.database = database;
+  }
+
+  /**
+   * Fetches and applies the changes since the stored version. Blocks, so callers on a UI thread
+   * should sync on a background thread.
+   *
+   * @return the delta that was applied, or null if the stored catalog was up to date
+   */
+  public synchronized CatalogDelta sync() throws IOException {
+    CatalogDelta delta = transport.fetchChanges(database.getVersion());
+    if (delta == null) {
+      return null;
+    }
+    database.apply(delta);
+    return delta;
+  }
+}
@@ -0,0 +1,26 @@
+package com.mapbox.storelocator.sync;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Local, versioned copy of the store catalog, kept up to date by applying deltas
+ */
+public interface StoreDatabase {
+
+  /**
+   * @return the version token of the stored catalog, or null if no catalog has been stored yet
+   */
+  String getVersion() throws IOException;
+
+  /**
+   * @return every stored store. Stores keep their position when updated, and added stores come last.
+   */
+  List<StoreRecord> readAll() throws IOException;
+
+  /**
+   * Applies a delta and moves the catalog to the delta's version. A delta is applied completely or,
+   * if an exception is thrown, not at all.
+   */
+  void apply(CatalogDelta delta) throws IOException;
+}
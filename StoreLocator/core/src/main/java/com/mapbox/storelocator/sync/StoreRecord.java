@@ -0,0 +1,61 @@
+package com.mapbox.storelocator.sync;
+
+/**
+ * One store as kept by a {@link StoreDatabase}: the catalog values of the store, without any state
+ * derived while the app runs
+ */
+public final class StoreRecord {
+
+  private final String id;
+  private final String name;
+  private final String description;
+  private final String hours;
+  private final String phone;
+  private final double latitude;
+  private final double longitude;
+
+  /**
+   * @param id the store's stable id, which deltas refer to the store by
+   */
+  public StoreRecord(String id, String name, String description, String hours, String phone,
+                     double latitude, double longitude) {
+    if (id == null) {
+      throw new IllegalArgumentException("A stored store needs an id.");
+    }
+    this.id = id;
+    this.name = name;
+    this.description = description;
+    this.hours = hours;
+    this.phone = phone;
+    this.latitude = latitude;
+    this.longitude = longitude;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public String getDescription() {
+    return description;
+  }
+
+  public String getHours() {
+    return hours;
+  }
+
+  public String getPhone() {
+    return phone;
+  }
+
+  public double getLatitude() {
+    return latitude;
+  }
+
+  public double getLongitude() {
+    return longitude;
+  }
+}
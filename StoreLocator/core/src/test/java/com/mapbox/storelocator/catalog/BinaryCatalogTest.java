@@ -0,0 +1,71 @@
+package com.mapbox.storelocator.catalog;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class BinaryCatalogTest {
+
+  private static final String FEATURE_COLLECTION = "{\"type\":\"FeatureCollection\",\"features\":["
+    + "{\"type\":\"Feature\",\"id\":\"a\",\"properties\":{\"name\":\"Caf\u00e9 1\",\"hours\":\"6am - 5pm\","
+    + "\"phone\":\"(555) 555-4355\",\"description\":\"Location #1 description\"},"
+    + "\"geometry\":{\"type\":\"Point\",\"coordinates\":[-73.966889,40.761926]}},"
+    + "{\"type\":\"Feature\",\"properties\":{\"name\":\"Location 2\",\"hours\":\"6am - 5pm\"},"
+    + "\"geometry\":{\"type\":\"Point\",\"coordinates\":[-73.970048,40.789752]}}]}";
+
+  @Test
+  public void writtenCatalog_readsBackEveryStore() throws IOException {
+    BinaryCatalog catalog = compile(FEATURE_COLLECTION);
+
+    assertEquals(2, catalog.size());
+    assertEquals("a", catalog.id(0));
+    assertEquals("Caf\u00e9 1", catalog.name(0));
+    assertEquals("Location #1 description", catalog.description(0));
+    assertEquals("(555) 555-4355", catalog.phone(0));
+    assertEquals(40.761926, catalog.latitude(0), 1e-7);
+    assertEquals(-73.966889, catalog.longitude(0), 1e-7);
+
+    assertNull(catalog.id(1));
+    assertNull(catalog.phone(1));
+    assertEquals("6am - 5pm", catalog.hours(1));
+
+    double[] latitudes = new double[2];
+    double[] longitudes = new double[2];
+    catalog.readCoordinates(latitudes, longitudes);
+    assertEquals(40.789752, latitudes[1], 1e-7);
+    assertEquals(-73.970048, longitudes[1], 1e-7);
+  }
+
+  @Test
+  public void writtenCatalog_storesRepeatedStringsOnce() throws IOException {
+    ByteArrayOutputStream once = new ByteArrayOutputStream();
+    BinaryCatalogWriter.write(new ByteArrayInputStream(FEATURE_COLLECTION.getBytes("UTF-8")), once);
+
+    ByteBuffer buffer = ByteBuffer.wrap(once.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+    // a, Caf\u00e9 1, 6am - 5pm, (555) 555-4355, Location #1 description, Location 2
+    assertEquals(6, buffer.getInt(12));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void wrap_rejectsOtherData() {
+    BinaryCatalog.wrap(ByteBuffer.wrap(new byte[BinaryCatalog.HEADER_SIZE]));
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void read_rejectsUnknownStore() throws IOException {
+    compile(FEATURE_COLLECTION).name(2);
+  }
+
+  private static BinaryCatalog compile(String geoJson) throws IOException {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    BinaryCatalogWriter.write(new ByteArrayInputStream(geoJson.getBytes("UTF-8")), outputStream);
+    return BinaryCatalog.wrap(ByteBuffer.wrap(outputStream.toByteArray()));
+  }
+}
@@ -0,0 +1,78 @@
+package com.mapbox.storelocator.catalog;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class GeoJsonStoreReaderTest {
+
+  private static final String FEATURE_COLLECTION = "{\n"
+    + "  \"type\": \"FeatureCollection\",\n"
+    + "  \"features\": [\n"
+    + "    {\n"
+    + "      \"type\": \"Feature\",\n"
+    + "      \"properties\": {\"name\": \"Location 1\", \"hours\": \"6am - 5pm\", \"phone\": \"(555) 555-4355\","
+    + " \"description\": \"Location #1 description\", \"rating\": {\"stars\": 4}},\n"
+    + "      \"geometry\": {\"type\": \"Point\", \"coordinates\": [-73.966889, 40.761926]}\n"
+    + "    },\n"
+    + "    {\n"
+    + "      \"geometry\": {\"coordinates\": [[-73.9, 40.7], [-73.8, 40.6]], \"type\": \"LineString\"},\n"
+    + "      \"type\": \"Feature\",\n"
+    + "      \"properties\": {\"name\": \"Not a store\"}\n"
+    + "    },\n"
+    + "    {\n"
+    + "      \"geometry\": {\"coordinates\": [-73.970048, 40.789752, 12.5], \"type\": \"Point\"},\n"
+    + "      \"id\": 42,\n"
+    + "      \"properties\": {\"name\": \"Location 2\", \"phone\": null}\n"
+    + "    }\n"
+    + "  ]\n"
+    + "}";
+
+  @Test
+  public void read_emitsPointFeaturesInFileOrder() throws IOException {
+    RecordingListener listener = new RecordingListener();
+
+    int storeCount = GeoJsonStoreReader.read(new StringReader(FEATURE_COLLECTION), listener);
+
+    assertEquals(2, storeCount);
+    assertEquals("Location 1|null|Location #1 description|6am - 5pm|(555) 555-4355|40.761926|-73.966889",
+      listener.stores.get(0));
+    assertEquals("Location 2|42|null|null|null|40.789752|-73.970048", listener.stores.get(1));
+  }
+
+  @Test
+  public void read_skipsByteOrderMark() throws IOException {
+    RecordingListener listener = new RecordingListener();
+    byte[] bytes = ("\uFEFF" + FEATURE_COLLECTION).getBytes("UTF-8");
+
+    assertEquals(2, GeoJsonStoreReader.read(new ByteArrayInputStream(bytes), listener));
+  }
+
+  @Test
+  public void read_emptyCollection() throws IOException {
+    RecordingListener listener = new RecordingListener();
+
+    assertEquals(0, GeoJsonStoreReader.read(new StringReader("{\"type\":\"FeatureCollection\",\"features\":[]}"),
+      listener));
+    assertNull(listener.lastId);
+  }
+
+  private static class RecordingListener implements GeoJsonStoreReader.Listener {
+    final List<String> stores = new ArrayList<>();
+    String lastId;
+
+    @Override
+    public void onStore(String id, String name, String description, String hours, String phone,
+                        double latitude, double longitude) {
+      lastId = id;
+      stores.add(name + "|" + id + "|" + description + "|" + hours + "|" + phone + "|" + latitude + "|" + longitude);
+    }
+  }
+}
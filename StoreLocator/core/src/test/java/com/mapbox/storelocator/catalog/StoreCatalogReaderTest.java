@@ -0,0 +1,123 @@
+package com.mapbox.storelocator.catalog;
+
+import com.mapbox.storelocator.model.IndividualLocation;
+import com.mapbox.storelocator.model.RepositoryLocationList;
+import com.mapbox.storelocator.model.StoreCatalog;
+import com.mapbox.storelocator.repository.InMemoryStoreRepository;
+import com.mapbox.storelocator.sync.CatalogDelta;
+import com.mapbox.storelocator.sync.StoreRecord;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class StoreCatalogReaderTest {
+
+  private static final String FEATURE_COLLECTION = "{\"type\": \"FeatureCollection\", \"features\": ["
+    + "{\"type\": \"Feature\", \"id\": \"downtown\", \"properties\": {\"name\": \"Downtown\", \"hours\": \"6am - 5pm\"},"
+    + " \"geometry\": {\"type\": \"Point\", \"coordinates\": [-74.0, 40.7]}},"
+    + "{\"type\": \"Feature\", \"properties\": {\"name\": \"Uptown\", \"phone\": \"(555) 555-4355\"},"
+    + " \"geometry\": {\"type\": \"Point\", \"coordinates\": [-73.95, 40.8]}}]}";
+
+  @Test
+  public void readGeoJson_buildsLocationsAndIndices() throws IOException {
+    StoreCatalog catalog = StoreCatalogReader.readGeoJson(geoJson());
+
+    assertCatalog(catalog);
+  }
+
+  @Test
+  public void readBinary_matchesGeoJson() throws IOException {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    BinaryCatalogWriter.write(geoJson(), outputStream);
+
+    StoreCatalog catalog = StoreCatalogReader.readBinary(ByteBuffer.wrap(outputStream.toByteArray()));
+
+    assertCatalog(catalog);
+  }
+
+  @Test
+  public void fromRecords_matchesGeoJson() throws IOException {
+    StoreCatalog catalog = StoreCatalogReader.fromRecords(Arrays.asList(
+      new StoreRecord("downtown", "Downtown", null, "6am - 5pm", null, 40.7, -74.0),
+      new StoreRecord("uptown", "Uptown", null, null, "(555) 555-4355", 40.8, -73.95)));
+
+    assertCatalog(catalog);
+  }
+
+  @Test
+  public void readRepository_readsEachStoreOncePrefetched() throws IOException {
+    InMemoryStoreRepository repository = new InMemoryStoreRepository();
+    repository.apply(new CatalogDelta("v1", true, Arrays.asList(
+      new StoreRecord("downtown", "Downtown", null, "6am - 5pm", null, 40.7, -74.0),
+      new StoreRecord("uptown", "Uptown", null, null, "(555) 555-4355", 40.8, -73.95)),
+      Collections.<String>emptyList()));
+
+    StoreCatalog catalog = StoreCatalogReader.readRepository(repository);
+    assertFalse(catalog.getLocations().get(1).isLoaded());
+    assertEquals("", catalog.getLocations().get(1).getName());
+    assertEquals(0, repository.getCount);
+
+    catalog.prefetchLocations(new int[] {1});
+    assertTrue(catalog.getLocations().get(1).isLoaded());
+    assertCatalog(catalog);
+    catalog.prefetchLocations(new int[] {1});
+    assertEquals(1, repository.getCount);
+  }
+
+  @Test
+  public void repositoryLocations_keepTheirDistanceWhenTheirRowIsEvicted() throws IOException {
+    InMemoryStoreRepository repository = new InMemoryStoreRepository();
+    repository.apply(new CatalogDelta("v1", true, Arrays.asList(
+      new StoreRecord("downtown", "Downtown", null, "6am - 5pm", null, 40.7, -74.0),
+      new StoreRecord("uptown", "Uptown", null, null, "(555) 555-4355", 40.8, -73.95)),
+      Collections.<String>emptyList()));
+    StoreCatalog catalog = StoreCatalogReader.readRepository(repository);
+    RepositoryLocationList locations = new RepositoryLocationList(repository, catalog.getStoreRegistry(),
+      new double[] {40.7, 40.8}, new double[] {-74.0, -73.95}, 1);
+
+    locations.get(0).setDistanceInMeters(1200);
+    locations.get(1).setDistanceInMeters(3400);
+    assertEquals(0, repository.getCount);
+
+    locations.prefetch(new int[] {0});
+    assertEquals("Downtown", locations.get(0).getName());
+    locations.prefetch(new int[] {1});
+    assertEquals("Uptown", locations.get(1).getName());
+    assertFalse(locations.get(0).isLoaded());
+    locations.prefetch(new int[] {0});
+    assertEquals("Downtown", locations.get(0).getName());
+    assertEquals(3, repository.getCount);
+    assertEquals(1200, locations.get(0).getDistanceInMeters(), 1e-9);
+  }
+
+  private static void assertCatalog(StoreCatalog catalog) throws IOException {
+    assertEquals(2, catalog.size());
+    assertEquals(0, catalog.getStoreRegistry().featureIndexOf("downtown"));
+
+    IndividualLocation uptown = catalog.getLocations().get(1);
+    assertEquals(catalog.getStoreRegistry().idAt(1), uptown.getId());
+    assertEquals("Uptown", uptown.getName());
+    assertEquals("(555) 555-4355", uptown.getPhoneNum());
+    assertEquals(40.8, uptown.getLatitude(), 1e-6);
+    assertEquals(-73.95, catalog.longitude(1), 1e-6);
+
+    assertEquals(1, catalog.getSpatialIndex().nearest(40.79, -73.95, 1)[0]);
+    assertArrayEquals(new int[] {0}, catalog.getSpatialIndex().withinBounds(40.65, -74.05, 40.75, -73.9));
+  }
+
+  private static ByteArrayInputStream geoJson() {
+    return new ByteArrayInputStream(FEATURE_COLLECTION.getBytes(Charset.forName("UTF-8")));
+  }
+}
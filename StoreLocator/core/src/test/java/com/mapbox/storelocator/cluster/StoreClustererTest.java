@@ -0,0 +1,126 @@
+package com.mapbox.storelocator.cluster;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class StoreClustererTest {
+
+  private static final int STORE_COUNT = 100000;
+
+  private static double[] latitudes;
+  private static double[] longitudes;
+  private static StoreClusterer clusterer;
+
+  @BeforeClass
+  public static void setUp() {
+    // A synthetic catalog spread around New York City
+    Random random = new Random(7);
+    latitudes = new double[STORE_COUNT];
+    longitudes = new double[STORE_COUNT];
+    for (int x = 0; x < STORE_COUNT; x++) {
+      latitudes[x] = 40.5 + random.nextDouble() * 0.5;
+      longitudes[x] = -74.3 + random.nextDouble() * 0.6;
+    }
+    clusterer = StoreClusterer.build(latitudes, longitudes);
+  }
+
+  @Test
+  public void items_coverEveryStoreExactlyOnceAtEveryZoom() {
+    for (int zoom = StoreClusterer.DEFAULT_MIN_ZOOM; zoom <= StoreClusterer.DEFAULT_MAX_ZOOM + 1; zoom++) {
+      boolean[] seen = new boolean[STORE_COUNT];
+      int total = 0;
+      for (int item : clusterer.items(zoom)) {
+        for (int store : clusterer.stores(item)) {
+          assertFalse(seen[store]);
+          seen[store] = true;
+        }
+        total += clusterer.count(item);
+      }
+      assertEquals(STORE_COUNT, total);
+    }
+  }
+
+  @Test
+  public void items_clusterAtLowZoomAndSplitAtHighZoom() {
+    int[] worldZoomItems = clusterer.items(0);
+    assertEquals(1, worldZoomItems.length);
+    assertEquals(STORE_COUNT, clusterer.count(worldZoomItems[0]));
+
+    int[] storeItems = clusterer.items(StoreClusterer.DEFAULT_MAX_ZOOM + 1);
+    assertEquals(STORE_COUNT, storeItems.length);
+    assertTrue(clusterer.isStore(storeItems[0]));
+
+    int cityZoomItemCount = clusterer.items(11).length;
+    assertTrue(cityZoomItemCount > 1 && cityZoomItemCount < 1000);
+  }
+
+  @Test
+  public void items_onlyReturnsItemsInsideBounds() {
+    for (int item : clusterer.items(12, 40.6, -74.1, 40.7, -74.0)) {
+      assertTrue(clusterer.latitude(item) >= 40.6 && clusterer.latitude(item) <= 40.7);
+      assertTrue(clusterer.longitude(item) >= -74.1 && clusterer.longitude(item) <= -74.0);
+    }
+  }
+
+  @Test
+  public void expansionZoom_splitsTheCluster() {
+    int cluster = clusterer.items(0)[0];
+    int expansionZoom = clusterer.expansionZoom(cluster);
+
+    assertTrue(expansionZoom > 0);
+    assertTrue(clusterer.items(expansionZoom).length > 1);
+    assertEquals(1, clusterer.items(expansionZoom - 1).length);
+  }
+
+  @Test
+  public void singleStoreClustersAreReportedAsStores() {
+    StoreClusterer small = StoreClusterer.build(new double[] {40.7, 10}, new double[] {-74, 10});
+
+    int[] items = small.items(3);
+
+    assertEquals(2, items.length);
+    assertTrue(small.isStore(items[0]));
+    assertTrue(small.isStore(items[1]));
+    assertEquals(40.7, small.latitude(small.items(3, 40, -75, 41, -73)[0]), 1e-9);
+  }
+
+  @Test
+  public void countSubset_countsOnlyTheStoresOfTheSubset() {
+    BitSet subset = new BitSet(STORE_COUNT);
+    for (int x = 0; x < STORE_COUNT; x += 3) {
+      subset.set(x);
+    }
+    StoreClusterer.SubsetCounts subsetCounts = clusterer.countSubset(subset);
+
+    for (int zoom : new int[] {0, 8, 12, StoreClusterer.DEFAULT_MAX_ZOOM + 1}) {
+      for (int item : clusterer.items(zoom)) {
+        int expected = 0;
+        for (int store : clusterer.stores(item)) {
+          if (subset.get(store)) {
+            expected++;
+          }
+        }
+        assertEquals(expected, subsetCounts.count(item));
+        int anyStore = subsetCounts.anyStore(item);
+        assertEquals(expected == 0, anyStore < 0);
+        if (anyStore >= 0) {
+          assertTrue(subset.get(anyStore));
+          assertTrue(Arrays.binarySearch(sorted(clusterer.stores(item)), anyStore) >= 0);
+        }
+      }
+    }
+  }
+
+  private static int[] sorted(int[] values) {
+    Arrays.sort(values);
+    return values;
+  }
+}
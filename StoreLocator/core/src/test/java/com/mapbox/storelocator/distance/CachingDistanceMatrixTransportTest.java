@@ -0,0 +1,134 @@
+package com.mapbox.storelocator.distance;
+
+import com.mapbox.geojson.Point;
+import com.mapbox.storelocator.route.DiskDistanceStore;
+import com.mapbox.storelocator.route.DiskRouteStore;
+import com.mapbox.storelocator.route.RouteCache;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class CachingDistanceMatrixTransportTest {
+
+  private static final String PROFILE = "driving";
+  private static final Point ORIGIN = Point.fromLngLat(-74.006735, 40.713469);
+  private static final Executor DIRECT_EXECUTOR = new Executor() {
+    @Override
+    public void execute(Runnable runnable) {
+      runnable.run();
+    }
+  };
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void fetchDistances_onlyRequestsUncachedDestinations() throws IOException {
+    RouteCache routeCache = newRouteCache();
+    List<Point> destinations = Arrays.asList(Point.fromLngLat(-73.9, 40.7), Point.fromLngLat(-73.8, 40.6));
+    routeCache.putDistances(RouteCache.originKey(ORIGIN.latitude(), ORIGIN.longitude(), PROFILE),
+      new long[] {RouteCache.destinationKey(40.7, -73.9)}, new double[] {1000});
+    RecordingTransport transport = new RecordingTransport(2000);
+    RecordingCallback callback = new RecordingCallback();
+
+    newTransport(transport, routeCache).fetchDistances(ORIGIN, destinations, callback);
+
+    assertEquals(1, transport.requestedDestinations.size());
+    assertEquals(Collections.singletonList(destinations.get(1)), transport.requestedDestinations.get(0));
+    assertArrayEquals(new double[] {1000, 2000}, callback.distances, 0);
+
+    // Every distance is cached now, so the second fetch doesn't reach the transport
+    newTransport(transport, routeCache).fetchDistances(ORIGIN, destinations, callback);
+
+    assertEquals(1, transport.requestedDestinations.size());
+    assertArrayEquals(new double[] {1000, 2000}, callback.distances, 0);
+    assertNull(callback.failure);
+  }
+
+  @Test
+  public void fetchDistances_deliversCachedDistancesWhenTransportFails() throws IOException {
+    RouteCache routeCache = newRouteCache();
+    List<Point> destinations = Arrays.asList(Point.fromLngLat(-73.9, 40.7), Point.fromLngLat(-73.8, 40.6));
+    routeCache.putDistances(RouteCache.originKey(ORIGIN.latitude(), ORIGIN.longitude(), PROFILE),
+      new long[] {RouteCache.destinationKey(40.7, -73.9)}, new double[] {1000});
+    RecordingCallback callback = new RecordingCallback();
+
+    newTransport(new FailingTransport(), routeCache).fetchDistances(ORIGIN, destinations, callback);
+
+    assertArrayEquals(new double[] {1000, Double.NaN}, callback.distances, 0);
+  }
+
+  @Test
+  public void fetchDistances_failsWhenNothingIsCached() throws IOException {
+    RecordingCallback callback = new RecordingCallback();
+
+    newTransport(new FailingTransport(), newRouteCache()).fetchDistances(ORIGIN,
+      Collections.singletonList(Point.fromLngLat(-73.9, 40.7)), callback);
+
+    assertNull(callback.distances);
+    assertNotNull(callback.failure);
+  }
+
+  private RouteCache newRouteCache() throws IOException {
+    File cacheDirectory = temporaryFolder.newFolder();
+    return new RouteCache(new DiskRouteStore(cacheDirectory), new DiskDistanceStore(cacheDirectory));
+  }
+
+  private static DistanceMatrixTransport newTransport(DistanceMatrixTransport transport, RouteCache routeCache) {
+    return new CachingDistanceMatrixTransport(transport, routeCache, PROFILE,
+      DIRECT_EXECUTOR, DIRECT_EXECUTOR);
+  }
+
+  private static class RecordingTransport implements DistanceMatrixTransport {
+    private final double distanceInMeters;
+    final List<List<Point>> requestedDestinations = new ArrayList<>();
+
+    RecordingTransport(double distanceInMeters) {
+      this.distanceInMeters = distanceInMeters;
+    }
+
+    @Override
+    public void fetchDistances(Point origin, List<Point> destinations, Callback callback) {
+      requestedDestinations.add(new ArrayList<>(destinations));
+      double[] distances = new double[destinations.size()];
+      Arrays.fill(distances, distanceInMeters);
+      callback.onDistances(distances);
+    }
+  }
+
+  private static class FailingTransport implements DistanceMatrixTransport {
+    @Override
+    public void fetchDistances(Point origin, List<Point> destinations, Callback callback) {
+      callback.onFailure(new IOException("offline"));
+    }
+  }
+
+  private static class RecordingCallback implements DistanceMatrixTransport.Callback {
+    double[] distances;
+    Throwable failure;
+
+    @Override
+    public void onDistances(double[] distancesInMeters) {
+      distances = distancesInMeters;
+    }
+
+    @Override
+    public void onFailure(Throwable throwable) {
+      failure = throwable;
+    }
+  }
+}
@@ -0,0 +1,42 @@
+package com.mapbox.storelocator.distance;
+
+import com.mapbox.storelocator.geo.GeoMath;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class DistanceEstimatorTest {
+
+  private static final double ORIGIN_LATITUDE = 40.713469;
+  private static final double ORIGIN_LONGITUDE = -74.006735;
+
+  @Test
+  public void greatCircleMeters_matchesHaversine() {
+    double[] latitudes = {40.713469, 40.75, 34.05, -33.87};
+    double[] longitudes = {-74.006735, -73.98, -118.24, 151.21};
+    double[] distances = new double[latitudes.length];
+
+    new DistanceEstimator(latitudes, longitudes).greatCircleMeters(ORIGIN_LATITUDE, ORIGIN_LONGITUDE, distances);
+
+    for (int x = 0; x < latitudes.length; x++) {
+      double expected = GeoMath.haversineMeters(ORIGIN_LATITUDE, ORIGIN_LONGITUDE, latitudes[x], longitudes[x]);
+      assertEquals(expected, distances[x], 1e-6 * Math.max(1, expected));
+    }
+  }
+
+  @Test
+  public void equirectangularMeters_isCloseAcrossAMetroArea() {
+    double[] latitudes = {40.6, 40.9, 40.75};
+    double[] longitudes = {-74.2, -73.8, -74.0};
+    double[] distances = new double[latitudes.length];
+
+    new DistanceEstimator(latitudes, longitudes).equirectangularMeters(ORIGIN_LATITUDE, ORIGIN_LONGITUDE,
+      distances);
+
+    for (int x = 0; x < latitudes.length; x++) {
+      double expected = GeoMath.haversineMeters(ORIGIN_LATITUDE, ORIGIN_LONGITUDE, latitudes[x], longitudes[x]);
+      assertEquals(expected, distances[x], expected * 0.005);
+    }
+  }
+}
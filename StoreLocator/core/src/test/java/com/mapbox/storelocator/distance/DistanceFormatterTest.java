@@ -0,0 +1,17 @@
+package com.mapbox.storelocator.distance;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class DistanceFormatterTest {
+
+  @Test
+  public void formatMiles_roundsToOneDecimal() {
+    DistanceFormatter formatter = new DistanceFormatter();
+
+    assertEquals("1", formatter.formatMiles(1609.344));
+    assertEquals("2.5", formatter.formatMiles(4023.36));
+    assertEquals("", formatter.formatMiles(Double.NaN));
+  }
+}
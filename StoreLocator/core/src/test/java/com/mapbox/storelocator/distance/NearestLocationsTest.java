@@ -0,0 +1,92 @@
+package com.mapbox.storelocator.distance;
+
+import com.mapbox.storelocator.model.IndividualLocation;
+import com.mapbox.storelocator.model.StoreCatalog;
+import com.mapbox.storelocator.model.StoreRegistry;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class NearestLocationsTest {
+
+  private static final double ORIGIN_LATITUDE = 40.7;
+  private static final double ORIGIN_LONGITUDE = -74.0;
+
+  @Test
+  public void order_ranksByEstimatedDistanceUntilTravelDistanceIsKnown() {
+    StoreCatalog catalog = catalogAlongMeridian(5);
+    NearestLocations nearestLocations = new NearestLocations(catalog, ORIGIN_LATITUDE, ORIGIN_LONGITUDE, 3);
+
+    int[] order = nearestLocations.order();
+    assertArrayEquals(new int[] {0, 1, 2}, order);
+    for (IndividualLocation location : nearestLocations.locationsAt(order)) {
+      assertTrue(location.isDistanceEstimated());
+    }
+
+    // A long detour to the nearest location moves it down the ranking
+    catalog.getLocations().get(0).setDistanceInMeters(100000);
+    nearestLocations.onDistanceChanged(0);
+
+    assertArrayEquals(new int[] {1, 2, 3}, nearestLocations.order());
+    assertFalse(catalog.getLocations().get(0).isDistanceEstimated());
+  }
+
+  @Test
+  public void loadMoreIfNeeded_addsPageNearTheEnd() {
+    NearestLocations nearestLocations = new NearestLocations(catalogAlongMeridian(5), ORIGIN_LATITUDE,
+      ORIGIN_LONGITUDE, 2);
+
+    assertFalse(nearestLocations.loadMoreIfNeeded(0, 1));
+    assertTrue(nearestLocations.loadMoreIfNeeded(1, 1));
+    assertArrayEquals(new int[] {0, 1, 2, 3}, nearestLocations.order());
+    assertTrue(nearestLocations.loadMoreIfNeeded(3, 1));
+    assertFalse(nearestLocations.loadMoreIfNeeded(4, 1));
+    assertArrayEquals(new int[] {0, 1, 2, 3, 4}, nearestLocations.order());
+  }
+
+  @Test
+  public void setFilter_ranksOnlyIncludedLocations() {
+    StoreCatalog catalog = catalogAlongMeridian(5);
+    NearestLocations nearestLocations = new NearestLocations(catalog, ORIGIN_LATITUDE, ORIGIN_LONGITUDE, 2);
+    catalog.getLocations().get(3).setDistanceInMeters(1);
+    nearestLocations.onDistanceChanged(3);
+
+    BitSet included = new BitSet();
+    included.set(1);
+    included.set(2);
+    included.set(4);
+    nearestLocations.setFilter(included);
+    assertArrayEquals(new int[] {1, 2}, nearestLocations.order());
+    assertTrue(nearestLocations.loadMoreIfNeeded(1, 1));
+    assertArrayEquals(new int[] {1, 2, 4}, nearestLocations.order());
+    assertFalse(nearestLocations.loadMoreIfNeeded(2, 1));
+
+    // Travel distances that arrived while a location was excluded count once it's included again
+    nearestLocations.setFilter(null);
+    assertArrayEquals(new int[] {3, 0}, nearestLocations.order());
+  }
+
+  /**
+   * Locations north of the origin, each further away than the one before
+   */
+  private static StoreCatalog catalogAlongMeridian(int size) {
+    StoreRegistry storeRegistry = new StoreRegistry();
+    List<IndividualLocation> locations = new ArrayList<>();
+    double[] latitudes = new double[size];
+    double[] longitudes = new double[size];
+    for (int x = 0; x < size; x++) {
+      latitudes[x] = ORIGIN_LATITUDE + 0.01 * (x + 1);
+      longitudes[x] = ORIGIN_LONGITUDE;
+      locations.add(new IndividualLocation(storeRegistry.add(null), "Location " + x, null, null, null,
+        latitudes[x], longitudes[x]));
+    }
+    return new StoreCatalog(locations, storeRegistry, latitudes, longitudes);
+  }
+}
@@ -0,0 +1,78 @@
+package com.mapbox.storelocator.distance;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class TopKSelectorTest {
+
+  @Test
+  public void sorted_returnsSmallestKeysFirst() {
+    TopKSelector selector = new TopKSelector(new double[] {5, 1, 4, 2, 3}, 3);
+
+    assertArrayEquals(new int[] {1, 3, 4}, selector.sorted());
+  }
+
+  @Test
+  public void update_movesItemsInAndOutOfTheSelection() {
+    TopKSelector selector = new TopKSelector(new double[] {5, 1, 4, 2, 3}, 2);
+
+    selector.update(1, 10);
+    assertArrayEquals(new int[] {3, 4}, selector.sorted());
+    selector.update(0, 0);
+    assertArrayEquals(new int[] {0, 3}, selector.sorted());
+  }
+
+  @Test
+  public void setLimit_growsAndShrinksTheSelection() {
+    TopKSelector selector = new TopKSelector(new double[] {5, 1, 4, 2, 3}, 2);
+
+    selector.setLimit(10);
+    assertEquals(5, selector.limit());
+    assertArrayEquals(new int[] {1, 3, 4, 2, 0}, selector.sorted());
+    selector.setLimit(1);
+    assertArrayEquals(new int[] {1}, selector.sorted());
+  }
+
+  @Test
+  public void randomUpdates_matchFullSort() {
+    Random random = new Random(3);
+    int size = 5000;
+    double[] keys = new double[size];
+    for (int x = 0; x < size; x++) {
+      keys[x] = random.nextDouble();
+    }
+    TopKSelector selector = new TopKSelector(keys, 20);
+
+    for (int update = 0; update < 20000; update++) {
+      int item = random.nextInt(size);
+      keys[item] = random.nextDouble();
+      selector.update(item, keys[item]);
+      if (update % 1000 == 0) {
+        selector.setLimit(10 + random.nextInt(40));
+      }
+    }
+
+    Integer[] items = new Integer[size];
+    for (int x = 0; x < size; x++) {
+      items[x] = x;
+    }
+    final double[] finalKeys = keys;
+    Arrays.sort(items, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer first, Integer second) {
+        return Double.compare(finalKeys[first], finalKeys[second]);
+      }
+    });
+    int[] expected = new int[selector.limit()];
+    for (int x = 0; x < expected.length; x++) {
+      expected[x] = items[x];
+    }
+    assertArrayEquals(expected, selector.sorted());
+  }
+}
@@ -0,0 +1,76 @@
+package com.mapbox.storelocator.geo;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GeohashTest {
+
+  @Test
+  public void encode_matchesKnownGeohashes() {
+    assertEquals("dr5regw3p", Geohash.encode(40.7128, -74.0060, 9));
+    assertEquals("u4pruydqqvj", Geohash.encode(57.64911, 10.40744, 11));
+    assertEquals("s", Geohash.encode(0, 0, 1));
+  }
+
+  @Test
+  public void encode_prefixIsCoarserGeohash() {
+    String geohash = Geohash.encode(40.7128, -74.0060, Geohash.MAX_PRECISION);
+    for (int precision = 1; precision < Geohash.MAX_PRECISION; precision++) {
+      assertEquals(geohash.substring(0, precision), Geohash.encode(40.7128, -74.0060, precision));
+    }
+  }
+
+  @Test
+  public void cellSize_shrinksBy32EveryTwoCharacters() {
+    assertEquals(45, Geohash.cellHeight(1), 0);
+    assertEquals(45, Geohash.cellWidth(1), 0);
+    assertEquals(Geohash.cellHeight(3) / 32, Geohash.cellHeight(5), 0);
+  }
+
+  @Test
+  public void cover_usesFewestSmallestCells() {
+    assertArrayEquals(new String[] {"dr5rs"}, Geohash.cover(40.70, -74.00, 40.71, -73.99, 1));
+    assertArrayEquals(new String[] {""}, Geohash.cover(-90, -180, 90, 180, 16));
+    assertEquals(0, Geohash.cover(10, 0, 5, 1, 16).length);
+  }
+
+  @Test
+  public void coverRanges_containEveryGeohashInsideTheBox() {
+    Random random = new Random(42);
+    for (int query = 0; query < 200; query++) {
+      double south = -80 + random.nextDouble() * 160;
+      double west = -170 + random.nextDouble() * 340;
+      double size = Math.pow(10, -3 + random.nextDouble() * 4);
+      double north = Math.min(90, south + size);
+      double east = Math.min(180, west + size * 1.5);
+      List<String[]> ranges = Geohash.coverRanges(south, west, north, east, 16);
+      assertTrue(ranges.size() <= 16);
+
+      for (int point = 0; point < 50; point++) {
+        double latitude = south + random.nextDouble() * (north - south);
+        double longitude = west + random.nextDouble() * (east - west);
+        String geohash = Geohash.encode(latitude, longitude, 9);
+        boolean covered = false;
+        for (String[] range : ranges) {
+          covered |= geohash.compareTo(range[0]) >= 0 && geohash.compareTo(range[1]) < 0;
+        }
+        assertTrue(geohash + " isn't covered", covered);
+      }
+    }
+  }
+
+  @Test
+  public void coverRanges_mergesNeighbouringCells() {
+    String[] cells = Geohash.cover(40.70, -74.00, 40.75, -73.95, 16);
+    List<String[]> ranges = Geohash.coverRanges(40.70, -74.00, 40.75, -73.95, 16);
+    assertTrue(ranges.size() < cells.length);
+    assertEquals(cells[0], ranges.get(0)[0]);
+    assertEquals(Geohash.upperBound(cells[cells.length - 1]), ranges.get(ranges.size() - 1)[1]);
+  }
+}
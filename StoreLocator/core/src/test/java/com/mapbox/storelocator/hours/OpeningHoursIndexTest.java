@@ -0,0 +1,55 @@
+package com.mapbox.storelocator.hours;
+
+import com.mapbox.storelocator.model.IndividualLocation;
+import com.mapbox.storelocator.model.StoreCatalog;
+import com.mapbox.storelocator.model.StoreRegistry;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Calendar;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class OpeningHoursIndexTest {
+
+  @Test
+  public void openAt_findsStoresOpenAtMinute() {
+    OpeningHoursIndex index = OpeningHoursIndex.build(catalog("6am - 5pm", "10am - 8pm", "6am - 5pm", "closed soon",
+      "Mon-Fri 9am - 4pm"));
+
+    assertEquals(4, index.scheduleCount());
+    BitSet saturdayMorning = index.openAt(OpeningHours.minuteOfWeek(Calendar.SATURDAY, 7 * 60));
+    assertEquals(bits(0, 2), saturdayMorning);
+    BitSet mondayEvening = index.openAt(OpeningHours.minuteOfWeek(Calendar.MONDAY, 19 * 60));
+    assertEquals(bits(1), mondayEvening);
+    assertTrue(index.isOpenAt(4, OpeningHours.minuteOfWeek(Calendar.MONDAY, 10 * 60)));
+    assertFalse(index.hoursOf(3).isKnown());
+  }
+
+  private static BitSet bits(int... featureIndices) {
+    BitSet bits = new BitSet();
+    for (int featureIndex : featureIndices) {
+      bits.set(featureIndex);
+    }
+    return bits;
+  }
+
+  private static StoreCatalog catalog(String... hours) {
+    StoreRegistry storeRegistry = new StoreRegistry();
+    List<IndividualLocation> locations = new ArrayList<>();
+    double[] latitudes = new double[hours.length];
+    double[] longitudes = new double[hours.length];
+    for (int x = 0; x < hours.length; x++) {
+      latitudes[x] = 40.7 + 0.01 * x;
+      longitudes[x] = -74.0;
+      locations.add(new IndividualLocation(storeRegistry.add(null), "Location " + x, null, hours[x], null,
+        latitudes[x], longitudes[x]));
+    }
+    return new StoreCatalog(locations, storeRegistry, latitudes, longitudes);
+  }
+}
@@ -0,0 +1,65 @@
+package com.mapbox.storelocator.hours;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class OpeningHoursTest {
+
+  @Test
+  public void parsesDailyRange() {
+    OpeningHours hours = OpeningHours.parse("8am - 5:30pm");
+
+    assertTrue(hours.isKnown());
+    assertFalse(hours.isOpenAt(at(Calendar.MONDAY, 7, 59)));
+    assertTrue(hours.isOpenAt(at(Calendar.MONDAY, 8, 0)));
+    assertTrue(hours.isOpenAt(at(Calendar.SUNDAY, 17, 29)));
+    assertFalse(hours.isOpenAt(at(Calendar.SUNDAY, 17, 30)));
+  }
+
+  @Test
+  public void parsesRulesPerDay() {
+    OpeningHours hours = OpeningHours.parse("Mon-Fri 9am - 12pm, 1pm - 6pm; Saturday: 10am - 2pm; Sun closed");
+
+    assertTrue(hours.isOpenAt(at(Calendar.FRIDAY, 11, 0)));
+    assertFalse(hours.isOpenAt(at(Calendar.FRIDAY, 12, 30)));
+    assertTrue(hours.isOpenAt(at(Calendar.FRIDAY, 13, 0)));
+    assertTrue(hours.isOpenAt(at(Calendar.SATURDAY, 13, 0)));
+    assertFalse(hours.isOpenAt(at(Calendar.SATURDAY, 15, 0)));
+    assertFalse(hours.isOpenAt(at(Calendar.SUNDAY, 11, 0)));
+  }
+
+  @Test
+  public void rangeEndingAfterMidnightRunsIntoNextDay() {
+    OpeningHours hours = OpeningHours.parse("Sat 6pm - 2am");
+
+    assertTrue(hours.isOpenAt(at(Calendar.SATURDAY, 23, 0)));
+    assertTrue(hours.isOpenAt(at(Calendar.SUNDAY, 1, 0)));
+    assertFalse(hours.isOpenAt(at(Calendar.SUNDAY, 2, 0)));
+    assertFalse(hours.isOpenAt(at(Calendar.SATURDAY, 1, 0)));
+  }
+
+  @Test
+  public void parsesAllDay() {
+    OpeningHours hours = OpeningHours.parse("24 hours");
+
+    assertTrue(hours.isOpenAt(at(Calendar.WEDNESDAY, 3, 0)));
+    assertTrue(hours.isOpenAt(OpeningHours.MINUTES_PER_WEEK - 1));
+  }
+
+  @Test
+  public void unparseableHoursAreNeverOpen() {
+    assertSame(OpeningHours.UNKNOWN, OpeningHours.parse("by appointment"));
+    assertSame(OpeningHours.UNKNOWN, OpeningHours.parse("13pm - 5pm"));
+    assertSame(OpeningHours.UNKNOWN, OpeningHours.parse(null));
+    assertFalse(OpeningHours.UNKNOWN.isOpenAt(at(Calendar.MONDAY, 12, 0)));
+  }
+
+  private static int at(int dayOfWeek, int hour, int minute) {
+    return OpeningHours.minuteOfWeek(dayOfWeek, hour * 60 + minute);
+  }
+}
@@ -0,0 +1,121 @@
+package com.mapbox.storelocator.index;
+
+import com.mapbox.storelocator.geo.GeoMath;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class KdTreeIndexTest {
+
+  private static final int STORE_COUNT = 20000;
+  private static final double QUERY_LATITUDE = 40.713469;
+  private static final double QUERY_LONGITUDE = -74.006735;
+
+  private double[] latitudes;
+  private double[] longitudes;
+  private KdTreeIndex index;
+
+  @Before
+  public void setUp() {
+    Random random = new Random(42);
+    latitudes = new double[STORE_COUNT];
+    longitudes = new double[STORE_COUNT];
+    for (int x = 0; x < STORE_COUNT; x++) {
+      latitudes[x] = 40.4 + random.nextDouble() * 0.6;
+      longitudes[x] = -74.3 + random.nextDouble() * 0.6;
+    }
+    index = KdTreeIndex.build(latitudes, longitudes);
+  }
+
+  @Test
+  public void nearest_matchesLinearScan() {
+    int[] nearest = index.nearest(QUERY_LATITUDE, QUERY_LONGITUDE, 20);
+
+    List<Integer> expected = sortedByDistance(QUERY_LATITUDE, QUERY_LONGITUDE);
+    int[] expectedNearest = new int[20];
+    for (int x = 0; x < 20; x++) {
+      expectedNearest[x] = expected.get(x);
+    }
+    assertArrayEquals(expectedNearest, nearest);
+  }
+
+  @Test
+  public void nearest_returnsWholeCatalogWhenCountIsLarger() {
+    KdTreeIndex smallIndex = KdTreeIndex.build(new double[] {1, 2, 3}, new double[] {1, 2, 3});
+    assertArrayEquals(new int[] {1, 2, 0}, smallIndex.nearest(2.1, 2.1, 10));
+  }
+
+  @Test
+  public void withinRadius_matchesLinearScan() {
+    double radius = 2500;
+    int[] result = index.withinRadius(QUERY_LATITUDE, QUERY_LONGITUDE, radius);
+
+    List<Integer> expected = new ArrayList<>();
+    for (int x = 0; x < STORE_COUNT; x++) {
+      if (GeoMath.haversineMeters(QUERY_LATITUDE, QUERY_LONGITUDE, latitudes[x], longitudes[x]) <= radius) {
+        expected.add(x);
+      }
+    }
+    assertEquals(expected, sorted(result));
+  }
+
+  @Test
+  public void withinBounds_matchesLinearScan() {
+    double south = 40.70;
+    double west = -74.02;
+    double north = 40.76;
+    double east = -73.95;
+    int[] result = index.withinBounds(south, west, north, east);
+
+    List<Integer> expected = new ArrayList<>();
+    for (int x = 0; x < STORE_COUNT; x++) {
+      if (latitudes[x] >= south && latitudes[x] <= north && longitudes[x] >= west && longitudes[x] <= east) {
+        expected.add(x);
+      }
+    }
+    assertEquals(expected, sorted(result));
+  }
+
+  @Test
+  public void emptyIndex_returnsNoResults() {
+    KdTreeIndex emptyIndex = KdTreeIndex.build(new double[0], new double[0]);
+    assertEquals(0, emptyIndex.nearest(0, 0, 5).length);
+    assertEquals(0, emptyIndex.withinBounds(-90, -180, 90, 180).length);
+  }
+
+  private List<Integer> sortedByDistance(final double latitude, final double longitude) {
+    List<Integer> positions = new ArrayList<>();
+    for (int x = 0; x < STORE_COUNT; x++) {
+      positions.add(x);
+    }
+    Collections.sort(positions, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer first, Integer second) {
+        return Double.compare(
+          GeoMath.haversineMeters(latitude, longitude, latitudes[first], longitudes[first]),
+          GeoMath.haversineMeters(latitude, longitude, latitudes[second], longitudes[second]));
+      }
+    });
+    return positions;
+  }
+
+  private static List<Integer> sorted(int[] values) {
+    int[] copy = Arrays.copyOf(values, values.length);
+    Arrays.sort(copy);
+    List<Integer> list = new ArrayList<>();
+    for (int value : copy) {
+      list.add(value);
+    }
+    return list;
+  }
+}
@@ -0,0 +1,48 @@
+package com.mapbox.storelocator.model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class StoreRegistryTest {
+
+  @Test
+  public void add_keepsCatalogIds() {
+    StoreRegistry registry = new StoreRegistry();
+    registry.add("downtown");
+    registry.add("uptown");
+
+    assertEquals(1, registry.featureIndexOf("uptown"));
+    assertEquals("downtown", registry.idAt(0));
+    assertEquals(StoreRegistry.NOT_FOUND, registry.featureIndexOf("midtown"));
+  }
+
+  @Test
+  public void add_generatesIdsForMissingAndDuplicateIds() {
+    StoreRegistry registry = new StoreRegistry();
+    String first = registry.add("same");
+    String second = registry.add("same");
+    String third = registry.add(null);
+
+    assertNotEquals(first, second);
+    assertEquals(1, registry.featureIndexOf(second));
+    assertEquals(2, registry.featureIndexOf(third));
+  }
+
+  @Test
+  public void cardPositions_followCardOrder() {
+    StoreRegistry registry = new StoreRegistry();
+    for (int x = 0; x < 4; x++) {
+      registry.add(null);
+    }
+    assertEquals(2, registry.cardPositionOf(2));
+
+    registry.setCardOrder(new int[] {3, 1});
+
+    assertEquals(0, registry.cardPositionOf(3));
+    assertEquals(1, registry.featureIndexAt(1));
+    assertEquals(StoreRegistry.NOT_FOUND, registry.cardPositionOf(0));
+    assertEquals(StoreRegistry.NOT_FOUND, registry.featureIndexAt(2));
+  }
+}
@@ -0,0 +1,40 @@
+package com.mapbox.storelocator.model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class StoreSelectionTest {
+
+  @Test
+  public void toggle_selectsAndDeselects() {
+    StoreRegistry registry = new StoreRegistry();
+    registry.add("downtown");
+    registry.add("uptown");
+    registry.setCardOrder(new int[] {1, 0});
+    StoreSelection selection = new StoreSelection(registry);
+
+    assertEquals(1, selection.toggleStore("uptown"));
+    assertEquals(1, selection.getSelectedFeatureIndex());
+    assertEquals(0, selection.getSelectedCardPosition());
+
+    assertEquals(0, selection.toggleCard(1));
+    assertEquals(0, selection.getSelectedFeatureIndex());
+
+    assertEquals(0, selection.toggleStore("downtown"));
+    assertEquals(StoreRegistry.NOT_FOUND, selection.getSelectedFeatureIndex());
+    assertEquals(StoreRegistry.NOT_FOUND, selection.getSelectedCardPosition());
+  }
+
+  @Test
+  public void toggle_ignoresUnknownStores() {
+    StoreRegistry registry = new StoreRegistry();
+    registry.add("downtown");
+    StoreSelection selection = new StoreSelection(registry);
+    selection.toggleStore("downtown");
+
+    assertEquals(StoreRegistry.NOT_FOUND, selection.toggleStore("midtown"));
+    assertEquals(StoreRegistry.NOT_FOUND, selection.toggleCard(5));
+    assertEquals(0, selection.getSelectedFeatureIndex());
+  }
+}
@@ -0,0 +1,130 @@
+package com.mapbox.storelocator.repository;
+
+import com.mapbox.storelocator.geo.Geohash;
+import com.mapbox.storelocator.sync.CatalogDelta;
+import com.mapbox.storelocator.sync.StoreRecord;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Repository which answers box queries the way a database with a geohash index would: by scanning
+ * the geohash ranges covering the box, then dropping the stores outside it. Records how many stores
+ * were scanned, the most returned by a single box query, and how many were read one at a time.
+ */
+public class InMemoryStoreRepository implements StoreRepository {
+
+  private static final int GEOHASH_PRECISION = 9;
+  private static final int MAX_COVER_CELLS = 16;
+
+  private final List<StoreRecord> records = new ArrayList<>();
+  private final List<String> geohashes = new ArrayList<>();
+  private String version;
+  public int scannedCount;
+  public int maxBoundsResultSize;
+  public int getCount;
+
+  @Override
+  public String getVersion() {
+    return version;
+  }
+
+  @Override
+  public List<StoreRecord> readAll() {
+    return new ArrayList<>(records);
+  }
+
+  @Override
+  public void apply(CatalogDelta delta) {
+    if (delta.isFull()) {
+      records.clear();
+      geohashes.clear();
+    }
+    for (String id : delta.getDeletedIds()) {
+      int position = positionOf(id);
+      if (position >= 0) {
+        records.remove(position);
+        geohashes.remove(position);
+      }
+    }
+    for (StoreRecord record : delta.getUpserts()) {
+      String geohash = Geohash.encode(record.getLatitude(), record.getLongitude(), GEOHASH_PRECISION);
+      int position = positionOf(record.getId());
+      if (position >= 0) {
+        records.set(position, record);
+        geohashes.set(position, geohash);
+      } else {
+        records.add(record);
+        geohashes.add(geohash);
+      }
+    }
+    version = delta.getVersion();
+  }
+
+  @Override
+  public int count() {
+    return records.size();
+  }
+
+  @Override
+  public StoreRecord get(String id) {
+    getCount++;
+    int position = positionOf(id);
+    return position >= 0 ? records.get(position) : null;
+  }
+
+  @Override
+  public void readLocations(LocationListener listener) {
+    for (StoreRecord record : records) {
+      listener.onLocation(record.getId(), record.getLatitude(), record.getLongitude());
+    }
+  }
+
+  @Override
+  public void readText(TextListener listener) {
+    for (StoreRecord record : records) {
+      listener.onText(record.getId(), record.getName(), record.getDescription(), record.getHours(),
+        record.getPhone());
+    }
+  }
+
+  @Override
+  public List<StoreRecord> withinBounds(double south, double west, double north, double east, int limit) {
+    List<StoreRecord> result = new ArrayList<>();
+    for (String[] range : Geohash.coverRanges(south, west, north, east, MAX_COVER_CELLS)) {
+      for (int x = 0; x < records.size(); x++) {
+        String geohash = geohashes.get(x);
+        if (geohash.compareTo(range[0]) < 0 || geohash.compareTo(range[1]) >= 0) {
+          continue;
+        }
+        scannedCount++;
+        StoreRecord record = records.get(x);
+        if (record.getLatitude() >= south && record.getLatitude() <= north
+          && record.getLongitude() >= west && record.getLongitude() <= east) {
+          result.add(record);
+          if (result.size() == limit) {
+            maxBoundsResultSize = Math.max(maxBoundsResultSize, result.size());
+            return result;
+          }
+        }
+      }
+    }
+    maxBoundsResultSize = Math.max(maxBoundsResultSize, result.size());
+    return result;
+  }
+
+  @Override
+  public List<StoreRecord> nearest(double latitude, double longitude, int count) throws IOException {
+    return NearestStoreSearch.nearest(this, latitude, longitude, count);
+  }
+
+  private int positionOf(String id) {
+    for (int x = 0; x < records.size(); x++) {
+      if (records.get(x).getId().equals(id)) {
+        return x;
+      }
+    }
+    return -1;
+  }
+}
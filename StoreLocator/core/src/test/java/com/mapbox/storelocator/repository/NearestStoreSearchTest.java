@@ -0,0 +1,99 @@
+package com.mapbox.storelocator.repository;
+
+import com.mapbox.storelocator.geo.GeoMath;
+import com.mapbox.storelocator.sync.CatalogDelta;
+import com.mapbox.storelocator.sync.StoreRecord;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class NearestStoreSearchTest {
+
+  private static final int STORE_COUNT = 2000;
+  private static final double QUERY_LATITUDE = 40.713469;
+  private static final double QUERY_LONGITUDE = -74.006735;
+
+  private InMemoryStoreRepository repository;
+  private List<StoreRecord> stores;
+
+  @Before
+  public void setUp() {
+    Random random = new Random(42);
+    stores = new ArrayList<>(STORE_COUNT);
+    for (int x = 0; x < STORE_COUNT; x++) {
+      stores.add(new StoreRecord("store-" + x, "Store " + x, null, null, null,
+        40.4 + random.nextDouble() * 0.6, -74.3 + random.nextDouble() * 0.6));
+    }
+    repository = new InMemoryStoreRepository();
+    repository.apply(new CatalogDelta("v1", true, stores, Collections.<String>emptyList()));
+  }
+
+  @Test
+  public void nearest_matchesLinearScan() throws IOException {
+    List<StoreRecord> nearest = NearestStoreSearch.nearest(repository, QUERY_LATITUDE, QUERY_LONGITUDE, 20);
+
+    assertEquals(sortedByDistance(QUERY_LATITUDE, QUERY_LONGITUDE).subList(0, 20), ids(nearest));
+  }
+
+  @Test
+  public void nearest_onlyScansStoresNearTheCoordinate() throws IOException {
+    NearestStoreSearch.nearest(repository, QUERY_LATITUDE, QUERY_LONGITUDE, 5);
+
+    assertTrue(repository.scannedCount < STORE_COUNT / 10);
+  }
+
+  @Test
+  public void nearest_boundsTheRowsReadAroundACrowdedCoordinate() throws IOException {
+    Random random = new Random(7);
+    List<StoreRecord> crowded = new ArrayList<>(STORE_COUNT);
+    for (int x = 0; x < STORE_COUNT; x++) {
+      crowded.add(new StoreRecord("crowded-" + x, "Crowded " + x, null, null, null,
+        QUERY_LATITUDE + (random.nextDouble() - .5) * .002, QUERY_LONGITUDE + (random.nextDouble() - .5) * .002));
+    }
+    repository.apply(new CatalogDelta("v2", false, crowded, Collections.<String>emptyList()));
+    stores.addAll(crowded);
+
+    List<StoreRecord> nearest = NearestStoreSearch.nearest(repository, QUERY_LATITUDE, QUERY_LONGITUDE, 10);
+
+    assertEquals(sortedByDistance(QUERY_LATITUDE, QUERY_LONGITUDE).subList(0, 10), ids(nearest));
+    assertTrue(repository.maxBoundsResultSize <= NearestStoreSearch.MIN_ROW_LIMIT + 1);
+  }
+
+  @Test
+  public void nearest_returnsEveryStoreWhenCountIsLarger() throws IOException {
+    List<StoreRecord> nearest = NearestStoreSearch.nearest(repository, -33.87, 151.21, STORE_COUNT + 10);
+
+    assertEquals(sortedByDistance(-33.87, 151.21), ids(nearest));
+  }
+
+  private List<String> sortedByDistance(final double latitude, final double longitude) {
+    List<StoreRecord> sorted = new ArrayList<>(stores);
+    Collections.sort(sorted, new Comparator<StoreRecord>() {
+      @Override
+      public int compare(StoreRecord left, StoreRecord right) {
+        return Double.compare(
+          GeoMath.haversineMeters(latitude, longitude, left.getLatitude(), left.getLongitude()),
+          GeoMath.haversineMeters(latitude, longitude, right.getLatitude(), right.getLongitude()));
+      }
+    });
+    return ids(sorted);
+  }
+
+  private static List<String> ids(List<StoreRecord> records) {
+    List<String> ids = new ArrayList<>(records.size());
+    for (StoreRecord record : records) {
+      ids.add(record.getId());
+    }
+    return ids;
+  }
+}
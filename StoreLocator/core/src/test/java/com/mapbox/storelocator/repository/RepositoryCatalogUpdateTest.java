@@ -0,0 +1,143 @@
+package com.mapbox.storelocator.repository;
+
+import com.mapbox.storelocator.catalog.StoreCatalogReader;
+import com.mapbox.storelocator.hours.OpeningHours;
+import com.mapbox.storelocator.model.IndividualLocation;
+import com.mapbox.storelocator.model.StoreCatalog;
+import com.mapbox.storelocator.sync.CatalogDelta;
+import com.mapbox.storelocator.sync.StoreRecord;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RepositoryCatalogUpdateTest {
+
+  private static final int STORE_COUNT = 50;
+  private static final int SATURDAY_MORNING = OpeningHours.minuteOfWeek(Calendar.SATURDAY, 7 * 60);
+
+  private InMemoryStoreRepository repository;
+  private StoreCatalog catalog;
+  private RepositoryIndexes indexes;
+
+  @Before
+  public void setUp() throws IOException {
+    List<StoreRecord> stores = new ArrayList<>();
+    for (int x = 0; x < STORE_COUNT; x++) {
+      stores.add(new StoreRecord("store-" + x, "Store " + x, x + " Broadway", "6am - 5pm",
+        "(212) 555-" + (1000 + x), 40.7 + 0.001 * x, -74.0));
+    }
+    repository = new InMemoryStoreRepository();
+    repository.apply(new CatalogDelta("v1", true, stores, Collections.<String>emptyList()));
+    catalog = StoreCatalogReader.readRepository(repository);
+    indexes = RepositoryIndexes.build(repository, catalog);
+  }
+
+  @Test
+  public void apply_indexesTheAddedUpdatedAndRemovedStores() throws IOException {
+    RepositoryCatalogUpdate update = sync(Arrays.asList(
+      new StoreRecord("store-new", "Harbor Market", "1 Pier St", "6am - 5pm", "(212) 555-9999", 40.6, -74.1),
+      new StoreRecord("store-3", "Lighthouse Deli", "3 Broadway", "Mon-Fri 9am - 4pm", "(212) 555-1003",
+        40.703, -74.0)), Collections.singletonList("store-5"));
+    StoreCatalog updatedCatalog = update.getStoreCatalog();
+
+    assertEquals(STORE_COUNT + 1, updatedCatalog.size());
+    assertEquals(STORE_COUNT, updatedCatalog.getStoreRegistry().featureIndexOf("store-new"));
+    assertEquals(3, updatedCatalog.getStoreRegistry().featureIndexOf("store-3"));
+    assertArrayEquals(new int[] {3, 5, STORE_COUNT}, changedStores(update));
+
+    assertArrayEquals(new int[] {STORE_COUNT},
+      update.getStoreSearchIndex().search("harbor", Double.NaN, Double.NaN, 10));
+    assertArrayEquals(new int[] {3}, update.getStoreSearchIndex().search("lighthouse", Double.NaN, Double.NaN, 10));
+    int[] removedStoreResults = update.getStoreSearchIndex().search("2125551005", Double.NaN, Double.NaN,
+      STORE_COUNT);
+    assertFalse(Arrays.toString(removedStoreResults), contains(removedStoreResults, 5));
+    assertEquals(4, update.getStoreSearchIndex().search("2125551004", Double.NaN, Double.NaN, 10)[0]);
+
+    assertTrue(updatedCatalog.isRemoved(5));
+    assertFalse(updatedCatalog.liveStores().get(5));
+    assertTrue(update.getOpeningHoursIndex().isOpenAt(STORE_COUNT, SATURDAY_MORNING));
+    assertFalse(update.getOpeningHoursIndex().isOpenAt(3, SATURDAY_MORNING));
+    assertFalse(update.getOpeningHoursIndex().isOpenAt(5, SATURDAY_MORNING));
+    assertTrue(update.getOpeningHoursIndex().isOpenAt(4, SATURDAY_MORNING));
+
+    assertArrayEquals(new int[] {STORE_COUNT}, updatedCatalog.getSpatialIndex().nearest(40.6, -74.1, 1));
+  }
+
+  @Test
+  public void apply_keepsTheLocationsOfUnchangedStores() throws IOException {
+    IndividualLocation unchanged = catalog.getLocations().get(1);
+    unchanged.setDistanceInMeters(1234);
+    catalog.prefetchLocations(new int[] {1, 3});
+
+    RepositoryCatalogUpdate update = sync(Collections.singletonList(new StoreRecord("store-3", "Lighthouse Deli",
+      "3 Broadway", "6am - 5pm", "(212) 555-1003", 40.703, -74.0)), Collections.<String>emptyList());
+    List<IndividualLocation> locations = update.getStoreCatalog().getLocations();
+
+    assertSame(unchanged, locations.get(1));
+    assertEquals(1234, locations.get(1).getDistanceInMeters(), 0);
+    assertTrue(locations.get(1).isLoaded());
+    assertFalse(locations.get(3).isLoaded());
+    update.getStoreCatalog().prefetchLocations(new int[] {3});
+    assertEquals("Lighthouse Deli", locations.get(3).getName());
+  }
+
+  @Test
+  public void apply_clustersTheStoresAgainOnlyOnceStoresMoved() throws IOException {
+    StoreRecord renamed = new StoreRecord("store-3", "Lighthouse Deli", "3 Broadway", "6am - 5pm",
+      "(212) 555-1003", 40.703, -74.0);
+    StoreCatalog renamedCatalog = sync(Collections.singletonList(renamed), Collections.<String>emptyList())
+      .getStoreCatalog();
+
+    assertSame(catalog.getStoreClusterer(), renamedCatalog.getStoreClusterer());
+
+    StoreRecord moved = new StoreRecord("store-3", "Lighthouse Deli", "3 Broadway", "6am - 5pm",
+      "(212) 555-1003", 41.0, -73.5);
+    StoreCatalog movedCatalog = sync(Collections.singletonList(moved), Collections.<String>emptyList())
+      .getStoreCatalog();
+
+    assertNotSame(catalog.getStoreClusterer(), movedCatalog.getStoreClusterer());
+    assertEquals(41.0, movedCatalog.latitude(3), 0);
+  }
+
+  private RepositoryCatalogUpdate sync(List<StoreRecord> upserts, List<String> deletedIds) {
+    CatalogDelta delta = new CatalogDelta("v2", false, upserts, deletedIds);
+    repository.apply(delta);
+    return RepositoryCatalogUpdate.apply(repository, catalog, indexes.getOpeningHoursIndex(),
+      indexes.getStoreSearchIndex(), delta);
+  }
+
+  private static boolean contains(int[] featureIndices, int featureIndex) {
+    for (int x : featureIndices) {
+      if (x == featureIndex) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static int[] changedStores(RepositoryCatalogUpdate update) {
+    BitSet changedStores = update.getChangedStores();
+    int[] featureIndices = new int[changedStores.cardinality()];
+    int count = 0;
+    for (int featureIndex = changedStores.nextSetBit(0); featureIndex >= 0;
+         featureIndex = changedStores.nextSetBit(featureIndex + 1)) {
+      featureIndices[count++] = featureIndex;
+    }
+    return featureIndices;
+  }
+}
@@ -0,0 +1,89 @@
+package com.mapbox.storelocator.repository;
+
+import com.mapbox.storelocator.catalog.StoreCatalogReader;
+import com.mapbox.storelocator.hours.OpeningHours;
+import com.mapbox.storelocator.hours.OpeningHoursIndex;
+import com.mapbox.storelocator.model.StoreCatalog;
+import com.mapbox.storelocator.search.StoreSearchIndex;
+import com.mapbox.storelocator.sync.CatalogDelta;
+import com.mapbox.storelocator.sync.StoreRecord;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RepositoryIndexesTest {
+
+  private static final String[] HOURS = {"6am - 5pm", "10am - 8pm", null, "Mon-Fri 9am - 4pm"};
+  private static final String[] STREETS = {"Broadway", "Canal St", "Bedford Ave"};
+
+  private InMemoryStoreRepository repository;
+  private List<StoreRecord> stores;
+
+  @Before
+  public void setUp() {
+    stores = new ArrayList<>();
+    for (int x = 0; x < 200; x++) {
+      stores.add(new StoreRecord("store-" + x, "Store " + x, x + " " + STREETS[x % STREETS.length],
+        HOURS[x % HOURS.length], "(212) 555-" + (1000 + x), 40.7 + 0.001 * x, -74.0));
+    }
+    repository = new InMemoryStoreRepository();
+    repository.apply(new CatalogDelta("v1", true, stores, Collections.<String>emptyList()));
+  }
+
+  @Test
+  public void build_readsNoStoreOnItsOwn() throws IOException {
+    RepositoryIndexes.build(repository, StoreCatalogReader.readRepository(repository));
+
+    assertEquals(0, repository.getCount);
+  }
+
+  @Test
+  public void build_matchesIndexesOfTheLocations() throws IOException {
+    StoreCatalog catalog = StoreCatalogReader.readRepository(repository);
+    RepositoryIndexes indexes = RepositoryIndexes.build(repository, catalog);
+    StoreCatalog recordCatalog = StoreCatalogReader.fromRecords(stores);
+
+    OpeningHoursIndex openingHoursIndex = OpeningHoursIndex.build(recordCatalog);
+    for (int minuteOfWeek : new int[] {OpeningHours.minuteOfWeek(Calendar.SATURDAY, 7 * 60),
+      OpeningHours.minuteOfWeek(Calendar.MONDAY, 19 * 60)}) {
+      assertEquals(openingHoursIndex.openAt(minuteOfWeek), indexes.getOpeningHoursIndex().openAt(minuteOfWeek));
+    }
+    StoreSearchIndex storeSearchIndex = StoreSearchIndex.build(recordCatalog);
+    for (String query : Arrays.asList("broadway", "store 12", "canl", "212555104")) {
+      int[] expected = storeSearchIndex.search(query, 40.7, -74.0, 20);
+      assertTrue(expected.length > 0);
+      assertArrayEquals(expected, indexes.getStoreSearchIndex().search(query, 40.7, -74.0, 20));
+    }
+  }
+
+  @Test
+  public void build_leavesStoresAddedSinceTheCatalogWasReadOut() throws IOException {
+    StoreCatalog catalog = StoreCatalogReader.readRepository(repository);
+    repository.apply(new CatalogDelta("v2", false, Collections.singletonList(
+      new StoreRecord("added", "Added Bakery", null, "6am - 5pm", null, 40.7, -74.0)),
+      Collections.singletonList("store-1")));
+
+    RepositoryIndexes indexes = RepositoryIndexes.build(repository, catalog);
+
+    assertEquals(catalog.size(), indexes.getOpeningHoursIndex().size());
+    assertEquals(0, indexes.getStoreSearchIndex().search("bakery", 40.7, -74.0, 20).length);
+    // The deleted store stays in the catalog, but without any text or hours
+    for (int featureIndex : indexes.getStoreSearchIndex().search("store 1", 40.7, -74.0, 200)) {
+      assertTrue(featureIndex != 1);
+    }
+    assertEquals(2, indexes.getStoreSearchIndex().search("store 2", 40.7, -74.0, 1)[0]);
+    assertFalse(indexes.getOpeningHoursIndex().hoursOf(1).isKnown());
+  }
+}
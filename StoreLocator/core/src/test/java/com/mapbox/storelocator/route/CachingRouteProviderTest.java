@@ -0,0 +1,101 @@
+package com.mapbox.storelocator.route;
+
+import com.mapbox.geojson.Point;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+
+public class CachingRouteProviderTest {
+
+  private static final Point ORIGIN = Point.fromLngLat(-74.006735, 40.713469);
+  private static final Point DESTINATION = Point.fromLngLat(-73.966889, 40.761926);
+  private static final Executor DIRECT_EXECUTOR = new Executor() {
+    @Override
+    public void execute(Runnable runnable) {
+      runnable.run();
+    }
+  };
+
+  private static final RouteProvider.Request NOT_CANCELLABLE = new RouteProvider.Request() {
+    @Override
+    public void cancel() {
+    }
+  };
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void getRoute_onlyFetchesUncachedRoutes() throws IOException {
+    File cacheDirectory = temporaryFolder.newFolder("routes");
+    RouteCache routeCache = new RouteCache(new DiskRouteStore(cacheDirectory), new DiskDistanceStore(cacheDirectory));
+    CountingProvider network = new CountingProvider();
+    RecordingCallback callback = new RecordingCallback();
+    RouteProvider provider = new CachingRouteProvider(network, routeCache, "driving", DIRECT_EXECUTOR,
+      DIRECT_EXECUTOR);
+
+    provider.getRoute(ORIGIN, DESTINATION, callback);
+    provider.getRoute(ORIGIN, DESTINATION, callback);
+
+    assertEquals(1, network.requestCount);
+    assertEquals(2, callback.routeCount);
+    assertEquals("_ibE~ps|U", callback.geometry);
+    assertEquals(5200, callback.distanceInMeters, 0);
+  }
+
+  @Test
+  public void getRoute_reportsFailures() throws IOException {
+    File cacheDirectory = temporaryFolder.newFolder("routes");
+    RouteCache routeCache = new RouteCache(new DiskRouteStore(cacheDirectory), new DiskDistanceStore(cacheDirectory));
+    RecordingCallback callback = new RecordingCallback();
+    RouteProvider provider = new CachingRouteProvider(new RouteProvider() {
+      @Override
+      public Request getRoute(Point origin, Point destination, Callback callback) {
+        callback.onFailure(new IOException("offline"));
+        return NOT_CANCELLABLE;
+      }
+    }, routeCache, "driving", DIRECT_EXECUTOR, DIRECT_EXECUTOR);
+
+    provider.getRoute(ORIGIN, DESTINATION, callback);
+
+    assertEquals(0, callback.routeCount);
+    assertEquals("offline", callback.failure.getMessage());
+  }
+
+  private static class CountingProvider implements RouteProvider {
+    int requestCount;
+
+    @Override
+    public Request getRoute(Point origin, Point destination, Callback callback) {
+      requestCount++;
+      callback.onRoute("_ibE~ps|U", 5200);
+      return NOT_CANCELLABLE;
+    }
+  }
+
+  private static class RecordingCallback implements RouteProvider.Callback {
+    int routeCount;
+    String geometry;
+    double distanceInMeters;
+    Throwable failure;
+
+    @Override
+    public void onRoute(String geometry, double distanceInMeters) {
+      routeCount++;
+      this.geometry = geometry;
+      this.distanceInMeters = distanceInMeters;
+    }
+
+    @Override
+    public void onFailure(Throwable throwable) {
+      failure = throwable;
+    }
+  }
+}
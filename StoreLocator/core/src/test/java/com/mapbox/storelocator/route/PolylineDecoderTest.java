@@ -0,0 +1,46 @@
+package com.mapbox.storelocator.route;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class PolylineDecoderTest {
+
+  private static final String ENCODED = "_p~iF~ps|U_ulLnnqC_mqNvxq`@";
+
+  @Test
+  public void decodesIntoArrays() {
+    int pointCount = PolylineDecoder.pointCount(ENCODED);
+    double[] latitudes = new double[pointCount];
+    double[] longitudes = new double[pointCount];
+
+    assertEquals(3, PolylineDecoder.decode(ENCODED, PolylineDecoder.PRECISION_5, latitudes, longitudes));
+    assertEquals(38.5, latitudes[0], 1e-9);
+    assertEquals(-120.2, longitudes[0], 1e-9);
+    assertEquals(40.7, latitudes[1], 1e-9);
+    assertEquals(-120.95, longitudes[1], 1e-9);
+    assertEquals(43.252, latitudes[2], 1e-9);
+    assertEquals(-126.453, longitudes[2], 1e-9);
+  }
+
+  @Test
+  public void emptyPolylineHasNoPoints() {
+    assertEquals(0, PolylineDecoder.pointCount(""));
+    assertEquals(0, PolylineDecoder.decode("", PolylineDecoder.PRECISION_6, new double[0], new double[0]));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void truncatedLongitudeIsRejected() {
+    // The last longitude lost its final character, so only two points are counted
+    String truncated = ENCODED.substring(0, ENCODED.length() - 1);
+    int pointCount = PolylineDecoder.pointCount(truncated);
+    assertEquals(2, pointCount);
+
+    PolylineDecoder.decode(truncated, PolylineDecoder.PRECISION_5, new double[pointCount], new double[pointCount]);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void truncatedLatitudeIsRejected() {
+    PolylineDecoder.decode("_p~iF~ps|U_", PolylineDecoder.PRECISION_5, new double[2], new double[2]);
+  }
+}
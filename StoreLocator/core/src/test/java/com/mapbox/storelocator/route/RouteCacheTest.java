@@ -0,0 +1,241 @@
+package com.mapbox.storelocator.route;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RouteCacheTest {
+
+  private static final long TIME_TO_LIVE = 60000;
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private File cacheDirectory;
+  private FakeClock clock;
+
+  @Before
+  public void setUp() throws IOException {
+    cacheDirectory = temporaryFolder.newFolder("routes");
+    clock = new FakeClock();
+  }
+
+  @Test
+  public void key_quantizesNearbyOrigins() {
+    assertEquals(RouteCache.key(40.713469, -74.006735, 40.72, -74.01, "driving"),
+      RouteCache.key(40.713471, -74.006731, 40.72, -74.01, "driving"));
+    assertTrue(!RouteCache.key(40.7134, -74.0067, 40.72, -74.01, "driving")
+      .equals(RouteCache.key(40.7134, -74.0067, 40.72, -74.01, "walking")));
+  }
+
+  @Test
+  public void getRoute_readsRoutesWrittenByAnEarlierCache() {
+    newCache(16).putRoute("a", "_p~iF~ps|U_ulLnnqC", 1200);
+
+    CachedRoute route = newCache(16).getRoute("a");
+
+    assertNotNull(route);
+    assertEquals("_p~iF~ps|U_ulLnnqC", route.getGeometry());
+    assertEquals(1200, route.getDistanceInMeters(), 0);
+  }
+
+  @Test
+  public void get_expiresEntriesAfterTimeToLive() {
+    RouteCache cache = newCache(16);
+    cache.putRoute("a", "geometry", 1200);
+
+    clock.now += TIME_TO_LIVE - 1;
+    assertNotNull(cache.get("a"));
+    clock.now += 1;
+    assertNull(cache.get("a"));
+    assertNull(newCache(16).get("a"));
+  }
+
+  @Test
+  public void getDistances_readsDistancesWrittenByAnEarlierCache() {
+    String origin = RouteCache.originKey(40.713469, -74.006735, "driving");
+    long[] destinations = {RouteCache.destinationKey(40.72, -74.01), RouteCache.destinationKey(40.73, -74.02)};
+    newCache(16).putDistances(origin, new long[] {destinations[1]}, new double[] {500});
+
+    assertArrayEquals(new double[] {Double.NaN, 500}, newCache(16).getDistances(origin, destinations), 0);
+    assertArrayEquals(new double[] {Double.NaN, Double.NaN}, newCache(16).getDistances(
+      RouteCache.originKey(40.8, -74.006735, "driving"), destinations), 0);
+  }
+
+  @Test
+  public void getDistances_expiresDistancesAfterTimeToLive() {
+    RouteCache cache = newCache(16);
+    long[] destinations = {RouteCache.destinationKey(40.72, -74.01)};
+    cache.putDistances("origin", destinations, new double[] {500});
+
+    clock.now += TIME_TO_LIVE - 1;
+    assertEquals(500, cache.getDistances("origin", destinations)[0], 0);
+    clock.now += 1;
+    assertTrue(Double.isNaN(cache.getDistances("origin", destinations)[0]));
+  }
+
+  @Test
+  public void distances_doNotEvictRoutes() {
+    RouteCache cache = new RouteCache(new DiskRouteStore(cacheDirectory, 2), new DiskDistanceStore(cacheDirectory),
+      2, TIME_TO_LIVE, clock);
+    cache.putRoute("a", "geometry", 1200);
+    long[] destinations = new long[5000];
+    double[] distances = new double[destinations.length];
+    for (int x = 0; x < destinations.length; x++) {
+      destinations[x] = RouteCache.destinationKey(40 + x * 1e-3, -74);
+      distances[x] = x;
+    }
+    cache.putDistances("origin", destinations, distances);
+
+    assertTrue(cache.hasRouteInMemory("a"));
+    assertNotNull(newCache(16).getRoute("a"));
+    assertArrayEquals(distances, newCache(16).getDistances("origin", destinations), 0);
+  }
+
+  @Test
+  public void memoryTier_evictsLeastRecentlyUsed() {
+    CountingStore store = new CountingStore(new DiskRouteStore(cacheDirectory));
+    RouteCache cache = new RouteCache(store, new DiskDistanceStore(cacheDirectory), 2, TIME_TO_LIVE, clock);
+    cache.putRoute("a", "geometry", 1);
+    cache.putRoute("b", "geometry", 2);
+    cache.get("a");
+    cache.putRoute("c", "geometry", 3);
+    store.reads = 0;
+
+    cache.get("a");
+    cache.get("c");
+    assertEquals(0, store.reads);
+    cache.get("b");
+    assertEquals(1, store.reads);
+  }
+
+  @Test(timeout = 5000)
+  public void hasRouteInMemory_doesNotWaitForDiskReads() throws Exception {
+    final CountDownLatch readStarted = new CountDownLatch(1);
+    final CountDownLatch releaseRead = new CountDownLatch(1);
+    final RouteCache cache = new RouteCache(new CountingStore(new DiskRouteStore(cacheDirectory)) {
+      @Override
+      public CachedRoute read(String key) throws IOException {
+        readStarted.countDown();
+        try {
+          releaseRead.await();
+        } catch (InterruptedException exception) {
+          Thread.currentThread().interrupt();
+        }
+        return super.read(key);
+      }
+    }, new DiskDistanceStore(cacheDirectory), 16, TIME_TO_LIVE, clock);
+    cache.putRoute("a", "geometry", 1200);
+    Thread reader = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        cache.get("b");
+      }
+    });
+    reader.start();
+    readStarted.await();
+
+    assertTrue(cache.hasRouteInMemory("a"));
+    releaseRead.countDown();
+    reader.join();
+  }
+
+  @Test
+  public void diskStore_evictsLeastRecentlyUsedFiles() throws IOException {
+    DiskRouteStore store = new DiskRouteStore(cacheDirectory, 10);
+    for (int x = 0; x < 11; x++) {
+      store.write("route-" + x, new CachedRoute(null, x, 0));
+      new File(cacheDirectory, Integer.toHexString(("route-" + x).hashCode()) + ".route").setLastModified(x * 1000L);
+    }
+    store.write("route-11", new CachedRoute(null, 11, 0));
+
+    assertNull(store.read("route-0"));
+    assertNotNull(store.read("route-11"));
+    assertTrue(cacheDirectory.listFiles().length <= 10);
+  }
+
+  @Test
+  public void distanceStore_appendsWritesAndSurvivesATruncatedWrite() throws IOException {
+    DiskDistanceStore store = new DiskDistanceStore(cacheDirectory);
+    store.write("origin", new long[] {3, 1}, new double[] {30, 10}, 100);
+    store.write("origin", new long[] {2, 3}, new double[] {20, 31}, 200);
+    File file = cacheDirectory.listFiles()[0];
+    RandomAccessFile truncated = new RandomAccessFile(file, "rw");
+    truncated.setLength(file.length() - 4);
+    truncated.close();
+
+    double[] distances = new double[4];
+    long[] createdAtMillis = new long[4];
+    new DiskDistanceStore(cacheDirectory).read("origin", new long[] {1, 2, 3, 4}, distances, createdAtMillis);
+
+    assertArrayEquals(new double[] {10, 20, 30, Double.NaN}, distances, 0);
+    assertArrayEquals(new long[] {100, 200, 100, 0}, createdAtMillis);
+  }
+
+  @Test
+  public void distanceStore_keepsMostRecentlyUsedOrigins() throws IOException {
+    DiskDistanceStore store = new DiskDistanceStore(cacheDirectory, 2);
+    for (int x = 0; x < 3; x++) {
+      store.write("origin-" + x, new long[] {1}, new double[] {x}, 100);
+      new File(cacheDirectory, Integer.toHexString(("origin-" + x).hashCode()) + ".distances")
+        .setLastModified(x * 1000L);
+    }
+
+    double[] distances = new double[1];
+    new DiskDistanceStore(cacheDirectory).read("origin-0", new long[] {1}, distances, new long[1]);
+    assertTrue(Double.isNaN(distances[0]));
+    new DiskDistanceStore(cacheDirectory).read("origin-2", new long[] {1}, distances, new long[1]);
+    assertEquals(2, distances[0], 0);
+  }
+
+  private RouteCache newCache(int memoryCapacity) {
+    return new RouteCache(new DiskRouteStore(cacheDirectory), new DiskDistanceStore(cacheDirectory), memoryCapacity,
+      TIME_TO_LIVE, clock);
+  }
+
+  private static class FakeClock implements RouteCache.Clock {
+    long now = 1000000;
+
+    @Override
+    public long currentTimeMillis() {
+      return now;
+    }
+  }
+
+  private static class CountingStore implements RouteCache.Store {
+    private final RouteCache.Store delegate;
+    int reads;
+
+    CountingStore(RouteCache.Store delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public CachedRoute read(String key) throws IOException {
+      reads++;
+      return delegate.read(key);
+    }
+
+    @Override
+    public void write(String key, CachedRoute route) throws IOException {
+      delegate.write(key, route);
+    }
+
+    @Override
+    public void remove(String key) throws IOException {
+      delegate.remove(key);
+    }
+  }
+}
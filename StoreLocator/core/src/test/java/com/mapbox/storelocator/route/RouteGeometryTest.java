@@ -0,0 +1,55 @@
+package com.mapbox.storelocator.route;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RouteGeometryTest {
+
+  @Test
+  public void straightLineKeepsOnlyItsEnds() {
+    double[] latitudes = {40.70, 40.71, 40.72, 40.73, 40.74};
+    double[] longitudes = {-74.00, -74.00, -74.00, -74.00, -74.00};
+    RouteGeometry geometry = RouteGeometry.build(latitudes, longitudes, RouteGeometry.DEFAULT_TOLERANCE_PIXELS);
+
+    assertArrayEquals(new int[] {0, 4}, geometry.levelOfDetail(RouteGeometry.MAX_ZOOM));
+  }
+
+  @Test
+  public void detailGrowsWithZoom() {
+    // A zigzag with 0.001 degree (about 100 meter) turns
+    int size = 200;
+    double[] latitudes = new double[size];
+    double[] longitudes = new double[size];
+    for (int i = 0; i < size; i++) {
+      latitudes[i] = 40.7 + (i % 2) * 0.001;
+      longitudes[i] = -74 + i * 0.001;
+    }
+    RouteGeometry geometry = RouteGeometry.build(latitudes, longitudes, RouteGeometry.DEFAULT_TOLERANCE_PIXELS);
+
+    assertArrayEquals(new int[] {0, size - 1}, geometry.levelOfDetail(0));
+    assertEquals(size, geometry.levelOfDetail(16).length);
+    int previousLength = 0;
+    for (int zoom = 0; zoom <= RouteGeometry.MAX_ZOOM; zoom++) {
+      int[] level = geometry.levelOfDetail(zoom);
+      assertTrue(level.length >= previousLength);
+      for (int i = 1; i < level.length; i++) {
+        assertTrue(level[i] > level[i - 1]);
+      }
+      previousLength = level.length;
+    }
+    assertSame(geometry.levelOfDetail(18), geometry.levelOfDetail(RouteGeometry.MAX_ZOOM));
+  }
+
+  @Test
+  public void decodesPolyline() {
+    RouteGeometry geometry = RouteGeometry.fromPolyline("_p~iF~ps|U_ulLnnqC_mqNvxq`@", PolylineDecoder.PRECISION_5);
+
+    assertEquals(3, geometry.size());
+    assertEquals(43.252, geometry.latitude(2), 1e-9);
+    assertEquals(-126.453, geometry.longitude(2), 1e-9);
+  }
+}
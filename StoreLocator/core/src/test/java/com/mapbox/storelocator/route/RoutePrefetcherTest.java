@@ -0,0 +1,133 @@
+package com.mapbox.storelocator.route;
+
+import com.mapbox.geojson.Point;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class RoutePrefetcherTest {
+
+  private static final Point ORIGIN = Point.fromLngLat(-74.006735, 40.713469);
+  private static final List<Point> DESTINATIONS = Arrays.asList(Point.fromLngLat(-73.99, 40.71),
+    Point.fromLngLat(-73.98, 40.72), Point.fromLngLat(-73.97, 40.73), Point.fromLngLat(-73.96, 40.74));
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private RouteCache routeCache;
+  private PendingProvider provider;
+  private long now;
+
+  @Before
+  public void setUp() throws IOException {
+    File cacheDirectory = temporaryFolder.newFolder("routes");
+    routeCache = new RouteCache(new DiskRouteStore(cacheDirectory), new DiskDistanceStore(cacheDirectory));
+    provider = new PendingProvider();
+  }
+
+  @Test
+  public void prefetch_capsConcurrentPrefetches() {
+    RoutePrefetcher prefetcher = newPrefetcher(2, 10);
+
+    prefetcher.prefetch(ORIGIN, DESTINATIONS);
+
+    assertEquals(2, provider.requests.size());
+    assertEquals(DESTINATIONS.get(0), provider.requests.get(0).destination);
+
+    provider.requests.get(0).callback.onRoute("route", 1000);
+
+    assertEquals(3, provider.requests.size());
+    assertEquals(DESTINATIONS.get(2), provider.requests.get(2).destination);
+  }
+
+  @Test
+  public void prefetch_respectsRateLimit() {
+    RoutePrefetcher prefetcher = newPrefetcher(4, 3);
+
+    prefetcher.prefetch(ORIGIN, DESTINATIONS);
+    for (PendingRequest request : new ArrayList<>(provider.requests)) {
+      request.callback.onRoute("route", 1000);
+    }
+    assertEquals(3, provider.requests.size());
+
+    // The window has moved on
+    now += 60000;
+    prefetcher.prefetch(ORIGIN, DESTINATIONS.subList(3, 4));
+    assertEquals(4, provider.requests.size());
+  }
+
+  @Test
+  public void prefetch_skipsRoutesCachedInMemoryAndReplacesPendingOnes() {
+    Point cached = DESTINATIONS.get(0);
+    routeCache.putRoute(RouteCache.key(ORIGIN.latitude(), ORIGIN.longitude(), cached.latitude(),
+      cached.longitude(), "driving"), "cached", 1000);
+    RoutePrefetcher prefetcher = newPrefetcher(1, 10);
+
+    prefetcher.prefetch(ORIGIN, DESTINATIONS.subList(0, 3));
+    prefetcher.prefetch(ORIGIN, DESTINATIONS.subList(3, 4));
+    provider.requests.get(0).callback.onRoute("route", 1000);
+
+    assertEquals(2, provider.requests.size());
+    assertEquals(DESTINATIONS.get(1), provider.requests.get(0).destination);
+    assertEquals(DESTINATIONS.get(3), provider.requests.get(1).destination);
+  }
+
+  @Test
+  public void cancel_cancelsRunningPrefetches() {
+    RoutePrefetcher prefetcher = newPrefetcher(2, 10);
+
+    prefetcher.prefetch(ORIGIN, DESTINATIONS);
+    prefetcher.cancel();
+
+    assertEquals(2, provider.requests.size());
+    assertEquals(1, provider.requests.get(0).cancelCount);
+    assertEquals(1, provider.requests.get(1).cancelCount);
+  }
+
+  private RoutePrefetcher newPrefetcher(int maxConcurrentPrefetches, int maxPrefetchesPerWindow) {
+    return new RoutePrefetcher(provider, routeCache, "driving", maxConcurrentPrefetches, maxPrefetchesPerWindow,
+      60000, new RouteCache.Clock() {
+        @Override
+        public long currentTimeMillis() {
+          return now;
+        }
+      });
+  }
+
+  private static class PendingProvider implements RouteProvider {
+    final List<PendingRequest> requests = new ArrayList<>();
+
+    @Override
+    public Request getRoute(Point origin, Point destination, Callback callback) {
+      PendingRequest request = new PendingRequest(destination, callback);
+      requests.add(request);
+      return request;
+    }
+  }
+
+  private static class PendingRequest implements RouteProvider.Request {
+    final Point destination;
+    final RouteProvider.Callback callback;
+    int cancelCount;
+
+    PendingRequest(Point destination, RouteProvider.Callback callback) {
+      this.destination = destination;
+      this.callback = callback;
+    }
+
+    @Override
+    public void cancel() {
+      cancelCount++;
+    }
+  }
+}
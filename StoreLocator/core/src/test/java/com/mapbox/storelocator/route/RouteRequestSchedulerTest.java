@@ -0,0 +1,149 @@
+package com.mapbox.storelocator.route;
+
+import com.mapbox.geojson.Point;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RouteRequestSchedulerTest {
+
+  private static final Point ORIGIN = Point.fromLngLat(-74.006735, 40.713469);
+  private static final Point DOWNTOWN = Point.fromLngLat(-74.0, 40.7);
+  private static final Point UPTOWN = Point.fromLngLat(-73.95, 40.8);
+
+  @Test
+  public void getRoute_sharesIdenticalConcurrentRequests() {
+    PendingProvider provider = new PendingProvider();
+    RouteRequestScheduler scheduler = new RouteRequestScheduler(provider, "driving");
+    RecordingCallback first = new RecordingCallback();
+    RecordingCallback second = new RecordingCallback();
+
+    scheduler.getRoute(ORIGIN, DOWNTOWN, first);
+    scheduler.getRoute(ORIGIN, DOWNTOWN, second).cancel();
+    RecordingCallback third = new RecordingCallback();
+    scheduler.getRoute(ORIGIN, DOWNTOWN, third);
+
+    assertEquals(1, provider.requests.size());
+    provider.requests.get(0).callback.onRoute("downtown", 1000);
+
+    assertEquals(1, first.routes.size());
+    assertEquals(0, second.routes.size());
+    assertEquals(1, third.routes.size());
+    assertEquals(0, provider.requests.get(0).cancelCount);
+    assertEquals(0, scheduler.inFlightRequestCount());
+  }
+
+  @Test
+  public void getLatestRoute_cancelsSupersededRequests() {
+    PendingProvider provider = new PendingProvider();
+    RouteRequestScheduler scheduler = new RouteRequestScheduler(provider, "driving");
+    RecordingCallback downtown = new RecordingCallback();
+    RecordingCallback uptown = new RecordingCallback();
+
+    scheduler.getLatestRoute(ORIGIN, DOWNTOWN, downtown);
+    scheduler.getLatestRoute(ORIGIN, UPTOWN, uptown);
+
+    assertEquals(1, provider.requests.get(0).cancelCount);
+    assertEquals(1, scheduler.inFlightRequestCount());
+
+    // A response that was already on its way when the request was cancelled is dropped
+    provider.requests.get(0).callback.onRoute("downtown", 1000);
+    provider.requests.get(1).callback.onRoute("uptown", 2000);
+
+    assertTrue(downtown.routes.isEmpty());
+    assertEquals("uptown", uptown.routes.get(0));
+  }
+
+  @Test
+  public void getLatestRoute_repeatedSelectionJoinsRunningRequest() {
+    PendingProvider provider = new PendingProvider();
+    RouteRequestScheduler scheduler = new RouteRequestScheduler(provider, "driving");
+    RecordingCallback first = new RecordingCallback();
+    RecordingCallback second = new RecordingCallback();
+
+    scheduler.getLatestRoute(ORIGIN, DOWNTOWN, first);
+    scheduler.getLatestRoute(ORIGIN, DOWNTOWN, second);
+    provider.requests.get(0).callback.onFailure(new IllegalStateException("No routes found"));
+
+    assertEquals(1, provider.requests.size());
+    assertEquals(0, provider.requests.get(0).cancelCount);
+    assertEquals(0, first.failureCount);
+    assertEquals(1, second.failureCount);
+  }
+
+  @Test(timeout = 5000)
+  public void onRoute_invokesCallbacksWithoutHoldingTheSchedulerLock() throws InterruptedException {
+    PendingProvider provider = new PendingProvider();
+    final RouteRequestScheduler scheduler = new RouteRequestScheduler(provider, "driving");
+    final Thread[] requester = new Thread[1];
+    scheduler.getRoute(ORIGIN, DOWNTOWN, new RecordingCallback() {
+      @Override
+      public void onRoute(String geometry, double distanceInMeters) {
+        // Another thread requests a route while this callback runs, as a prefetcher would
+        requester[0] = new Thread(new Runnable() {
+          @Override
+          public void run() {
+            scheduler.getRoute(ORIGIN, UPTOWN, new RecordingCallback());
+          }
+        });
+        requester[0].start();
+        try {
+          requester[0].join(1000);
+        } catch (InterruptedException exception) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    });
+
+    provider.requests.get(0).callback.onRoute("downtown", 1000);
+
+    assertFalse(requester[0].isAlive());
+    assertEquals(2, provider.requests.size());
+  }
+
+  private static class PendingProvider implements RouteProvider {
+    final List<PendingRequest> requests = new ArrayList<>();
+
+    @Override
+    public Request getRoute(Point origin, Point destination, Callback callback) {
+      PendingRequest request = new PendingRequest(callback);
+      requests.add(request);
+      return request;
+    }
+  }
+
+  private static class PendingRequest implements RouteProvider.Request {
+    final RouteProvider.Callback callback;
+    int cancelCount;
+
+    PendingRequest(RouteProvider.Callback callback) {
+      this.callback = callback;
+    }
+
+    @Override
+    public void cancel() {
+      cancelCount++;
+    }
+  }
+
+  private static class RecordingCallback implements RouteProvider.Callback {
+    final List<String> routes = new ArrayList<>();
+    int failureCount;
+
+    @Override
+    public void onRoute(String geometry, double distanceInMeters) {
+      routes.add(geometry);
+    }
+
+    @Override
+    public void onFailure(Throwable throwable) {
+      failureCount++;
+    }
+  }
+}
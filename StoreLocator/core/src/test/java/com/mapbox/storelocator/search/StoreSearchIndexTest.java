@@ -0,0 +1,131 @@
+package com.mapbox.storelocator.search;
+
+import com.mapbox.storelocator.index.IntArray;
+import com.mapbox.storelocator.model.IndividualLocation;
+import com.mapbox.storelocator.model.StoreCatalog;
+import com.mapbox.storelocator.model.StoreRegistry;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StoreSearchIndexTest {
+
+  private StoreSearchIndex index;
+
+  @Before
+  public void setUp() {
+    index = StoreSearchIndex.build(catalog(
+      new String[] {"Joe's Pizza", "7 Carmine St, New York", "(212) 366-1182"},
+      new String[] {"Caf\u00e9 Mogador", "101 St Marks Pl, New York", "(212) 677-2226"},
+      new String[] {"Pizza Suprema", "413 8th Ave, New York", "(212) 594-8939"},
+      new String[] {"Ample Hills Creamery", "623 Vanderbilt Ave, Brooklyn", "(347) 240-3926"}));
+  }
+
+  @Test
+  public void matchesWordPrefixes() {
+    assertArrayEquals(new int[] {0, 2}, index.search("piz", Double.NaN, Double.NaN, 10));
+    assertArrayEquals(new int[] {3}, index.search("ample hil", Double.NaN, Double.NaN, 10));
+  }
+
+  @Test
+  public void ranksExactAndNameMatchesFirst() {
+    StoreSearchIndex index = StoreSearchIndex.build(catalog(
+      new String[] {"Bedford Bakery", "1 Main St", ""},
+      new String[] {"Main Street Deli", "2 Bedford Ave", ""},
+      new String[] {"Mainly Bagels", "3 Elm St", ""}));
+
+    assertArrayEquals(new int[] {1, 2, 0}, index.search("main", Double.NaN, Double.NaN, 10));
+    assertArrayEquals(new int[] {1, 2}, index.search("main", Double.NaN, Double.NaN, 2));
+    assertArrayEquals(new int[] {1, 0}, index.search("main bedf", Double.NaN, Double.NaN, 10));
+    assertArrayEquals(new int[] {2}, index.search("main bag", Double.NaN, Double.NaN, 10));
+  }
+
+  @Test
+  public void ignoresAccentsCaseAndApostrophes() {
+    assertArrayEquals(new int[] {1}, index.search("CAFE", Double.NaN, Double.NaN, 10));
+    assertArrayEquals(new int[] {0}, index.search("joes", Double.NaN, Double.NaN, 10));
+  }
+
+  @Test
+  public void matchesMisspelledWords() {
+    assertArrayEquals(new int[] {3}, index.search("creamry", Double.NaN, Double.NaN, 10));
+    assertArrayEquals(new int[] {3}, index.search("vandrebilt", Double.NaN, Double.NaN, 10));
+    assertEquals(0, index.search("xyzzy", Double.NaN, Double.NaN, 10).length);
+  }
+
+  @Test
+  public void matchesPhoneNumbersHoweverFormatted() {
+    assertArrayEquals(new int[] {1}, index.search("212-677", Double.NaN, Double.NaN, 10));
+    assertArrayEquals(new int[] {3}, index.search("(347) 240", Double.NaN, Double.NaN, 10));
+  }
+
+  @Test
+  public void prefersCloserStoresForEqualMatches() {
+    // Both pizza places match equally well, the one closer to the origin comes first
+    int[] results = index.search("pizza", 40.7540, -73.9950, 10);
+    assertArrayEquals(new int[] {2, 0}, results);
+  }
+
+  @Test
+  public void prefixEditDistance_measuresAgainstClosestPrefix() {
+    int[] row = new int[8];
+    int[] previousRow = new int[8];
+    assertEquals(0, StoreSearchIndex.prefixEditDistance("vand", "vanderbilt", 2, row, previousRow));
+    assertEquals(1, StoreSearchIndex.prefixEditDistance("vamd", "vanderbilt", 2, row, previousRow));
+    assertTrue(StoreSearchIndex.prefixEditDistance("brook", "vanderbilt", 1, row, previousRow) > 1);
+  }
+
+  @Test
+  public void search_50kStores_findsEveryStoreMatchingAllWords() {
+    String[] names = {"Pizza", "Coffee", "Bakery", "Deli", "Market", "Burger", "Creamery", "Bagels"};
+    String[] streets = {"Broadway", "Houston St", "Canal St", "Bleecker St", "Atlantic Ave", "Bedford Ave"};
+    Random random = new Random(42);
+    String[][] stores = new String[50000][];
+    IntArray expected = new IntArray();
+    for (int x = 0; x < stores.length; x++) {
+      String name = names[random.nextInt(names.length)];
+      String street = streets[random.nextInt(streets.length)];
+      stores[x] = new String[] {name + " " + Integer.toString(x, 36),
+        random.nextInt(1000) + " " + street + ", New York",
+        "(212) " + (100 + random.nextInt(900)) + "-" + (1000 + random.nextInt(9000))};
+      if (name.equals("Pizza") && street.equals("Broadway")) {
+        expected.add(x);
+      }
+    }
+    StoreSearchIndex largeIndex = StoreSearchIndex.build(catalog(stores));
+
+    int[] results = largeIndex.search("broadwy piz", Double.NaN, Double.NaN, stores.length);
+    Arrays.sort(results);
+    assertArrayEquals(expected.toArray(), results);
+
+    // Searches in between leave nothing behind that changes the next results
+    int[] nearest = largeIndex.search("broadwy piz", 40.7, -74.0, 20);
+    largeIndex.search("bro", 40.7, -74.0, 20);
+    largeIndex.search("bakery houston", 40.7, -74.0, 20);
+    assertEquals(20, nearest.length);
+    assertArrayEquals(nearest, largeIndex.search("broadwy piz", 40.7, -74.0, 20));
+  }
+
+  private static StoreCatalog catalog(String[]... stores) {
+    StoreRegistry storeRegistry = new StoreRegistry();
+    List<IndividualLocation> locations = new ArrayList<>();
+    double[] latitudes = new double[stores.length];
+    double[] longitudes = new double[stores.length];
+    for (int x = 0; x < stores.length; x++) {
+      latitudes[x] = 40.7 + x * 0.01 % 0.2;
+      longitudes[x] = -74.0 + x * 0.007 % 0.2;
+      locations.add(new IndividualLocation(storeRegistry.add("store-" + x), stores[x][0], stores[x][1], "",
+        stores[x][2], latitudes[x], longitudes[x]));
+    }
+    return new StoreCatalog(locations, storeRegistry, latitudes, longitudes);
+  }
+}
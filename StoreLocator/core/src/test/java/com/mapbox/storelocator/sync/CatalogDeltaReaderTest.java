@@ -0,0 +1,50 @@
+package com.mapbox.storelocator.sync;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class CatalogDeltaReaderTest {
+
+  private static final String DELTA = "{\"version\": \"v2\", \"deleted\": [\"closed\"],"
+    + " \"type\": \"FeatureCollection\", \"features\": ["
+    + "{\"type\": \"Feature\", \"id\": \"downtown\", \"properties\": {\"name\": \"Downtown\", \"hours\": \"6am - 5pm\"},"
+    + " \"geometry\": {\"type\": \"Point\", \"coordinates\": [-74.0, 40.7]}},"
+    + "{\"type\": \"Feature\", \"properties\": {\"name\": \"No id\"},"
+    + " \"geometry\": {\"type\": \"Point\", \"coordinates\": [-73.95, 40.8]}}]}";
+
+  @Test
+  public void read_readsUpsertsDeletesAndVersion() throws IOException {
+    CatalogDelta delta = CatalogDeltaReader.read(json(DELTA), null);
+
+    assertEquals("v2", delta.getVersion());
+    assertFalse(delta.isFull());
+    assertEquals(Arrays.asList("closed"), delta.getDeletedIds());
+    assertEquals(1, delta.getUpserts().size());
+    StoreRecord downtown = delta.getUpserts().get(0);
+    assertEquals("downtown", downtown.getId());
+    assertEquals("6am - 5pm", downtown.getHours());
+    assertEquals(40.7, downtown.getLatitude(), 1e-9);
+  }
+
+  @Test
+  public void read_prefersGivenVersion() throws IOException {
+    assertEquals("\"etag\"", CatalogDeltaReader.read(json(DELTA), "\"etag\"").getVersion());
+  }
+
+  @Test(expected = IOException.class)
+  public void read_withoutVersion_fails() throws IOException {
+    CatalogDeltaReader.read(json("{\"features\": []}"), null);
+  }
+
+  private static InputStream json(String json) {
+    return new ByteArrayInputStream(json.getBytes(Charset.forName("UTF-8")));
+  }
+}
@@ -0,0 +1,53 @@
+package com.mapbox.storelocator.sync;
+
+import com.mapbox.storelocator.repository.InMemoryStoreRepository;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class CatalogSynchronizerTest {
+
+  @Test
+  public void sync_requestsChangesSinceStoredVersion() throws IOException {
+    final List<String> requestedVersions = new ArrayList<>();
+    final List<CatalogDelta> responses = new ArrayList<>(Arrays.asList(
+      new CatalogDelta("v1", true, Arrays.asList(store("a", "A")), Collections.<String>emptyList()),
+      new CatalogDelta("v2", false, Arrays.asList(store("b", "B")), Collections.<String>emptyList()),
+      null));
+    InMemoryStoreRepository database = new InMemoryStoreRepository();
+    CatalogSynchronizer synchronizer = new CatalogSynchronizer(new CatalogSyncTransport() {
+      @Override
+      public CatalogDelta fetchChanges(String version) {
+        requestedVersions.add(version);
+        return responses.remove(0);
+      }
+    }, database);
+
+    assertEquals("v1", synchronizer.sync().getVersion());
+    assertEquals("v2", synchronizer.sync().getVersion());
+    assertNull(synchronizer.sync());
+
+    assertEquals(Arrays.asList(null, "v1", "v2"), requestedVersions);
+    assertEquals(Arrays.asList("A", "B"), names(database.readAll()));
+  }
+
+  private static StoreRecord store(String id, String name) {
+    return new StoreRecord(id, name, null, "6am - 5pm", null, 40.7, -74.0);
+  }
+
+  private static List<String> names(List<StoreRecord> records) {
+    List<String> names = new ArrayList<>();
+    for (StoreRecord record : records) {
+      names.add(record.getName());
+    }
+    return names;
+  }
+}